@@ -2,14 +2,19 @@ plugins {
 	java
 	id("org.springframework.boot") version "3.5.4"
 	id("io.spring.dependency-management") version "1.1.7"
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.meobeo.truyen"
 version = "0.0.1-SNAPSHOT"
 
+// Mặc định build bằng Java 17. Bản chạy được virtual thread (spring.threads.virtual.enabled=true)
+// build bằng Java 21: ./gradlew bootJar -PjavaVersion=21
+val javaVersion = (findProperty("javaVersion") as String?)?.toInt() ?: 17
+
 java {
 	toolchain {
-		languageVersion = JavaLanguageVersion.of(17)
+		languageVersion = JavaLanguageVersion.of(javaVersion)
 	}
 }
 
@@ -35,11 +40,14 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-security")
 	implementation("org.springframework.boot:spring-boot-starter-web")
 	implementation("org.springframework.boot:spring-boot-starter-validation")
+	implementation("org.springframework.boot:spring-boot-starter-actuator")
+	runtimeOnly("io.micrometer:micrometer-registry-prometheus")
 	implementation("io.github.cdimascio:java-dotenv:5.2.2")
 	implementation("org.springframework.boot:spring-boot-starter-oauth2-client")
 	implementation("org.mapstruct:mapstruct:1.6.3")
 	implementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310")
 	implementation("org.apache.commons:commons-lang3:3.12.0")
+	implementation("com.github.ben-manes.caffeine:caffeine")
 	implementation("com.sendgrid:sendgrid-java:4.10.1")
 	implementation("com.cloudinary:cloudinary-http44:1.33.0")
 	implementation("io.jsonwebtoken:jjwt-api:0.11.5")
@@ -53,6 +61,9 @@ dependencies {
 	annotationProcessor("org.projectlombok:lombok")
 	testImplementation("org.springframework.boot:spring-boot-starter-test")
 	testImplementation("org.springframework.security:spring-security-test")
+	testImplementation("org.springframework.boot:spring-boot-testcontainers")
+	testImplementation("org.testcontainers:junit-jupiter")
+	testImplementation("org.testcontainers:postgresql")
 	testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 	implementation("com.google.api-client:google-api-client:2.2.0")
 	implementation("com.google.oauth-client:google-oauth-client:1.34.1")
@@ -66,8 +77,39 @@ dependencies {
 	
 	// HTML parser for EPUB content
 	implementation("org.jsoup:jsoup:1.17.2")
+
+	// Mock repository cho benchmark mapper
+	jmh("org.mockito:mockito-core")
+}
+
+tasks.test {
+	useJUnitPlatform {
+		excludeTags("benchmark")
+	}
+}
+
+// Benchmark cần PostgreSQL thật (Testcontainers, cần Docker) trong src/test/java, gắn @Tag("benchmark").
+// Không chạy trong ./gradlew test, chạy riêng bằng ./gradlew benchmarkTest, kết quả ghi qua log (SLF4J)
+tasks.register<Test>("benchmarkTest") {
+	description = "Chạy các benchmark dùng PostgreSQL (Testcontainers)"
+	group = "verification"
+	testClassesDirs = sourceSets.test.get().output.classesDirs
+	classpath = sourceSets.test.get().runtimeClasspath
+	useJUnitPlatform {
+		includeTags("benchmark")
+	}
+	testLogging.showStandardStreams = true
+	outputs.upToDateWhen { false }
+	shouldRunAfter(tasks.test)
 }
 
-tasks.withType<Test> {
-	useJUnitPlatform()
+// Benchmark JMH trong src/jmh/java, chạy bằng ./gradlew jmh
+// Kết quả xuất ra build/reports/jmh/results.json
+jmh {
+	jmhVersion = "1.37"
+	fork = 1
+	warmupIterations = 3
+	iterations = 5
+	resultFormat = "JSON"
+	resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
 }
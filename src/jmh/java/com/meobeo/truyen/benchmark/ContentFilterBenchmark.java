@@ -0,0 +1,103 @@
+package com.meobeo.truyen.benchmark;
+
+import com.meobeo.truyen.utils.BannedWordMatcher;
+import com.meobeo.truyen.utils.ContentFilterUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * So sánh bộ lọc từ cấm cũ (contains + regex backtracking cho từng từ) với automaton Aho-Corasick
+ * trên comment khoảng 10 KB
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ContentFilterBenchmark {
+
+    private static final int TEXT_BYTES = 10 * 1024;
+
+    private static final String[] CLEAN_WORDS = {
+            "truyện", "hay", "quá", "tác", "giả", "viết", "chương", "này", "nhân", "vật", "chính",
+            "các", "bạn", "ơi", "đọc", "tiếp", "đi", "mình", "thấy", "vai", "trò",
+            "tu", "luyện", "cảnh", "giới", "đột", "phá", "kiếm", "pháp", "sư", "phụ", "đệ", "tử" };
+
+    /**
+     * clean: không có từ cấm (trường hợp phổ biến, phải duyệt hết văn bản);
+     * bannedAtEnd: từ cấm nằm cuối văn bản.
+     * Bộ lọc cũ vẫn báo "clean" có từ cấm vì [\d\W]* coi chữ có dấu là ký tự phân cách ("đệ mình" khớp "đm"),
+     * nên ở trường hợp này nó dừng sớm hơn bình thường
+     */
+    @Param({ "clean", "bannedAtEnd" })
+    public String content;
+
+    private String text;
+    private BannedWordMatcher matcher;
+    private LegacyContentFilter legacyContentFilter;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(TEXT_BYTES);
+        while (builder.toString().getBytes(StandardCharsets.UTF_8).length < TEXT_BYTES) {
+            builder.append(CLEAN_WORDS[random.nextInt(CLEAN_WORDS.length)]);
+            builder.append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        if ("bannedAtEnd".equals(content)) {
+            builder.append(" đ.m");
+        }
+        text = builder.toString();
+
+        // Đo thẳng automaton, không qua ContentFilterUtil để không tính thời gian ghi log khi gặp từ cấm
+        matcher = BannedWordMatcher.build(ContentFilterUtil.DEFAULT_BANNED_WORDS);
+        legacyContentFilter = new LegacyContentFilter();
+    }
+
+    @Benchmark
+    public boolean ahoCorasick() {
+        return matcher.findFirst(text) != null;
+    }
+
+    @Benchmark
+    public boolean legacyRegex() {
+        return legacyContentFilter.containsInappropriateContent(text);
+    }
+
+    /**
+     * Bản sao cài đặt cũ của ContentFilterUtil để so sánh
+     */
+    static final class LegacyContentFilter {
+
+        private static final List<String> BANNED_WORDS = ContentFilterUtil.DEFAULT_BANNED_WORDS;
+
+        private static final List<Pattern> BANNED_PATTERNS = BANNED_WORDS.stream()
+                .map(word -> Pattern.compile(
+                        "(?i).*" + word.chars()
+                                .mapToObj(c -> "[" + (char) c + "]")
+                                .reduce("", (a, b) -> a + "[\\d\\W]*" + b) + ".*"))
+                .toList();
+
+        boolean containsInappropriateContent(String content) {
+            if (content == null || content.trim().isEmpty()) {
+                return false;
+            }
+
+            String normalizedContent = content.replaceAll("[\\d\\p{Punct}\\s]+", "").toLowerCase();
+            for (String bannedWord : BANNED_WORDS) {
+                if (normalizedContent.toLowerCase().contains(bannedWord.toLowerCase())) {
+                    return true;
+                }
+            }
+            for (Pattern pattern : BANNED_PATTERNS) {
+                if (pattern.matcher(normalizedContent).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.meobeo.truyen.benchmark;
+
+import com.meobeo.truyen.config.JwtConfig;
+import com.meobeo.truyen.utils.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tạo access token, xác thực và đọc userId từ token (việc JwtAuthenticationFilter làm ở mỗi request)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    // HS512 cần secret tối thiểu 64 byte
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setup() {
+        JwtConfig jwtConfig = new JwtConfig();
+        jwtConfig.setSecret(SECRET);
+        jwtConfig.getAccessToken().setExpiration(TimeUnit.HOURS.toMillis(1));
+        jwtConfig.getRefreshToken().setExpiration(TimeUnit.DAYS.toMillis(7));
+        jwtUtil = new JwtUtil(jwtConfig);
+        token = jwtUtil.generateAccessToken(42L, "docgia42", "USER");
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtUtil.generateAccessToken(42L, "docgia42", "USER");
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Long getUserIdFromToken() {
+        return jwtUtil.getUserIdFromToken(token);
+    }
+}
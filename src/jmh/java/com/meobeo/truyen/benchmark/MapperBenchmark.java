@@ -0,0 +1,248 @@
+package com.meobeo.truyen.benchmark;
+
+import com.meobeo.truyen.domain.entity.Genre;
+import com.meobeo.truyen.domain.entity.Story;
+import com.meobeo.truyen.domain.entity.StoryStats;
+import com.meobeo.truyen.domain.entity.User;
+import com.meobeo.truyen.domain.repository.ChapterUnlockRepository;
+import com.meobeo.truyen.domain.response.chapter.ChapterSummaryDto;
+import com.meobeo.truyen.domain.response.story.StoryResponse;
+import com.meobeo.truyen.mapper.ChapterMapper;
+import com.meobeo.truyen.mapper.StoryMapper;
+import com.meobeo.truyen.mapper.StoryStatsLoader;
+import com.meobeo.truyen.repository.ChapterPaymentRepository;
+import com.meobeo.truyen.repository.ChapterRepository;
+import com.meobeo.truyen.repository.StoryRepository;
+import com.meobeo.truyen.service.impl.ChapterContentCache;
+import com.meobeo.truyen.service.impl.ChapterLockIndex;
+import com.meobeo.truyen.service.interfaces.StoryStatsService;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chuyển entity/projection sang response: 1 trang truyện (StoryMapper.toResponseList),
+ * 1 trang danh sách chương (ChapterMapper.toChapterSummaryDto) và 1 chương đọc từ cache nội dung.
+ * Repository là mock trả dữ liệu dựng sẵn nên chỉ đo phần chuyển đổi và tra bitmap khóa chương
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private static final int CHAPTER_PAGE_SIZE = 100;
+    private static final long STORY_ID = 1L;
+
+    @Param({ "20", "100" })
+    public int storyPageSize;
+
+    private StoryMapper storyMapper;
+    private ChapterMapper chapterMapper;
+    private ChapterLockIndex chapterLockIndex;
+    private List<Story> stories;
+    private List<ChapterRepository.ChapterSummaryProjection> chapterRows;
+    private ChapterContentCache.CachedChapter cachedChapter;
+
+    @Setup
+    public void setup() {
+        SyntheticNovelGenerator generator = new SyntheticNovelGenerator(42);
+
+        StoryRepository storyRepository = Mockito.mock(StoryRepository.class);
+        ChapterRepository chapterRepository = Mockito.mock(ChapterRepository.class);
+        ChapterPaymentRepository chapterPaymentRepository = Mockito.mock(ChapterPaymentRepository.class);
+        ChapterUnlockRepository chapterUnlockRepository = Mockito.mock(ChapterUnlockRepository.class);
+        StoryStatsService storyStatsService = Mockito.mock(StoryStatsService.class);
+
+        // Mỗi truyện khóa 1/4 số chương, user đã mở khóa 1 nửa số chương bị khóa
+        List<Integer> lockedNumbers = new ArrayList<>();
+        List<Integer> unlockedNumbers = new ArrayList<>();
+        for (int number = 1; number <= CHAPTER_PAGE_SIZE; number += 4) {
+            lockedNumbers.add(number);
+            if (number % 8 == 1) {
+                unlockedNumbers.add(number);
+            }
+        }
+        when(chapterPaymentRepository.findLockedChapterNumbersByStory(anyLong())).thenReturn(lockedNumbers);
+        when(chapterUnlockRepository.findUnlockedChapterNumbersByUserAndStory(anyLong(), anyLong()))
+                .thenReturn(unlockedNumbers);
+
+        stories = new ArrayList<>();
+        Map<Long, StoryStats> statsRows = new HashMap<>();
+        List<ChapterRepository.LatestChapterProjection> latestChapters = new ArrayList<>();
+        Set<Genre> genres = genres();
+        for (long id = 1; id <= storyPageSize; id++) {
+            stories.add(story(id, generator.chapterTitle(), genres));
+            statsRows.put(id, stats(id));
+            for (int number = 1; number <= StoryStatsLoader.LATEST_CHAPTER_LIMIT; number++) {
+                latestChapters.add(latestChapter(id, number, generator.chapterTitle(),
+                        lockedNumbers.contains(number)));
+            }
+        }
+        when(storyStatsService.getStats(anyCollection())).thenReturn(statsRows);
+        when(chapterRepository.findLatestChaptersByStoryIds(any(Long[].class), anyInt())).thenReturn(latestChapters);
+
+        chapterLockIndex = new ChapterLockIndex(chapterPaymentRepository, chapterUnlockRepository,
+                "maximumSize=20000,expireAfterWrite=30m", "maximumSize=200000,expireAfterAccess=30m");
+        storyMapper = new StoryMapper(storyRepository, new StoryStatsLoader(storyStatsService, chapterRepository));
+        chapterMapper = new ChapterMapper(chapterRepository, chapterPaymentRepository, chapterLockIndex);
+
+        chapterRows = new ArrayList<>();
+        for (int number = 1; number <= CHAPTER_PAGE_SIZE; number++) {
+            chapterRows.add(chapterSummary(number, generator.chapterTitle(), lockedNumbers.contains(number)));
+        }
+        cachedChapter = new ChapterContentCache.CachedChapter(1000L, STORY_ID, 2, "chuong-2", "Chương 2",
+                generator.chapterContent(40), LocalDateTime.now(), "Truyện 1", "truyen-1");
+    }
+
+    @Benchmark
+    public List<StoryResponse> storyPage() {
+        return storyMapper.toResponseList(stories);
+    }
+
+    @Benchmark
+    public void chapterSummaryPage(Blackhole blackhole) {
+        ChapterLockIndex.Snapshot snapshot = chapterLockIndex.snapshot(7L, STORY_ID);
+        for (ChapterRepository.ChapterSummaryProjection row : chapterRows) {
+            ChapterSummaryDto summary = chapterMapper.toChapterSummaryDto(row, snapshot);
+            blackhole.consume(summary);
+        }
+    }
+
+    @Benchmark
+    public Object cachedChapterResponse() {
+        // Chương 2 không bị khóa nên không truy vấn chapter_payments
+        return chapterMapper.toChapterResponse(cachedChapter, 7L);
+    }
+
+    private static Set<Genre> genres() {
+        Set<Genre> genres = new HashSet<>();
+        String[] names = { "Tiên Hiệp", "Huyền Huyễn", "Kiếm Hiệp" };
+        for (int i = 0; i < names.length; i++) {
+            Genre genre = new Genre();
+            genre.setId((long) i + 1);
+            genre.setName(names[i]);
+            genres.add(genre);
+        }
+        return genres;
+    }
+
+    private static Story story(long id, String title, Set<Genre> genres) {
+        User author = new User();
+        author.setId(id % 10 + 1);
+        author.setUsername("tacgia" + author.getId());
+
+        Story story = new Story();
+        story.setId(id);
+        story.setTitle(title);
+        story.setSlug("truyen-" + id);
+        story.setDescription("Mô tả truyện " + title);
+        story.setAuthor(author);
+        story.setAuthorName("Tác giả " + author.getId());
+        story.setGenres(genres);
+        story.setCreatedAt(LocalDateTime.now());
+        return story;
+    }
+
+    private static StoryStats stats(long storyId) {
+        StoryStats stats = new StoryStats();
+        stats.setStoryId(storyId);
+        stats.setChapterCount(500L + storyId);
+        stats.setTotalViews(100_000L * storyId);
+        stats.setFavoriteCount(1_000L + storyId);
+        stats.setVoteCount(200L);
+        stats.setRatingSum(850L);
+        return stats;
+    }
+
+    private static ChapterRepository.LatestChapterProjection latestChapter(long storyId, int number, String title,
+            boolean locked) {
+        LocalDateTime createdAt = LocalDateTime.now();
+        return new ChapterRepository.LatestChapterProjection() {
+            @Override
+            public Long getId() {
+                return storyId * 10_000 + number;
+            }
+
+            @Override
+            public Long getStoryId() {
+                return storyId;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public Integer getChapterNumber() {
+                return number;
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return createdAt;
+            }
+
+            @Override
+            public Boolean getIsLocked() {
+                return locked;
+            }
+        };
+    }
+
+    private static ChapterRepository.ChapterSummaryProjection chapterSummary(int number, String title,
+            boolean locked) {
+        LocalDateTime createdAt = LocalDateTime.now();
+        return new ChapterRepository.ChapterSummaryProjection() {
+            @Override
+            public Long getId() {
+                return (long) number;
+            }
+
+            @Override
+            public Integer getChapterNumber() {
+                return number;
+            }
+
+            @Override
+            public String getSlug() {
+                return "chuong-" + number;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return createdAt;
+            }
+
+            @Override
+            public Boolean getIsLocked() {
+                return locked;
+            }
+
+            @Override
+            public Integer getUnlockPrice() {
+                return locked ? 50 : 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,133 @@
+package com.meobeo.truyen.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sinh truyện TXT giả lập cho benchmark, cùng seed thì cùng nội dung.
+ *
+ * Mỗi chương gồm dòng tiêu đề "Chương N: ..." và các đoạn văn tiếng Việt, xen lẫn những dòng
+ * mà import/format phải xử lý: watermark DTV-EBOOK, dòng gạch đầu dòng, dòng chỉ có ký tự đặc biệt,
+ * dấu câu sai khoảng trắng và nhiều dòng trống liên tiếp
+ */
+public final class SyntheticNovelGenerator {
+
+    private static final String[] WORDS = {
+            "hắn", "nàng", "sư", "phụ", "đệ", "tử", "kiếm", "pháp", "tu", "luyện", "cảnh", "giới", "đột", "phá",
+            "linh", "khí", "đan", "dược", "tông", "môn", "trưởng", "lão", "ánh", "mắt", "lạnh", "lùng", "nhìn",
+            "về", "phía", "xa", "trong", "lòng", "thầm", "nghĩ", "rằng", "thiên", "địa", "vạn", "vật", "đều",
+            "có", "quy", "luật", "riêng", "một", "trận", "chiến", "kinh", "thiên", "động", "địa", "sắp", "bắt",
+            "đầu", "gió", "thổi", "qua", "rừng", "trúc", "tiếng", "lá", "xào", "xạc" };
+
+    private static final String[] TITLE_WORDS = {
+            "Thiên", "Kiếm", "Quyết", "Bí", "Cảnh", "Long", "Phượng", "Huyết", "Chiến", "Tông", "Môn", "Đại", "Hội",
+            "Truyền", "Thừa", "Cổ", "Mộ", "Linh", "Dược" };
+
+    private final Random random;
+
+    public SyntheticNovelGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Ghi truyện có chapterCount chương, mỗi chương khoảng paragraphsPerChapter đoạn, vào file
+     */
+    public void writeNovel(Path file, int chapterCount, int paragraphsPerChapter) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int chapter = 1; chapter <= chapterCount; chapter++) {
+                for (String line : chapterLines(chapter, paragraphsPerChapter)) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * Toàn bộ dòng của truyện trong bộ nhớ (dùng cho benchmark format từng dòng)
+     */
+    public List<String> novelLines(int chapterCount, int paragraphsPerChapter) {
+        List<String> lines = new ArrayList<>();
+        for (int chapter = 1; chapter <= chapterCount; chapter++) {
+            lines.addAll(chapterLines(chapter, paragraphsPerChapter));
+        }
+        return lines;
+    }
+
+    /**
+     * Nội dung 1 chương dạng văn bản (dùng cho benchmark mapper)
+     */
+    public String chapterContent(int paragraphs) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < paragraphs; i++) {
+            content.append(paragraph()).append("\n\n");
+        }
+        return content.toString();
+    }
+
+    public String chapterTitle() {
+        int words = 2 + random.nextInt(3);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        }
+        return title.toString();
+    }
+
+    private List<String> chapterLines(int chapterNumber, int paragraphsPerChapter) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Chương " + chapterNumber + ": " + chapterTitle());
+        lines.add("");
+        for (int i = 0; i < paragraphsPerChapter; i++) {
+            int kind = random.nextInt(40);
+            if (kind == 0) {
+                lines.add("Nguồn: DTV-EBOOK - truyện được sưu tầm");
+            } else if (kind == 1) {
+                lines.add("- " + paragraph());
+            } else if (kind == 2) {
+                lines.add("* * *");
+            } else if (kind == 3) {
+                // Dấu câu sai khoảng trắng và khoảng trắng thừa
+                lines.add("   " + paragraph().replace(", ", " ,").replace(". ", " .  ") + "   ");
+            } else {
+                lines.add(paragraph());
+            }
+            // Phần lớn đoạn cách nhau 1 dòng trống, thỉnh thoảng nhiều dòng trống liên tiếp
+            int emptyLines = random.nextInt(10) == 0 ? 3 : 1;
+            for (int j = 0; j < emptyLines; j++) {
+                lines.add("");
+            }
+        }
+        return lines;
+    }
+
+    private String paragraph() {
+        int sentences = 2 + random.nextInt(4);
+        StringBuilder paragraph = new StringBuilder();
+        for (int s = 0; s < sentences; s++) {
+            if (s > 0) {
+                paragraph.append(' ');
+            }
+            int words = 6 + random.nextInt(12);
+            for (int w = 0; w < words; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                if (w == 0) {
+                    paragraph.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                } else {
+                    paragraph.append(random.nextInt(8) == 0 ? ", " : " ").append(word);
+                }
+            }
+            paragraph.append(random.nextInt(6) == 0 ? "!" : ".");
+        }
+        return paragraph.toString();
+    }
+}
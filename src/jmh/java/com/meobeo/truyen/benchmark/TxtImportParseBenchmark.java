@@ -0,0 +1,59 @@
+package com.meobeo.truyen.benchmark;
+
+import com.meobeo.truyen.domain.request.story.TxtImportRequest;
+import com.meobeo.truyen.domain.response.story.TxtImportResponse;
+import com.meobeo.truyen.service.impl.AsyncTxtImportServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stage đọc của import TXT: tách chương từ file truyện giả lập, tạo slug và nội dung chương.
+ * Không có stage ghi DB, sink chỉ nhận chương
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TxtImportParseBenchmark {
+
+    private static final int PARAGRAPHS_PER_CHAPTER = 40;
+
+    @Param({ "200", "2000" })
+    public int chapters;
+
+    private Path novelFile;
+    private AsyncTxtImportServiceImpl importService;
+    private TxtImportRequest request;
+
+    @Setup
+    public void setup() throws IOException {
+        novelFile = Files.createTempFile("benchmark-novel-", ".txt");
+        new SyntheticNovelGenerator(42).writeNovel(novelFile, chapters, PARAGRAPHS_PER_CHAPTER);
+
+        // Stage đọc không dùng repository, executor hay registry
+        importService = new AsyncTxtImportServiceImpl(null, null, null, null, null, null, null);
+        request = new TxtImportRequest();
+        request.setStoryId(1L);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(novelFile);
+    }
+
+    @Benchmark
+    public int parseChapters(Blackhole blackhole) throws Exception {
+        TxtImportResponse response = new TxtImportResponse();
+        response.setStorySlug("truyen-benchmark");
+        return importService.processTxtFileByStream(novelFile, request, response, new AtomicBoolean(false),
+                chapterData -> {
+                    blackhole.consume(chapterData);
+                    return true;
+                });
+    }
+}
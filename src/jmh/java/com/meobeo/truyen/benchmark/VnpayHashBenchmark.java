@@ -0,0 +1,54 @@
+package com.meobeo.truyen.benchmark;
+
+import com.meobeo.truyen.utils.VnpaySignatureUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tạo chuỗi hashData và chữ ký HMAC-SHA512 cho tham số callback VNPAY
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class VnpayHashBenchmark {
+
+    private static final String HASH_SECRET = "BENCHMARKHASHSECRET0123456789ABC";
+
+    private Map<String, String> callbackParams;
+    private String hashData;
+
+    @Setup
+    public void setup() {
+        callbackParams = new HashMap<>();
+        callbackParams.put("vnp_Amount", "10000000");
+        callbackParams.put("vnp_BankCode", "NCB");
+        callbackParams.put("vnp_BankTranNo", "VNP14422574");
+        callbackParams.put("vnp_CardType", "ATM");
+        callbackParams.put("vnp_OrderInfo", "Nap tien - Goi 100000 xu");
+        callbackParams.put("vnp_PayDate", "20250801153333");
+        callbackParams.put("vnp_ResponseCode", "00");
+        callbackParams.put("vnp_TmnCode", "BENCHTMN");
+        callbackParams.put("vnp_TransactionNo", "14422574");
+        callbackParams.put("vnp_TransactionStatus", "00");
+        callbackParams.put("vnp_TxnRef", "TOPUP_42_3_1754036013000");
+        hashData = VnpaySignatureUtil.buildHashData(callbackParams);
+    }
+
+    @Benchmark
+    public String buildHashData() {
+        return VnpaySignatureUtil.buildHashData(callbackParams);
+    }
+
+    @Benchmark
+    public String hmacSha512() {
+        return VnpaySignatureUtil.hmacSha512(HASH_SECRET, hashData);
+    }
+
+    @Benchmark
+    public String sign() {
+        return VnpaySignatureUtil.hmacSha512(HASH_SECRET, VnpaySignatureUtil.buildHashData(callbackParams));
+    }
+}
@@ -0,0 +1,43 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.benchmark.SyntheticNovelGenerator;
+import com.meobeo.truyen.domain.request.story.FormatFileRequest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Format từng dòng (formatSingleLine) trên 1 chunk 4096 dòng của truyện giả lập,
+ * cùng kích thước chunk với AsyncFormatFileServiceImpl.
+ * Nằm cùng package với service vì formatSingleLine là package-private
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FormatLineBenchmark {
+
+    private static final int CHUNK_LINES = 4096;
+
+    private String[] lines;
+    private AsyncFormatFileServiceImpl formatService;
+    private FormatFileRequest request;
+
+    @Setup
+    public void setup() {
+        List<String> novelLines = new SyntheticNovelGenerator(42).novelLines(60, 40);
+        lines = novelLines.subList(0, CHUNK_LINES).toArray(new String[0]);
+        formatService = new AsyncFormatFileServiceImpl(null);
+        request = new FormatFileRequest();
+    }
+
+    @Benchmark
+    public void formatChunk(Blackhole blackhole) {
+        AsyncFormatFileServiceImpl.FormatCounters counters = new AsyncFormatFileServiceImpl.FormatCounters();
+        for (String line : lines) {
+            blackhole.consume(formatService.formatSingleLine(line, request, counters));
+        }
+        blackhole.consume(counters);
+    }
+}
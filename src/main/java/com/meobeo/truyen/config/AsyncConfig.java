@@ -1,28 +1,50 @@
 package com.meobeo.truyen.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Các thread pool cho tác vụ bất đồng bộ.
+ * Hàng đợi/số thread active của từng pool được Actuator xuất ra (executor.*),
+ * số task bị từ chối khi hàng đợi đầy được đếm ở executor.rejected.
+ * Ở chế độ virtual thread, taskExecutor/txtImportExecutor/formatFileExecutor/chapterUnlockExecutor
+ * được thay bằng executor trong {@link VirtualThreadConfig}
+ */
 @Configuration
 @EnableAsync
 public class AsyncConfig {
 
+    // Số task bị từ chối theo tên executor, xuất ra executor.rejected qua executorRejectionMetrics
+    private final Map<String, LongAdder> rejectedTasks = new ConcurrentHashMap<>();
+
     @Bean(name = "taskExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
     public Executor taskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(4);
         executor.setMaxPoolSize(8);
         executor.setQueueCapacity(200);
         executor.setThreadNamePrefix("AsyncTask-");
+        executor.setRejectedExecutionHandler(countingRejections("taskExecutor"));
         executor.initialize();
         return executor;
     }
 
     @Bean(name = "txtImportExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
     public Executor txtImportExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         // Thread pool riêng cho import TXT với nhiều thread hơn
@@ -33,11 +55,29 @@ public class AsyncConfig {
         // Cho phép thread cũ bị terminate để tạo thread mới
         executor.setAllowCoreThreadTimeOut(true);
         executor.setKeepAliveSeconds(300);
+        executor.setRejectedExecutionHandler(countingRejections("txtImportExecutor"));
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "txtImportWriterExecutor")
+    public Executor txtImportWriterExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // Thread pool cho stage ghi DB của pipeline import TXT, mỗi job import dùng 1 thread
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("TxtImportWriter-");
+        // Cho phép thread cũ bị terminate để tạo thread mới
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(300);
+        executor.setRejectedExecutionHandler(countingRejections("txtImportWriterExecutor"));
         executor.initialize();
         return executor;
     }
 
     @Bean(name = "formatFileExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
     public Executor formatFileExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         // Thread pool riêng cho format file với ít thread hơn vì format nhẹ hơn import
@@ -48,11 +88,13 @@ public class AsyncConfig {
         // Cho phép thread cũ bị terminate để tạo thread mới
         executor.setAllowCoreThreadTimeOut(true);
         executor.setKeepAliveSeconds(300);
+        executor.setRejectedExecutionHandler(countingRejections("formatFileExecutor"));
         executor.initialize();
         return executor;
     }
 
     @Bean(name = "chapterUnlockExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
     public Executor chapterUnlockExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         // Thread pool riêng cho chapter unlock với ít thread hơn vì không cần xử lý
@@ -64,7 +106,60 @@ public class AsyncConfig {
         // Cho phép thread cũ bị terminate để tạo thread mới
         executor.setAllowCoreThreadTimeOut(true);
         executor.setKeepAliveSeconds(300);
+        executor.setRejectedExecutionHandler(countingRejections("chapterUnlockExecutor"));
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    @Bean(name = "notificationExecutor")
+    public Executor notificationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // Thread pool cho gửi thông báo chương mới, mỗi task gửi cho toàn bộ subscriber của 1 truyện
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("Notification-");
+        // Chờ các task đang gửi chạy xong khi tắt ứng dụng
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.setRejectedExecutionHandler(countingRejections("notificationExecutor"));
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "sseSendExecutor")
+    public Executor sseSendExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // Thread pool ghi event SSE tiến độ job, tách khỏi thread @Scheduled để client chậm không chặn flush
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("SseSend-");
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(60);
+        executor.setRejectedExecutionHandler(countingRejections("sseSendExecutor"));
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    public MeterBinder executorRejectionMetrics() {
+        return registry -> rejectedTasks.forEach((name, rejected) -> FunctionCounter
+                .builder("executor.rejected", rejected, LongAdder::sum)
+                .description("Số task bị từ chối do hàng đợi đầy")
+                .tag("name", name)
+                .register(registry));
+    }
+
+    /**
+     * Từ chối task như mặc định (AbortPolicy) và đếm số lần từ chối theo tên executor
+     */
+    private RejectedExecutionHandler countingRejections(String executorName) {
+        LongAdder rejected = rejectedTasks.computeIfAbsent(executorName, name -> new LongAdder());
+        RejectedExecutionHandler abortPolicy = new ThreadPoolExecutor.AbortPolicy();
+        return (task, pool) -> {
+            rejected.increment();
+            abortPolicy.rejectedExecution(task, pool);
+        };
+    }
+}
@@ -1,30 +1,64 @@
 package com.meobeo.truyen.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
 
 /**
- * Cấu hình cache cho analytics
- * Sử dụng in-memory cache cho các analytics phổ biến (7/30 ngày)
+ * Cấu hình cache in-memory dùng Caffeine.
+ * Mỗi cache có giới hạn kích thước và TTL riêng, cấu hình qua app.cache.specs.{tên cache}
+ * theo cú pháp CaffeineSpec (vd: maximumSize=1000,expireAfterWrite=10m,recordStats)
  */
 @Configuration
 @EnableCaching
+@Slf4j
 public class CacheConfig {
 
+    public static final String ANALYTICS_DAILY_7D = "analytics-daily-7d";
+    public static final String ANALYTICS_WEEKLY_4W = "analytics-weekly-4w";
+    public static final String ANALYTICS_MONTHLY_12M = "analytics-monthly-12m";
+    public static final String TOP_STORIES_7D = "top-stories-7d";
+    public static final String TOP_STORIES_30D = "top-stories-30d";
+    public static final String STORY_DETAIL = "story-detail";
+    public static final String GENRE_LIST = "genre-list";
+    public static final String TOPUP_PACKAGES_ACTIVE = "topup-packages-active";
+    public static final String SPIRIT_STONE_PACKAGES_ACTIVE = "spirit-stone-packages-active";
+    public static final String USER_PRINCIPAL = "user-principal";
+
+    private static final List<String> CACHE_NAMES = List.of(
+            ANALYTICS_DAILY_7D,
+            ANALYTICS_WEEKLY_4W,
+            ANALYTICS_MONTHLY_12M,
+            TOP_STORIES_7D,
+            TOP_STORIES_30D,
+            STORY_DETAIL,
+            GENRE_LIST,
+            TOPUP_PACKAGES_ACTIVE,
+            SPIRIT_STONE_PACKAGES_ACTIVE,
+            USER_PRINCIPAL);
+
+    @Value("${app.cache.default-spec:maximumSize=1000,expireAfterWrite=10m,recordStats}")
+    private String defaultSpec;
+
     @Bean
-    public CacheManager cacheManager() {
-        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
-
-        // Cache cho analytics theo ngày (7 ngày)
-        cacheManager.setCacheNames(java.util.Arrays.asList(
-                "analytics-daily-7d",
-                "analytics-weekly-4w",
-                "analytics-monthly-12m",
-                "top-stories-7d",
-                "top-stories-30d"));
+    public CacheManager cacheManager(Environment environment) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Cache không khai báo trước vẫn bị giới hạn theo spec mặc định
+        cacheManager.setCacheSpecification(defaultSpec);
+
+        for (String cacheName : CACHE_NAMES) {
+            String spec = environment.getProperty("app.cache.specs." + cacheName, defaultSpec);
+            cacheManager.registerCustomCache(cacheName, Caffeine.from(spec).build());
+            log.info("Khởi tạo cache {} với spec: {}", cacheName, spec);
+        }
 
         return cacheManager;
     }
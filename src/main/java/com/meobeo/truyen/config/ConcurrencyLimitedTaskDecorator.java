@@ -0,0 +1,41 @@
+package com.meobeo.truyen.config;
+
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Giới hạn số task chạy đồng thời của 1 executor virtual thread.
+ * Task vượt giới hạn chờ permit ngay trên virtual thread của nó nên người gửi task không bị chặn
+ * và không có task nào bị từ chối
+ */
+public class ConcurrencyLimitedTaskDecorator implements TaskDecorator {
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    public ConcurrencyLimitedTaskDecorator(int maxConcurrency) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public Runnable decorate(Runnable task) {
+        return () -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        };
+    }
+
+    public int getActiveTasks() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int getWaitingTasks() {
+        return permits.getQueueLength();
+    }
+}
@@ -1,16 +1,20 @@
 package com.meobeo.truyen.config;
 
+import com.meobeo.truyen.domain.entity.BannedWord;
 import com.meobeo.truyen.domain.entity.Role;
 import com.meobeo.truyen.domain.entity.User;
 import com.meobeo.truyen.domain.enums.AuthProvider;
+import com.meobeo.truyen.repository.BannedWordRepository;
 import com.meobeo.truyen.repository.RoleRepository;
 import com.meobeo.truyen.repository.UserRepository;
+import com.meobeo.truyen.utils.ContentFilterUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashSet;
 import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
@@ -23,10 +27,16 @@ public class DataInitializer implements CommandLineRunner {
     private final RoleRepository roleRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final BannedWordRepository bannedWordRepository;
+    private final ContentFilterUtil contentFilterUtil;
+
+    @Value("${content-filter.seed-default-words:true}")
+    private boolean seedDefaultBannedWords;
 
     @Override
     public void run(String... args) throws Exception {
         initializeRoles();
+        initializeBannedWords();
         // initializeAdminUser();
     }
 
@@ -60,6 +70,20 @@ public class DataInitializer implements CommandLineRunner {
         log.info("Hoàn thành khởi tạo roles");
     }
 
+    private void initializeBannedWords() {
+        // Chỉ ghi danh sách mặc định 1 lần khi bảng chưa từng có dữ liệu, sau đó admin tự quản lý
+        // (admin xóa hết từ cấm thì lần khởi động sau không bị ghi lại)
+        if (seedDefaultBannedWords && !bannedWordRepository.hasEverStoredWords()) {
+            for (String word : ContentFilterUtil.DEFAULT_BANNED_WORDS) {
+                BannedWord bannedWord = new BannedWord();
+                bannedWord.setWord(word);
+                bannedWordRepository.save(bannedWord);
+            }
+            log.info("Đã tạo {} từ cấm mặc định", ContentFilterUtil.DEFAULT_BANNED_WORDS.size());
+        }
+        contentFilterUtil.reloadBannedWords();
+    }
+
     private void initializeAdminUser() {
         log.info("Khởi tạo tài khoản ADMIN...");
 
@@ -0,0 +1,189 @@
+package com.meobeo.truyen.config;
+
+import com.meobeo.truyen.service.impl.AsyncJobProgressServiceImpl;
+import com.meobeo.truyen.service.impl.AsyncJobRegistryImpl;
+import com.meobeo.truyen.service.impl.ChapterContentCache;
+import com.meobeo.truyen.service.impl.ChapterLockIndex;
+import com.meobeo.truyen.service.impl.NewChapterNotificationBuffer;
+import com.meobeo.truyen.service.impl.ReadingHistoryBuffer;
+import com.meobeo.truyen.service.impl.StoryViewCounterBuffer;
+import com.meobeo.truyen.service.impl.StoryViewLeaderboard;
+import com.meobeo.truyen.service.impl.TxtImportPipelineMetrics;
+import com.meobeo.truyen.utils.ContentFilterUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Xuất thống kê sẵn có của các buffer, cache và pipeline trong bộ nhớ ra Micrometer (endpoint /actuator/prometheus).
+ *
+ * HTTP, Hikari, JVM, executor trong AsyncConfig và cache của CacheConfig do Actuator tự đo;
+ * số query mỗi request ở {@link RequestQueryCountFilter}, thời gian chạy job ở AsyncJobRegistryImpl
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder storyViewMetrics(StoryViewCounterBuffer buffer, StoryViewLeaderboard leaderboard) {
+        return registry -> {
+            gauge(registry, "story.views.buffer.pending", buffer, StoryViewCounterBuffer::getPendingKeys,
+                    "Số (truyện, ngày) đang chờ flush");
+            counter(registry, "story.views.recorded", buffer, StoryViewCounterBuffer::getRecordedViews,
+                    "Số view được ghi nhận vào buffer");
+            counter(registry, "story.views.deduped", buffer, StoryViewCounterBuffer::getDedupedViews,
+                    "Số view bị bỏ do trùng trong thời gian chống spam");
+            counter(registry, "story.views.dropped", buffer, StoryViewCounterBuffer::getDroppedViews,
+                    "Số view bị bỏ do buffer đầy");
+            counter(registry, "story.views.flushed", buffer, StoryViewCounterBuffer::getFlushedViews,
+                    "Số view đã ghi xuống DB");
+            FunctionTimer.builder("story.views.flush", buffer, StoryViewCounterBuffer::getFlushCount,
+                            StoryViewCounterBuffer::getTotalFlushMillis, TimeUnit.MILLISECONDS)
+                    .description("Số lần và tổng thời gian flush view")
+                    .register(registry);
+            counter(registry, "story.views.flush.failures", buffer, StoryViewCounterBuffer::getFailedFlushCount,
+                    "Số lần flush view lỗi");
+            gauge(registry, "story.views.flush.max.millis", buffer, StoryViewCounterBuffer::getMaxFlushMillis,
+                    "Thời gian flush view lâu nhất (ms)");
+
+            gauge(registry, "story.views.leaderboard.ready", leaderboard, board -> board.isReady() ? 1 : 0,
+                    "Bảng xếp hạng view đã được dựng");
+            gauge(registry, "story.views.leaderboard.stories", leaderboard, StoryViewLeaderboard::getTrackedStories,
+                    "Số truyện trong cửa sổ 30 ngày");
+            counter(registry, "story.views.leaderboard.applied", leaderboard, StoryViewLeaderboard::getAppliedViews,
+                    "Số view đã cộng vào bảng xếp hạng");
+            counter(registry, "story.views.leaderboard.resyncs", leaderboard, StoryViewLeaderboard::getResyncCount,
+                    "Số lần dựng lại bảng xếp hạng từ DB");
+            gauge(registry, "story.views.leaderboard.resync.last.millis", leaderboard,
+                    StoryViewLeaderboard::getLastResyncMillis, "Thời gian dựng lại bảng xếp hạng gần nhất (ms)");
+        };
+    }
+
+    @Bean
+    public MeterBinder readingHistoryMetrics(ReadingHistoryBuffer buffer) {
+        return registry -> {
+            gauge(registry, "reading.history.buffer.pending", buffer, ReadingHistoryBuffer::getPendingCount,
+                    "Số (user, truyện) đang chờ flush");
+            counter(registry, "reading.history.recorded", buffer, ReadingHistoryBuffer::getRecordedReads,
+                    "Số lần đọc được ghi nhận vào buffer");
+            counter(registry, "reading.history.buffer.full.writes", buffer, ReadingHistoryBuffer::getBufferFullWrites,
+                    "Số lần ghi thẳng xuống DB do buffer đầy");
+            counter(registry, "reading.history.flushed.rows", buffer, ReadingHistoryBuffer::getFlushedRows,
+                    "Số dòng đã ghi xuống DB");
+            counter(registry, "reading.history.flushes", buffer, ReadingHistoryBuffer::getFlushCount,
+                    "Số lần flush");
+            counter(registry, "reading.history.flush.failures", buffer, ReadingHistoryBuffer::getFailedFlushCount,
+                    "Số lần flush lỗi");
+            gauge(registry, "reading.history.flush.last.millis", buffer, ReadingHistoryBuffer::getLastFlushMillis,
+                    "Thời gian flush gần nhất (ms)");
+            gauge(registry, "reading.history.flush.max.millis", buffer, ReadingHistoryBuffer::getMaxFlushMillis,
+                    "Thời gian flush lâu nhất (ms)");
+        };
+    }
+
+    @Bean
+    public MeterBinder newChapterNotificationMetrics(NewChapterNotificationBuffer buffer) {
+        return registry -> {
+            gauge(registry, "notification.new.chapter.pending", buffer, NewChapterNotificationBuffer::getPendingStories,
+                    "Số truyện có chương mới đang chờ gửi thông báo");
+            counter(registry, "notification.new.chapter.recorded", buffer,
+                    NewChapterNotificationBuffer::getRecordedChapters, "Số chương mới được ghi nhận");
+            counter(registry, "notification.new.chapter.dispatched", buffer,
+                    NewChapterNotificationBuffer::getDispatchedNotifications, "Số thông báo đã gửi xong");
+            counter(registry, "notification.new.chapter.failed", buffer,
+                    NewChapterNotificationBuffer::getFailedDispatches, "Số lần gửi thông báo bị lỗi");
+            counter(registry, "notification.new.chapter.rejected", buffer,
+                    NewChapterNotificationBuffer::getRejectedDispatches, "Số lần gửi bị hoãn do executor đầy");
+        };
+    }
+
+    @Bean
+    public MeterBinder chapterCacheMetrics(ChapterContentCache contentCache, ChapterLockIndex lockIndex) {
+        return registry -> {
+            gauge(registry, "chapter.content.cache.hot.size", contentCache, ChapterContentCache::getHotSize,
+                    "Số chapter ở tầng nóng");
+            gauge(registry, "chapter.content.cache.compressed.size", contentCache,
+                    ChapterContentCache::getCompressedSize, "Số chapter ở tầng nén");
+            gauge(registry, "chapter.content.cache.compressed.bytes", contentCache,
+                    ChapterContentCache::getCompressedBytes, "Dung lượng tầng nén (byte)");
+            counter(registry, "chapter.content.cache.hot.hits", contentCache, ChapterContentCache::getHotHits,
+                    "Số lần trúng tầng nóng");
+            counter(registry, "chapter.content.cache.compressed.hits", contentCache,
+                    ChapterContentCache::getCompressedHits, "Số lần trúng tầng nén");
+            counter(registry, "chapter.content.cache.misses", contentCache, ChapterContentCache::getMisses,
+                    "Số lần phải đọc DB");
+            counter(registry, "chapter.content.cache.hot.evictions", contentCache,
+                    ChapterContentCache::getHotEvictions, "Số chapter bị đẩy khỏi tầng nóng");
+            counter(registry, "chapter.content.cache.compressed.evictions", contentCache,
+                    ChapterContentCache::getCompressedEvictions, "Số chapter bị đẩy khỏi tầng nén");
+            counter(registry, "chapter.content.cache.invalidations", contentCache,
+                    ChapterContentCache::getInvalidations, "Số lần xóa cache chapter");
+
+            gauge(registry, "chapter.lock.index.story.entries", lockIndex, ChapterLockIndex::getLockedStoryEntries,
+                    "Số bitmap chapter bị khóa (theo truyện)");
+            gauge(registry, "chapter.lock.index.user.entries", lockIndex, ChapterLockIndex::getUserEntries,
+                    "Số bitmap chapter đã mở khóa (theo user, truyện)");
+            gauge(registry, "chapter.lock.index.story.hit.ratio", lockIndex, ChapterLockIndex::getLockedStoryHitRate,
+                    "Tỉ lệ trúng bitmap theo truyện");
+            gauge(registry, "chapter.lock.index.user.hit.ratio", lockIndex, ChapterLockIndex::getUserHitRate,
+                    "Tỉ lệ trúng bitmap theo (user, truyện)");
+        };
+    }
+
+    @Bean
+    public MeterBinder txtImportPipelineMetrics(TxtImportPipelineMetrics pipeline) {
+        return registry -> {
+            gauge(registry, "txt.import.jobs.active", pipeline, TxtImportPipelineMetrics::getActiveJobs,
+                    "Số job import TXT đang chạy");
+            counter(registry, "txt.import.jobs.completed", pipeline, TxtImportPipelineMetrics::getCompletedJobs,
+                    "Số job import TXT đã xong");
+            counter(registry, "txt.import.parsed.chapters", pipeline, TxtImportPipelineMetrics::getParsedChapters,
+                    "Số chương đã đọc");
+            counter(registry, "txt.import.input.bytes", pipeline, TxtImportPipelineMetrics::getInputBytes,
+                    "Số byte file đã đọc");
+            counter(registry, "txt.import.parse.millis", pipeline, TxtImportPipelineMetrics::getParseMillis,
+                    "Tổng thời gian stage đọc (ms)");
+            counter(registry, "txt.import.producer.blocked.millis", pipeline,
+                    TxtImportPipelineMetrics::getProducerBlockedMillis, "Tổng thời gian stage đọc chờ hàng đợi (ms)");
+            counter(registry, "txt.import.written.chapters", pipeline, TxtImportPipelineMetrics::getWrittenChapters,
+                    "Số chương đã ghi");
+            counter(registry, "txt.import.written.batches", pipeline, TxtImportPipelineMetrics::getWrittenBatches,
+                    "Số batch đã ghi");
+            counter(registry, "txt.import.written.bytes", pipeline, TxtImportPipelineMetrics::getWrittenBytes,
+                    "Số byte nội dung đã ghi");
+            counter(registry, "txt.import.write.millis", pipeline, TxtImportPipelineMetrics::getWriteMillis,
+                    "Tổng thời gian stage ghi (ms)");
+            counter(registry, "txt.import.writer.idle.millis", pipeline, TxtImportPipelineMetrics::getWriterIdleMillis,
+                    "Tổng thời gian stage ghi chờ batch (ms)");
+        };
+    }
+
+    @Bean
+    public MeterBinder asyncJobMetrics(AsyncJobRegistryImpl jobRegistry, AsyncJobProgressServiceImpl progressService,
+            ContentFilterUtil contentFilterUtil) {
+        return registry -> {
+            gauge(registry, "async.jobs.local", jobRegistry, AsyncJobRegistryImpl::getLocalJobCount,
+                    "Số job đang giữ trên node");
+            gauge(registry, "async.job.progress.subscribers", progressService,
+                    AsyncJobProgressServiceImpl::getSubscriberCount, "Số kết nối SSE theo dõi tiến độ job");
+            gauge(registry, "content.filter.banned.words", contentFilterUtil, ContentFilterUtil::getBannedWordCount,
+                    "Số từ cấm đang dùng");
+        };
+    }
+
+    private static <T> void gauge(MeterRegistry registry, String name, T source, ToDoubleFunction<T> value,
+            String description) {
+        Gauge.builder(name, source, value).description(description).register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, T source, ToDoubleFunction<T> value,
+            String description) {
+        FunctionCounter.builder(name, source, value).description(description).register(registry);
+    }
+}
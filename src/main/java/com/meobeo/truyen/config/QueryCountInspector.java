@@ -0,0 +1,38 @@
+package com.meobeo.truyen.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Đếm số câu SQL Hibernate gửi đi trên thread hiện tại.
+ * Chỉ đếm khi đã gọi start() (RequestQueryCountFilter gọi ở đầu mỗi request).
+ * Đăng ký qua spring.jpa.properties.hibernate.session_factory.statement_inspector
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<long[]> QUERY_COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        long[] count = QUERY_COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    /**
+     * Bắt đầu đếm trên thread hiện tại
+     */
+    public static void start() {
+        QUERY_COUNT.set(new long[1]);
+    }
+
+    /**
+     * Dừng đếm và trả về số câu SQL từ lúc start()
+     */
+    public static long stop() {
+        long[] count = QUERY_COUNT.get();
+        QUERY_COUNT.remove();
+        return count != null ? count[0] : 0;
+    }
+}
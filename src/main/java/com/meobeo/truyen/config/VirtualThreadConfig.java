@@ -0,0 +1,120 @@
+package com.meobeo.truyen.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Chế độ virtual thread (spring.threads.virtual.enabled=true, cần chạy bằng Java 21).
+ *
+ * - Tomcat và @Scheduled được Spring Boot chuyển sang virtual thread
+ * - taskExecutor, txtImportExecutor, formatFileExecutor, chapterUnlockExecutor thay bằng executor tạo 1 virtual thread
+ *   mỗi task, số task chạy đồng thời giới hạn bằng semaphore (virtual-threads.executor.*.max-concurrency)
+ * - DataSource được bọc semaphore giới hạn số connection đang mượn (virtual-threads.db.*)
+ *
+ * Các executor còn lại trong AsyncConfig giữ thread pool vì đã được giới hạn theo số job/truyện
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    private final Map<String, ConcurrencyLimitedTaskDecorator> taskLimits = new LinkedHashMap<>();
+
+    public VirtualThreadConfig(
+            @Value("${virtual-threads.executor.task.max-concurrency:8}") int taskConcurrency,
+            @Value("${virtual-threads.executor.txt-import.max-concurrency:16}") int txtImportConcurrency,
+            @Value("${virtual-threads.executor.format-file.max-concurrency:8}") int formatFileConcurrency,
+            @Value("${virtual-threads.executor.chapter-unlock.max-concurrency:4}") int chapterUnlockConcurrency) {
+        taskLimits.put("taskExecutor", new ConcurrencyLimitedTaskDecorator(taskConcurrency));
+        taskLimits.put("txtImportExecutor", new ConcurrencyLimitedTaskDecorator(txtImportConcurrency));
+        taskLimits.put("formatFileExecutor", new ConcurrencyLimitedTaskDecorator(formatFileConcurrency));
+        taskLimits.put("chapterUnlockExecutor", new ConcurrencyLimitedTaskDecorator(chapterUnlockConcurrency));
+    }
+
+    @Bean(name = "taskExecutor")
+    public Executor taskExecutor() {
+        return virtualThreadExecutor("AsyncTask-", taskLimits.get("taskExecutor"));
+    }
+
+    @Bean(name = "txtImportExecutor")
+    public Executor txtImportExecutor() {
+        return virtualThreadExecutor("TxtImport-", taskLimits.get("txtImportExecutor"));
+    }
+
+    @Bean(name = "formatFileExecutor")
+    public Executor formatFileExecutor() {
+        return virtualThreadExecutor("FormatFile-", taskLimits.get("formatFileExecutor"));
+    }
+
+    @Bean(name = "chapterUnlockExecutor")
+    public Executor chapterUnlockExecutor() {
+        return virtualThreadExecutor("ChapterUnlock-", taskLimits.get("chapterUnlockExecutor"));
+    }
+
+    /**
+     * Bọc DataSource chính bằng {@link ConcurrencyLimitedDataSource}. Mặc định giới hạn bằng kích thước pool
+     * và thời gian chờ bằng connection-timeout của Hikari
+     */
+    @Bean
+    public static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor(
+            @Value("${virtual-threads.db.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+            @Value("${virtual-threads.db.acquire-timeout-ms:${spring.datasource.hikari.connection-timeout:30000}}") long acquireTimeoutMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, acquireTimeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Số task đang chạy/đang chờ của các executor virtual thread (cùng tên metric với executor thread pool)
+     * và số connection đang mượn/đang chờ qua semaphore DB
+     */
+    @Bean
+    public MeterBinder virtualThreadMetrics(ObjectProvider<DataSource> dataSource) {
+        return registry -> {
+            taskLimits.forEach((name, limit) -> {
+                Gauge.builder("executor.active", limit, ConcurrencyLimitedTaskDecorator::getActiveTasks)
+                        .description("Số task đang chạy").tag("name", name).register(registry);
+                Gauge.builder("executor.queued", limit, ConcurrencyLimitedTaskDecorator::getWaitingTasks)
+                        .description("Số task đang chờ permit").tag("name", name).register(registry);
+            });
+            if (dataSource.getIfAvailable() instanceof ConcurrencyLimitedDataSource limited) {
+                Gauge.builder("db.concurrency.limit.active", limited, ConcurrencyLimitedDataSource::getActiveConnections)
+                        .description("Số connection đang mượn qua semaphore").register(registry);
+                Gauge.builder("db.concurrency.limit.waiting", limited, ConcurrencyLimitedDataSource::getWaitingThreads)
+                        .description("Số thread đang chờ connection").register(registry);
+                Gauge.builder("db.concurrency.limit.max", limited, ConcurrencyLimitedDataSource::getMaxConcurrency)
+                        .description("Số connection tối đa được mượn cùng lúc").register(registry);
+            }
+        };
+    }
+
+    /**
+     * Executor tạo 1 virtual thread cho mỗi task, số task chạy cùng lúc do decorator giới hạn
+     */
+    static SimpleAsyncTaskExecutor virtualThreadExecutor(String threadNamePrefix,
+            ConcurrencyLimitedTaskDecorator concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(concurrencyLimit);
+        return executor;
+    }
+}
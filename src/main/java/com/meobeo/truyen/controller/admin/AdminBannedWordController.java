@@ -0,0 +1,63 @@
+package com.meobeo.truyen.controller.admin;
+
+import com.meobeo.truyen.domain.request.moderation.BannedWordRequest;
+import com.meobeo.truyen.domain.response.moderation.BannedWordResponse;
+import com.meobeo.truyen.service.interfaces.BannedWordService;
+import com.meobeo.truyen.utils.ApiResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/banned-words")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminBannedWordController {
+
+    private final BannedWordService bannedWordService;
+
+    /**
+     * GET /api/v1/admin/banned-words - Danh sách từ cấm dùng để lọc comment
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<BannedWordResponse>>> getBannedWords() {
+        log.info("Admin lấy danh sách từ cấm");
+
+        List<BannedWordResponse> words = bannedWordService.getBannedWords();
+
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách từ cấm thành công", words));
+    }
+
+    /**
+     * POST /api/v1/admin/banned-words - Thêm từ cấm
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BannedWordResponse>> addBannedWord(
+            @Valid @RequestBody BannedWordRequest request) {
+        log.info("Admin thêm từ cấm: {}", request.getWord());
+
+        BannedWordResponse response = bannedWordService.addBannedWord(request);
+
+        return ResponseEntity.ok(ApiResponse.success("Thêm từ cấm thành công", response));
+    }
+
+    /**
+     * DELETE /api/v1/admin/banned-words/{id} - Xóa từ cấm
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> deleteBannedWord(@PathVariable Long id) {
+        log.info("Admin xóa từ cấm: id={}", id);
+
+        bannedWordService.deleteBannedWord(id);
+
+        return ResponseEntity.ok(ApiResponse.success("Xóa từ cấm thành công", null));
+    }
+}
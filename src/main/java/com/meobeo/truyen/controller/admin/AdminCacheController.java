@@ -0,0 +1,47 @@
+package com.meobeo.truyen.controller.admin;
+
+import com.meobeo.truyen.domain.response.cache.CacheStatsResponse;
+import com.meobeo.truyen.service.interfaces.CacheAdminService;
+import com.meobeo.truyen.utils.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/caches")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminCacheController {
+
+    private final CacheAdminService cacheAdminService;
+
+    /**
+     * GET /api/v1/admin/caches - Thống kê hit/miss/eviction của các cache
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<CacheStatsResponse>>> getCacheStats() {
+        log.info("Admin lấy thống kê cache");
+
+        List<CacheStatsResponse> stats = cacheAdminService.getCacheStats();
+
+        return ResponseEntity.ok(ApiResponse.success("Lấy thống kê cache thành công", stats));
+    }
+
+    /**
+     * DELETE /api/v1/admin/caches/{cacheName} - Xóa toàn bộ dữ liệu của 1 cache
+     */
+    @DeleteMapping("/{cacheName}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> clearCache(@PathVariable String cacheName) {
+        log.info("Admin xóa cache: {}", cacheName);
+
+        cacheAdminService.clearCache(cacheName);
+
+        return ResponseEntity.ok(ApiResponse.success("Xóa cache thành công", null));
+    }
+}
@@ -49,23 +49,28 @@ public class ChapterCommentController {
     /**
      * GET /api/v1/stories/{storyId}/chapters/{chapterNumber}/comments - Lấy danh
      * sách comment của chapter (Public)
+     * - cursor: nextCursor của trang trước, seek theo (createdAt, id) thay vì OFFSET
+     * - withTotal=false: bỏ qua query đếm tổng số comment
      */
     @GetMapping("/stories/{storyId}/chapters/{chapterNumber}/comments")
     public ResponseEntity<ApiResponse<CommentListResponse>> getChapterComments(
             @PathVariable Long storyId,
             @PathVariable Integer chapterNumber,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withTotal) {
 
-        log.info("API lấy comment chapter được gọi: storyId={}, chapterNumber={}, page={}, size={}",
-                storyId, chapterNumber, page, size);
+        log.info("API lấy comment chapter được gọi: storyId={}, chapterNumber={}, page={}, size={}, cursor={}",
+                storyId, chapterNumber, page, size, cursor);
 
         // Validation page parameters
         validatePageParameters(page, size);
 
         Pageable pageable = PageRequest.of(page, size);
-        CommentListResponse comments = chapterCommentService.getCommentsByStoryAndChapter(storyId, chapterNumber,
-                pageable);
+        CommentListResponse comments = (cursor != null || !withTotal)
+                ? chapterCommentService.getCommentsByStoryAndChapterSlice(storyId, chapterNumber, cursor, pageable)
+                : chapterCommentService.getCommentsByStoryAndChapter(storyId, chapterNumber, pageable);
 
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách comment thành công", comments));
     }
@@ -78,15 +83,20 @@ public class ChapterCommentController {
     public ResponseEntity<ApiResponse<CommentListResponse>> getChapterCommentsByChapterId(
             @PathVariable Long chapterId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withTotal) {
 
-        log.info("API lấy comment theo chapterId được gọi: chapterId={}, page={}, size={}", chapterId, page, size);
+        log.info("API lấy comment theo chapterId được gọi: chapterId={}, page={}, size={}, cursor={}",
+                chapterId, page, size, cursor);
 
         // Validation page parameters
         validatePageParameters(page, size);
 
         Pageable pageable = PageRequest.of(page, size);
-        CommentListResponse comments = chapterCommentService.getCommentsByChapter(chapterId, pageable);
+        CommentListResponse comments = (cursor != null || !withTotal)
+                ? chapterCommentService.getCommentsByChapterSlice(chapterId, cursor, pageable)
+                : chapterCommentService.getCommentsByChapter(chapterId, pageable);
 
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách comment thành công", comments));
     }
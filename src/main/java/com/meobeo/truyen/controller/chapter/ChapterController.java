@@ -128,21 +128,28 @@ public class ChapterController {
      * GET /api/v1/stories/{storyIdentifier}/chapters - Lấy danh sách chapter của
      * truyện (Public)
      * Endpoint này public để hiển thị danh sách chapter cho người đọc
+     * - afterChapter: cursor (số chapter cuối của trang trước), seek thay vì OFFSET
+     * - withTotal=false: bỏ qua query đếm tổng số chapter
      */
     @GetMapping("/stories/{storyIdentifier}/chapters")
     public ResponseEntity<ApiResponse<ChapterListResponse>> getChaptersByStory(
             @PathVariable String storyIdentifier,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "50") int size) {
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) Integer afterChapter,
+            @RequestParam(defaultValue = "true") boolean withTotal) {
 
-        log.info("API lấy danh sách chapter được gọi: storyIdentifier={}, page={}, size={}",
-                storyIdentifier, page, size);
+        log.info("API lấy danh sách chapter được gọi: storyIdentifier={}, page={}, size={}, afterChapter={}, withTotal={}",
+                storyIdentifier, page, size, afterChapter, withTotal);
 
         // Validation page parameters
         validatePageParameters(page, size);
 
         Pageable pageable = PageRequest.of(page, size);
-        ChapterListResponse chapters = chapterService.getChaptersByStory(storyIdentifier, pageable);
+        Long userId = securityUtils.getCurrentUserId().orElse(null);
+        ChapterListResponse chapters = (afterChapter != null || !withTotal)
+                ? chapterService.getChaptersByStorySlice(storyIdentifier, afterChapter, pageable, userId)
+                : chapterService.getChaptersByStory(storyIdentifier, pageable, userId);
 
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách chapter thành công", chapters));
     }
@@ -1,11 +1,13 @@
 package com.meobeo.truyen.controller.chapter;
 
+import com.meobeo.truyen.domain.enums.AsyncJobType;
 import com.meobeo.truyen.domain.request.chapter.ChapterBatchLockRequest;
 import com.meobeo.truyen.domain.request.chapter.ChapterLockRequest;
 import com.meobeo.truyen.domain.response.chapter.ChapterBatchLockResponse;
 import com.meobeo.truyen.domain.response.chapter.ChapterPaymentResponse;
 import com.meobeo.truyen.service.interfaces.ChapterPaymentService;
 import com.meobeo.truyen.service.interfaces.AsyncChapterPaymentService;
+import com.meobeo.truyen.service.interfaces.AsyncJobProgressService;
 import com.meobeo.truyen.utils.ApiResponse;
 import com.meobeo.truyen.utils.SecurityUtils;
 import jakarta.validation.Valid;
@@ -15,9 +17,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Optional;
@@ -30,6 +34,7 @@ public class ChapterPaymentController {
 
     private final ChapterPaymentService chapterPaymentService;
     private final AsyncChapterPaymentService asyncChapterPaymentService;
+    private final AsyncJobProgressService asyncJobProgressService;
     private final SecurityUtils securityUtils;
 
     /**
@@ -226,4 +231,14 @@ public class ChapterPaymentController {
 
         return ResponseEntity.ok(ApiResponse.success(message, response));
     }
+
+    /**
+     * GET /api/v1/chapters/batch/status/{jobId}/stream - Theo dõi tiến độ job async qua SSE
+     * Chỉ ADMIN và UPLOADER được phép thực hiện
+     */
+    @GetMapping(value = "/chapters/batch/status/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('UPLOADER') or hasRole('ADMIN')")
+    public SseEmitter streamAsyncJobStatus(@PathVariable String jobId) {
+        return asyncJobProgressService.subscribe(jobId, AsyncJobType.CHAPTER_BATCH_LOCK);
+    }
 }
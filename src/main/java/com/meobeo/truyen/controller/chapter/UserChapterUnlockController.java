@@ -1,5 +1,6 @@
 package com.meobeo.truyen.controller.chapter;
 
+import com.meobeo.truyen.domain.enums.AsyncJobType;
 import com.meobeo.truyen.domain.request.chapter.UnlockChapterRangeRequest;
 import com.meobeo.truyen.domain.request.chapter.UnlockFullStoryRequest;
 import com.meobeo.truyen.domain.response.chapter.ChapterLockStatusResponse;
@@ -9,6 +10,7 @@ import com.meobeo.truyen.domain.response.chapter.UnlockFullStoryResponse;
 import com.meobeo.truyen.domain.response.chapter.UnlockedChaptersResponse;
 import com.meobeo.truyen.mapper.ChapterUnlockMapper;
 import com.meobeo.truyen.security.CustomUserDetails;
+import com.meobeo.truyen.service.interfaces.AsyncJobProgressService;
 import com.meobeo.truyen.service.interfaces.ChapterUnlockService;
 import com.meobeo.truyen.utils.ApiResponse;
 import jakarta.validation.Valid;
@@ -16,9 +18,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -30,6 +34,7 @@ public class UserChapterUnlockController {
 
     private final ChapterUnlockService chapterUnlockService;
     private final ChapterUnlockMapper chapterUnlockMapper;
+    private final AsyncJobProgressService asyncJobProgressService;
 
     /**
      * Helper method để lấy userId từ authentication
@@ -225,6 +230,22 @@ public class UserChapterUnlockController {
         }
     }
 
+    /**
+     * Theo dõi tiến độ job unlock range qua SSE
+     */
+    @GetMapping(value = "/unlock-range/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUnlockRangeStatus(@PathVariable String jobId) {
+        return asyncJobProgressService.subscribe(jobId, AsyncJobType.UNLOCK_RANGE);
+    }
+
+    /**
+     * Theo dõi tiến độ job unlock full story qua SSE
+     */
+    @GetMapping(value = "/unlock-full-story/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUnlockFullStoryStatus(@PathVariable String jobId) {
+        return asyncJobProgressService.subscribe(jobId, AsyncJobType.UNLOCK_FULL_STORY);
+    }
+
     /**
      * Hủy job unlock range
      */
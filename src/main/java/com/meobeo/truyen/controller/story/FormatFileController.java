@@ -1,7 +1,9 @@
 package com.meobeo.truyen.controller.story;
 
+import com.meobeo.truyen.domain.enums.AsyncJobType;
 import com.meobeo.truyen.domain.request.story.FormatFileRequest;
 import com.meobeo.truyen.domain.response.story.FormatFileResponse;
+import com.meobeo.truyen.service.interfaces.AsyncJobProgressService;
 import com.meobeo.truyen.service.interfaces.FormatFileService;
 import com.meobeo.truyen.utils.ApiResponse;
 import com.meobeo.truyen.utils.SecurityUtils;
@@ -9,13 +11,17 @@ import com.meobeo.truyen.utils.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -25,6 +31,7 @@ import java.util.List;
 public class FormatFileController {
 
     private final FormatFileService formatFileService;
+    private final AsyncJobProgressService asyncJobProgressService;
     private final SecurityUtils securityUtils;
 
     /**
@@ -96,6 +103,15 @@ public class FormatFileController {
         }
     }
 
+    /**
+     * API theo dõi tiến độ format qua SSE (event "progress", kết thúc bằng event "done")
+     */
+    @GetMapping(value = "/format/status/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('USER') or hasRole('UPLOADER') or hasRole('ADMIN')")
+    public SseEmitter streamFormatStatus(@PathVariable String jobId) {
+        return asyncJobProgressService.subscribe(jobId, AsyncJobType.FORMAT_FILE);
+    }
+
     /**
      * API hủy format đang chạy
      */
@@ -148,11 +164,11 @@ public class FormatFileController {
      */
     @GetMapping("/format/download/{jobId}")
     @PreAuthorize("hasRole('USER') or hasRole('UPLOADER') or hasRole('ADMIN')")
-    public ResponseEntity<byte[]> downloadFormattedFile(@PathVariable String jobId) {
+    public ResponseEntity<Resource> downloadFormattedFile(@PathVariable String jobId) {
 
         try {
             Long userId = securityUtils.getCurrentUserIdOrThrow();
-            byte[] fileContent = formatFileService.downloadFormattedFile(jobId, userId);
+            Resource file = formatFileService.downloadFormattedFile(jobId, userId);
 
             // Lấy tên file từ job
             FormatFileResponse response = formatFileService.getFormatStatus(jobId)
@@ -163,14 +179,18 @@ public class FormatFileController {
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.TEXT_PLAIN);
-            headers.setContentDispositionFormData("attachment", fileName);
+            headers.setContentDisposition(ContentDisposition.attachment()
+                    .filename(fileName, StandardCharsets.UTF_8)
+                    .build());
 
             log.info("Download file đã format: jobId={}, fileName={}, size={} bytes",
-                    jobId, fileName, fileContent.length);
+                    jobId, fileName, file.contentLength());
 
+            // Body là Resource: Spring stream file từ đĩa, tự thêm Accept-Ranges
+            // và trả 206 với đúng đoạn byte khi request có header Range (tải tiếp khi mất kết nối)
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(fileContent);
+                    .body(file);
 
         } catch (Exception e) {
             log.error("Lỗi download file đã format: jobId={}, error={}", jobId, e.getMessage());
@@ -7,6 +7,7 @@ import com.meobeo.truyen.domain.request.story.UpdateStoryRequest;
 import com.meobeo.truyen.utils.ApiResponse;
 import com.meobeo.truyen.domain.response.story.StoryListResponse;
 import com.meobeo.truyen.domain.response.story.StoryResponse;
+import com.meobeo.truyen.domain.response.story.StorySuggestionResponse;
 import com.meobeo.truyen.service.interfaces.StoryService;
 import com.meobeo.truyen.utils.SecurityUtils;
 
@@ -21,6 +22,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -166,6 +168,22 @@ public class StoryController {
         return ResponseEntity.ok(ApiResponse.success("Tìm kiếm truyện thành công", stories));
     }
 
+    /**
+     * GET /api/v1/stories/suggest - Gợi ý truyện khi gõ từ khóa (Public)
+     */
+    @GetMapping("/stories/suggest")
+    public ResponseEntity<ApiResponse<List<StorySuggestionResponse>>> suggestStories(
+            @RequestParam("q") String keyword,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+
+        log.info("API gợi ý truyện được gọi: q={}, limit={}", keyword, limit);
+
+        List<StorySuggestionResponse> suggestions = storyService.suggestStories(keyword,
+                Math.max(1, Math.min(limit, 20)));
+
+        return ResponseEntity.ok(ApiResponse.success("Gợi ý truyện thành công", suggestions));
+    }
+
     /**
      * GET /api/v1/stories/author/{authorId} - Lấy danh sách truyện của tác giả
      * (Public)
@@ -1,9 +1,11 @@
 package com.meobeo.truyen.controller.story;
 
+import com.meobeo.truyen.domain.enums.AsyncJobType;
 import com.meobeo.truyen.domain.request.story.TxtImportRequest;
 import com.meobeo.truyen.domain.response.story.TxtImportResponse;
 import com.meobeo.truyen.exception.BadRequestException;
 import com.meobeo.truyen.exception.ResourceNotFoundException;
+import com.meobeo.truyen.service.interfaces.AsyncJobProgressService;
 import com.meobeo.truyen.service.interfaces.TxtImportService;
 import com.meobeo.truyen.utils.ApiResponse;
 import com.meobeo.truyen.utils.SecurityUtils;
@@ -20,6 +22,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +35,7 @@ import java.util.Map;
 public class TxtImportController {
 
     private final TxtImportService txtImportService;
+    private final AsyncJobProgressService asyncJobProgressService;
     private final SecurityUtils securityUtils;
     private DataSource dataSource;
 
@@ -126,6 +130,15 @@ public class TxtImportController {
         }
     }
 
+    /**
+     * API theo dõi tiến độ import qua SSE (event "progress", kết thúc bằng event "done")
+     */
+    @GetMapping(value = "/txt/status/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('USER') or hasRole('UPLOADER') or hasRole('ADMIN')")
+    public SseEmitter streamImportStatus(@PathVariable String jobId) {
+        return asyncJobProgressService.subscribe(jobId, AsyncJobType.TXT_IMPORT);
+    }
+
     /**
      * API hủy import đang chạy
      */
@@ -0,0 +1,76 @@
+package com.meobeo.truyen.controller.user;
+
+import com.meobeo.truyen.domain.response.notification.NotificationListResponse;
+import com.meobeo.truyen.service.interfaces.NotificationService;
+import com.meobeo.truyen.utils.ApiResponse;
+import com.meobeo.truyen.utils.SecurityUtils;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationController {
+
+    private final NotificationService notificationService;
+    private final SecurityUtils securityUtils;
+
+    /**
+     * GET /api/v1/notifications - Lấy thông báo của user hiện tại
+     */
+    @GetMapping("/notifications")
+    public ResponseEntity<ApiResponse<NotificationListResponse>> getMyNotifications(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        Long userId = securityUtils.getCurrentUserIdOrThrow();
+        PageRequest pageRequest = PageRequest.of(page, size);
+        NotificationListResponse notifications = notificationService.getUserNotifications(userId, pageRequest);
+
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách thông báo thành công", notifications));
+    }
+
+    /**
+     * GET /api/v1/notifications/unread-count - Số thông báo chưa đọc của user hiện tại
+     */
+    @GetMapping("/notifications/unread-count")
+    public ResponseEntity<ApiResponse<Long>> getUnreadCount() {
+
+        Long userId = securityUtils.getCurrentUserIdOrThrow();
+        long unreadCount = notificationService.getUnreadCount(userId);
+
+        return ResponseEntity.ok(ApiResponse.success("Lấy số thông báo chưa đọc thành công", unreadCount));
+    }
+
+    /**
+     * PUT /api/v1/notifications/{notificationId}/read - Đánh dấu thông báo đã đọc
+     */
+    @PutMapping("/notifications/{notificationId}/read")
+    public ResponseEntity<ApiResponse<Void>> markAsRead(@PathVariable Long notificationId) {
+
+        Long userId = securityUtils.getCurrentUserIdOrThrow();
+        notificationService.markAsRead(notificationId, userId);
+
+        return ResponseEntity.ok(ApiResponse.success("Đã đánh dấu thông báo là đã đọc", null));
+    }
+
+    /**
+     * PUT /api/v1/notifications/read-all - Đánh dấu tất cả thông báo đã đọc
+     */
+    @PutMapping("/notifications/read-all")
+    public ResponseEntity<ApiResponse<Long>> markAllAsRead() {
+
+        log.info("API đánh dấu đã đọc tất cả thông báo được gọi");
+
+        Long userId = securityUtils.getCurrentUserIdOrThrow();
+        long updated = notificationService.markAllAsRead(userId);
+
+        return ResponseEntity.ok(ApiResponse.success("Đã đánh dấu tất cả thông báo là đã đọc", updated));
+    }
+}
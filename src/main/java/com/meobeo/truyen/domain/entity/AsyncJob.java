@@ -0,0 +1,56 @@
+package com.meobeo.truyen.domain.entity;
+
+import com.meobeo.truyen.domain.enums.AsyncJobType;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trạng thái job bất đồng bộ dùng chung giữa các node.
+ * payload là JSON của response trạng thái job (TxtImportResponse, FormatFileResponse, ...)
+ */
+@Entity
+@Table(name = "async_jobs", indexes = {
+        @Index(name = "idx_async_jobs_user_type_created", columnList = "user_id, job_type, created_at"),
+        @Index(name = "idx_async_jobs_status_heartbeat", columnList = "status, heartbeat_at")
+})
+@Data
+public class AsyncJob {
+
+    @Id
+    @Column(name = "job_id", length = 64)
+    private String jobId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_type", nullable = false, length = 32)
+    private AsyncJobType jobType;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "status", nullable = false, length = 32)
+    private String status;
+
+    @Column(name = "payload", columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "cancel_requested", nullable = false)
+    private Boolean cancelRequested = false;
+
+    // Node đã nhận xử lý job, null khi job chưa được nhận
+    @Column(name = "owner_node", length = 128)
+    private String ownerNode;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
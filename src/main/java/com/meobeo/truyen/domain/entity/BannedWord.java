@@ -0,0 +1,27 @@
+package com.meobeo.truyen.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Từ cấm dùng để lọc nội dung comment, được ContentFilterUtil đọc lại định kỳ
+ */
+@Entity
+@Table(name = "banned_words")
+@Data
+public class BannedWord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "word", unique = true, nullable = false, length = 100)
+    private String word;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
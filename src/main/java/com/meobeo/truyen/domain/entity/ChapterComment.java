@@ -10,7 +10,9 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chapter_comments")
+@Table(name = "chapter_comments", indexes = {
+        @Index(name = "idx_chapter_comments_chapter_created", columnList = "chapter_id, created_at, id")
+})
 @Data
 @EqualsAndHashCode(callSuper = false)
 @ToString(exclude = { "chapter", "user" })
@@ -9,7 +9,9 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at")
+})
 @Data
 @EqualsAndHashCode(callSuper = false)
 @ToString(exclude = "user")
@@ -19,6 +21,10 @@ public class Notification {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Truyện liên quan (thông báo chương mới), không khai báo khóa ngoại để xóa truyện không bị chặn
+    @Column(name = "story_id")
+    private Long storyId;
+
     @Column(name = "content", columnDefinition = "TEXT")
     private String content;
 
@@ -38,6 +38,10 @@ public class Story {
     @Column(name = "author_name")
     private String authorName;
 
+    // Văn bản tìm kiếm đã bỏ dấu (title, slug, author_name, username, display_name), có index trigram
+    @Column(name = "search_text", columnDefinition = "TEXT")
+    private String searchText;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status")
     private StoryStatus status = StoryStatus.ONGOING;
@@ -0,0 +1,49 @@
+package com.meobeo.truyen.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bảng thống kê tổng hợp theo truyện, được cập nhật tăng dần khi có chapter/favorite/view/vote mới
+ * và được đối soát định kỳ từ các bảng gốc.
+ * Không khai báo khóa ngoại tới stories để xóa truyện không bị chặn, dòng thừa sẽ được dọn khi đối soát.
+ */
+@Entity
+@Table(name = "story_stats")
+@Data
+public class StoryStats {
+
+    @Id
+    @Column(name = "story_id")
+    private Long storyId;
+
+    @Column(name = "chapter_count", nullable = false)
+    private Long chapterCount = 0L;
+
+    @Column(name = "total_views", nullable = false)
+    private Long totalViews = 0L;
+
+    @Column(name = "favorite_count", nullable = false)
+    private Long favoriteCount = 0L;
+
+    @Column(name = "vote_count", nullable = false)
+    private Long voteCount = 0L;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Điểm trung bình tính từ rating_sum / vote_count
+     */
+    public Double getAverageRating() {
+        if (voteCount == null || voteCount == 0) {
+            return 0.0;
+        }
+        return (double) ratingSum / voteCount;
+    }
+}
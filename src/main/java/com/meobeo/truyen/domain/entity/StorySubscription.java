@@ -9,7 +9,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "story_subscriptions")
+@Table(name = "story_subscriptions", indexes = {
+        // Duyệt subscriber của truyện theo keyset user_id khi gửi thông báo
+        @Index(name = "idx_story_subscriptions_story_user", columnList = "story_id, user_id")
+})
 @Data
 @EqualsAndHashCode(callSuper = false)
 @ToString(exclude = { "user", "story" })
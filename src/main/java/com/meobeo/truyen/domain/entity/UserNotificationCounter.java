@@ -0,0 +1,26 @@
+package com.meobeo.truyen.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Số thông báo chưa đọc của user, được cộng khi gửi thông báo và trừ khi đánh dấu đã đọc
+ * để API đếm chưa đọc không phải COUNT(*) trên bảng notifications.
+ */
+@Entity
+@Table(name = "user_notification_counters")
+@Data
+public class UserNotificationCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "unread_count", nullable = false)
+    private Long unreadCount = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
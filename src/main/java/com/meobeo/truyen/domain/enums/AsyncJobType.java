@@ -0,0 +1,9 @@
+package com.meobeo.truyen.domain.enums;
+
+public enum AsyncJobType {
+    TXT_IMPORT, // Import chapter từ file TXT
+    FORMAT_FILE, // Format file TXT
+    UNLOCK_RANGE, // Mở khóa khoảng chương
+    UNLOCK_FULL_STORY, // Mở khóa full truyện
+    CHAPTER_BATCH_LOCK // Khóa chapter hàng loạt
+}
@@ -9,7 +9,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -37,6 +39,14 @@ public interface ChapterUnlockRepository extends JpaRepository<ChapterUnlock, Ch
         Page<Long> findUnlockedChapterIdsByUserAndStory(@Param("userId") Long userId, @Param("storyId") Long storyId,
                         Pageable pageable);
 
+        /**
+         * Lấy số chapter user đã mở khóa trong story, dùng để dựng bitmap đã mở khóa
+         */
+        @Query("SELECT c.chapterNumber FROM ChapterUnlock cu JOIN cu.chapter c " +
+                        "WHERE cu.user.id = :userId AND c.story.id = :storyId")
+        List<Integer> findUnlockedChapterNumbersByUserAndStory(@Param("userId") Long userId,
+                        @Param("storyId") Long storyId);
+
         /**
          * Đếm số chapter đã mở khóa của user trong story
          */
@@ -51,4 +61,77 @@ public interface ChapterUnlockRepository extends JpaRepository<ChapterUnlock, Ch
                         "WHERE cu.user.id = :userId AND cu.chapter.story.id = :storyId " +
                         "ORDER BY cu.chapter.chapterNumber")
         List<ChapterUnlock> findByUserIdAndStoryId(@Param("userId") Long userId, @Param("storyId") Long storyId);
+
+        /**
+         * Báo giá mở khóa 1 khoảng chương trong 1 query: số chương trong khoảng, số chương bị khóa mà user
+         * chưa mở, tổng giá gốc và khoảng số chương cần mở
+         */
+        @Query(value = "SELECT COUNT(c.id) AS rangeChapterCount, " +
+                        "COUNT(c.id) FILTER (WHERE cp.is_locked = true AND cu.chapter_id IS NULL) AS lockableCount, " +
+                        "COALESCE(SUM(cp.price) FILTER (WHERE cp.is_locked = true AND cu.chapter_id IS NULL), 0) AS totalPrice, " +
+                        "MIN(c.chapter_number) FILTER (WHERE cp.is_locked = true AND cu.chapter_id IS NULL) AS minChapterNumber, " +
+                        "MAX(c.chapter_number) FILTER (WHERE cp.is_locked = true AND cu.chapter_id IS NULL) AS maxChapterNumber " +
+                        "FROM chapters c " +
+                        "LEFT JOIN chapter_payments cp ON cp.chapter_id = c.id " +
+                        "LEFT JOIN chapter_unlocks cu ON cu.chapter_id = c.id AND cu.user_id = :userId " +
+                        "WHERE c.story_id = :storyId AND c.chapter_number BETWEEN :fromNumber AND :toNumber", nativeQuery = true)
+        UnlockQuoteProjection quoteUnlockRange(@Param("storyId") Long storyId,
+                        @Param("userId") Long userId,
+                        @Param("fromNumber") Integer fromNumber,
+                        @Param("toNumber") Integer toNumber);
+
+        /**
+         * Mở khóa tối đa :limit chương bị khóa mà user chưa mở, có số chương lớn hơn :afterNumber và không quá
+         * :toNumber (keyset theo số chương) bằng 1 câu INSERT ... SELECT, bỏ qua chương user mở song song.
+         * Trả về số chương và tổng giá gốc của các chương thực sự được mở, số chương đã duyệt và số chương
+         * lớn nhất đã duyệt (điểm bắt đầu của chunk sau)
+         */
+        @Transactional
+        @Query(value = "WITH candidates AS (" +
+                        "SELECT c.id, c.chapter_number, cp.price FROM chapters c " +
+                        "JOIN chapter_payments cp ON cp.chapter_id = c.id " +
+                        "LEFT JOIN chapter_unlocks cu ON cu.chapter_id = c.id AND cu.user_id = :userId " +
+                        "WHERE c.story_id = :storyId AND c.chapter_number > :afterNumber " +
+                        "AND c.chapter_number <= :toNumber AND cp.is_locked = true AND cu.chapter_id IS NULL " +
+                        "ORDER BY c.chapter_number LIMIT :limit), " +
+                        "inserted AS (" +
+                        "INSERT INTO chapter_unlocks (user_id, chapter_id, unlocked_at) " +
+                        "SELECT :userId, ca.id, :unlockedAt FROM candidates ca " +
+                        "ON CONFLICT (user_id, chapter_id) DO NOTHING " +
+                        "RETURNING chapter_id) " +
+                        "SELECT (SELECT COUNT(*) FROM inserted) AS chapterCount, " +
+                        "(SELECT COALESCE(SUM(ca.price), 0) FROM candidates ca " +
+                        "JOIN inserted i ON i.chapter_id = ca.id) AS totalPrice, " +
+                        "(SELECT COUNT(*) FROM candidates) AS scannedCount, " +
+                        "(SELECT MAX(ca.chapter_number) FROM candidates ca) AS lastChapterNumber", nativeQuery = true)
+        UnlockChunkResultProjection unlockNextLockedChapters(@Param("storyId") Long storyId,
+                        @Param("userId") Long userId,
+                        @Param("afterNumber") Integer afterNumber,
+                        @Param("toNumber") Integer toNumber,
+                        @Param("limit") int limit,
+                        @Param("unlockedAt") LocalDateTime unlockedAt);
+
+        /** Kết quả báo giá mở khóa khoảng chương */
+        interface UnlockQuoteProjection {
+                Long getRangeChapterCount();
+
+                Long getLockableCount();
+
+                Long getTotalPrice();
+
+                Integer getMinChapterNumber();
+
+                Integer getMaxChapterNumber();
+        }
+
+        /** Kết quả mở khóa 1 chunk */
+        interface UnlockChunkResultProjection {
+                Long getChapterCount();
+
+                Long getTotalPrice();
+
+                Long getScannedCount();
+
+                Integer getLastChapterNumber();
+        }
 }
@@ -0,0 +1,13 @@
+package com.meobeo.truyen.domain.request.moderation;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class BannedWordRequest {
+
+    @NotBlank(message = "Từ cấm không được để trống")
+    @Size(max = 100, message = "Từ cấm không được vượt quá 100 ký tự")
+    private String word;
+}
@@ -0,0 +1,15 @@
+package com.meobeo.truyen.domain.response.cache;
+
+import lombok.Data;
+
+@Data
+public class CacheStatsResponse {
+
+    private String name;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+    private long loadCount;
+}
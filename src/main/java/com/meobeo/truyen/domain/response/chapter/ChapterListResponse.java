@@ -2,6 +2,7 @@ package com.meobeo.truyen.domain.response.chapter;
 
 import lombok.Data;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -11,25 +12,43 @@ public class ChapterListResponse {
     private List<ChapterSummaryDto> content;
     private int page;
     private int size;
-    private long totalElements;
-    private int totalPages;
+    // null khi client bỏ qua đếm tổng (withTotal=false hoặc dùng cursor)
+    private Long totalElements;
+    private Integer totalPages;
     private boolean hasNext;
     private boolean hasPrevious;
 
+    // Cursor để lấy trang kế tiếp: số chapter cuối cùng của trang hiện tại
+    private Integer nextCursor;
+
     // Thông tin truyện
     private Long storyId;
     private String storyTitle;
     private String storySlug;
 
     public static ChapterListResponse fromPage(Page<ChapterSummaryDto> page) {
-        ChapterListResponse response = new ChapterListResponse();
-        response.setContent(page.getContent());
-        response.setPage(page.getNumber());
-        response.setSize(page.getSize());
+        ChapterListResponse response = fromSlice(page);
         response.setTotalElements(page.getTotalElements());
         response.setTotalPages(page.getTotalPages());
-        response.setHasNext(page.hasNext());
-        response.setHasPrevious(page.hasPrevious());
+
+        return response;
+    }
+
+    /**
+     * Tạo response từ Slice (không có tổng số phần tử)
+     */
+    public static ChapterListResponse fromSlice(Slice<ChapterSummaryDto> slice) {
+        ChapterListResponse response = new ChapterListResponse();
+        response.setContent(slice.getContent());
+        response.setPage(slice.getNumber());
+        response.setSize(slice.getSize());
+        response.setHasNext(slice.hasNext());
+        response.setHasPrevious(slice.hasPrevious());
+
+        if (slice.hasNext() && slice.hasContent()) {
+            List<ChapterSummaryDto> content = slice.getContent();
+            response.setNextCursor(content.get(content.size() - 1).getChapterNumber());
+        }
 
         return response;
     }
@@ -42,4 +61,13 @@ public class ChapterListResponse {
         response.setStorySlug(storySlug);
         return response;
     }
+
+    public static ChapterListResponse fromSliceWithStoryInfo(Slice<ChapterSummaryDto> slice,
+            Long storyId, String storyTitle, String storySlug) {
+        ChapterListResponse response = fromSlice(slice);
+        response.setStoryId(storyId);
+        response.setStoryTitle(storyTitle);
+        response.setStorySlug(storySlug);
+        return response;
+    }
 }
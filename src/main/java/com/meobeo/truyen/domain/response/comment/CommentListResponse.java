@@ -1,7 +1,9 @@
 package com.meobeo.truyen.domain.response.comment;
 
 import lombok.Data;
+import com.meobeo.truyen.utils.CursorUtil;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -11,11 +13,15 @@ public class CommentListResponse {
     private List<CommentResponse> content;
     private int page;
     private int size;
-    private long totalElements;
-    private int totalPages;
+    // null khi client bỏ qua đếm tổng (withTotal=false hoặc dùng cursor)
+    private Long totalElements;
+    private Integer totalPages;
     private boolean hasNext;
     private boolean hasPrevious;
 
+    // Cursor để lấy trang kế tiếp (createdAt_id của comment cuối trang)
+    private String nextCursor;
+
     // Thông tin chapter context
     private Long storyId;
     private Long chapterId;
@@ -32,14 +38,34 @@ public class CommentListResponse {
             Integer chapterNumber,
             String chapterTitle,
             Long totalComments) {
-        CommentListResponse response = new CommentListResponse();
-        response.setContent(page.getContent());
-        response.setPage(page.getNumber());
-        response.setSize(page.getSize());
+        CommentListResponse response = fromSlice(page, storyId, chapterId, chapterNumber, chapterTitle,
+                totalComments);
         response.setTotalElements(page.getTotalElements());
         response.setTotalPages(page.getTotalPages());
-        response.setHasNext(page.hasNext());
-        response.setHasPrevious(page.hasPrevious());
+
+        return response;
+    }
+
+    /**
+     * Tạo CommentListResponse từ Slice<CommentResponse> (không đếm tổng số trang)
+     */
+    public static CommentListResponse fromSlice(Slice<CommentResponse> slice,
+            Long storyId,
+            Long chapterId,
+            Integer chapterNumber,
+            String chapterTitle,
+            Long totalComments) {
+        CommentListResponse response = new CommentListResponse();
+        response.setContent(slice.getContent());
+        response.setPage(slice.getNumber());
+        response.setSize(slice.getSize());
+        response.setHasNext(slice.hasNext());
+        response.setHasPrevious(slice.hasPrevious());
+
+        if (slice.hasNext() && slice.hasContent()) {
+            CommentResponse last = slice.getContent().get(slice.getContent().size() - 1);
+            response.setNextCursor(CursorUtil.encodeTimeCursor(last.getCreatedAt(), last.getId()));
+        }
 
         // Chapter context info
         response.setStoryId(storyId);
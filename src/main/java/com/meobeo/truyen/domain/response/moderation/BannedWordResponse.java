@@ -0,0 +1,13 @@
+package com.meobeo.truyen.domain.response.moderation;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class BannedWordResponse {
+
+    private Long id;
+    private String word;
+    private LocalDateTime createdAt;
+}
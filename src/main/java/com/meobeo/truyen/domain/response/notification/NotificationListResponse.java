@@ -0,0 +1,17 @@
+package com.meobeo.truyen.domain.response.notification;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class NotificationListResponse {
+
+    private List<NotificationResponse> content;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+    private boolean hasNext;
+    private boolean hasPrevious;
+}
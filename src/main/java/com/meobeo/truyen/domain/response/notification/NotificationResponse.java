@@ -0,0 +1,15 @@
+package com.meobeo.truyen.domain.response.notification;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class NotificationResponse {
+
+    private Long id;
+    private Long storyId;
+    private String content;
+    private Boolean isRead;
+    private LocalDateTime createdAt;
+}
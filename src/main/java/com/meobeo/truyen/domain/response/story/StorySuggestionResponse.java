@@ -0,0 +1,13 @@
+package com.meobeo.truyen.domain.response.story;
+
+import lombok.Data;
+
+@Data
+public class StorySuggestionResponse {
+
+    private Long id;
+    private String title;
+    private String slug;
+    private String coverImageUrl;
+    private String authorName;
+}
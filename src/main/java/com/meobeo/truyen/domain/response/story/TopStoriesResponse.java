@@ -19,7 +19,7 @@ public class TopStoriesResponse {
     private boolean hasNext;
     private boolean hasPrevious;
 
-    public static TopStoriesResponse from(List<StoryViewsDailyRepository.TopStoryViewsProjection> rows,
+    public static TopStoriesResponse from(List<? extends StoryViewsDailyRepository.TopStoryViewsProjection> rows,
             Map<Long, Story> storyMap,
             int page, int size, long totalElements) {
         TopStoriesResponse resp = new TopStoriesResponse();
@@ -108,4 +108,29 @@ public class TxtImportResponse {
     public void addError(String error) {
         this.errors.add(error);
     }
+
+    /**
+     * Bản sao để công bố tiến độ, thread khác serialize bản sao trong khi job vẫn cập nhật bản gốc
+     */
+    public TxtImportResponse copy() {
+        TxtImportResponse copy = new TxtImportResponse();
+        copy.jobId = jobId;
+        copy.status = status;
+        copy.storyId = storyId;
+        copy.storySlug = storySlug;
+        copy.storyTitle = storyTitle;
+        copy.startTime = startTime;
+        copy.endTime = endTime;
+        copy.totalChapters = totalChapters;
+        copy.successCount = successCount;
+        copy.failureCount = failureCount;
+        copy.processedCount = processedCount;
+        copy.progressPercentage = progressPercentage;
+        copy.estimatedTimeRemaining = estimatedTimeRemaining;
+        copy.currentBatch = currentBatch;
+        copy.totalBatches = totalBatches;
+        copy.errors = new ArrayList<>(errors);
+        copy.message = message;
+        return copy;
+    }
 }
@@ -6,7 +6,8 @@ import com.meobeo.truyen.domain.response.chapter.ChapterResponse;
 import com.meobeo.truyen.domain.response.chapter.ChapterSummaryDto;
 import com.meobeo.truyen.repository.ChapterPaymentRepository;
 import com.meobeo.truyen.repository.ChapterRepository;
-import com.meobeo.truyen.domain.repository.ChapterUnlockRepository;
+import com.meobeo.truyen.service.impl.ChapterContentCache;
+import com.meobeo.truyen.service.impl.ChapterLockIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -19,10 +20,18 @@ public class ChapterMapper {
 
     private final ChapterRepository chapterRepository;
     private final ChapterPaymentRepository chapterPaymentRepository;
-    private final ChapterUnlockRepository chapterUnlockRepository;
+    private final ChapterLockIndex chapterLockIndex;
 
     @Transactional(readOnly = true)
     public ChapterResponse toChapterResponse(Chapter chapter) {
+        return toChapterResponse(chapter, null);
+    }
+
+    /**
+     * Convert Chapter entity thành ChapterResponse với thông tin user cụ thể
+     */
+    @Transactional(readOnly = true)
+    public ChapterResponse toChapterResponse(Chapter chapter, Long userId) {
         if (chapter == null) {
             return null;
         }
@@ -46,41 +55,89 @@ public class ChapterMapper {
         // setNavigationInfo(response, chapter);
 
         // Thông tin trạng thái và payment
-        setChapterStatusInfo(response, chapter, null);
+        setChapterStatusInfo(response, userId);
 
         return response;
     }
 
     /**
-     * Convert Chapter entity thành ChapterResponse với thông tin user cụ thể
+     * Convert chapter lấy từ cache nội dung thành ChapterResponse.
+     * Trạng thái khóa không nằm trong cache nội dung mà tra từ bitmap khóa (ChapterLockIndex)
      */
     @Transactional(readOnly = true)
-    public ChapterResponse toChapterResponse(Chapter chapter, Long userId) {
-        ChapterResponse response = toChapterResponse(chapter);
-        if (response != null && chapter != null) {
-            setChapterStatusInfo(response, chapter, userId);
+    public ChapterResponse toChapterResponse(ChapterContentCache.CachedChapter cached) {
+        return toChapterResponse(cached, null);
+    }
+
+    /**
+     * Convert chapter lấy từ cache nội dung thành ChapterResponse với thông tin user cụ thể
+     */
+    @Transactional(readOnly = true)
+    public ChapterResponse toChapterResponse(ChapterContentCache.CachedChapter cached, Long userId) {
+        if (cached == null) {
+            return null;
         }
+
+        ChapterResponse response = new ChapterResponse();
+        response.setId(cached.id());
+        response.setChapterNumber(cached.chapterNumber());
+        response.setSlug(cached.slug());
+        response.setTitle(cached.title());
+        response.setContent(cached.content());
+        response.setCreatedAt(cached.createdAt());
+        response.setStoryId(cached.storyId());
+        response.setStoryTitle(cached.storyTitle());
+        response.setStorySlug(cached.storySlug());
+
+        setChapterStatusInfo(response, userId);
+
         return response;
     }
 
     /**
-     * Convert Chapter entity thành ChapterSummaryDto (không có content và
-     * navigation)
+     * Tạo bản ghi cache nội dung từ Chapter entity (story phải đã được fetch)
      */
-    public ChapterSummaryDto toChapterSummaryDto(Chapter chapter) {
-        if (chapter == null) {
+    public ChapterContentCache.CachedChapter toCachedChapter(Chapter chapter) {
+        return new ChapterContentCache.CachedChapter(
+                chapter.getId(),
+                chapter.getStory().getId(),
+                chapter.getChapterNumber(),
+                chapter.getSlug(),
+                chapter.getTitle(),
+                chapter.getContent(),
+                chapter.getCreatedAt(),
+                chapter.getStory().getTitle(),
+                chapter.getStory().getSlug());
+    }
+
+    /**
+     * Convert projection danh sách thành ChapterSummaryDto (không có content,
+     * trạng thái khóa đã được join sẵn từ chapter_payments)
+     */
+    public ChapterSummaryDto toChapterSummaryDto(ChapterRepository.ChapterSummaryProjection row) {
+        return toChapterSummaryDto(row, null);
+    }
+
+    /**
+     * Giống {@link #toChapterSummaryDto(ChapterRepository.ChapterSummaryProjection)}, trạng thái đã mở khóa
+     * của user tra từ bitmap của cả truyện đã lấy sẵn
+     */
+    public ChapterSummaryDto toChapterSummaryDto(ChapterRepository.ChapterSummaryProjection row,
+            ChapterLockIndex.Snapshot lockSnapshot) {
+        if (row == null) {
             return null;
         }
 
         ChapterSummaryDto summary = new ChapterSummaryDto();
-        summary.setId(chapter.getId());
-        summary.setChapterNumber(chapter.getChapterNumber());
-        summary.setSlug(chapter.getSlug());
-        summary.setTitle(chapter.getTitle());
-        summary.setCreatedAt(chapter.getCreatedAt());
-
-        // Thông tin trạng thái và payment
-        setChapterStatusInfo(summary, chapter, null);
+        summary.setId(row.getId());
+        summary.setChapterNumber(row.getChapterNumber());
+        summary.setSlug(row.getSlug());
+        summary.setTitle(row.getTitle());
+        summary.setCreatedAt(row.getCreatedAt());
+        summary.setIsLocked(Boolean.TRUE.equals(row.getIsLocked()));
+        summary.setUnlockPrice(row.getUnlockPrice() != null ? row.getUnlockPrice() : 0);
+        summary.setIsUnlockedByUser(lockSnapshot != null && summary.getIsLocked()
+                && lockSnapshot.isUnlockedByUser(row.getChapterNumber()));
 
         return summary;
     }
@@ -98,24 +155,21 @@ public class ChapterMapper {
     }
 
     /**
-     * Set thông tin trạng thái khóa/mở khóa cho ChapterResponse
+     * Set thông tin trạng thái khóa/mở khóa cho ChapterResponse.
+     * Trạng thái khóa tra từ bitmap, chỉ đọc payment (giá, VIP) khi chapter bị khóa
      */
-    private void setChapterStatusInfo(ChapterResponse response, Chapter chapter, Long userId) {
-        // Lấy thông tin payment
-        ChapterPayment payment = chapterPaymentRepository.findById(chapter.getId()).orElse(null);
+    private void setChapterStatusInfo(ChapterResponse response, Long userId) {
+        Long storyId = response.getStoryId();
+        Integer chapterNumber = response.getChapterNumber();
+        ChapterPayment payment = storyId != null && chapterLockIndex.isLocked(storyId, chapterNumber)
+                ? chapterPaymentRepository.findById(response.getId()).orElse(null)
+                : null;
 
         if (payment != null) {
             response.setIsLocked(Boolean.TRUE.equals(payment.getIsLocked()));
             response.setIsVipOnly(Boolean.TRUE.equals(payment.getIsVipOnly()));
             response.setUnlockPrice(payment.getPrice());
-
-            // Kiểm tra user đã mở khóa chưa
-            if (userId != null) {
-                boolean isUnlockedByUser = chapterUnlockRepository.existsByUserIdAndChapterId(userId, chapter.getId());
-                response.setIsUnlockedByUser(isUnlockedByUser);
-            } else {
-                response.setIsUnlockedByUser(false);
-            }
+            response.setIsUnlockedByUser(chapterLockIndex.isUnlockedByUser(userId, storyId, chapterNumber));
         } else {
             response.setIsLocked(false);
             response.setIsVipOnly(false);
@@ -124,31 +178,6 @@ public class ChapterMapper {
         }
     }
 
-    /**
-     * Set thông tin trạng thái khóa/mở khóa cho ChapterSummaryDto
-     */
-    private void setChapterStatusInfo(ChapterSummaryDto summary, Chapter chapter, Long userId) {
-        // Lấy thông tin payment
-        ChapterPayment payment = chapterPaymentRepository.findById(chapter.getId()).orElse(null);
-
-        if (payment != null) {
-            summary.setIsLocked(Boolean.TRUE.equals(payment.getIsLocked()));
-            summary.setUnlockPrice(payment.getPrice());
-
-            // Kiểm tra user đã mở khóa chưa
-            if (userId != null) {
-                boolean isUnlockedByUser = chapterUnlockRepository.existsByUserIdAndChapterId(userId, chapter.getId());
-                summary.setIsUnlockedByUser(isUnlockedByUser);
-            } else {
-                summary.setIsUnlockedByUser(false);
-            }
-        } else {
-            summary.setIsLocked(false);
-            summary.setUnlockPrice(0);
-            summary.setIsUnlockedByUser(false);
-        }
-    }
-
     private void setNavigationInfo(ChapterResponse response, Chapter chapter) {
         try {
             // Chapter trước đó
@@ -2,18 +2,20 @@ package com.meobeo.truyen.mapper;
 
 import com.meobeo.truyen.domain.entity.Favorite;
 import com.meobeo.truyen.domain.response.favorite.FavoriteResponse;
-import com.meobeo.truyen.repository.StoryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class FavoriteMapper {
 
-    private final StoryRepository storyRepository;
+    private final StoryStatsLoader storyStatsLoader;
 
     @Transactional(readOnly = true)
     public FavoriteResponse toFavoriteResponse(Favorite favorite) {
@@ -21,6 +23,23 @@ public class FavoriteMapper {
             return null;
         }
 
+        Long storyId = favorite.getStory().getId();
+        return toFavoriteResponse(favorite, storyStatsLoader.loadStats(List.of(storyId), false).get(storyId));
+    }
+
+    /**
+     * Chuyển đổi cả trang, thống kê truyện được nạp với số query cố định
+     */
+    @Transactional(readOnly = true)
+    public List<FavoriteResponse> toFavoriteResponseList(List<Favorite> favorites) {
+        List<Long> storyIds = favorites.stream().map(item -> item.getStory().getId()).distinct().toList();
+        Map<Long, StoryStatsLoader.Stats> statsMap = storyStatsLoader.loadStats(storyIds, false);
+        return favorites.stream()
+                .map(item -> toFavoriteResponse(item, statsMap.get(item.getStory().getId())))
+                .toList();
+    }
+
+    private FavoriteResponse toFavoriteResponse(Favorite favorite, StoryStatsLoader.Stats stats) {
         FavoriteResponse response = new FavoriteResponse();
 
         // Thông tin cơ bản
@@ -35,19 +54,11 @@ public class FavoriteMapper {
         response.setAuthorUsername(null); // Không có authorUsername trong Story entity
 
         // Thống kê truyện
-        try {
-            response.setChapterCount(storyRepository.countChaptersByStoryId(favorite.getStory().getId()));
-            response.setViewCount(storyRepository.countViewsByStoryId(favorite.getStory().getId()));
-            response.setFavoriteCount(storyRepository.countFavoritesByStoryId(favorite.getStory().getId()));
-            response.setAverageRating(storyRepository.getAverageRatingByStoryId(favorite.getStory().getId()));
-        } catch (Exception e) {
-            log.warn("Lỗi khi lấy thống kê cho story {}: {}", favorite.getStory().getId(), e.getMessage());
-            // Set giá trị mặc định nếu có lỗi
-            response.setChapterCount(0L);
-            response.setViewCount(0L);
-            response.setFavoriteCount(0L);
-            response.setAverageRating(0.0);
-        }
+        StoryStatsLoader.Stats safeStats = stats != null ? stats : new StoryStatsLoader.Stats();
+        response.setChapterCount(safeStats.getChapterCount());
+        response.setViewCount(safeStats.getViewCount());
+        response.setFavoriteCount(safeStats.getFavoriteCount());
+        response.setAverageRating(safeStats.getAverageRating());
 
         return response;
     }
@@ -1,7 +1,6 @@
 package com.meobeo.truyen.mapper;
 
 import com.meobeo.truyen.domain.entity.Story;
-import com.meobeo.truyen.domain.entity.Chapter;
 import com.meobeo.truyen.domain.entity.Genre;
 import com.meobeo.truyen.domain.response.story.StoryResponse;
 import com.meobeo.truyen.domain.response.story.GenreResponse;
@@ -10,12 +9,16 @@ import com.meobeo.truyen.repository.StoryRepository;
 import com.meobeo.truyen.repository.ChapterRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -23,7 +26,7 @@ import java.util.Set;
 public class StoryMapper {
 
     private final StoryRepository storyRepository;
-    private final ChapterRepository chapterRepository;
+    private final StoryStatsLoader storyStatsLoader;
 
     @Transactional(readOnly = true)
     public StoryResponse toStoryResponse(Story story) {
@@ -31,6 +34,11 @@ public class StoryMapper {
             return null;
         }
 
+        Map<Long, StoryStatsLoader.Stats> statsMap = storyStatsLoader.loadStats(List.of(story.getId()), true);
+        return toStoryResponse(story, statsMap.get(story.getId()));
+    }
+
+    private StoryResponse toStoryResponse(Story story, StoryStatsLoader.Stats stats) {
         StoryResponse response = new StoryResponse();
         response.setId(story.getId());
         response.setTitle(story.getTitle());
@@ -63,14 +71,18 @@ public class StoryMapper {
         response.setGenres(genreResponses);
 
         // Thống kê
-        response.setChapterCount(storyRepository.countChaptersByStoryId(story.getId()));
-        response.setViewCount(storyRepository.countViewsByStoryId(story.getId()));
-        response.setFavoriteCount(storyRepository.countFavoritesByStoryId(story.getId()));
-        response.setVoteCount(storyRepository.countVotesByStoryId(story.getId()));
-        response.setAverageRating(storyRepository.getAverageRatingByStoryId(story.getId()));
+        StoryStatsLoader.Stats safeStats = stats != null ? stats : new StoryStatsLoader.Stats();
+        response.setChapterCount(safeStats.getChapterCount());
+        response.setViewCount(safeStats.getViewCount());
+        response.setFavoriteCount(safeStats.getFavoriteCount());
+        response.setVoteCount(safeStats.getVoteCount());
+        response.setAverageRating(safeStats.getAverageRating());
 
         // Chapter mới nhất
-        Set<ChapterSummaryResponse> latestChapters = getLatestChapters(story.getId());
+        Set<ChapterSummaryResponse> latestChapters = new HashSet<>();
+        for (ChapterRepository.LatestChapterProjection chapter : safeStats.getLatestChapters()) {
+            latestChapters.add(toChapterSummaryResponse(chapter));
+        }
         response.setLatestChapters(latestChapters);
 
         return response;
@@ -87,23 +99,7 @@ public class StoryMapper {
         return response;
     }
 
-    private Set<ChapterSummaryResponse> getLatestChapters(Long storyId) {
-        try {
-            // Lấy 5 chapter mới nhất
-            List<Chapter> chapters = chapterRepository.findTop5ByStoryIdOrderByChapterNumberDesc(storyId);
-
-            Set<ChapterSummaryResponse> chapterResponses = new HashSet<>();
-            for (Chapter chapter : chapters) {
-                chapterResponses.add(toChapterSummaryResponse(chapter));
-            }
-            return chapterResponses;
-        } catch (Exception e) {
-            log.warn("Lỗi khi lấy latest chapters cho story {}: {}", storyId, e.getMessage());
-            return new HashSet<>();
-        }
-    }
-
-    private ChapterSummaryResponse toChapterSummaryResponse(Chapter chapter) {
+    private ChapterSummaryResponse toChapterSummaryResponse(ChapterRepository.LatestChapterProjection chapter) {
         if (chapter == null) {
             return null;
         }
@@ -113,20 +109,40 @@ public class StoryMapper {
         response.setTitle(chapter.getTitle());
         response.setChapterNumber(chapter.getChapterNumber());
         response.setCreatedAt(chapter.getCreatedAt());
-        // TODO: Implement logic kiểm tra chapter có bị khóa không
-        response.setIsLocked(false);
+        response.setIsLocked(Boolean.TRUE.equals(chapter.getIsLocked()));
         return response;
     }
 
     /**
      * Chuyển đổi danh sách Story thành danh sách StoryResponse
      */
+    @Transactional(readOnly = true)
     public List<StoryResponse> toResponseList(List<Story> stories) {
         if (stories == null) {
             return null;
         }
+        if (stories.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> storyIds = stories.stream().map(Story::getId).distinct().toList();
+
+        // Nạp author + genres cho các truyện chưa fetch trong 1 query (tránh lazy loading từng truyện)
+        List<Long> uninitializedIds = stories.stream()
+                .filter(story -> !Hibernate.isInitialized(story.getAuthor())
+                        || !Hibernate.isInitialized(story.getGenres()))
+                .map(Story::getId)
+                .distinct()
+                .toList();
+        if (!uninitializedIds.isEmpty()) {
+            storyRepository.findAllByIdWithFetch(uninitializedIds);
+        }
+
+        // Thống kê cả trang với số query cố định
+        Map<Long, StoryStatsLoader.Stats> statsMap = storyStatsLoader.loadStats(storyIds, true);
+
         return stories.stream()
-                .map(this::toStoryResponse)
-                .collect(java.util.stream.Collectors.toList());
+                .map(story -> toStoryResponse(story, statsMap.get(story.getId())))
+                .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,67 @@
+package com.meobeo.truyen.mapper;
+
+import com.meobeo.truyen.repository.ChapterRepository;
+import com.meobeo.truyen.service.interfaces.StoryStatsService;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nạp thống kê (chapter, view, favorite, vote, rating, chapter mới nhất) cho nhiều truyện cùng lúc.
+ * Thống kê đọc từ bảng story_stats (1 dòng/truyện), số query cố định theo trang.
+ */
+@Component
+@RequiredArgsConstructor
+public class StoryStatsLoader {
+
+    public static final int LATEST_CHAPTER_LIMIT = 5;
+
+    private final StoryStatsService storyStatsService;
+    private final ChapterRepository chapterRepository;
+
+    /**
+     * Nạp thống kê cho danh sách truyện. Truyện không có dữ liệu sẽ nhận giá trị 0.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Stats> loadStats(Collection<Long> storyIds, boolean includeLatestChapters) {
+        Map<Long, Stats> statsMap = new HashMap<>();
+        if (storyIds == null || storyIds.isEmpty()) {
+            return statsMap;
+        }
+        storyIds.forEach(storyId -> statsMap.put(storyId, new Stats()));
+
+        // Đọc 1 dòng story_stats cho mỗi truyện
+        storyStatsService.getStats(storyIds).forEach((storyId, row) -> {
+            Stats stats = statsMap.get(storyId);
+            stats.setChapterCount(row.getChapterCount());
+            stats.setViewCount(row.getTotalViews());
+            stats.setFavoriteCount(row.getFavoriteCount());
+            stats.setVoteCount(row.getVoteCount());
+            stats.setAverageRating(row.getAverageRating());
+        });
+
+        if (includeLatestChapters) {
+            chapterRepository.findLatestChaptersByStoryIds(storyIds.toArray(new Long[0]), LATEST_CHAPTER_LIMIT)
+                    .forEach(row -> statsMap.get(row.getStoryId()).getLatestChapters().add(row));
+        }
+
+        return statsMap;
+    }
+
+    @Data
+    public static class Stats {
+        private Long chapterCount = 0L;
+        private Long viewCount = 0L;
+        private Long favoriteCount = 0L;
+        private Long voteCount = 0L;
+        private Double averageRating = 0.0;
+        private List<ChapterRepository.LatestChapterProjection> latestChapters = new ArrayList<>();
+    }
+}
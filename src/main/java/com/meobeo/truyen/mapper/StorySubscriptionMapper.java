@@ -2,18 +2,20 @@ package com.meobeo.truyen.mapper;
 
 import com.meobeo.truyen.domain.entity.StorySubscription;
 import com.meobeo.truyen.domain.response.subscription.SubscriptionResponse;
-import com.meobeo.truyen.repository.StoryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class StorySubscriptionMapper {
 
-    private final StoryRepository storyRepository;
+    private final StoryStatsLoader storyStatsLoader;
 
     @Transactional(readOnly = true)
     public SubscriptionResponse toSubscriptionResponse(StorySubscription subscription) {
@@ -21,6 +23,23 @@ public class StorySubscriptionMapper {
             return null;
         }
 
+        Long storyId = subscription.getStory().getId();
+        return toSubscriptionResponse(subscription, storyStatsLoader.loadStats(List.of(storyId), false).get(storyId));
+    }
+
+    /**
+     * Chuyển đổi cả trang, thống kê truyện được nạp với số query cố định
+     */
+    @Transactional(readOnly = true)
+    public List<SubscriptionResponse> toSubscriptionResponseList(List<StorySubscription> subscriptions) {
+        List<Long> storyIds = subscriptions.stream().map(item -> item.getStory().getId()).distinct().toList();
+        Map<Long, StoryStatsLoader.Stats> statsMap = storyStatsLoader.loadStats(storyIds, false);
+        return subscriptions.stream()
+                .map(item -> toSubscriptionResponse(item, statsMap.get(item.getStory().getId())))
+                .toList();
+    }
+
+    private SubscriptionResponse toSubscriptionResponse(StorySubscription subscription, StoryStatsLoader.Stats stats) {
         SubscriptionResponse response = new SubscriptionResponse();
 
         // Thông tin cơ bản
@@ -36,19 +55,11 @@ public class StorySubscriptionMapper {
         response.setAuthorUsername(null); // Không có authorUsername trong Story entity
 
         // Thống kê truyện
-        try {
-            response.setChapterCount(storyRepository.countChaptersByStoryId(subscription.getStory().getId()));
-            response.setViewCount(storyRepository.countViewsByStoryId(subscription.getStory().getId()));
-            response.setFavoriteCount(storyRepository.countFavoritesByStoryId(subscription.getStory().getId()));
-            response.setAverageRating(storyRepository.getAverageRatingByStoryId(subscription.getStory().getId()));
-        } catch (Exception e) {
-            log.warn("Lỗi khi lấy thống kê cho story {}: {}", subscription.getStory().getId(), e.getMessage());
-            // Set giá trị mặc định nếu có lỗi
-            response.setChapterCount(0L);
-            response.setViewCount(0L);
-            response.setFavoriteCount(0L);
-            response.setAverageRating(0.0);
-        }
+        StoryStatsLoader.Stats safeStats = stats != null ? stats : new StoryStatsLoader.Stats();
+        response.setChapterCount(safeStats.getChapterCount());
+        response.setViewCount(safeStats.getViewCount());
+        response.setFavoriteCount(safeStats.getFavoriteCount());
+        response.setAverageRating(safeStats.getAverageRating());
 
         return response;
     }
@@ -0,0 +1,117 @@
+package com.meobeo.truyen.repository;
+
+import com.meobeo.truyen.domain.entity.AsyncJob;
+import com.meobeo.truyen.domain.enums.AsyncJobType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Các lệnh ghi đều chạy trong transaction riêng (REQUIRES_NEW): job thường chạy trong transaction dài
+ * của chính nó, trạng thái job phải được commit ngay để node khác đọc được và không bị rollback theo job
+ */
+@Repository
+public interface AsyncJobRepository extends JpaRepository<AsyncJob, String> {
+
+    String TERMINAL_STATUSES = "('COMPLETED', 'FAILED', 'CANCELLED')";
+
+    List<AsyncJob> findByUserIdAndJobTypeOrderByCreatedAtDesc(Long userId, AsyncJobType jobType);
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "INSERT INTO async_jobs (job_id, job_type, user_id, status, payload, cancel_requested, " +
+            "created_at, updated_at) " +
+            "VALUES (:jobId, :jobType, :userId, :status, :payload, false, :now, :now)", nativeQuery = true)
+    int insertJob(@Param("jobId") String jobId,
+            @Param("jobType") String jobType,
+            @Param("userId") Long userId,
+            @Param("status") String status,
+            @Param("payload") String payload,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Nhận job cho node: chỉ thành công với job chưa có node nhận và chưa kết thúc.
+     * Trả về cờ hủy hiện tại, rỗng nếu không nhận được
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "UPDATE async_jobs SET owner_node = :nodeId, heartbeat_at = :now, updated_at = :now " +
+            "WHERE job_id = :jobId AND owner_node IS NULL AND status NOT IN " + TERMINAL_STATUSES + " " +
+            "RETURNING cancel_requested", nativeQuery = true)
+    Optional<Boolean> claim(@Param("jobId") String jobId,
+            @Param("nodeId") String nodeId,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Ghi trạng thái job. Job đã kết thúc không bị ghi đè (vd: đã bị đánh dấu FAILED do node chết).
+     * Trả về cờ hủy hiện tại, rỗng nếu job không còn hoặc đã kết thúc
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "UPDATE async_jobs SET status = :status, payload = :payload, updated_at = :now, " +
+            "heartbeat_at = :now, finished_at = :finishedAt " +
+            "WHERE job_id = :jobId AND status NOT IN " + TERMINAL_STATUSES + " " +
+            "RETURNING cancel_requested", nativeQuery = true)
+    Optional<Boolean> updateState(@Param("jobId") String jobId,
+            @Param("status") String status,
+            @Param("payload") String payload,
+            @Param("finishedAt") LocalDateTime finishedAt,
+            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "UPDATE async_jobs SET cancel_requested = true, updated_at = :now " +
+            "WHERE job_id = :jobId AND status NOT IN " + TERMINAL_STATUSES, nativeQuery = true)
+    int requestCancel(@Param("jobId") String jobId, @Param("now") LocalDateTime now);
+
+    /**
+     * Heartbeat cho các job node đang giữ (đã nhận hoặc đang chờ nhận) trong 1 câu lệnh,
+     * đồng thời lấy cờ hủy do node khác ghi
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "UPDATE async_jobs SET heartbeat_at = :now " +
+            "WHERE job_id = ANY(CAST(:jobIds AS VARCHAR[])) " +
+            "AND (owner_node = :nodeId OR owner_node IS NULL) AND status NOT IN " + TERMINAL_STATUSES + " " +
+            "RETURNING job_id AS jobId, cancel_requested AS cancelRequested", nativeQuery = true)
+    List<JobSignalProjection> heartbeat(@Param("jobIds") String[] jobIds,
+            @Param("nodeId") String nodeId,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Đánh dấu FAILED các job không có heartbeat quá lâu (node xử lý đã dừng)
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "UPDATE async_jobs SET status = 'FAILED', finished_at = :now, updated_at = :now, " +
+            "payload = CAST(jsonb_set(jsonb_set(CAST(payload AS jsonb), '{status}', '\"FAILED\"'), " +
+            "'{message}', to_jsonb(CAST(:message AS text))) AS text) " +
+            "WHERE status NOT IN " + TERMINAL_STATUSES + " " +
+            "AND COALESCE(heartbeat_at, created_at) < :cutoff", nativeQuery = true)
+    int failStaleJobs(@Param("cutoff") LocalDateTime cutoff,
+            @Param("message") String message,
+            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "DELETE FROM async_jobs WHERE status IN " + TERMINAL_STATUSES + " AND finished_at < :cutoff",
+            nativeQuery = true)
+    int deleteFinishedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "DELETE FROM async_jobs WHERE job_id = :jobId", nativeQuery = true)
+    int deleteJob(@Param("jobId") String jobId);
+
+    /** Cờ hủy của job */
+    interface JobSignalProjection {
+        String getJobId();
+
+        Boolean getCancelRequested();
+    }
+}
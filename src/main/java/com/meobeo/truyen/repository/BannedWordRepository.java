@@ -0,0 +1,31 @@
+package com.meobeo.truyen.repository;
+
+import com.meobeo.truyen.domain.entity.BannedWord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BannedWordRepository extends JpaRepository<BannedWord, Long> {
+
+    boolean existsByWord(String word);
+
+    List<BannedWord> findAllByOrderByWordAsc();
+
+    /**
+     * Chỉ lấy chữ của từ cấm để dựng bộ lọc
+     */
+    @Query("SELECT b.word FROM BannedWord b")
+    List<String> findAllWords();
+
+    /**
+     * Bảng banned_words đã từng có dòng nào chưa (sequence id đã được dùng), phân biệt DB mới
+     * chưa seed với trường hợp admin đã xóa hết từ cấm
+     */
+    @Query(value = "SELECT COALESCE((SELECT s.last_value IS NOT NULL FROM pg_sequences s " +
+            "WHERE CAST(format('%I.%I', s.schemaname, s.sequencename) AS regclass) = " +
+            "CAST(pg_get_serial_sequence('banned_words', 'id') AS regclass)), false)", nativeQuery = true)
+    boolean hasEverStoredWords();
+}
@@ -3,6 +3,7 @@ package com.meobeo.truyen.repository;
 import com.meobeo.truyen.domain.entity.ChapterComment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -18,7 +19,7 @@ public interface ChapterCommentRepository extends JpaRepository<ChapterComment,
         @Query("SELECT cc FROM ChapterComment cc " +
                         "JOIN FETCH cc.user u " +
                         "WHERE cc.story.id = :storyId AND cc.chapter.id = :chapterId " +
-                        "ORDER BY cc.createdAt DESC")
+                        "ORDER BY cc.createdAt DESC, cc.id DESC")
         Page<ChapterComment> findByStoryIdAndChapterIdOrderByCreatedAtDesc(
                         @Param("storyId") Long storyId,
                         @Param("chapterId") Long chapterId,
@@ -32,12 +33,39 @@ public interface ChapterCommentRepository extends JpaRepository<ChapterComment,
                         "JOIN FETCH cc.user u " +
                         "JOIN cc.chapter c " +
                         "WHERE cc.story.id = :storyId AND c.chapterNumber = :chapterNumber " +
-                        "ORDER BY cc.createdAt DESC")
+                        "ORDER BY cc.createdAt DESC, cc.id DESC")
         Page<ChapterComment> findByStoryIdAndChapterNumberOrderByCreatedAtDesc(
                         @Param("storyId") Long storyId,
                         @Param("chapterNumber") Integer chapterNumber,
                         Pageable pageable);
 
+        /**
+         * Lấy comment của chapter theo trang nhưng không chạy query COUNT
+         */
+        @Query("SELECT cc FROM ChapterComment cc " +
+                        "JOIN FETCH cc.user u " +
+                        "WHERE cc.story.id = :storyId AND cc.chapter.id = :chapterId " +
+                        "ORDER BY cc.createdAt DESC, cc.id DESC")
+        Slice<ChapterComment> findSliceByStoryIdAndChapterId(
+                        @Param("storyId") Long storyId,
+                        @Param("chapterId") Long chapterId,
+                        Pageable pageable);
+
+        /**
+         * Lấy comment cũ hơn vị trí (createdAt, id) của cursor (keyset)
+         */
+        @Query("SELECT cc FROM ChapterComment cc " +
+                        "JOIN FETCH cc.user u " +
+                        "WHERE cc.story.id = :storyId AND cc.chapter.id = :chapterId " +
+                        "AND (cc.createdAt < :createdAt OR (cc.createdAt = :createdAt AND cc.id < :id)) " +
+                        "ORDER BY cc.createdAt DESC, cc.id DESC")
+        Slice<ChapterComment> findByStoryIdAndChapterIdBefore(
+                        @Param("storyId") Long storyId,
+                        @Param("chapterId") Long chapterId,
+                        @Param("createdAt") java.time.LocalDateTime createdAt,
+                        @Param("id") Long id,
+                        Pageable pageable);
+
         /**
          * Đếm số comment của chapter
          */
@@ -3,11 +3,14 @@ package com.meobeo.truyen.repository;
 import com.meobeo.truyen.domain.entity.Chapter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,16 +35,37 @@ public interface ChapterRepository extends JpaRepository<Chapter, Long> {
         Optional<Chapter> findBySlugWithStory(@Param("slug") String slug);
 
         /**
-         * Lấy danh sách chapter của truyện theo story ID với phân trang
+         * Lấy danh sách chapter rút gọn của truyện với phân trang (không đọc content).
+         * Trạng thái khóa và giá lấy từ chapter_payments trong cùng query
          */
-        @Query("SELECT c FROM Chapter c WHERE c.story.id = :storyId ORDER BY c.chapterNumber ASC")
-        Page<Chapter> findByStoryIdOrderByChapterNumber(@Param("storyId") Long storyId, Pageable pageable);
+        @Query(value = "SELECT c.id AS id, c.chapterNumber AS chapterNumber, c.slug AS slug, c.title AS title, " +
+                        "c.createdAt AS createdAt, cp.isLocked AS isLocked, cp.price AS unlockPrice " +
+                        "FROM Chapter c LEFT JOIN ChapterPayment cp ON cp.chapterId = c.id " +
+                        "WHERE c.story.id = :storyId ORDER BY c.chapterNumber ASC",
+                        countQuery = "SELECT COUNT(c) FROM Chapter c WHERE c.story.id = :storyId")
+        Page<ChapterSummaryProjection> findSummariesByStoryId(@Param("storyId") Long storyId, Pageable pageable);
 
         /**
-         * Lấy danh sách chapter của truyện theo story slug với phân trang
+         * Lấy danh sách chapter rút gọn theo trang nhưng không chạy query COUNT
          */
-        @Query("SELECT c FROM Chapter c WHERE c.story.slug = :storySlug ORDER BY c.chapterNumber ASC")
-        Page<Chapter> findByStorySlugOrderByChapterNumber(@Param("storySlug") String storySlug, Pageable pageable);
+        @Query("SELECT c.id AS id, c.chapterNumber AS chapterNumber, c.slug AS slug, c.title AS title, " +
+                        "c.createdAt AS createdAt, cp.isLocked AS isLocked, cp.price AS unlockPrice " +
+                        "FROM Chapter c LEFT JOIN ChapterPayment cp ON cp.chapterId = c.id " +
+                        "WHERE c.story.id = :storyId ORDER BY c.chapterNumber ASC")
+        Slice<ChapterSummaryProjection> findSummarySliceByStoryId(@Param("storyId") Long storyId, Pageable pageable);
+
+        /**
+         * Lấy chapter rút gọn có số lớn hơn afterNumber (keyset), tận dụng index
+         * (story_id, chapter_number) nên không phụ thuộc độ sâu trang
+         */
+        @Query("SELECT c.id AS id, c.chapterNumber AS chapterNumber, c.slug AS slug, c.title AS title, " +
+                        "c.createdAt AS createdAt, cp.isLocked AS isLocked, cp.price AS unlockPrice " +
+                        "FROM Chapter c LEFT JOIN ChapterPayment cp ON cp.chapterId = c.id " +
+                        "WHERE c.story.id = :storyId AND c.chapterNumber > :afterNumber " +
+                        "ORDER BY c.chapterNumber ASC")
+        Slice<ChapterSummaryProjection> findSummariesByStoryIdAfterChapterNumber(@Param("storyId") Long storyId,
+                        @Param("afterNumber") Integer afterNumber,
+                        Pageable pageable);
 
         /**
          * Kiểm tra slug chapter đã tồn tại chưa
@@ -118,4 +142,105 @@ public interface ChapterRepository extends JpaRepository<Chapter, Long> {
         List<Chapter> findByStoryIdAndChapterNumberBetweenOrderByChapterNumber(@Param("storyId") Long storyId,
                         @Param("chapterStart") Integer chapterStart,
                         @Param("chapterEnd") Integer chapterEnd);
-}
\ No newline at end of file
+
+        /**
+         * Lấy N chapter mới nhất của nhiều truyện trong 1 query (LATERAL dùng index story_id, chapter_number).
+         * Chỉ select các cột cần cho danh sách, không đọc content. Trạng thái khóa lấy luôn từ chapter_payments
+         * để không phải nạp bitmap khóa của từng truyện.
+         */
+        @Query(value = "SELECT l.id AS id, l.story_id AS storyId, l.title AS title, " +
+                        "l.chapter_number AS chapterNumber, l.created_at AS createdAt, " +
+                        "COALESCE(cp.is_locked, false) AS isLocked " +
+                        "FROM unnest(CAST(:storyIds AS BIGINT[])) AS s(story_id) " +
+                        "CROSS JOIN LATERAL (SELECT c.id, c.story_id, c.title, c.chapter_number, c.created_at " +
+                        "FROM chapters c WHERE c.story_id = s.story_id " +
+                        "ORDER BY c.chapter_number DESC LIMIT :limitPerStory) l " +
+                        "LEFT JOIN chapter_payments cp ON cp.chapter_id = l.id", nativeQuery = true)
+        List<LatestChapterProjection> findLatestChaptersByStoryIds(@Param("storyIds") Long[] storyIds,
+                        @Param("limitPerStory") int limitPerStory);
+
+        /**
+         * Lấy các số chapter đã tồn tại trong khoảng, dùng để lọc trước khi ghi hàng loạt
+         */
+        @Query("SELECT c.chapterNumber FROM Chapter c WHERE c.story.id = :storyId " +
+                        "AND c.chapterNumber BETWEEN :fromNumber AND :toNumber")
+        List<Integer> findChapterNumbersInRange(@Param("storyId") Long storyId,
+                        @Param("fromNumber") Integer fromNumber,
+                        @Param("toNumber") Integer toNumber);
+
+        /**
+         * Thêm nhiều chapter trong 1 câu lệnh (PostgreSQL unnest), bỏ qua chapter đã tồn tại.
+         * Trả về số chapter thực sự được thêm
+         */
+        @Transactional
+        @Query(value = "INSERT INTO chapters (story_id, chapter_number, slug, title, content, created_at) " +
+                        "SELECT :storyId, t.chapter_number, t.slug, t.title, t.content, LOCALTIMESTAMP " +
+                        "FROM unnest(CAST(:chapterNumbers AS INTEGER[]), CAST(:slugs AS VARCHAR[]), " +
+                        "CAST(:titles AS VARCHAR[]), CAST(:contents AS TEXT[])) " +
+                        "AS t(chapter_number, slug, title, content) " +
+                        "ON CONFLICT (story_id, chapter_number) DO NOTHING " +
+                        "RETURNING chapter_number AS chapterNumber, true AS inserted", nativeQuery = true)
+        List<ChapterWriteResultProjection> insertChaptersIgnoreExisting(@Param("storyId") Long storyId,
+                        @Param("chapterNumbers") Integer[] chapterNumbers,
+                        @Param("slugs") String[] slugs,
+                        @Param("titles") String[] titles,
+                        @Param("contents") String[] contents);
+
+        /**
+         * Thêm hoặc ghi đè nhiều chapter trong 1 câu lệnh (PostgreSQL unnest).
+         * inserted = true nếu là chapter mới, false nếu ghi đè chapter đã có
+         */
+        @Transactional
+        @Query(value = "INSERT INTO chapters (story_id, chapter_number, slug, title, content, created_at) " +
+                        "SELECT :storyId, t.chapter_number, t.slug, t.title, t.content, LOCALTIMESTAMP " +
+                        "FROM unnest(CAST(:chapterNumbers AS INTEGER[]), CAST(:slugs AS VARCHAR[]), " +
+                        "CAST(:titles AS VARCHAR[]), CAST(:contents AS TEXT[])) " +
+                        "AS t(chapter_number, slug, title, content) " +
+                        "ON CONFLICT (story_id, chapter_number) DO UPDATE SET slug = EXCLUDED.slug, " +
+                        "title = EXCLUDED.title, content = EXCLUDED.content " +
+                        "RETURNING chapter_number AS chapterNumber, (xmax = 0) AS inserted", nativeQuery = true)
+        List<ChapterWriteResultProjection> upsertChapters(@Param("storyId") Long storyId,
+                        @Param("chapterNumbers") Integer[] chapterNumbers,
+                        @Param("slugs") String[] slugs,
+                        @Param("titles") String[] titles,
+                        @Param("contents") String[] contents);
+
+        /** Kết quả ghi hàng loạt: số chapter và chapter đó là thêm mới hay ghi đè */
+        interface ChapterWriteResultProjection {
+                Integer getChapterNumber();
+
+                Boolean getInserted();
+        }
+
+        /** Projection chapter mới nhất theo truyện */
+        interface LatestChapterProjection {
+                Long getId();
+
+                Long getStoryId();
+
+                String getTitle();
+
+                Integer getChapterNumber();
+
+                LocalDateTime getCreatedAt();
+
+                Boolean getIsLocked();
+        }
+
+        /** Projection chapter cho danh sách (không có content) */
+        interface ChapterSummaryProjection {
+                Long getId();
+
+                Integer getChapterNumber();
+
+                String getSlug();
+
+                String getTitle();
+
+                LocalDateTime getCreatedAt();
+
+                Boolean getIsLocked();
+
+                Integer getUnlockPrice();
+        }
+}
@@ -0,0 +1,89 @@
+package com.meobeo.truyen.repository;
+
+import com.meobeo.truyen.domain.entity.Notification;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface NotificationRepository extends JpaRepository<Notification, Long> {
+
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    /**
+     * Lấy thông báo của user với phân trang, mới nhất trước
+     */
+    @Query(value = "SELECT n FROM Notification n WHERE n.user.id = :userId ORDER BY n.createdAt DESC, n.id DESC",
+            countQuery = "SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId")
+    Page<Notification> findByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Gửi thông báo cho 1 trang subscriber của truyện (keyset theo user_id) trong 1 câu lệnh:
+     * thêm notifications và cộng user_notification_counters.
+     * Trả về số user đã gửi và user_id lớn nhất của trang (null nếu hết subscriber)
+     */
+    @Transactional
+    @Query(value = "WITH page AS (" +
+            "SELECT ss.user_id FROM story_subscriptions ss " +
+            "WHERE ss.story_id = :storyId AND ss.is_active IS NOT FALSE AND ss.user_id > :afterUserId " +
+            "ORDER BY ss.user_id LIMIT :limit), " +
+            "inserted AS (" +
+            "INSERT INTO notifications (user_id, story_id, content, is_read, created_at) " +
+            "SELECT user_id, :storyId, :content, false, :now FROM page RETURNING user_id), " +
+            "counted AS (" +
+            "INSERT INTO user_notification_counters (user_id, unread_count, updated_at) " +
+            "SELECT user_id, 1, :now FROM inserted " +
+            "ON CONFLICT (user_id) DO UPDATE SET unread_count = user_notification_counters.unread_count + 1, " +
+            "updated_at = EXCLUDED.updated_at) " +
+            "SELECT COUNT(*) AS notifiedCount, MAX(user_id) AS lastUserId FROM page", nativeQuery = true)
+    FanOutPageProjection fanOutPage(@Param("storyId") Long storyId,
+            @Param("afterUserId") Long afterUserId,
+            @Param("limit") int limit,
+            @Param("content") String content,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Đánh dấu 1 thông báo đã đọc và trừ bộ đếm chưa đọc trong cùng câu lệnh.
+     * Trả về số thông báo thực sự chuyển sang đã đọc
+     */
+    @Transactional
+    @Query(value = "WITH updated AS (" +
+            "UPDATE notifications SET is_read = true " +
+            "WHERE id = :notificationId AND user_id = :userId AND is_read IS NOT TRUE RETURNING id), " +
+            "counter AS (" +
+            "UPDATE user_notification_counters " +
+            "SET unread_count = GREATEST(unread_count - (SELECT COUNT(*) FROM updated), 0), updated_at = :now " +
+            "WHERE user_id = :userId AND EXISTS (SELECT 1 FROM updated)) " +
+            "SELECT COUNT(*) FROM updated", nativeQuery = true)
+    long markAsRead(@Param("notificationId") Long notificationId,
+            @Param("userId") Long userId,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Đánh dấu tất cả thông báo của user đã đọc. Chỉ trừ đúng số thông báo đã cập nhật
+     * để thông báo được gửi song song không bị mất khỏi bộ đếm
+     */
+    @Transactional
+    @Query(value = "WITH updated AS (" +
+            "UPDATE notifications SET is_read = true " +
+            "WHERE user_id = :userId AND is_read IS NOT TRUE RETURNING id), " +
+            "counter AS (" +
+            "UPDATE user_notification_counters " +
+            "SET unread_count = GREATEST(unread_count - (SELECT COUNT(*) FROM updated), 0), updated_at = :now " +
+            "WHERE user_id = :userId) " +
+            "SELECT COUNT(*) FROM updated", nativeQuery = true)
+    long markAllAsRead(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /** Kết quả gửi 1 trang subscriber */
+    interface FanOutPageProjection {
+        Long getNotifiedCount();
+
+        Long getLastUserId();
+    }
+}
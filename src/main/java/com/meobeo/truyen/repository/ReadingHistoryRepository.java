@@ -97,6 +97,29 @@ public interface ReadingHistoryRepository extends JpaRepository<ReadingHistory,
     @Query("DELETE FROM ReadingHistory rh WHERE rh.user.id = :userId")
     void deleteAllByUserId(@Param("userId") Long userId);
 
+    /**
+     * Ghi hàng loạt vị trí đọc trong 1 câu lệnh (PostgreSQL unnest).
+     * Bỏ qua dòng có user/chapter đã bị xóa và không ghi đè vị trí đọc mới hơn.
+     * Chỉ được gọi ngoài transaction (NOT_SUPPORTED) nên mỗi lần gọi là 1 transaction riêng
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO reading_history (user_id, story_id, chapter_id, last_read_at) " +
+            "SELECT v.user_id, v.story_id, v.chapter_id, v.last_read_at " +
+            "FROM unnest(CAST(:userIds AS BIGINT[]), CAST(:storyIds AS BIGINT[]), " +
+            "CAST(:chapterIds AS BIGINT[]), CAST(:readAts AS TIMESTAMP[])) " +
+            "AS v(user_id, story_id, chapter_id, last_read_at) " +
+            "WHERE EXISTS (SELECT 1 FROM chapters c WHERE c.id = v.chapter_id AND c.story_id = v.story_id) " +
+            "AND EXISTS (SELECT 1 FROM users u WHERE u.id = v.user_id) " +
+            "ON CONFLICT (user_id, story_id) DO UPDATE SET chapter_id = EXCLUDED.chapter_id, " +
+            "last_read_at = EXCLUDED.last_read_at " +
+            "WHERE reading_history.last_read_at IS NULL OR reading_history.last_read_at <= EXCLUDED.last_read_at",
+            nativeQuery = true)
+    int upsertReadingPositions(@Param("userIds") Long[] userIds,
+            @Param("storyIds") Long[] storyIds,
+            @Param("chapterIds") Long[] chapterIds,
+            @Param("readAts") String[] readAts);
+
     /**
      * Lấy danh sách reading history cũ (để cleanup)
      */
@@ -5,10 +5,13 @@ import com.meobeo.truyen.domain.enums.StoryStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -87,30 +90,22 @@ public interface StoryRepository extends JpaRepository<Story, Long> {
         Page<Story> findByStatus(StoryStatus status, Pageable pageable);
 
         /**
-         * Tìm kiếm và lọc truyện phức tạp - tối ưu cho PostgreSQL
+         * Tìm kiếm và lọc truyện - tối ưu cho PostgreSQL.
+         * search là từ khóa đã bỏ dấu (chỉ còn chữ, số, khoảng trắng), so khớp trên cột search_text
+         * (index GIN trigram).
+         * Kết quả có từ khóa xuất hiện sớm hơn (trong tiêu đề, đầu tiêu đề) được xếp trước.
          */
-        @Query(value = "SELECT DISTINCT s.* FROM stories s " +
-                        "LEFT JOIN users a ON s.author_id = a.id " +
-                        "LEFT JOIN story_genres sg ON s.id = sg.story_id " +
-                        "WHERE (:search IS NULL OR :search = '' OR " +
-                        "s.title ILIKE CONCAT('%', :search, '%') OR " +
-                        "s.slug ILIKE CONCAT('%', :search, '%') OR " +
-                        "s.author_name ILIKE CONCAT('%', :search, '%') OR " +
-                        "a.username ILIKE CONCAT('%', :search, '%') OR " +
-                        "a.display_name ILIKE CONCAT('%', :search, '%')) " +
+        @Query(value = "SELECT s.* FROM stories s " +
+                        "WHERE (:search IS NULL OR :search = '' OR s.search_text LIKE CONCAT('%', :search, '%')) " +
                         "AND (:status IS NULL OR s.status = CAST(:status AS VARCHAR)) " +
-                        "AND (:genreIdsSize = 0 OR sg.genre_id = ANY(CAST(:genreIdsArray AS BIGINT[]))) " +
-                        "ORDER BY s.created_at DESC", countQuery = "SELECT COUNT(DISTINCT s.id) FROM stories s " +
-                                        "LEFT JOIN users a ON s.author_id = a.id " +
-                                        "LEFT JOIN story_genres sg ON s.id = sg.story_id " +
-                                        "WHERE (:search IS NULL OR :search = '' OR " +
-                                        "s.title ILIKE CONCAT('%', :search, '%') OR " +
-                                        "s.slug ILIKE CONCAT('%', :search, '%') OR " +
-                                        "s.author_name ILIKE CONCAT('%', :search, '%') OR " +
-                                        "a.username ILIKE CONCAT('%', :search, '%') OR " +
-                                        "a.display_name ILIKE CONCAT('%', :search, '%')) " +
+                        "AND (:genreIdsSize = 0 OR EXISTS (SELECT 1 FROM story_genres sg " +
+                        "WHERE sg.story_id = s.id AND sg.genre_id = ANY(CAST(:genreIdsArray AS BIGINT[])))) " +
+                        "ORDER BY CASE WHEN :search IS NULL OR :search = '' THEN 0 " +
+                        "ELSE POSITION(:search IN s.search_text) END ASC, s.created_at DESC", countQuery = "SELECT COUNT(*) FROM stories s " +
+                                        "WHERE (:search IS NULL OR :search = '' OR s.search_text LIKE CONCAT('%', :search, '%')) " +
                                         "AND (:status IS NULL OR s.status = CAST(:status AS VARCHAR)) " +
-                                        "AND (:genreIdsSize = 0 OR sg.genre_id = ANY(CAST(:genreIdsArray AS BIGINT[])))", nativeQuery = true)
+                                        "AND (:genreIdsSize = 0 OR EXISTS (SELECT 1 FROM story_genres sg " +
+                                        "WHERE sg.story_id = s.id AND sg.genre_id = ANY(CAST(:genreIdsArray AS BIGINT[]))))", nativeQuery = true)
         Page<Story> searchAndFilterStories(
                         @Param("search") String search,
                         @Param("status") String status,
@@ -118,6 +113,36 @@ public interface StoryRepository extends JpaRepository<Story, Long> {
                         @Param("genreIdsSize") int genreIdsSize,
                         Pageable pageable);
 
+        /**
+         * Gợi ý truyện khi gõ (autocomplete): khớp tiền tố/chuỗi con trên search_text, ưu tiên khớp đầu tiêu đề
+         */
+        @Query(value = "SELECT s.id AS id, s.title AS title, s.slug AS slug, s.cover_image_url AS coverImageUrl, " +
+                        "s.author_name AS authorName FROM stories s " +
+                        "WHERE s.search_text LIKE CONCAT('%', :keyword, '%') " +
+                        "ORDER BY POSITION(:keyword IN s.search_text) ASC, s.created_at DESC " +
+                        "LIMIT :limit", nativeQuery = true)
+        List<StorySuggestionProjection> suggestStories(@Param("keyword") String keyword, @Param("limit") int limit);
+
+        /**
+         * Lấy dữ liệu nguồn để tính search_text cho truyện chưa có (duyệt keyset theo id)
+         */
+        @Query(value = "SELECT s.id AS id, s.title AS title, s.slug AS slug, s.author_name AS authorName, " +
+                        "u.username AS authorUsername, u.display_name AS authorDisplayName " +
+                        "FROM stories s LEFT JOIN users u ON u.id = s.author_id " +
+                        "WHERE s.search_text IS NULL AND s.id > :afterId ORDER BY s.id LIMIT :limit", nativeQuery = true)
+        List<StorySearchSourceProjection> findSearchSourcesWithoutSearchText(@Param("afterId") Long afterId,
+                        @Param("limit") int limit);
+
+        /**
+         * Cập nhật search_text cho nhiều truyện trong 1 câu lệnh
+         */
+        @Transactional
+        @Modifying
+        @Query(value = "UPDATE stories s SET search_text = t.search_text " +
+                        "FROM unnest(CAST(:storyIds AS BIGINT[]), CAST(:searchTexts AS TEXT[])) AS t(id, search_text) " +
+                        "WHERE s.id = t.id", nativeQuery = true)
+        int updateSearchTexts(@Param("storyIds") Long[] storyIds, @Param("searchTexts") String[] searchTexts);
+
         /**
          * Đếm số chapter của truyện
          */
@@ -147,4 +172,41 @@ public interface StoryRepository extends JpaRepository<Story, Long> {
          */
         @Query("SELECT COALESCE(AVG(v.rating), 0.0) FROM Vote v WHERE v.story.id = :storyId")
         Double getAverageRatingByStoryId(@Param("storyId") Long storyId);
-}
\ No newline at end of file
+
+        /**
+         * Lấy truyện theo danh sách ID với JOIN FETCH author và genres (dùng cho trang danh sách)
+         */
+        @Query("SELECT DISTINCT s FROM Story s " +
+                        "LEFT JOIN FETCH s.author " +
+                        "LEFT JOIN FETCH s.genres " +
+                        "WHERE s.id IN :storyIds")
+        List<Story> findAllByIdWithFetch(@Param("storyIds") Collection<Long> storyIds);
+
+        /** Projection gợi ý tìm kiếm */
+        interface StorySuggestionProjection {
+                Long getId();
+
+                String getTitle();
+
+                String getSlug();
+
+                String getCoverImageUrl();
+
+                String getAuthorName();
+        }
+
+        /** Projection dữ liệu nguồn để tính search_text */
+        interface StorySearchSourceProjection {
+                Long getId();
+
+                String getTitle();
+
+                String getSlug();
+
+                String getAuthorName();
+
+                String getAuthorUsername();
+
+                String getAuthorDisplayName();
+        }
+}
@@ -0,0 +1,92 @@
+package com.meobeo.truyen.repository;
+
+import com.meobeo.truyen.domain.entity.StoryStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface StoryStatsRepository extends JpaRepository<StoryStats, Long> {
+
+        /**
+         * Cộng dồn số chapter. Nếu truyện chưa có dòng thống kê thì bỏ qua,
+         * dòng sẽ được tính lại đầy đủ từ bảng gốc ở lần đọc đầu tiên.
+         */
+        @Transactional
+        @Modifying
+        @Query(value = "UPDATE story_stats SET chapter_count = GREATEST(chapter_count + :delta, 0), updated_at = NOW() " +
+                        "WHERE story_id = :storyId", nativeQuery = true)
+        int incrementChapterCount(@Param("storyId") Long storyId, @Param("delta") long delta);
+
+        /**
+         * Cộng dồn số favorite
+         */
+        @Transactional
+        @Modifying
+        @Query(value = "UPDATE story_stats SET favorite_count = GREATEST(favorite_count + :delta, 0), updated_at = NOW() " +
+                        "WHERE story_id = :storyId", nativeQuery = true)
+        int incrementFavoriteCount(@Param("storyId") Long storyId, @Param("delta") long delta);
+
+        /**
+         * Cộng dồn số vote và tổng điểm
+         */
+        @Transactional
+        @Modifying
+        @Query(value = "UPDATE story_stats SET vote_count = GREATEST(vote_count + :voteDelta, 0), " +
+                        "rating_sum = GREATEST(rating_sum + :ratingDelta, 0), updated_at = NOW() " +
+                        "WHERE story_id = :storyId", nativeQuery = true)
+        int incrementVotes(@Param("storyId") Long storyId,
+                        @Param("voteDelta") long voteDelta,
+                        @Param("ratingDelta") long ratingDelta);
+
+        /**
+         * Cộng dồn view cho nhiều truyện trong 1 câu lệnh (PostgreSQL unnest)
+         */
+        @Transactional
+        @Modifying
+        @Query(value = "UPDATE story_stats ss SET total_views = ss.total_views + t.views, updated_at = NOW() " +
+                        "FROM unnest(CAST(:storyIds AS BIGINT[]), CAST(:views AS BIGINT[])) AS t(story_id, views) " +
+                        "WHERE ss.story_id = t.story_id", nativeQuery = true)
+        int incrementViews(@Param("storyIds") Long[] storyIds, @Param("views") Long[] views);
+
+        /**
+         * Tính lại toàn bộ thống kê từ bảng gốc cho danh sách truyện (upsert).
+         * Chạy trong transaction riêng để dùng được cả khi caller đang ở read-only transaction.
+         */
+        @Transactional(propagation = Propagation.REQUIRES_NEW)
+        @Modifying
+        @Query(value = "INSERT INTO story_stats (story_id, chapter_count, total_views, favorite_count, vote_count, rating_sum, updated_at) " +
+                        "SELECT s.id, " +
+                        "(SELECT COUNT(*) FROM chapters c WHERE c.story_id = s.id), " +
+                        "(SELECT COALESCE(SUM(svd.views), 0) FROM story_views_daily svd WHERE svd.story_id = s.id), " +
+                        "(SELECT COUNT(*) FROM favorites f WHERE f.story_id = s.id), " +
+                        "(SELECT COUNT(*) FROM votes v WHERE v.story_id = s.id), " +
+                        "(SELECT COALESCE(SUM(v.rating), 0) FROM votes v WHERE v.story_id = s.id), " +
+                        "NOW() " +
+                        "FROM stories s WHERE s.id = ANY(CAST(:storyIds AS BIGINT[])) " +
+                        "ON CONFLICT (story_id) DO UPDATE SET " +
+                        "chapter_count = EXCLUDED.chapter_count, total_views = EXCLUDED.total_views, " +
+                        "favorite_count = EXCLUDED.favorite_count, vote_count = EXCLUDED.vote_count, " +
+                        "rating_sum = EXCLUDED.rating_sum, updated_at = EXCLUDED.updated_at", nativeQuery = true)
+        int rebuildForStories(@Param("storyIds") Long[] storyIds);
+
+        /**
+         * Lấy ID truyện theo keyset để đối soát theo từng chunk
+         */
+        @Query(value = "SELECT s.id FROM stories s WHERE s.id > :afterId ORDER BY s.id LIMIT :limit", nativeQuery = true)
+        List<Long> findStoryIdsAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+        /**
+         * Xóa dòng thống kê của truyện không còn tồn tại
+         */
+        @Transactional
+        @Modifying
+        @Query(value = "DELETE FROM story_stats ss WHERE NOT EXISTS (SELECT 1 FROM stories s WHERE s.id = ss.story_id)", nativeQuery = true)
+        int deleteOrphans();
+}
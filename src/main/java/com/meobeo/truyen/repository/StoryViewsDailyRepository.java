@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -22,6 +23,22 @@ public interface StoryViewsDailyRepository extends JpaRepository<StoryViewsDaily
             "ON CONFLICT (story_id, view_date) DO UPDATE SET views = story_views_daily.views + 1", nativeQuery = true)
     void upsertIncrement(@Param("storyId") Long storyId, @Param("viewDate") LocalDate viewDate);
 
+    /**
+     * Cộng dồn views cho nhiều (truyện, ngày) trong 1 câu upsert nhiều dòng (PostgreSQL unnest).
+     * Bỏ qua các truyện đã bị xóa để 1 lô không bị lỗi khóa ngoại.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO story_views_daily (story_id, view_date, views) " +
+            "SELECT t.story_id, t.view_date, t.views " +
+            "FROM unnest(CAST(:storyIds AS BIGINT[]), CAST(:viewDates AS DATE[]), CAST(:views AS BIGINT[])) " +
+            "AS t(story_id, view_date, views) " +
+            "WHERE EXISTS (SELECT 1 FROM stories s WHERE s.id = t.story_id) " +
+            "ON CONFLICT (story_id, view_date) DO UPDATE SET views = story_views_daily.views + EXCLUDED.views", nativeQuery = true)
+    int upsertIncrementBatch(@Param("storyIds") Long[] storyIds,
+            @Param("viewDates") String[] viewDates,
+            @Param("views") Long[] views);
+
     /**
      * Lấy views theo ngày trong khoảng [start, end] cho 1 truyện
      */
@@ -67,6 +84,13 @@ public interface StoryViewsDailyRepository extends JpaRepository<StoryViewsDaily
             @Param("limit") int limit,
             @Param("offset") int offset);
 
+    /**
+     * Views theo (truyện, ngày) từ ngày start, dùng để dựng lại bảng xếp hạng trong bộ nhớ
+     */
+    @Query(value = "SELECT story_id AS storyId, view_date AS viewDate, views AS views " +
+            "FROM story_views_daily WHERE view_date >= :start", nativeQuery = true)
+    List<StoryDailyViewsProjection> findDailyViewsSince(@Param("start") LocalDate start);
+
     /**
      * Tổng số truyện có xuất hiện trong khoảng thời gian (phục vụ phân trang Top)
      */
@@ -93,4 +117,13 @@ public interface StoryViewsDailyRepository extends JpaRepository<StoryViewsDaily
 
         Long getTotalViews();
     }
+
+    /** Projection views của 1 truyện trong 1 ngày */
+    interface StoryDailyViewsProjection {
+        Long getStoryId();
+
+        LocalDate getViewDate();
+
+        Long getViews();
+    }
 }
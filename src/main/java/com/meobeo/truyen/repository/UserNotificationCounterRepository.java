@@ -0,0 +1,19 @@
+package com.meobeo.truyen.repository;
+
+import com.meobeo.truyen.domain.entity.UserNotificationCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UserNotificationCounterRepository extends JpaRepository<UserNotificationCounter, Long> {
+
+    /**
+     * Số thông báo chưa đọc của user
+     */
+    @Query("SELECT c.unreadCount FROM UserNotificationCounter c WHERE c.userId = :userId")
+    Optional<Long> findUnreadCount(@Param("userId") Long userId);
+}
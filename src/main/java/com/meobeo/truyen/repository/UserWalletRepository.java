@@ -2,7 +2,10 @@ package com.meobeo.truyen.repository;
 
 import com.meobeo.truyen.domain.entity.UserWallet;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -13,4 +16,51 @@ public interface UserWalletRepository extends JpaRepository<UserWallet, Long> {
      * Tìm ví theo user ID
      */
     Optional<UserWallet> findByUserId(Long userId);
+
+    /**
+     * Cộng/trừ ví trong 1 câu lệnh, chỉ cập nhật khi không có số dư nào bị âm sau khi cộng/trừ.
+     * Không trả về dòng nào nếu ví không tồn tại hoặc không đủ số dư
+     */
+    @Transactional
+    @Query(value = "UPDATE user_wallets SET balance = COALESCE(balance, 0) + :balanceDelta, " +
+            "spirit_stones = COALESCE(spirit_stones, 0) + :spiritStoneDelta, " +
+            "recommendation_tickets = COALESCE(recommendation_tickets, 0) + :ticketDelta " +
+            "WHERE user_id = :userId " +
+            "AND COALESCE(balance, 0) + :balanceDelta >= 0 " +
+            "AND COALESCE(spirit_stones, 0) + :spiritStoneDelta >= 0 " +
+            "AND COALESCE(recommendation_tickets, 0) + :ticketDelta >= 0 " +
+            "RETURNING user_id AS userId, balance AS balance, spirit_stones AS spiritStones, " +
+            "recommendation_tickets AS recommendationTickets", nativeQuery = true)
+    Optional<WalletBalanceProjection> applyDeltaIfSufficient(@Param("userId") Long userId,
+            @Param("balanceDelta") int balanceDelta,
+            @Param("spiritStoneDelta") int spiritStoneDelta,
+            @Param("ticketDelta") int ticketDelta);
+
+    /**
+     * Cộng ví trong 1 câu lệnh, tạo ví mới nếu user chưa có
+     */
+    @Transactional
+    @Query(value = "INSERT INTO user_wallets (user_id, balance, spirit_stones, recommendation_tickets) " +
+            "VALUES (:userId, :balanceDelta, :spiritStoneDelta, :ticketDelta) " +
+            "ON CONFLICT (user_id) DO UPDATE SET " +
+            "balance = COALESCE(user_wallets.balance, 0) + EXCLUDED.balance, " +
+            "spirit_stones = COALESCE(user_wallets.spirit_stones, 0) + EXCLUDED.spirit_stones, " +
+            "recommendation_tickets = COALESCE(user_wallets.recommendation_tickets, 0) + EXCLUDED.recommendation_tickets " +
+            "RETURNING user_id AS userId, balance AS balance, spirit_stones AS spiritStones, " +
+            "recommendation_tickets AS recommendationTickets", nativeQuery = true)
+    WalletBalanceProjection upsertCredit(@Param("userId") Long userId,
+            @Param("balanceDelta") int balanceDelta,
+            @Param("spiritStoneDelta") int spiritStoneDelta,
+            @Param("ticketDelta") int ticketDelta);
+
+    /** Số dư của ví sau khi cộng/trừ */
+    interface WalletBalanceProjection {
+        Long getUserId();
+
+        Integer getBalance();
+
+        Integer getSpiritStones();
+
+        Integer getRecommendationTickets();
+    }
 }
@@ -5,9 +5,11 @@ import com.meobeo.truyen.domain.enums.TransactionType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -43,4 +45,21 @@ public interface WalletTransactionRepository extends JpaRepository<WalletTransac
         Page<WalletTransaction> findByUserAndTypeInOrderByCreatedAtDesc(
                         @Param("user") com.meobeo.truyen.domain.entity.User user,
                         @Param("types") List<TransactionType> types, Pageable pageable);
+
+        /**
+         * Ghi nhiều giao dịch của 1 user trong 1 câu lệnh (PostgreSQL unnest)
+         */
+        @Modifying
+        @Transactional
+        @Query(value = "INSERT INTO wallet_transactions (user_id, amount, currency, type, description, created_at) " +
+                        "SELECT :userId, t.amount, t.currency, t.type, t.description, :createdAt " +
+                        "FROM unnest(CAST(:amounts AS INTEGER[]), CAST(:currencies AS VARCHAR[]), " +
+                        "CAST(:types AS VARCHAR[]), CAST(:descriptions AS VARCHAR[])) " +
+                        "AS t(amount, currency, type, description)", nativeQuery = true)
+        int appendTransactions(@Param("userId") Long userId,
+                        @Param("amounts") Integer[] amounts,
+                        @Param("currencies") String[] currencies,
+                        @Param("types") String[] types,
+                        @Param("descriptions") String[] descriptions,
+                        @Param("createdAt") LocalDateTime createdAt);
 }
@@ -1,9 +1,12 @@
 package com.meobeo.truyen.security;
 
+import com.meobeo.truyen.config.CacheConfig;
 import com.meobeo.truyen.domain.entity.User;
 import com.meobeo.truyen.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -32,7 +35,12 @@ public class CustomUserDetailsService implements UserDetailsService {
         return new CustomUserDetails(user);
     }
 
+    /**
+     * Load principal theo ID, cache ngắn hạn để request đã đăng nhập không phải query DB mỗi lần.
+     * User chưa kích hoạt ném exception nên không bị cache
+     */
     @Transactional(readOnly = true)
+    @Cacheable(value = CacheConfig.USER_PRINCIPAL, key = "#userId")
     public UserDetails loadUserById(Long userId) throws UsernameNotFoundException {
         log.debug("Loading user by ID: {}", userId);
 
@@ -45,4 +53,20 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         return new CustomUserDetails(user);
     }
-}
\ No newline at end of file
+
+    /**
+     * Xóa principal đã cache của user (đổi role, khóa tài khoản, đổi mật khẩu, đăng xuất...)
+     */
+    @CacheEvict(value = CacheConfig.USER_PRINCIPAL, key = "#userId")
+    public void evictUserPrincipal(Long userId) {
+        log.debug("Xóa cache principal của user: {}", userId);
+    }
+
+    /**
+     * Xóa toàn bộ principal đã cache (đổi quyền hàng loạt)
+     */
+    @CacheEvict(value = CacheConfig.USER_PRINCIPAL, allEntries = true)
+    public void evictAllUserPrincipals() {
+        log.info("Xóa toàn bộ cache principal");
+    }
+}
@@ -1,6 +1,7 @@
 package com.meobeo.truyen.security;
 
 import com.meobeo.truyen.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -15,6 +16,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -45,24 +47,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 log.debug("JWT token found, length: {}", jwt.length());
                 log.debug("JWT token starts with: {}", jwt.substring(0, Math.min(20, jwt.length())));
 
-                log.debug("Validating JWT token...");
-                boolean isValid = jwtUtil.validateToken(jwt);
-                log.debug("JWT validation result: {}", isValid);
+                // Parse và xác thực token 1 lần duy nhất
+                Optional<Claims> claims = jwtUtil.parseClaims(jwt);
+                log.debug("JWT validation result: {}", claims.isPresent());
 
-                if (isValid) {
+                if (claims.isPresent()) {
                     try {
-                        Long userId = jwtUtil.getUserIdFromToken(jwt);
-                        log.debug("Valid JWT token found, userId: {}", userId);
+                        Long userId = Long.parseLong(claims.get().getSubject());
+                        log.debug("Valid JWT token found, userId: {}, role claim: {}", userId,
+                                claims.get().get("role", String.class));
 
-                        String username = jwtUtil.getUsernameFromToken(jwt);
-                        String role = jwtUtil.getRoleFromToken(jwt);
-                        log.debug("JWT claims - username: {}, role: {}", username, role);
-
-                        // Load user details từ database để có thông tin roles đầy đủ
-                        log.debug("Loading user details from database...");
+                        // Principal được cache ngắn hạn theo userId, chỉ query DB khi cache miss
                         CustomUserDetails userDetails = (CustomUserDetails) customUserDetailsService
                                 .loadUserById(userId);
-                        log.debug("User details loaded successfully: {}", userDetails.getUsername());
                         log.debug("User authorities: {}", userDetails.getAuthorities());
 
                         UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
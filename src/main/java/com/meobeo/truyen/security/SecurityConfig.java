@@ -1,6 +1,8 @@
 package com.meobeo.truyen.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -37,6 +39,7 @@ public class SecurityConfig {
                         "/api/v1/genres/dropdown",
                         "/api/v1/stories/{identifier}",
                         "/api/v1/stories/filter",
+                        "/api/v1/stories/suggest",
                         "/api/v1/stories/check-slug/{slug}",
                         "/api/v1/stories/author/{authorId}",
                         "/api/v1/stories/{storyIdentifier}/chapters",
@@ -75,8 +78,12 @@ public class SecurityConfig {
                                 .sessionManagement(session -> session
                                                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                                 .authorizeHttpRequests(authz -> authz
+                                                // Dispatch kết thúc của SSE: request đã được xác thực lúc mở kết nối
+                                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                                 // Public endpoints - không cần đăng nhập
                                                 .requestMatchers(PUBLIC_ENDPOINTS).permitAll()
+                                                // Health/Prometheus chỉ mở trên cổng quản trị (management.server.*) cho scraper nội bộ
+                                                .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll()
 
                                                 // Tất cả các endpoint khác cần đăng nhập
                                                 .anyRequest().authenticated())
@@ -11,11 +11,13 @@ import com.meobeo.truyen.domain.response.wallet.UserWalletListResponse;
 import com.meobeo.truyen.domain.response.wallet.UserWalletTransactionListResponse;
 import com.meobeo.truyen.domain.response.wallet.UserWalletTransactionResponse;
 import com.meobeo.truyen.exception.BadRequestException;
+import com.meobeo.truyen.exception.InsufficientBalanceException;
 import com.meobeo.truyen.exception.ResourceNotFoundException;
 import com.meobeo.truyen.repository.UserRepository;
 import com.meobeo.truyen.repository.UserWalletRepository;
 import com.meobeo.truyen.repository.WalletTransactionRepository;
 import com.meobeo.truyen.service.interfaces.AdminWalletService;
+import com.meobeo.truyen.service.interfaces.WalletLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -24,6 +26,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -33,6 +36,7 @@ public class AdminWalletServiceImpl implements AdminWalletService {
     private final UserRepository userRepository;
     private final UserWalletRepository userWalletRepository;
     private final WalletTransactionRepository walletTransactionRepository;
+    private final WalletLedgerService walletLedgerService;
 
     @Override
     @Transactional
@@ -46,60 +50,12 @@ public class AdminWalletServiceImpl implements AdminWalletService {
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Không tìm thấy người dùng với ID: " + request.getUserId()));
 
-        // Lấy hoặc tạo ví
-        UserWallet wallet = userWalletRepository.findByUserId(request.getUserId())
-                .orElseGet(() -> {
-                    UserWallet newWallet = new UserWallet();
-                    newWallet.setUserId(request.getUserId());
-                    newWallet.setUser(user);
-                    newWallet.setBalance(0);
-                    newWallet.setSpiritStones(0);
-                    return userWalletRepository.save(newWallet);
-                });
-
-        // Lưu số dư cũ
-        Integer oldBalance = wallet.getBalance();
-        Integer oldSpiritStones = wallet.getSpiritStones();
-        Integer oldRecommendationTickets = wallet.getRecommendationTickets();
-
         // Thực hiện điều chỉnh
         Integer adjustedAmount = request.getAmount();
         if (request.getAdjustmentType() == AdminWalletAdjustmentRequest.AdjustmentType.SUBTRACT) {
             adjustedAmount = -adjustedAmount;
         }
 
-        // Cập nhật ví theo loại tiền tệ
-        if (request.getCurrency() == WalletTransaction.CurrencyType.VND) {
-            int newBalance = wallet.getBalance() + adjustedAmount;
-            if (newBalance < 0) {
-                throw new BadRequestException("Số dư tiền mặt không đủ để trừ. Số dư hiện tại: " + wallet.getBalance());
-            }
-            wallet.setBalance(newBalance);
-        } else if (request.getCurrency() == WalletTransaction.CurrencyType.SPIRIT_STONE) {
-            int newSpiritStones = wallet.getSpiritStones() + adjustedAmount;
-            if (newSpiritStones < 0) {
-                throw new BadRequestException(
-                        "Số linh thạch không đủ để trừ. Số linh thạch hiện tại: " + wallet.getSpiritStones());
-            }
-            wallet.setSpiritStones(newSpiritStones);
-        } else if (request.getCurrency() == WalletTransaction.CurrencyType.RECOMMENDATION_TICKET) {
-            int newRecommendationTickets = wallet.getRecommendationTickets() + adjustedAmount;
-            if (newRecommendationTickets < 0) {
-                throw new BadRequestException(
-                        "Số phiếu đề cử không đủ để trừ. Số phiếu hiện tại: " + wallet.getRecommendationTickets());
-            }
-            wallet.setRecommendationTickets(newRecommendationTickets);
-        }
-
-        userWalletRepository.save(wallet);
-
-        // Tạo transaction record
-        WalletTransaction transaction = new WalletTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(adjustedAmount);
-        transaction.setCurrency(request.getCurrency());
-        transaction.setType(TransactionType.ADMIN_ADJUSTMENT);
-
         String description = request.getDescription();
         if (description == null || description.trim().isEmpty()) {
             description = String.format("Điều chỉnh bởi ADMIN %s - %s %d %s",
@@ -112,9 +68,26 @@ public class AdminWalletServiceImpl implements AdminWalletService {
         } else {
             description = String.format("Điều chỉnh bởi ADMIN %s: %s", adminUsername, description);
         }
-        transaction.setDescription(description);
 
-        walletTransactionRepository.save(transaction);
+        // Cập nhật ví và ghi transaction trong 1 lần, trừ quá số dư thì không thay đổi gì
+        UserWalletRepository.WalletBalanceProjection wallet;
+        try {
+            wallet = walletLedgerService.apply(request.getUserId(), List.of(new WalletLedgerService.Entry(
+                    request.getCurrency(), adjustedAmount, TransactionType.ADMIN_ADJUSTMENT, description)));
+        } catch (InsufficientBalanceException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        // Số dư cũ suy ra từ số dư mới trả về bởi câu UPDATE
+        int balanceDelta = request.getCurrency() == WalletTransaction.CurrencyType.VND ? adjustedAmount : 0;
+        int spiritStoneDelta = request.getCurrency() == WalletTransaction.CurrencyType.SPIRIT_STONE ? adjustedAmount
+                : 0;
+        int ticketDelta = request.getCurrency() == WalletTransaction.CurrencyType.RECOMMENDATION_TICKET
+                ? adjustedAmount
+                : 0;
+        Integer oldBalance = wallet.getBalance() - balanceDelta;
+        Integer oldSpiritStones = wallet.getSpiritStones() - spiritStoneDelta;
+        Integer oldRecommendationTickets = wallet.getRecommendationTickets() - ticketDelta;
 
         // Tạo response
         AdminWalletAdjustmentResponse response = new AdminWalletAdjustmentResponse();
@@ -4,6 +4,7 @@ import com.meobeo.truyen.domain.entity.Chapter;
 import com.meobeo.truyen.domain.entity.ChapterPayment;
 import com.meobeo.truyen.domain.entity.Story;
 import com.meobeo.truyen.domain.entity.User;
+import com.meobeo.truyen.domain.enums.AsyncJobType;
 import com.meobeo.truyen.domain.request.chapter.ChapterBatchLockRequest;
 import com.meobeo.truyen.domain.response.chapter.ChapterBatchLockResponse;
 import com.meobeo.truyen.domain.response.chapter.ChapterPaymentResponse;
@@ -15,6 +16,7 @@ import com.meobeo.truyen.repository.ChapterRepository;
 import com.meobeo.truyen.repository.StoryRepository;
 import com.meobeo.truyen.repository.UserRepository;
 import com.meobeo.truyen.service.interfaces.AsyncChapterPaymentService;
+import com.meobeo.truyen.service.interfaces.AsyncJobRegistry;
 import com.meobeo.truyen.utils.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,7 +27,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -39,15 +40,8 @@ public class AsyncChapterPaymentServiceImpl implements AsyncChapterPaymentServic
     private final ChapterPaymentRepository chapterPaymentRepository;
     private final UserRepository userRepository;
     private final SecurityUtils securityUtils;
-
-    // Cache để lưu trạng thái các job đang chạy
-    private final Map<String, ChapterBatchLockResponse> asyncJobResults = new ConcurrentHashMap<>();
-
-    // Map để lưu userId của từng job
-    private final Map<String, Long> jobUserMap = new ConcurrentHashMap<>();
-
-    // Flag để hủy job
-    private final Map<String, AtomicBoolean> cancelFlags = new ConcurrentHashMap<>();
+    private final ChapterLockIndex chapterLockIndex;
+    private final AsyncJobRegistry asyncJobRegistry;
 
     @Override
     public void initializeJob(String jobId, Long userId) {
@@ -56,9 +50,7 @@ public class AsyncChapterPaymentServiceImpl implements AsyncChapterPaymentServic
         initialResponse.setJobId(jobId);
         initialResponse.setStatus("PROCESSING");
         initialResponse.setStartTime(LocalDateTime.now());
-        asyncJobResults.put(jobId, initialResponse);
-        jobUserMap.put(jobId, userId);
-        cancelFlags.put(jobId, new AtomicBoolean(false));
+        asyncJobRegistry.register(jobId, AsyncJobType.CHAPTER_BATCH_LOCK, userId, initialResponse);
         log.info("Đã khởi tạo job tracking: jobId={}, userId={}", jobId, userId);
     }
 
@@ -69,13 +61,15 @@ public class AsyncChapterPaymentServiceImpl implements AsyncChapterPaymentServic
         log.info("Thread async: {}", Thread.currentThread().getName());
         log.info("JobId: {}", jobId);
 
-        ChapterBatchLockResponse response = asyncJobResults.get(jobId);
-        AtomicBoolean cancelFlag = cancelFlags.get(jobId);
+        ChapterBatchLockResponse response = asyncJobRegistry.claim(jobId)
+                ? asyncJobRegistry.find(jobId, ChapterBatchLockResponse.class).orElse(null)
+                : null;
 
-        if (response == null || cancelFlag == null) {
-            log.error("Không tìm thấy job hoặc cancel flag: jobId={}", jobId);
+        if (response == null) {
+            log.error("Không tìm thấy job hoặc job đã được xử lý: jobId={}", jobId);
             return;
         }
+        AtomicBoolean cancelFlag = asyncJobRegistry.cancelFlag(jobId);
 
         try {
             // Cập nhật trạng thái bắt đầu xử lý
@@ -87,6 +81,8 @@ public class AsyncChapterPaymentServiceImpl implements AsyncChapterPaymentServic
 
             if (cancelFlag.get()) {
                 response.setStatus("CANCELLED");
+                response.setEndTime(LocalDateTime.now());
+                asyncJobRegistry.finish(jobId, response);
                 log.info("Job bị hủy: jobId={}", jobId);
                 return;
             }
@@ -95,7 +91,7 @@ public class AsyncChapterPaymentServiceImpl implements AsyncChapterPaymentServic
             finalResponse.setJobId(jobId);
             finalResponse.setStatus("COMPLETED");
             finalResponse.setEndTime(LocalDateTime.now());
-            asyncJobResults.put(jobId, finalResponse);
+            asyncJobRegistry.finish(jobId, finalResponse);
 
             log.info("Hoàn thành async batch lock: jobId={}, success={}, failure={}",
                     jobId, finalResponse.getSuccessCount(), finalResponse.getFailureCount());
@@ -110,30 +106,28 @@ public class AsyncChapterPaymentServiceImpl implements AsyncChapterPaymentServic
             errorResponse.setFailureCount(1);
             errorResponse.setSuccessCount(0);
 
-            asyncJobResults.put(jobId, errorResponse);
+            asyncJobRegistry.finish(jobId, errorResponse);
         } finally {
-            // Cleanup
-            cancelFlags.remove(jobId);
-            jobUserMap.remove(jobId);
+            // Chapter có thể đã được khóa một phần kể cả khi job lỗi/bị hủy
+            chapterLockIndex.invalidateLockedAfterCommit(request.getStoryId());
+
             log.info("Hoàn thành job batch lock: jobId={}, status={}", jobId, response.getStatus());
         }
     }
 
     @Override
     public Optional<ChapterBatchLockResponse> getAsyncJobStatus(String jobId) {
-        return Optional.ofNullable(asyncJobResults.get(jobId));
+        return asyncJobRegistry.find(jobId, ChapterBatchLockResponse.class);
     }
 
     @Override
     public boolean cancelAsyncJob(String jobId, Long userId) {
-        Long jobUserId = jobUserMap.get(jobId);
+        Long jobUserId = asyncJobRegistry.findOwner(jobId).orElse(null);
         if (jobUserId == null || !jobUserId.equals(userId)) {
             return false;
         }
 
-        AtomicBoolean cancelFlag = cancelFlags.get(jobId);
-        if (cancelFlag != null) {
-            cancelFlag.set(true);
+        if (asyncJobRegistry.requestCancel(jobId)) {
             log.info("Job đã được đánh dấu hủy: jobId={}", jobId);
             return true;
         }
@@ -153,7 +147,7 @@ public class AsyncChapterPaymentServiceImpl implements AsyncChapterPaymentServic
         initialResponse.setJobId(jobId);
         initialResponse.setStatus("PROCESSING");
         initialResponse.setStartTime(LocalDateTime.now());
-        asyncJobResults.put(jobId, initialResponse);
+        asyncJobRegistry.update(jobId, initialResponse);
 
         int totalSuccessCount = 0;
         int totalFailureCount = 0;
@@ -221,7 +215,7 @@ public class AsyncChapterPaymentServiceImpl implements AsyncChapterPaymentServic
                     progressResponse.setErrorMessages(new ArrayList<>(allErrorMessages));
                 }
 
-                asyncJobResults.put(jobId, progressResponse);
+                asyncJobRegistry.update(jobId, progressResponse);
 
             } catch (Exception e) {
                 log.error("Lỗi xử lý chunk {}-{}: jobId={}", chunkStart, chunkEnd, jobId, e);
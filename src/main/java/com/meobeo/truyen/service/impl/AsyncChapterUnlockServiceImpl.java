@@ -1,13 +1,11 @@
 package com.meobeo.truyen.service.impl;
 
 import com.meobeo.truyen.domain.entity.*;
+import com.meobeo.truyen.domain.enums.AsyncJobType;
 import com.meobeo.truyen.domain.enums.TransactionType;
-import com.meobeo.truyen.domain.repository.ChapterUnlockRepository;
-import com.meobeo.truyen.repository.ChapterPaymentRepository;
 import com.meobeo.truyen.repository.ChapterRepository;
 import com.meobeo.truyen.repository.StoryRepository;
 import com.meobeo.truyen.repository.UserWalletRepository;
-import com.meobeo.truyen.repository.WalletTransactionRepository;
 import com.meobeo.truyen.domain.request.chapter.UnlockChapterRangeRequest;
 import com.meobeo.truyen.domain.request.chapter.UnlockFullStoryRequest;
 import com.meobeo.truyen.domain.response.chapter.UnlockChapterBatchResponse;
@@ -16,48 +14,37 @@ import com.meobeo.truyen.exception.BadRequestException;
 import com.meobeo.truyen.exception.InsufficientBalanceException;
 import com.meobeo.truyen.exception.ResourceNotFoundException;
 import com.meobeo.truyen.service.interfaces.AsyncChapterUnlockService;
+import com.meobeo.truyen.service.interfaces.AsyncJobRegistry;
+import com.meobeo.truyen.service.interfaces.WalletLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService {
 
-    private final ChapterUnlockRepository chapterUnlockRepository;
     private final ChapterRepository chapterRepository;
-    private final ChapterPaymentRepository chapterPaymentRepository;
     private final StoryRepository storyRepository;
     private final UserWalletRepository userWalletRepository;
-    private final WalletTransactionRepository walletTransactionRepository;
-
-    // Cache để lưu trạng thái các job đang chạy
-    private final Map<String, UnlockChapterBatchResponse> unlockRangeJobs = new ConcurrentHashMap<>();
-    private final Map<String, UnlockFullStoryResponse> unlockFullStoryJobs = new ConcurrentHashMap<>();
-
-    // Map để lưu userId của từng job
-    private final Map<String, Long> jobUserMap = new ConcurrentHashMap<>();
-
-    // Flag để hủy job
-    private final Map<String, AtomicBoolean> cancelFlags = new ConcurrentHashMap<>();
+    private final WalletLedgerService walletLedgerService;
+    private final ChapterRangeUnlocker chapterRangeUnlocker;
+    private final AsyncJobRegistry asyncJobRegistry;
 
     // Constants cho discount
     private static final double BATCH_DISCOUNT_PERCENT = 0.02; // 2% cho >200 chương
     private static final double FULL_UNLOCK_DISCOUNT_PERCENT = 0.10; // 10% cho mở full
     private static final int BATCH_DISCOUNT_THRESHOLD = 200; // Ngưỡng áp dụng discount
-    private static final int CHUNK_SIZE = 50; // Xử lý từng chunk 50 chapter
 
     @Override
     public void initializeRangeJob(String jobId, Long userId) {
@@ -66,9 +53,7 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
         initialResponse.setJobId(jobId);
         initialResponse.setStatus("PROCESSING");
         initialResponse.setStartTime(LocalDateTime.now());
-        unlockRangeJobs.put(jobId, initialResponse);
-        jobUserMap.put(jobId, userId);
-        cancelFlags.put(jobId, new AtomicBoolean(false));
+        asyncJobRegistry.register(jobId, AsyncJobType.UNLOCK_RANGE, userId, initialResponse);
         log.info("Đã khởi tạo job unlock range: jobId={}, userId={}", jobId, userId);
     }
 
@@ -79,9 +64,7 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
         initialResponse.setJobId(jobId);
         initialResponse.setStatus("PROCESSING");
         initialResponse.setStartTime(LocalDateTime.now());
-        unlockFullStoryJobs.put(jobId, initialResponse);
-        jobUserMap.put(jobId, userId);
-        cancelFlags.put(jobId, new AtomicBoolean(false));
+        asyncJobRegistry.register(jobId, AsyncJobType.UNLOCK_FULL_STORY, userId, initialResponse);
         log.info("Đã khởi tạo job unlock full story: jobId={}, userId={}", jobId, userId);
     }
 
@@ -92,13 +75,15 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
         log.info("Thread async: {}", Thread.currentThread().getName());
         log.info("JobId: {}", jobId);
 
-        UnlockChapterBatchResponse response = unlockRangeJobs.get(jobId);
-        AtomicBoolean cancelFlag = cancelFlags.get(jobId);
+        UnlockChapterBatchResponse response = asyncJobRegistry.claim(jobId)
+                ? asyncJobRegistry.find(jobId, UnlockChapterBatchResponse.class).orElse(null)
+                : null;
 
-        if (response == null || cancelFlag == null) {
-            log.error("Không tìm thấy job hoặc cancel flag: jobId={}", jobId);
+        if (response == null) {
+            log.error("Không tìm thấy job hoặc job đã được xử lý: jobId={}", jobId);
             return;
         }
+        AtomicBoolean cancelFlag = asyncJobRegistry.cancelFlag(jobId);
 
         try {
             // Cập nhật trạng thái bắt đầu xử lý
@@ -109,26 +94,22 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
             Story story = validateStoryExists(storyId);
             validateChapterRange(request.getFromChapterNumber(), request.getToChapterNumber());
 
-            // Lấy danh sách chapter trong range
-            List<Chapter> chapters = chapterRepository.findByStoryIdAndChapterNumberBetweenOrderByChapterNumber(
-                    storyId, request.getFromChapterNumber(), request.getToChapterNumber());
+            // Báo giá bằng 1 query: số chương trong khoảng, số chương cần mở và tổng giá
+            ChapterRangeUnlocker.Quote quote = chapterRangeUnlocker.quote(storyId, userId,
+                    request.getFromChapterNumber(), request.getToChapterNumber());
 
-            if (chapters.isEmpty()) {
+            if (quote.rangeChapterCount() == 0) {
                 response.setStatus("FAILED");
                 response.setMessage("Không tìm thấy chương nào trong khoảng đã chọn");
+                asyncJobRegistry.finish(jobId, response);
                 log.error("Không tìm thấy chương nào: jobId={}", jobId);
                 return;
             }
 
-            // Lọc chapter bị khóa và chưa mở khóa
-            List<Chapter> lockedChapters = chapters.stream()
-                    .filter(chapter -> isChapterLocked(chapter.getId()))
-                    .filter(chapter -> !hasUserUnlockedChapter(userId, chapter.getId()))
-                    .collect(Collectors.toList());
-
-            if (lockedChapters.isEmpty()) {
+            if (quote.lockableCount() == 0) {
                 response.setStatus("FAILED");
                 response.setMessage("Tất cả chương trong khoảng đã được mở khóa hoặc không bị khóa");
+                asyncJobRegistry.finish(jobId, response);
                 log.error("Không có chương nào cần mở khóa: jobId={}", jobId);
                 return;
             }
@@ -137,36 +118,29 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
             response.setStoryId(story.getId());
             response.setStoryTitle(story.getTitle());
             response.setTotalChaptersUnlocked(0); // Bắt đầu từ 0
-            response.setMessage("Bắt đầu mở khóa " + lockedChapters.size() + " chương từ chương " +
+            response.setMessage("Bắt đầu mở khóa " + quote.lockableCount() + " chương từ chương " +
                     request.getFromChapterNumber() + " đến chương " + request.getToChapterNumber());
 
-            // Tính tổng giá để hiển thị
-            int totalOriginalPrice = 0;
-            for (Chapter chapter : lockedChapters) {
-                ChapterPayment payment = chapterPaymentRepository.findById(chapter.getId())
-                        .orElseThrow(() -> new ResourceNotFoundException(
-                                "Không tìm thấy thông tin giá chương " + chapter.getId()));
-                totalOriginalPrice += payment.getPrice();
-            }
-
-            int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, lockedChapters.size(), false);
+            int totalOriginalPrice = quote.totalOriginalPrice();
+            int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, quote.lockableCount(), false);
 
             response.setTotalOriginalPrice(totalOriginalPrice);
             response.setTotalDiscountedPrice(totalFinalPrice);
             response.setTotalSpiritStonesSpent(totalFinalPrice);
             response.setTotalDiscountPercent(
-                    lockedChapters.size() > BATCH_DISCOUNT_THRESHOLD ? BATCH_DISCOUNT_PERCENT * 100 : 0.0);
+                    quote.lockableCount() > BATCH_DISCOUNT_THRESHOLD ? BATCH_DISCOUNT_PERCENT * 100 : 0.0);
 
-            // Cập nhật lại vào map để client có thể thấy thông tin ngay
-            unlockRangeJobs.put(jobId, response);
+            // Cập nhật lại vào registry để client có thể thấy thông tin ngay
+            asyncJobRegistry.update(jobId, response);
 
-            // Xử lý từng chunk để tránh transaction quá lớn
+            // Mở theo chunk (keyset) để báo tiến độ và hủy giữa chừng; cả job chạy trong 1 transaction
             UnlockChapterBatchResponse finalResponse = processUnlockRangeInChunks(
-                    request, userId, jobId, cancelFlag, story, lockedChapters);
+                    request, userId, jobId, cancelFlag, story, quote);
 
             if (cancelFlag.get()) {
                 response.setStatus("CANCELLED");
                 response.setMessage("Mở khóa đã bị hủy");
+                asyncJobRegistry.finish(jobId, response);
                 log.info("Job bị hủy: jobId={}", jobId);
                 return;
             }
@@ -175,21 +149,26 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
             finalResponse.setJobId(jobId);
             finalResponse.setStatus("COMPLETED");
             finalResponse.setEndTime(LocalDateTime.now());
-            unlockRangeJobs.put(jobId, finalResponse);
+            asyncJobRegistry.finish(jobId, finalResponse);
 
             log.info("Hoàn thành unlock range: jobId={}, totalChaptersUnlocked={}",
                     jobId, finalResponse.getTotalChaptersUnlocked());
 
         } catch (InsufficientBalanceException e) {
             log.error("Không đủ số dư unlock range: jobId={}, error={}", jobId, e.getMessage());
+            // Hủy các chương đã mở trong transaction này vì chưa trừ tiền
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatus("FAILED");
             response.setMessage("Không đủ số dư linh thạch: " + e.getMessage());
             response.setEndTime(LocalDateTime.now());
+            asyncJobRegistry.finish(jobId, response);
         } catch (Exception e) {
             log.error("Lỗi unlock range: jobId={}", jobId, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatus("FAILED");
             response.setMessage("Lỗi: " + e.getMessage());
             response.setEndTime(LocalDateTime.now());
+            asyncJobRegistry.finish(jobId, response);
         }
     }
 
@@ -200,13 +179,15 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
         log.info("Thread async: {}", Thread.currentThread().getName());
         log.info("JobId: {}", jobId);
 
-        UnlockFullStoryResponse response = unlockFullStoryJobs.get(jobId);
-        AtomicBoolean cancelFlag = cancelFlags.get(jobId);
+        UnlockFullStoryResponse response = asyncJobRegistry.claim(jobId)
+                ? asyncJobRegistry.find(jobId, UnlockFullStoryResponse.class).orElse(null)
+                : null;
 
-        if (response == null || cancelFlag == null) {
-            log.error("Không tìm thấy job hoặc cancel flag: jobId={}", jobId);
+        if (response == null) {
+            log.error("Không tìm thấy job hoặc job đã được xử lý: jobId={}", jobId);
             return;
         }
+        AtomicBoolean cancelFlag = asyncJobRegistry.cancelFlag(jobId);
 
         try {
             // Cập nhật trạng thái bắt đầu xử lý
@@ -217,33 +198,29 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
             Story story = validateStoryExists(storyId);
             log.info("Đã validate story: storyId={}, title={}", storyId, story.getTitle());
 
-            // Bước 1: Đếm tổng số chapter cần unlock (tối ưu query)
-            Long totalChaptersToUnlock = chapterPaymentRepository.countChaptersToUnlockByStory(storyId, userId);
+            // Bước 1: Báo giá số chương cần unlock và tổng giá trong 1 query
+            ChapterRangeUnlocker.Quote quote = chapterRangeUnlocker.quoteFullStory(storyId, userId);
+            int totalChaptersToUnlock = quote.lockableCount();
             log.info("Tổng số chapter cần unlock: {}", totalChaptersToUnlock);
 
             if (totalChaptersToUnlock == 0) {
                 response.setStatus("FAILED");
                 response.setMessage("Tất cả chương đã được mở khóa hoặc không bị khóa");
+                asyncJobRegistry.finish(jobId, response);
                 log.info("Không có chương nào cần mở khóa: jobId={}", jobId);
                 return;
             }
 
-            // Bước 2: Tính tổng giá trước (tối ưu query)
-            int totalOriginalPrice = calculateTotalPriceForUnlock(storyId, userId);
-            int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, totalChaptersToUnlock.intValue(), true);
+            int totalOriginalPrice = quote.totalOriginalPrice();
+            int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, totalChaptersToUnlock, true);
 
-            // Bước 3: Kiểm tra số dư
-            UserWallet wallet = getUserWallet(userId);
-            validateSufficientBalance(wallet, totalFinalPrice);
+            // Bước 2: Kiểm tra sớm số dư theo báo giá, tiền được trừ (có điều kiện) sau khi mở khóa xong
+            validateSufficientBalance(getUserWallet(userId), totalFinalPrice);
 
-            // Bước 4: Trừ linh thạch trước
-            wallet.setSpiritStones(wallet.getSpiritStones() - totalFinalPrice);
-            userWalletRepository.save(wallet);
-
-            // Bước 5: Cập nhật thông tin ban đầu vào response
+            // Bước 3: Cập nhật thông tin ban đầu vào response
             response.setStoryId(story.getId());
             response.setStoryTitle(story.getTitle());
-            response.setTotalChaptersToUnlock(totalChaptersToUnlock.intValue());
+            response.setTotalChaptersToUnlock(totalChaptersToUnlock);
             response.setTotalChaptersUnlocked(0);
             response.setProcessedChapters(0);
             response.setTotalOriginalPrice(totalOriginalPrice);
@@ -252,23 +229,24 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
             response.setTotalDiscountPercent(FULL_UNLOCK_DISCOUNT_PERCENT * 100);
             response.setProgressPercent(0.0);
 
-            // Tính số batch
-            int totalBatches = (int) Math.ceil((double) totalChaptersToUnlock / CHUNK_SIZE);
+            // Tính số batch (mỗi batch là 1 khoảng số chương)
+            int totalBatches = chapterRangeUnlocker.countChunks(quote);
             response.setTotalBatches(totalBatches);
             response.setCurrentBatch(0);
             response.setMessage(
                     "Bắt đầu mở khóa " + totalChaptersToUnlock + " chương trong " + totalBatches + " batch...");
 
-            // Cập nhật lại vào map để client có thể thấy thông tin ngay
-            unlockFullStoryJobs.put(jobId, response);
+            // Cập nhật lại vào registry để client có thể thấy thông tin ngay
+            asyncJobRegistry.update(jobId, response);
 
-            // Bước 6: Xử lý từng batch tối ưu
+            // Bước 4: Mở khóa theo keyset số chương rồi trừ tiền
             UnlockFullStoryResponse finalResponse = processUnlockFullStoryInBatches(
-                    userId, jobId, cancelFlag, story, totalChaptersToUnlock.intValue(), totalBatches);
+                    userId, jobId, cancelFlag, story, quote, totalBatches);
 
             if (cancelFlag.get()) {
                 response.setStatus("CANCELLED");
                 response.setMessage("Mở khóa đã bị hủy");
+                asyncJobRegistry.finish(jobId, response);
                 log.info("Job bị hủy: jobId={}", jobId);
                 return;
             }
@@ -278,214 +256,136 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
             finalResponse.setStatus("COMPLETED");
             finalResponse.setEndTime(LocalDateTime.now());
             finalResponse.setProgressPercent(100.0);
-            unlockFullStoryJobs.put(jobId, finalResponse);
+            asyncJobRegistry.finish(jobId, finalResponse);
 
             log.info("Hoàn thành unlock full story (optimized): jobId={}, unlockedChapters={}",
                     jobId, finalResponse.getTotalChaptersUnlocked());
 
         } catch (InsufficientBalanceException e) {
             log.error("Không đủ số dư unlock full story: jobId={}, error={}", jobId, e.getMessage());
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatus("FAILED");
             response.setMessage("Không đủ số dư linh thạch: " + e.getMessage());
             response.setEndTime(LocalDateTime.now());
+            asyncJobRegistry.finish(jobId, response);
         } catch (Exception e) {
             log.error("Lỗi unlock full story: jobId={}", jobId, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatus("FAILED");
             response.setMessage("Lỗi: " + e.getMessage());
             response.setEndTime(LocalDateTime.now());
+            asyncJobRegistry.finish(jobId, response);
         }
     }
 
     /**
-     * Xử lý unlock range theo chunks để tránh transaction quá lớn
+     * Mở khóa range theo chunk bằng {@link ChapterRangeUnlocker} (mỗi chunk 1 câu INSERT ... SELECT),
+     * sau đó trừ linh thạch theo số chương thực sự được mở
      */
     private UnlockChapterBatchResponse processUnlockRangeInChunks(
             UnlockChapterRangeRequest request, Long userId, String jobId,
-            AtomicBoolean cancelFlag, Story story, List<Chapter> lockedChapters) {
-
-        // Tính tổng giá trước
-        int totalOriginalPrice = 0;
-
-        for (Chapter chapter : lockedChapters) {
-            ChapterPayment payment = chapterPaymentRepository.findById(chapter.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Không tìm thấy thông tin giá chương " + chapter.getId()));
-
-            int originalPrice = payment.getPrice();
-            totalOriginalPrice += originalPrice;
-        }
+            AtomicBoolean cancelFlag, Story story, ChapterRangeUnlocker.Quote quote) {
 
-        int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, lockedChapters.size(), false);
+        // Kiểm tra sớm số dư theo báo giá trước khi mở khóa
+        validateSufficientBalance(getUserWallet(userId), calculateUnlockPrice(quote.totalOriginalPrice(), quote.lockableCount(),
+                false));
 
-        // Kiểm tra số dư
-        UserWallet wallet = getUserWallet(userId);
-        validateSufficientBalance(wallet, totalFinalPrice);
-
-        // Trừ linh thạch trước
-        wallet.setSpiritStones(wallet.getSpiritStones() - totalFinalPrice);
-        userWalletRepository.save(wallet);
-
-        // Xử lý từng chunk
-        int totalChapters = lockedChapters.size();
-        int processedCount = 0;
-
-        for (int i = 0; i < lockedChapters.size(); i += CHUNK_SIZE) {
-            if (cancelFlag.get()) {
-                break;
-            }
-
-            int chunkEnd = Math.min(i + CHUNK_SIZE, lockedChapters.size());
-            List<Chapter> chunk = lockedChapters.subList(i, chunkEnd);
-
-            try {
-                // Xử lý chunk với transaction riêng
-                processUnlockChunk(chunk, userId, null,
-                        TransactionType.CHAPTER_UNLOCK_BATCH_SPIRIT_STONE, lockedChapters.size());
-
-                processedCount += chunk.size();
-                log.info("Hoàn thành chunk {}-{}: jobId={}, progress={}/{}",
-                        i + 1, chunkEnd, jobId, processedCount, totalChapters);
-
-                // Update progress trong map
-                UnlockChapterBatchResponse progressResponse = new UnlockChapterBatchResponse();
-                progressResponse.setJobId(jobId);
-                progressResponse.setStatus("PROCESSING");
-                progressResponse.setStartTime(unlockRangeJobs.get(jobId).getStartTime());
-                progressResponse.setStoryId(story.getId());
-                progressResponse.setStoryTitle(story.getTitle());
-                progressResponse.setTotalChaptersUnlocked(processedCount);
-                progressResponse.setTotalSpiritStonesSpent(totalFinalPrice);
-                progressResponse.setTotalOriginalPrice(totalOriginalPrice);
-                progressResponse.setTotalDiscountedPrice(totalFinalPrice);
-                progressResponse.setTotalDiscountPercent(
-                        lockedChapters.size() > BATCH_DISCOUNT_THRESHOLD ? BATCH_DISCOUNT_PERCENT * 100 : 0.0);
-                progressResponse.setMessage("Đã mở khóa " + processedCount + "/" + totalChapters + " chương");
-                unlockRangeJobs.put(jobId, progressResponse);
-
-            } catch (Exception e) {
-                log.error("Lỗi xử lý chunk {}-{}: jobId={}", i + 1, chunkEnd, jobId, e);
-                // Tiếp tục với chunk tiếp theo
-            }
-        }
-
-        // Tạo 1 transaction duy nhất cho toàn bộ quá trình unlock
         LocalDateTime unlockedAt = LocalDateTime.now();
-        WalletTransaction transaction = new WalletTransaction();
-        transaction.setUser(getUserWallet(userId).getUser());
-        transaction.setAmount(-totalFinalPrice);
-        transaction.setType(TransactionType.CHAPTER_UNLOCK_BATCH_SPIRIT_STONE);
-        transaction.setCurrency(WalletTransaction.CurrencyType.SPIRIT_STONE);
-        transaction.setDescription("Mở khóa " + lockedChapters.size() + " chương từ chương " +
-                request.getFromChapterNumber() + " đến chương " + request.getToChapterNumber() +
-                " của truyện " + story.getTitle());
-        transaction.setCreatedAt(unlockedAt);
-        walletTransactionRepository.save(transaction);
+        UnlockChapterBatchResponse startResponse = asyncJobRegistry.find(jobId, UnlockChapterBatchResponse.class)
+                .orElseThrow();
+        ChapterRangeUnlocker.Result result = chapterRangeUnlocker.unlock(story.getId(), userId, quote, unlockedAt,
+                cancelFlag, processedCount -> {
+                    // Update progress trong map
+                    UnlockChapterBatchResponse progressResponse = new UnlockChapterBatchResponse();
+                    progressResponse.setJobId(jobId);
+                    progressResponse.setStatus("PROCESSING");
+                    progressResponse.setStartTime(startResponse.getStartTime());
+                    progressResponse.setStoryId(story.getId());
+                    progressResponse.setStoryTitle(story.getTitle());
+                    progressResponse.setTotalChaptersUnlocked(processedCount);
+                    progressResponse.setTotalSpiritStonesSpent(startResponse.getTotalSpiritStonesSpent());
+                    progressResponse.setTotalOriginalPrice(startResponse.getTotalOriginalPrice());
+                    progressResponse.setTotalDiscountedPrice(startResponse.getTotalDiscountedPrice());
+                    progressResponse.setTotalDiscountPercent(startResponse.getTotalDiscountPercent());
+                    progressResponse.setMessage(
+                            "Đã mở khóa " + processedCount + "/" + quote.lockableCount() + " chương");
+                    asyncJobRegistry.update(jobId, progressResponse);
+                });
+
+        log.info("Mở khóa range xong: jobId={}, unlocked={}/{}, chunks={}",
+                jobId, result.unlockedCount(), quote.lockableCount(), result.chunks());
+
+        // Trừ linh thạch theo số chương thực sự được mở
+        int totalOriginalPrice = result.totalOriginalPrice();
+        int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, result.unlockedCount(), false);
+
+        // Trừ ví và ghi 1 transaction duy nhất cho toàn bộ quá trình unlock, không đủ số dư thì rollback
+        if (result.unlockedCount() > 0) {
+            walletLedgerService.debit(userId, WalletTransaction.CurrencyType.SPIRIT_STONE, totalFinalPrice,
+                    TransactionType.CHAPTER_UNLOCK_BATCH_SPIRIT_STONE,
+                    "Mở khóa " + result.unlockedCount() + " chương từ chương " + request.getFromChapterNumber() +
+                            " đến chương " + request.getToChapterNumber() + " của truyện " + story.getTitle());
+        }
 
         // Tạo response cuối cùng
         UnlockChapterBatchResponse finalResponse = new UnlockChapterBatchResponse();
         finalResponse.setStoryId(story.getId());
         finalResponse.setStoryTitle(story.getTitle());
-        finalResponse.setTotalChaptersUnlocked(lockedChapters.size());
+        finalResponse.setTotalChaptersUnlocked(result.unlockedCount());
         finalResponse.setTotalSpiritStonesSpent(totalFinalPrice);
         finalResponse.setTotalOriginalPrice(totalOriginalPrice);
         finalResponse.setTotalDiscountedPrice(totalFinalPrice);
         finalResponse.setTotalDiscountPercent(
-                lockedChapters.size() > BATCH_DISCOUNT_THRESHOLD ? BATCH_DISCOUNT_PERCENT * 100 : 0.0);
+                result.unlockedCount() > BATCH_DISCOUNT_THRESHOLD ? BATCH_DISCOUNT_PERCENT * 100 : 0.0);
         finalResponse.setUnlockedAt(unlockedAt);
 
         return finalResponse;
     }
 
     /**
-     * Tính tổng giá cho việc unlock (tối ưu query)
-     */
-    private int calculateTotalPriceForUnlock(Long storyId, Long userId) {
-        int totalPrice = 0;
-        int offset = 0;
-        int limit = 100; // Lấy từng batch 100 chapter để tính giá
-
-        while (true) {
-            List<Object[]> chapters = chapterPaymentRepository.findChaptersToUnlockByStory(storyId, userId, limit,
-                    offset);
-            if (chapters.isEmpty()) {
-                break;
-            }
-
-            for (Object[] chapter : chapters) {
-                Integer price = (Integer) chapter[1]; // price ở index 1
-                totalPrice += price;
-            }
-
-            offset += limit;
-        }
-
-        return totalPrice;
-    }
-
-    /**
-     * Xử lý unlock full story theo batches tối ưu
+     * Mở khóa full story theo keyset số chương (mỗi batch 1 câu INSERT ... SELECT),
+     * sau đó trừ linh thạch theo số chương thực sự được mở
      */
     private UnlockFullStoryResponse processUnlockFullStoryInBatches(
             Long userId, String jobId, AtomicBoolean cancelFlag, Story story,
-            int totalChaptersToUnlock, int totalBatches) {
-
-        int processedCount = 0;
-        int currentBatch = 0;
-        int offset = 0;
-
-        while (processedCount < totalChaptersToUnlock && !cancelFlag.get()) {
-            currentBatch++;
-
-            // Lấy batch chapter cần unlock
-            List<Object[]> chaptersBatch = chapterPaymentRepository.findChaptersToUnlockByStory(
-                    story.getId(), userId, CHUNK_SIZE, offset);
-
-            if (chaptersBatch.isEmpty()) {
-                break;
-            }
-
-            try {
-                // Xử lý batch với transaction riêng
-                processUnlockBatch(chaptersBatch, userId, story);
-
-                processedCount += chaptersBatch.size();
-                offset += CHUNK_SIZE;
-
-                log.info("Hoàn thành batch {}/{}: jobId={}, progress={}/{}",
-                        currentBatch, totalBatches, jobId, processedCount, totalChaptersToUnlock);
-
-                // Update progress trong map
-                updateUnlockFullStoryProgress(jobId, story, totalChaptersToUnlock, processedCount,
-                        currentBatch, totalBatches);
-
-            } catch (Exception e) {
-                log.error("Lỗi xử lý batch {}/{}: jobId={}", currentBatch, totalBatches, jobId, e);
-                // Tiếp tục với batch tiếp theo
-            }
-        }
+            ChapterRangeUnlocker.Quote quote, int totalBatches) {
 
-        // Tạo 1 transaction duy nhất cho toàn bộ quá trình unlock
         LocalDateTime unlockedAt = LocalDateTime.now();
-        WalletTransaction transaction = new WalletTransaction();
-        transaction.setUser(getUserWallet(userId).getUser());
-        transaction.setAmount(-calculateTotalPriceForUnlock(story.getId(), userId));
-        transaction.setType(TransactionType.CHAPTER_UNLOCK_FULL_SPIRIT_STONE);
-        transaction.setCurrency(WalletTransaction.CurrencyType.SPIRIT_STONE);
-        transaction
-                .setDescription("Mở khóa full truyện " + story.getTitle() + " (" + totalChaptersToUnlock + " chương)");
-        transaction.setCreatedAt(unlockedAt);
-        walletTransactionRepository.save(transaction);
+        UnlockFullStoryResponse startResponse = asyncJobRegistry.find(jobId, UnlockFullStoryResponse.class)
+                .orElseThrow();
+        int[] currentBatch = { 0 };
+        ChapterRangeUnlocker.Result result = chapterRangeUnlocker.unlock(story.getId(), userId, quote, unlockedAt,
+                cancelFlag, processedCount -> {
+                    currentBatch[0]++;
+                    log.info("Hoàn thành batch {}/{}: jobId={}, progress={}/{}",
+                            currentBatch[0], totalBatches, jobId, processedCount, quote.lockableCount());
+                    updateUnlockFullStoryProgress(jobId, startResponse, story, quote.lockableCount(),
+                            processedCount, currentBatch[0], totalBatches);
+                });
+
+        // Trừ linh thạch theo số chương thực sự được mở
+        int totalOriginalPrice = result.totalOriginalPrice();
+        int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, result.unlockedCount(), true);
+
+        // Trừ ví và ghi 1 transaction duy nhất cho toàn bộ quá trình unlock, không đủ số dư thì rollback
+        if (result.unlockedCount() > 0) {
+            walletLedgerService.debit(userId, WalletTransaction.CurrencyType.SPIRIT_STONE, totalFinalPrice,
+                    TransactionType.CHAPTER_UNLOCK_FULL_SPIRIT_STONE,
+                    "Mở khóa full truyện " + story.getTitle() + " (" + result.unlockedCount() + " chương)");
+        }
 
         // Tạo response cuối cùng
         UnlockFullStoryResponse finalResponse = new UnlockFullStoryResponse();
         finalResponse.setStoryId(story.getId());
         finalResponse.setStoryTitle(story.getTitle());
-        finalResponse.setTotalChaptersUnlocked(totalChaptersToUnlock);
-        finalResponse.setTotalChaptersToUnlock(totalChaptersToUnlock);
-        finalResponse.setProcessedChapters(processedCount);
-        finalResponse.setTotalSpiritStonesSpent(calculateTotalPriceForUnlock(story.getId(), userId));
-        finalResponse.setTotalOriginalPrice(calculateTotalPriceForUnlock(story.getId(), userId));
-        finalResponse.setTotalDiscountedPrice(calculateTotalPriceForUnlock(story.getId(), userId));
+        finalResponse.setTotalChaptersUnlocked(result.unlockedCount());
+        finalResponse.setTotalChaptersToUnlock(quote.lockableCount());
+        finalResponse.setProcessedChapters(result.unlockedCount());
+        finalResponse.setCurrentBatch(currentBatch[0]);
+        finalResponse.setTotalBatches(totalBatches);
+        finalResponse.setTotalSpiritStonesSpent(totalFinalPrice);
+        finalResponse.setTotalOriginalPrice(totalOriginalPrice);
+        finalResponse.setTotalDiscountedPrice(totalFinalPrice);
         finalResponse.setTotalDiscountPercent(FULL_UNLOCK_DISCOUNT_PERCENT * 100);
         finalResponse.setUnlockedAt(unlockedAt);
         finalResponse.setProgressPercent(100.0);
@@ -494,40 +394,15 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
     }
 
     /**
-     * Xử lý một batch chapter unlock từ Object[] (tối ưu)
+     * Cập nhật progress cho unlock full story (giá lấy từ báo giá ban đầu, không query lại)
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    private void processUnlockBatch(List<Object[]> chaptersBatch, Long userId, Story story) {
-        LocalDateTime unlockedAt = LocalDateTime.now();
-
-        for (Object[] chapterData : chaptersBatch) {
-            Long chapterId = (Long) chapterData[0]; // chapter_id ở index 0
-
-            // Tạo ChapterUnlock record
-            ChapterUnlockId unlockId = new ChapterUnlockId();
-            unlockId.setUserId(userId);
-            unlockId.setChapterId(chapterId);
-
-            ChapterUnlock unlock = new ChapterUnlock();
-            unlock.setId(unlockId);
-            unlock.setUser(getUserWallet(userId).getUser());
-            unlock.setChapter(chapterRepository.findById(chapterId).orElse(null));
-            unlock.setUnlockedAt(unlockedAt);
-
-            chapterUnlockRepository.save(unlock);
-        }
-    }
-
-    /**
-     * Cập nhật progress cho unlock full story
-     */
-    private void updateUnlockFullStoryProgress(String jobId, Story story, int totalChapters,
-            int processedCount, int currentBatch, int totalBatches) {
+    private void updateUnlockFullStoryProgress(String jobId, UnlockFullStoryResponse startResponse, Story story,
+            int totalChapters, int processedCount, int currentBatch, int totalBatches) {
 
         UnlockFullStoryResponse progressResponse = new UnlockFullStoryResponse();
         progressResponse.setJobId(jobId);
         progressResponse.setStatus("PROCESSING");
-        progressResponse.setStartTime(unlockFullStoryJobs.get(jobId).getStartTime());
+        progressResponse.setStartTime(startResponse.getStartTime());
         progressResponse.setStoryId(story.getId());
         progressResponse.setStoryTitle(story.getTitle());
         progressResponse.setTotalChaptersToUnlock(totalChapters);
@@ -535,15 +410,9 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
         progressResponse.setProcessedChapters(processedCount);
         progressResponse.setCurrentBatch(currentBatch);
         progressResponse.setTotalBatches(totalBatches);
-        progressResponse.setTotalSpiritStonesSpent(calculateTotalPriceForUnlock(story.getId(),
-                unlockFullStoryJobs.get(jobId).getStoryId() != null ? unlockFullStoryJobs.get(jobId).getStoryId()
-                        : 0L));
-        progressResponse.setTotalOriginalPrice(calculateTotalPriceForUnlock(story.getId(),
-                unlockFullStoryJobs.get(jobId).getStoryId() != null ? unlockFullStoryJobs.get(jobId).getStoryId()
-                        : 0L));
-        progressResponse.setTotalDiscountedPrice(calculateTotalPriceForUnlock(story.getId(),
-                unlockFullStoryJobs.get(jobId).getStoryId() != null ? unlockFullStoryJobs.get(jobId).getStoryId()
-                        : 0L));
+        progressResponse.setTotalSpiritStonesSpent(startResponse.getTotalSpiritStonesSpent());
+        progressResponse.setTotalOriginalPrice(startResponse.getTotalOriginalPrice());
+        progressResponse.setTotalDiscountedPrice(startResponse.getTotalDiscountedPrice());
         progressResponse.setTotalDiscountPercent(FULL_UNLOCK_DISCOUNT_PERCENT * 100);
 
         // Tính progress percent
@@ -554,65 +423,10 @@ public class AsyncChapterUnlockServiceImpl implements AsyncChapterUnlockService
                 processedCount, totalChapters, currentBatch, totalBatches, progressPercent));
         progressResponse.setCurrentBatchInfo(String.format("Batch %d/%d", currentBatch, totalBatches));
 
-        unlockFullStoryJobs.put(jobId, progressResponse);
-    }
-
-    /**
-     * Xử lý một chunk chapter unlock - chỉ tạo ChapterUnlock records, không tạo
-     * WalletTransaction
-     */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    private void processUnlockChunk(List<Chapter> chapters, Long userId, String description,
-            TransactionType transactionType, int totalChapterCount) {
-
-        LocalDateTime unlockedAt = LocalDateTime.now();
-
-        for (Chapter chapter : chapters) {
-            // Tạo ChapterUnlock record
-            ChapterUnlockId unlockId = new ChapterUnlockId();
-            unlockId.setUserId(userId);
-            unlockId.setChapterId(chapter.getId());
-
-            ChapterUnlock unlock = new ChapterUnlock();
-            unlock.setId(unlockId);
-            unlock.setUser(getUserWallet(userId).getUser());
-            unlock.setChapter(chapter);
-            unlock.setUnlockedAt(unlockedAt);
-
-            chapterUnlockRepository.save(unlock);
-        }
-    }
-
-    @Override
-    public Map<String, UnlockChapterBatchResponse> getUnlockRangeJobs() {
-        return unlockRangeJobs;
-    }
-
-    @Override
-    public Map<String, UnlockFullStoryResponse> getUnlockFullStoryJobs() {
-        return unlockFullStoryJobs;
-    }
-
-    @Override
-    public Map<String, Long> getJobUserMap() {
-        return jobUserMap;
-    }
-
-    @Override
-    public Map<String, AtomicBoolean> getCancelFlags() {
-        return cancelFlags;
+        asyncJobRegistry.update(jobId, progressResponse);
     }
 
     // Helper methods
-    private boolean isChapterLocked(Long chapterId) {
-        ChapterPayment payment = chapterPaymentRepository.findById(chapterId).orElse(null);
-        return payment != null && Boolean.TRUE.equals(payment.getIsLocked());
-    }
-
-    private boolean hasUserUnlockedChapter(Long userId, Long chapterId) {
-        return chapterUnlockRepository.existsByUserIdAndChapterId(userId, chapterId);
-    }
-
     private int calculateUnlockPrice(int originalPrice, int chapterCount, boolean isFullUnlock) {
         double discountPercent = 0.0;
 
@@ -4,6 +4,7 @@ import com.meobeo.truyen.domain.entity.Story;
 import com.meobeo.truyen.domain.entity.User;
 import com.meobeo.truyen.repository.StoryRepository;
 import com.meobeo.truyen.repository.UserRepository;
+import com.meobeo.truyen.security.CustomUserDetailsService;
 import com.meobeo.truyen.service.interfaces.AsyncCloudinaryService;
 import com.meobeo.truyen.service.interfaces.CloudinaryService;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +21,7 @@ public class AsyncCloudinaryServiceImpl implements AsyncCloudinaryService {
     private final CloudinaryService cloudinaryService;
     private final StoryRepository storyRepository;
     private final UserRepository userRepository;
+    private final CustomUserDetailsService customUserDetailsService;
 
     @Override
     @Async("taskExecutor")
@@ -60,6 +62,7 @@ public class AsyncCloudinaryServiceImpl implements AsyncCloudinaryService {
             if (user != null) {
                 user.setAvatarUrl(avatarUrl);
                 userRepository.save(user);
+                customUserDetailsService.evictUserPrincipal(userId);
                 log.info("Upload avatar thành công: userId={}, url={}", userId, avatarUrl);
             } else {
                 log.warn("Không tìm thấy user để cập nhật avatar: userId={}", userId);
@@ -3,6 +3,7 @@ package com.meobeo.truyen.service.impl;
 import com.meobeo.truyen.domain.request.story.FormatFileRequest;
 import com.meobeo.truyen.domain.response.story.FormatFileResponse;
 import com.meobeo.truyen.service.interfaces.AsyncFormatFileService;
+import com.meobeo.truyen.service.interfaces.AsyncJobRegistry;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,26 +17,31 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AsyncFormatFileServiceImpl implements AsyncFormatFileService {
 
-    // Cache để lưu trạng thái các job đang chạy
-    private final Map<String, FormatFileResponse> formatJobs = new ConcurrentHashMap<>();
+    // Số dòng giữa 2 lần báo tiến độ cho registry (báo sau mỗi chunk đủ số dòng này)
+    private static final int PROGRESS_REPORT_LINES = 10000;
 
-    // Map để lưu userId của từng job
-    private final Map<String, Long> jobUserMap = new ConcurrentHashMap<>();
+    // Số dòng đọc vào bộ nhớ mỗi lần, giới hạn bộ nhớ mỗi job không phụ thuộc kích thước file
+    private static final int CHUNK_LINES = 4096;
 
-    // Flag để hủy job
-    private final Map<String, AtomicBoolean> cancelFlags = new ConcurrentHashMap<>();
+    // Số dòng mỗi đoạn format song song trong 1 chunk
+    private static final int PARALLEL_SLICE_LINES = 512;
+
+    // Hậu tố file đang ghi dở, đổi tên khi format xong
+    private static final String PART_FILE_SUFFIX = ".part";
+
+    private final AsyncJobRegistry asyncJobRegistry;
 
     // Thư mục lưu file đã format
     private static final String FORMATTED_FILES_DIR = "formatted_files";
@@ -68,13 +74,16 @@ public class AsyncFormatFileServiceImpl implements AsyncFormatFileService {
         log.info("Thread async: {}", Thread.currentThread().getName());
         log.info("JobId: {}", jobId);
 
-        FormatFileResponse response = formatJobs.get(jobId);
-        AtomicBoolean cancelFlag = cancelFlags.get(jobId);
+        FormatFileResponse response = asyncJobRegistry.claim(jobId)
+                ? asyncJobRegistry.find(jobId, FormatFileResponse.class).orElse(null)
+                : null;
 
-        if (response == null || cancelFlag == null) {
-            log.error("Không tìm thấy job hoặc cancel flag: jobId={}", jobId);
+        if (response == null) {
+            log.error("Không tìm thấy job hoặc job đã được xử lý: jobId={}", jobId);
             return;
         }
+        AtomicBoolean cancelFlag = asyncJobRegistry.cancelFlag(jobId);
+        Path partFile = null;
 
         try {
             // Tạo thư mục lưu file nếu chưa có
@@ -82,26 +91,18 @@ public class AsyncFormatFileServiceImpl implements AsyncFormatFileService {
 
             // Cập nhật trạng thái bắt đầu xử lý
             response.setStatus("PROCESSING");
-            response.setMessage("Đang đọc và phân tích file TXT...");
+            response.setOriginalFileSize(txtFile.getSize());
+            response.setProgress(0);
+            response.setMessage("Đang đọc và format file TXT...");
+            asyncJobRegistry.update(jobId, response);
             log.info("Bắt đầu xử lý format file TXT: jobId={}", jobId);
 
-            // Đọc file và đếm số dòng
-            List<String> originalLines = readFileLines(txtFile, response, cancelFlag);
-
-            if (cancelFlag.get()) {
-                response.setStatus("CANCELLED");
-                response.setMessage("Format đã bị hủy");
-                log.info("Job bị hủy: jobId={}", jobId);
-                return;
-            }
-
-            response.setTotalLines(originalLines.size());
-            response.setOriginalLineCount(originalLines.size());
-            response.setOriginalFileSize(txtFile.getSize());
-            response.setMessage("Đã đọc " + originalLines.size() + " dòng. Bắt đầu format...");
+            String formattedFileName = buildFormattedFileName(request.getOriginalFileName(), jobId);
+            Path filePath = Paths.get(FORMATTED_FILES_DIR, formattedFileName);
+            partFile = Paths.get(FORMATTED_FILES_DIR, formattedFileName + PART_FILE_SUFFIX);
 
-            // Format từng dòng
-            List<String> formattedLines = formatLines(originalLines, request, response, cancelFlag);
+            // Đọc - format - ghi theo từng chunk, không giữ cả file trong bộ nhớ
+            FormatResult result = formatToFile(txtFile, partFile, request, response, cancelFlag);
 
             if (cancelFlag.get()) {
                 response.setStatus("CANCELLED");
@@ -110,27 +111,25 @@ public class AsyncFormatFileServiceImpl implements AsyncFormatFileService {
                 return;
             }
 
-            // Lưu file đã format
-            String formattedFileName = saveFormattedFile(formattedLines, request.getOriginalFileName(), jobId,
-                    response);
-
-            if (cancelFlag.get()) {
-                response.setStatus("CANCELLED");
-                response.setMessage("Format đã bị hủy");
-                return;
-            }
+            // Chỉ đổi tên sang file chính thức khi đã ghi xong
+            Files.move(partFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            partFile = null;
 
             // Hoàn thành
             response.setStatus("COMPLETED");
             response.setEndTime(LocalDateTime.now());
+            response.setTotalLines(result.originalLines());
+            response.setOriginalLineCount(result.originalLines());
+            response.setProcessedLines(result.originalLines());
+            response.setProgress(100);
             response.setFormattedFileName(formattedFileName);
-            response.setFormattedLineCount(formattedLines.size());
-            response.setFormattedFileSize(calculateFileSize(formattedLines));
+            response.setFormattedLineCount(result.formattedLines());
+            response.setFormattedFileSize(Files.size(filePath));
             response.setDownloadUrl("/api/v1/format/download/" + jobId);
             response.setMessage("Format hoàn thành. File đã sẵn sàng để download.");
 
             log.info("Format hoàn thành: jobId={}, originalLines={}, formattedLines={}",
-                    jobId, originalLines.size(), formattedLines.size());
+                    jobId, result.originalLines(), result.formattedLines());
 
         } catch (Exception e) {
             log.error("Lỗi format file: jobId={}, error={}", jobId, e.getMessage(), e);
@@ -139,9 +138,11 @@ public class AsyncFormatFileServiceImpl implements AsyncFormatFileService {
             response.addError("Lỗi format: " + e.getMessage());
             response.setMessage("Format thất bại: " + e.getMessage());
         } finally {
-            // Cleanup
-            cancelFlags.remove(jobId);
-            jobUserMap.remove(jobId);
+            // Xóa file ghi dở khi job bị hủy hoặc lỗi
+            if (partFile != null) {
+                deletePartFile(partFile);
+            }
+            asyncJobRegistry.finish(jobId, response);
             log.info("Hoàn thành job format: jobId={}, status={}", jobId, response.getStatus());
         }
     }
@@ -156,76 +157,122 @@ public class AsyncFormatFileServiceImpl implements AsyncFormatFileService {
         }
     }
 
+    private String buildFormattedFileName(String originalFileName, String jobId) {
+        String baseName = originalFileName != null ? originalFileName.replaceAll("\\.txt$", "") : "formatted";
+        return baseName + "_formatted_" + jobId + ".txt";
+    }
+
     /**
-     * Đọc file và trả về danh sách dòng
+     * Đọc file theo chunk CHUNK_LINES dòng, format song song từng chunk (các rule chỉ phụ thuộc 1 dòng),
+     * sau đó gộp dòng trống tuần tự và ghi thẳng ra file đích.
+     * Bộ nhớ dùng cho mỗi job chỉ khoảng 2 chunk, không phụ thuộc kích thước file
      */
-    private List<String> readFileLines(MultipartFile file, FormatFileResponse response, AtomicBoolean cancelFlag)
-            throws IOException {
-        List<String> lines = new ArrayList<>();
+    private FormatResult formatToFile(MultipartFile file, Path target, FormatFileRequest request,
+            FormatFileResponse response, AtomicBoolean cancelFlag) throws IOException {
+        long totalBytes = Math.max(1, file.getSize());
+        FormatCounters counters = new FormatCounters();
+        int originalLines = 0;
+        int formattedLines = 0;
+        int lastReportedLines = 0;
+        boolean previousLineEmpty = false;
+        boolean mergeEmptyLines = request.getMergeEmptyLines();
 
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+        try (CountingInputStream input = new CountingInputStream(file.getInputStream());
+                BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+                BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (cancelFlag.get()) {
+            String[] chunk = new String[CHUNK_LINES];
+            while (!cancelFlag.get()) {
+                int size = readChunk(reader, chunk);
+                if (size == 0) {
                     break;
                 }
-                lines.add(line);
+                originalLines += size;
+
+                // Format song song trên chunk, kết quả ghi đè vào chính mảng chunk
+                counters.add(formatChunk(chunk, size, request));
+
+                // Gộp dòng trống phải chạy tuần tự vì phụ thuộc dòng trước (kể cả dòng cuối chunk trước)
+                for (int i = 0; i < size; i++) {
+                    String line = chunk[i];
+                    chunk[i] = null;
+                    if (mergeEmptyLines) {
+                        if (line.trim().isEmpty()) {
+                            if (previousLineEmpty) {
+                                // Bỏ qua dòng trống liên tiếp
+                                counters.emptyLinesMerged++;
+                                continue;
+                            }
+                            previousLineEmpty = true;
+                        } else {
+                            previousLineEmpty = false;
+                        }
+                    }
+                    writer.write(line);
+                    writer.newLine();
+                    formattedLines++;
+                }
+
+                // Báo tiến độ theo số byte đã đọc vì chưa biết tổng số dòng
+                if (originalLines - lastReportedLines >= PROGRESS_REPORT_LINES) {
+                    lastReportedLines = originalLines;
+                    response.setProcessedLines(originalLines);
+                    response.setProgress((int) Math.min(99, input.getCount() * 100 / totalBytes));
+                    counters.applyTo(response.getStats());
+                    response.setMessage("Đã format " + originalLines + " dòng...");
+                    asyncJobRegistry.update(response.getJobId(), response);
+                }
             }
         }
 
-        return lines;
+        counters.applyTo(response.getStats());
+        log.info("Đã lưu file đã format: {}", target);
+        return new FormatResult(originalLines, formattedLines);
     }
 
     /**
-     * Format từng dòng theo yêu cầu
+     * Đọc tối đa chunk.length dòng vào chunk, trả về số dòng đọc được
      */
-    private List<String> formatLines(List<String> originalLines, FormatFileRequest request,
-            FormatFileResponse response, AtomicBoolean cancelFlag) {
-        List<String> formattedLines = new ArrayList<>();
-        boolean previousLineEmpty = false;
-
-        for (int i = 0; i < originalLines.size(); i++) {
-            if (cancelFlag.get()) {
-                break;
-            }
-
-            String line = originalLines.get(i);
-            String formattedLine = formatSingleLine(line, request, response);
+    private int readChunk(BufferedReader reader, String[] chunk) throws IOException {
+        int size = 0;
+        String line;
+        while (size < chunk.length && (line = reader.readLine()) != null) {
+            chunk[size++] = line;
+        }
+        return size;
+    }
 
-            // Xử lý gộp dòng trống
-            if (request.getMergeEmptyLines()) {
-                if (formattedLine.trim().isEmpty()) {
-                    if (!previousLineEmpty) {
-                        formattedLines.add(formattedLine);
-                        previousLineEmpty = true;
+    /**
+     * Format các dòng của chunk, chia thành từng đoạn PARALLEL_SLICE_LINES dòng chạy song song.
+     * Mỗi đoạn đếm thống kê riêng rồi cộng lại, không ghi chung vào response
+     */
+    private FormatCounters formatChunk(String[] chunk, int size, FormatFileRequest request) {
+        int slices = (size + PARALLEL_SLICE_LINES - 1) / PARALLEL_SLICE_LINES;
+        return IntStream.range(0, slices)
+                .parallel()
+                .mapToObj(slice -> {
+                    FormatCounters sliceCounters = new FormatCounters();
+                    int to = Math.min(size, (slice + 1) * PARALLEL_SLICE_LINES);
+                    for (int i = slice * PARALLEL_SLICE_LINES; i < to; i++) {
+                        chunk[i] = formatSingleLine(chunk[i], request, sliceCounters);
                     }
-                    // Bỏ qua dòng trống liên tiếp
-                } else {
-                    formattedLines.add(formattedLine);
-                    previousLineEmpty = false;
-                }
-            } else {
-                formattedLines.add(formattedLine);
-            }
-
-            response.setProcessedLines(i + 1);
-            response.updateProgress();
+                    return sliceCounters;
+                })
+                .reduce(new FormatCounters(), FormatCounters::merge);
+    }
 
-            // Cập nhật progress mỗi 100 dòng
-            if ((i + 1) % 100 == 0) {
-                response.setMessage("Đã format " + (i + 1) + "/" + originalLines.size() + " dòng...");
-            }
+    private void deletePartFile(Path partFile) {
+        try {
+            Files.deleteIfExists(partFile);
+        } catch (IOException e) {
+            log.warn("Không xóa được file format dở: {}, error={}", partFile, e.getMessage());
         }
-
-        return formattedLines;
     }
 
     /**
-     * Format một dòng đơn lẻ
+     * Format một dòng đơn lẻ (package-private cho benchmark)
      */
-    private String formatSingleLine(String line, FormatFileRequest request, FormatFileResponse response) {
+    String formatSingleLine(String line, FormatFileRequest request, FormatCounters counters) {
         String formattedLine = line;
 
         // 1. Loại bỏ khoảng trắng dư thừa ở đầu/cuối dòng
@@ -233,13 +280,13 @@ public class AsyncFormatFileServiceImpl implements AsyncFormatFileService {
 
         // 2. Loại bỏ watermark
         if (request.getRemoveWatermark() && WATERMARK_PATTERN.matcher(formattedLine).matches()) {
-            response.getStats().setWatermarkLinesRemoved(response.getStats().getWatermarkLinesRemoved() + 1);
+            counters.watermarkLinesRemoved++;
             return ""; // Trả về dòng trống để bị loại bỏ
         }
 
         // 3. Loại bỏ dòng chỉ chứa ký tự đặc biệt
         if (SPECIAL_ONLY_PATTERN.matcher(formattedLine).matches()) {
-            response.getStats().setSpecialOnlyLinesRemoved(response.getStats().getSpecialOnlyLinesRemoved() + 1);
+            counters.specialOnlyLinesRemoved++;
             return ""; // Trả về dòng trống để bị loại bỏ
         }
 
@@ -251,17 +298,15 @@ public class AsyncFormatFileServiceImpl implements AsyncFormatFileService {
                 String content = dashMatcher.group(1).trim();
                 if (!content.isEmpty()) {
                     formattedLine = content;
-                    response.getStats()
-                            .setSpecialCharLinesRemoved(response.getStats().getSpecialCharLinesRemoved() + 1);
+                    counters.specialCharLinesRemoved++;
                 } else {
                     // Nếu chỉ có dấu gạch không có nội dung, loại bỏ hoàn toàn
-                    response.getStats()
-                            .setSpecialCharLinesRemoved(response.getStats().getSpecialCharLinesRemoved() + 1);
+                    counters.specialCharLinesRemoved++;
                     return ""; // Trả về dòng trống để bị loại bỏ
                 }
             } else if (SPECIAL_CHAR_PATTERN.matcher(formattedLine).matches()) {
                 // Xử lý các ký tự đặc biệt khác ở đầu dòng
-                response.getStats().setSpecialCharLinesRemoved(response.getStats().getSpecialCharLinesRemoved() + 1);
+                counters.specialCharLinesRemoved++;
                 return ""; // Trả về dòng trống để bị loại bỏ
             }
         }
@@ -271,7 +316,7 @@ public class AsyncFormatFileServiceImpl implements AsyncFormatFileService {
 
         // 6. Format dấu câu
         if (request.getFormatPunctuation()) {
-            formattedLine = formatPunctuation(formattedLine, response);
+            formattedLine = formatPunctuation(formattedLine, counters);
         }
 
         return formattedLine;
@@ -281,7 +326,7 @@ public class AsyncFormatFileServiceImpl implements AsyncFormatFileService {
      * Format dấu câu: xóa khoảng trắng thừa trước dấu câu và đảm bảo có đúng 1
      * khoảng trắng sau dấu câu
      */
-    private String formatPunctuation(String line, FormatFileResponse response) {
+    private String formatPunctuation(String line, FormatCounters counters) {
         if (line.trim().isEmpty()) {
             return line;
         }
@@ -296,57 +341,87 @@ public class AsyncFormatFileServiceImpl implements AsyncFormatFileService {
         formatted = formatted.trim();
 
         if (!formatted.equals(line)) {
-            response.getStats().setPunctuationLinesFormatted(response.getStats().getPunctuationLinesFormatted() + 1);
+            counters.punctuationLinesFormatted++;
         }
 
         return formatted;
     }
 
     /**
-     * Lưu file đã format
+     * Bộ đếm thống kê format, mỗi đoạn song song dùng 1 bộ đếm riêng
      */
-    private String saveFormattedFile(List<String> formattedLines, String originalFileName,
-            String jobId, FormatFileResponse response) throws IOException {
-        // Tạo tên file output
-        String baseName = originalFileName != null ? originalFileName.replaceAll("\\.txt$", "") : "formatted";
-        String formattedFileName = baseName + "_formatted_" + jobId + ".txt";
+    static final class FormatCounters {
+        private int watermarkLinesRemoved;
+        private int specialCharLinesRemoved;
+        private int emptyLinesMerged;
+        private int punctuationLinesFormatted;
+        private int specialOnlyLinesRemoved;
+
+        private void add(FormatCounters other) {
+            watermarkLinesRemoved += other.watermarkLinesRemoved;
+            specialCharLinesRemoved += other.specialCharLinesRemoved;
+            emptyLinesMerged += other.emptyLinesMerged;
+            punctuationLinesFormatted += other.punctuationLinesFormatted;
+            specialOnlyLinesRemoved += other.specialOnlyLinesRemoved;
+        }
 
-        Path filePath = Paths.get(FORMATTED_FILES_DIR, formattedFileName);
+        // Không sửa 2 bộ đếm đầu vào vì reduce của stream song song dùng chung giá trị identity
+        private static FormatCounters merge(FormatCounters left, FormatCounters right) {
+            FormatCounters merged = new FormatCounters();
+            merged.add(left);
+            merged.add(right);
+            return merged;
+        }
 
-        // Lưu file với encoding UTF-8
-        try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
-            for (String line : formattedLines) {
-                writer.write(line);
-                writer.newLine();
-            }
+        private void applyTo(FormatFileResponse.FormatStats stats) {
+            stats.setWatermarkLinesRemoved(watermarkLinesRemoved);
+            stats.setSpecialCharLinesRemoved(specialCharLinesRemoved);
+            stats.setEmptyLinesMerged(emptyLinesMerged);
+            stats.setPunctuationLinesFormatted(punctuationLinesFormatted);
+            stats.setSpecialOnlyLinesRemoved(specialOnlyLinesRemoved);
         }
+    }
 
-        log.info("Đã lưu file đã format: {}", filePath);
-        return formattedFileName;
+    private record FormatResult(int originalLines, int formattedLines) {
     }
 
     /**
-     * Tính kích thước file
+     * Đếm số byte đã đọc từ file upload để tính tiến độ
      */
-    private long calculateFileSize(List<String> lines) {
-        return lines.stream()
-                .mapToLong(line -> line.getBytes(StandardCharsets.UTF_8).length + 1) // +1 cho newline
-                .sum();
-    }
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
 
-    // Getter methods
-    @Override
-    public Map<String, FormatFileResponse> getFormatJobs() {
-        return formatJobs;
-    }
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
 
-    @Override
-    public Map<String, Long> getJobUserMap() {
-        return jobUserMap;
-    }
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
 
-    @Override
-    public Map<String, AtomicBoolean> getCancelFlags() {
-        return cancelFlags;
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        private long getCount() {
+            return count;
+        }
     }
 }
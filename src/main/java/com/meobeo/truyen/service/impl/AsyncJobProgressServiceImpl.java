@@ -0,0 +1,353 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.domain.entity.AsyncJob;
+import com.meobeo.truyen.domain.enums.AsyncJobType;
+import com.meobeo.truyen.exception.BadRequestException;
+import com.meobeo.truyen.exception.ForbiddenException;
+import com.meobeo.truyen.exception.ResourceNotFoundException;
+import com.meobeo.truyen.repository.AsyncJobRepository;
+import com.meobeo.truyen.service.interfaces.AsyncJobProgressService;
+import com.meobeo.truyen.service.interfaces.AsyncJobRegistry;
+import com.meobeo.truyen.utils.SecurityUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Kênh SSE theo dõi tiến độ job.
+ *
+ * - Job chạy trên node này: nhận cập nhật trực tiếp từ registry (listener), chỉ giữ trạng thái mới nhất
+ * - Job chạy trên node khác: đọc bảng async_jobs theo chu kỳ, 1 query cho mọi job đang được theo dõi
+ * - Mỗi job gửi tối đa async-job.sse.max-events-per-second event/giây, các cập nhật ở giữa bị gộp lại
+ * - Trạng thái cuối (COMPLETED/FAILED/CANCELLED) được gửi ngay với event "done" rồi đóng kết nối
+ * - Thread @Scheduled chỉ gom cập nhật vào hộp thư của từng client, việc ghi ra socket chạy trên sseSendExecutor.
+ *   Client ghi chậm hơn async-job.sse.send-timeout-ms bị ngắt để không giữ thread gửi
+ */
+@Service
+@Slf4j
+public class AsyncJobProgressServiceImpl implements AsyncJobProgressService {
+
+    private static final Set<String> TERMINAL_STATUSES = Set.of("COMPLETED", "FAILED", "CANCELLED");
+    private static final String PROGRESS_EVENT = "progress";
+    private static final String DONE_EVENT = "done";
+
+    private final AsyncJobRegistry asyncJobRegistry;
+    private final AsyncJobRepository asyncJobRepository;
+    private final SecurityUtils securityUtils;
+    private final Executor sseSendExecutor;
+    private final long minEventIntervalNanos;
+    private final long remotePollIntervalNanos;
+    private final long emitterTimeoutMs;
+    private final long sendTimeoutNanos;
+    private final int maxSubscribers;
+
+    private final Map<String, JobStream> streams = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private long lastRemotePollNanos;
+
+    public AsyncJobProgressServiceImpl(AsyncJobRegistry asyncJobRegistry, AsyncJobRepository asyncJobRepository,
+            SecurityUtils securityUtils, @Qualifier("sseSendExecutor") Executor sseSendExecutor,
+            @Value("${async-job.sse.max-events-per-second:2}") int maxEventsPerSecond,
+            @Value("${async-job.sse.remote-poll-interval-ms:1000}") long remotePollIntervalMs,
+            @Value("${async-job.sse.timeout-ms:1800000}") long emitterTimeoutMs,
+            @Value("${async-job.sse.send-timeout-ms:10000}") long sendTimeoutMs,
+            @Value("${async-job.sse.max-subscribers:10000}") int maxSubscribers) {
+        this.asyncJobRegistry = asyncJobRegistry;
+        this.asyncJobRepository = asyncJobRepository;
+        this.securityUtils = securityUtils;
+        this.sseSendExecutor = sseSendExecutor;
+        this.minEventIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxEventsPerSecond);
+        this.remotePollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(remotePollIntervalMs);
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.maxSubscribers = maxSubscribers;
+        asyncJobRegistry.addListener(this::onJobUpdate);
+    }
+
+    @Override
+    public SseEmitter subscribe(String jobId, AsyncJobType type) {
+        Long userId = securityUtils.getCurrentUserIdOrThrow();
+        AsyncJob job = asyncJobRepository.findById(jobId)
+                .filter(entity -> entity.getJobType() == type)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy job với ID: " + jobId));
+        if (!userId.equals(job.getUserId()) && !securityUtils.isAdmin()) {
+            throw new ForbiddenException("Bạn không có quyền theo dõi job này");
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        boolean local = asyncJobRegistry.isHeldLocally(jobId);
+        if (!local && TERMINAL_STATUSES.contains(job.getStatus())) {
+            // Job đã kết thúc: gửi kết quả rồi đóng luôn
+            sendEvent(emitter, jobId, job.getPayload(), true);
+            emitter.complete();
+            return emitter;
+        }
+
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new BadRequestException("Quá nhiều kết nối theo dõi job, vui lòng thử lại sau");
+        }
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> detach(jobId, subscriber));
+        emitter.onTimeout(() -> detach(jobId, subscriber));
+        emitter.onError(e -> detach(jobId, subscriber));
+        streams.compute(jobId, (id, stream) -> {
+            JobStream target = stream != null ? stream : new JobStream(job.getUpdatedAt());
+            target.subscribers.add(subscriber);
+            return target;
+        });
+
+        Object initialState = local
+                ? asyncJobRegistry.find(jobId, Object.class).orElse(job.getPayload())
+                : job.getPayload();
+        enqueue(jobId, subscriber, new Update(initialState, false), System.nanoTime());
+        log.debug("Mở SSE theo dõi job: jobId={}, userId={}, local={}", jobId, userId, local);
+        return emitter;
+    }
+
+    /**
+     * Nhận cập nhật từ registry trên thread của job: chỉ ghi đè trạng thái chờ gửi
+     */
+    private void onJobUpdate(String jobId, Object state, boolean finished) {
+        JobStream stream = streams.get(jobId);
+        if (stream != null) {
+            stream.pending.set(new Update(state, finished));
+        }
+    }
+
+    /**
+     * Gom các cập nhật đang chờ theo giới hạn tần suất và đọc trạng thái job chạy trên node khác.
+     * Không ghi ra socket trên thread này, chỉ đẩy vào hộp thư của client
+     */
+    @Scheduled(fixedDelayString = "${async-job.sse.flush-interval-ms:100}")
+    public void flush() {
+        if (streams.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        List<String> remoteJobIds = new ArrayList<>();
+        for (Map.Entry<String, JobStream> entry : streams.entrySet()) {
+            String jobId = entry.getKey();
+            JobStream stream = entry.getValue();
+            checkSubscribers(jobId, stream, now);
+            Update update = stream.pending.get();
+            if (update != null) {
+                if (update.finished() || now - stream.lastSentNanos >= minEventIntervalNanos) {
+                    publish(jobId, stream, stream.pending.getAndSet(null), now);
+                }
+            } else if (!asyncJobRegistry.isHeldLocally(jobId)) {
+                remoteJobIds.add(jobId);
+            }
+        }
+
+        if (!remoteJobIds.isEmpty() && now - lastRemotePollNanos >= remotePollIntervalNanos) {
+            lastRemotePollNanos = now;
+            pollRemoteJobs(remoteJobIds, now);
+        }
+    }
+
+    private void pollRemoteJobs(List<String> jobIds, long now) {
+        List<AsyncJob> jobs;
+        try {
+            jobs = asyncJobRepository.findAllById(jobIds);
+        } catch (DataAccessException e) {
+            log.warn("Lỗi đọc trạng thái job cho SSE: {}", e.getMostSpecificCause().getMessage());
+            return;
+        }
+
+        Set<String> found = new HashSet<>();
+        for (AsyncJob job : jobs) {
+            found.add(job.getJobId());
+            JobStream stream = streams.get(job.getJobId());
+            if (stream == null) {
+                continue;
+            }
+            boolean finished = TERMINAL_STATUSES.contains(job.getStatus());
+            LocalDateTime updatedAt = job.getUpdatedAt();
+            if (finished || (updatedAt != null && !updatedAt.equals(stream.lastRemoteUpdatedAt))) {
+                stream.lastRemoteUpdatedAt = updatedAt;
+                publish(job.getJobId(), stream, new Update(job.getPayload(), finished), now);
+            }
+        }
+
+        // Job đã bị xóa: đóng kết nối
+        for (String jobId : jobIds) {
+            JobStream stream = streams.get(jobId);
+            if (!found.contains(jobId) && stream != null) {
+                for (Subscriber subscriber : stream.subscribers) {
+                    detach(jobId, subscriber);
+                    completeAsync(subscriber.emitter);
+                }
+            }
+        }
+    }
+
+    private void publish(String jobId, JobStream stream, Update update, long now) {
+        if (update == null) {
+            return;
+        }
+        stream.lastSentNanos = now;
+        for (Subscriber subscriber : stream.subscribers) {
+            enqueue(jobId, subscriber, update, now);
+        }
+    }
+
+    /**
+     * Ghi đè cập nhật chờ gửi của client (trạng thái cuối không bị ghi đè) và giao việc gửi cho sseSendExecutor
+     */
+    private void enqueue(String jobId, Subscriber subscriber, Update update, long now) {
+        subscriber.outbox.updateAndGet(previous -> previous != null && previous.finished() ? previous : update);
+        scheduleSend(jobId, subscriber, now);
+    }
+
+    private void scheduleSend(String jobId, Subscriber subscriber, long now) {
+        if (subscriber.detached.get() || !subscriber.sending.compareAndSet(false, true)) {
+            return;
+        }
+        subscriber.sendStartedNanos = now;
+        try {
+            sseSendExecutor.execute(() -> drainOutbox(jobId, subscriber));
+        } catch (RejectedExecutionException e) {
+            // Hàng đợi gửi đầy: giữ cập nhật trong hộp thư, lần flush sau thử lại
+            subscriber.sending.set(false);
+        }
+    }
+
+    /**
+     * Chạy trên sseSendExecutor: gửi cập nhật mới nhất trong hộp thư cho tới khi hộp thư rỗng
+     */
+    private void drainOutbox(String jobId, Subscriber subscriber) {
+        try {
+            Update update;
+            while (!subscriber.detached.get() && (update = subscriber.outbox.getAndSet(null)) != null) {
+                subscriber.sendStartedNanos = System.nanoTime();
+                boolean sent = sendEvent(subscriber.emitter, jobId, update.state(), update.finished());
+                if (update.finished() && sent) {
+                    subscriber.emitter.complete();
+                }
+                if (update.finished() || !sent) {
+                    detach(jobId, subscriber);
+                }
+            }
+            if (subscriber.timedOut.get()) {
+                // Bị ngắt do gửi quá lâu trong lúc đang ghi: đóng kết nối sau khi lần ghi đó trả về
+                subscriber.emitter.complete();
+            }
+        } finally {
+            subscriber.sending.set(false);
+        }
+        // Cập nhật đến sau lần getAndSet cuối nhưng trước khi nhả cờ sending
+        if (subscriber.outbox.get() != null) {
+            scheduleSend(jobId, subscriber, System.nanoTime());
+        }
+    }
+
+    /**
+     * Ngắt client ghi quá async-job.sse.send-timeout-ms và thử gửi lại hộp thư bị từ chối lần trước
+     */
+    private void checkSubscribers(String jobId, JobStream stream, long now) {
+        for (Subscriber subscriber : stream.subscribers) {
+            if (subscriber.sending.get()) {
+                if (now - subscriber.sendStartedNanos > sendTimeoutNanos
+                        && subscriber.timedOut.compareAndSet(false, true)) {
+                    log.debug("Client SSE gửi quá chậm, ngắt kết nối: jobId={}", jobId);
+                    detach(jobId, subscriber);
+                }
+            } else if (subscriber.outbox.get() != null) {
+                scheduleSend(jobId, subscriber, now);
+            }
+        }
+    }
+
+    /**
+     * Đóng kết nối trên sseSendExecutor vì complete() phải chờ lần ghi đang chạy của emitter
+     */
+    private void completeAsync(SseEmitter emitter) {
+        try {
+            sseSendExecutor.execute(emitter::complete);
+        } catch (RejectedExecutionException e) {
+            // Để emitter tự hết hạn theo async-job.sse.timeout-ms
+            log.debug("Không đóng được kết nối SSE do hàng đợi gửi đầy: {}", e.getMessage());
+        }
+    }
+
+    private boolean sendEvent(SseEmitter emitter, String jobId, Object state, boolean finished) {
+        try {
+            // Payload đọc từ DB là chuỗi JSON, được ghi nguyên văn
+            emitter.send(SseEmitter.event()
+                    .id(jobId)
+                    .name(finished ? DONE_EVENT : PROGRESS_EVENT)
+                    .data(state, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Client SSE đã ngắt kết nối: jobId={}, error={}", jobId, e.getMessage());
+            return false;
+        }
+    }
+
+    private void detach(String jobId, Subscriber subscriber) {
+        if (!subscriber.detached.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        streams.computeIfPresent(jobId, (id, stream) -> {
+            stream.subscribers.remove(subscriber);
+            return stream.subscribers.isEmpty() ? null : stream;
+        });
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * Các client đang theo dõi 1 job và cập nhật mới nhất chưa gửi
+     */
+    private static final class JobStream {
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Update> pending = new AtomicReference<>();
+        private volatile long lastSentNanos;
+        private volatile LocalDateTime lastRemoteUpdatedAt;
+
+        private JobStream(LocalDateTime lastRemoteUpdatedAt) {
+            this.lastRemoteUpdatedAt = lastRemoteUpdatedAt;
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean detached = new AtomicBoolean(false);
+        private final AtomicReference<Update> outbox = new AtomicReference<>();
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+        private final AtomicBoolean timedOut = new AtomicBoolean(false);
+        private volatile long sendStartedNanos;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    private record Update(Object state, boolean finished) {
+    }
+}
@@ -0,0 +1,400 @@
+package com.meobeo.truyen.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meobeo.truyen.domain.entity.AsyncJob;
+import com.meobeo.truyen.domain.enums.AsyncJobType;
+import com.meobeo.truyen.repository.AsyncJobRepository;
+import com.meobeo.truyen.service.interfaces.AsyncJobRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Registry job lưu trong bảng async_jobs, có lớp ghi xuyên (write-through) trong bộ nhớ.
+ *
+ * - Bộ nhớ chỉ giữ các job được đăng ký/nhận trên node này cho tới khi kết thúc
+ * - Tiến độ được ghi xuống DB tối đa 1 lần mỗi async-job.progress-write-interval-ms, trạng thái cuối ghi ngay
+ * - Heartbeat định kỳ giữ job sống và lấy cờ hủy do node khác ghi
+ * - Job mất heartbeat quá lâu bị đánh dấu FAILED, job đã kết thúc bị xóa sau thời gian lưu
+ * - Thời gian chạy của job (từ lúc node nhận tới khi kết thúc) được ghi vào metric async.job.duration
+ *   theo loại job và trạng thái cuối
+ */
+@Service
+@Slf4j
+public class AsyncJobRegistryImpl implements AsyncJobRegistry {
+
+    private static final Set<String> TERMINAL_STATUSES = Set.of("COMPLETED", "FAILED", "CANCELLED");
+
+    private final AsyncJobRepository asyncJobRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId;
+    private final long progressWriteIntervalNanos;
+    private final long staleTimeoutMs;
+    private final long retentionMs;
+
+    private final Map<String, LocalJob> localJobs = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public AsyncJobRegistryImpl(AsyncJobRepository asyncJobRepository, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${async-job.node-id:}") String nodeId,
+            @Value("${async-job.progress-write-interval-ms:1000}") long progressWriteIntervalMs,
+            @Value("${async-job.stale-timeout-ms:300000}") long staleTimeoutMs,
+            @Value("${async-job.retention-ms:86400000}") long retentionMs) {
+        this.asyncJobRepository = asyncJobRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.progressWriteIntervalNanos = TimeUnit.MILLISECONDS.toNanos(progressWriteIntervalMs);
+        this.staleTimeoutMs = staleTimeoutMs;
+        this.retentionMs = retentionMs;
+        log.info("Async job registry node: {}", this.nodeId);
+    }
+
+    @Override
+    public void register(String jobId, AsyncJobType type, Long userId, Object state) {
+        JsonNode json = toJson(state);
+        asyncJobRepository.insertJob(jobId, type.name(), userId, statusOf(json), json.toString(), LocalDateTime.now());
+        LocalJob job = new LocalJob(userId, type, state);
+        job.lastWriteNanos = System.nanoTime();
+        localJobs.put(jobId, job);
+    }
+
+    @Override
+    public boolean claim(String jobId) {
+        Optional<Boolean> cancelRequested = asyncJobRepository.claim(jobId, nodeId, LocalDateTime.now());
+        if (cancelRequested.isEmpty()) {
+            log.warn("Không nhận được job (không tồn tại, đã kết thúc hoặc đã có node nhận): jobId={}", jobId);
+            return false;
+        }
+
+        LocalJob job = localJobs.get(jobId);
+        if (job == null) {
+            // Job được đăng ký ở node khác: trạng thái được đọc từ DB cho tới lần cập nhật đầu tiên
+            Optional<AsyncJob> entity = asyncJobRepository.findById(jobId);
+            job = new LocalJob(entity.map(AsyncJob::getUserId).orElse(null),
+                    entity.map(AsyncJob::getJobType).orElse(null), null);
+            localJobs.put(jobId, job);
+        }
+        job.startedNanos = System.nanoTime();
+        if (Boolean.TRUE.equals(cancelRequested.get())) {
+            job.cancelFlag.set(true);
+        }
+        return true;
+    }
+
+    @Override
+    public void update(String jobId, Object state) {
+        notifyListeners(jobId, state, false);
+        LocalJob job = localJobs.get(jobId);
+        if (job == null) {
+            write(jobId, state, false);
+            return;
+        }
+
+        job.state = state;
+        if (System.nanoTime() - job.lastWriteNanos < progressWriteIntervalNanos) {
+            return;
+        }
+        synchronized (job) {
+            if (System.nanoTime() - job.lastWriteNanos >= progressWriteIntervalNanos) {
+                writeLocal(jobId, job, false);
+            }
+        }
+    }
+
+    @Override
+    public void finish(String jobId, Object state) {
+        // Job chạy trong transaction: chỉ công bố trạng thái cuối khi transaction đã kết thúc,
+        // tránh client thấy COMPLETED trong khi dữ liệu của job chưa commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    finishNow(jobId, state);
+                }
+            });
+            return;
+        }
+        finishNow(jobId, state);
+    }
+
+    private void finishNow(String jobId, Object state) {
+        notifyListeners(jobId, state, true);
+        LocalJob job = localJobs.get(jobId);
+        if (job == null) {
+            write(jobId, state, true);
+            return;
+        }
+
+        job.state = state;
+        job.finished = true;
+        recordDuration(job, state);
+        synchronized (job) {
+            if (writeLocal(jobId, job, true)) {
+                localJobs.remove(jobId);
+            }
+        }
+    }
+
+    @Override
+    public <T> Optional<T> find(String jobId, Class<T> stateType) {
+        LocalJob job = localJobs.get(jobId);
+        if (job != null && stateType.isInstance(job.state)) {
+            return Optional.of(stateType.cast(job.state));
+        }
+        return asyncJobRepository.findById(jobId).map(entity -> fromJson(entity.getPayload(), stateType));
+    }
+
+    @Override
+    public Optional<Long> findOwner(String jobId) {
+        LocalJob job = localJobs.get(jobId);
+        if (job != null) {
+            return Optional.ofNullable(job.userId);
+        }
+        return asyncJobRepository.findById(jobId).map(AsyncJob::getUserId);
+    }
+
+    @Override
+    public <T> List<T> findByUser(Long userId, AsyncJobType type, Class<T> stateType) {
+        List<T> jobs = new ArrayList<>();
+        for (AsyncJob entity : asyncJobRepository.findByUserIdAndJobTypeOrderByCreatedAtDesc(userId, type)) {
+            // Job đang chạy trên node này: lấy trạng thái mới nhất trong bộ nhớ
+            LocalJob job = localJobs.get(entity.getJobId());
+            if (job != null && stateType.isInstance(job.state)) {
+                jobs.add(stateType.cast(job.state));
+            } else {
+                jobs.add(fromJson(entity.getPayload(), stateType));
+            }
+        }
+        return jobs;
+    }
+
+    @Override
+    public AtomicBoolean cancelFlag(String jobId) {
+        LocalJob job = localJobs.get(jobId);
+        return job != null ? job.cancelFlag : new AtomicBoolean(false);
+    }
+
+    @Override
+    public boolean requestCancel(String jobId) {
+        LocalJob job = localJobs.get(jobId);
+        if (job != null && !job.finished) {
+            job.cancelFlag.set(true);
+        }
+        boolean updated = asyncJobRepository.requestCancel(jobId, LocalDateTime.now()) > 0;
+        return updated || (job != null && !job.finished);
+    }
+
+    @Override
+    public void remove(String jobId) {
+        localJobs.remove(jobId);
+        asyncJobRepository.deleteJob(jobId);
+    }
+
+    @Override
+    public boolean isHeldLocally(String jobId) {
+        return localJobs.containsKey(jobId);
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Heartbeat cho job đang giữ trên node, nhận cờ hủy từ DB và ghi lại trạng thái cuối chưa ghi được
+     */
+    @Scheduled(fixedDelayString = "${async-job.heartbeat-interval-ms:2000}")
+    public void heartbeat() {
+        if (localJobs.isEmpty()) {
+            return;
+        }
+        try {
+            for (Map.Entry<String, LocalJob> entry : localJobs.entrySet()) {
+                LocalJob job = entry.getValue();
+                if (job.finished) {
+                    synchronized (job) {
+                        if (writeLocal(entry.getKey(), job, true)) {
+                            localJobs.remove(entry.getKey());
+                        }
+                    }
+                }
+            }
+
+            String[] jobIds = localJobs.keySet().toArray(new String[0]);
+            if (jobIds.length == 0) {
+                return;
+            }
+            Set<String> alive = new HashSet<>();
+            for (AsyncJobRepository.JobSignalProjection signal : asyncJobRepository.heartbeat(jobIds, nodeId,
+                    LocalDateTime.now())) {
+                alive.add(signal.getJobId());
+                LocalJob job = localJobs.get(signal.getJobId());
+                if (job != null && Boolean.TRUE.equals(signal.getCancelRequested())) {
+                    job.cancelFlag.set(true);
+                }
+            }
+
+            // Job đã bị xóa, đã kết thúc hoặc do node khác nhận: không giữ trong bộ nhớ nữa
+            for (String jobId : jobIds) {
+                if (!alive.contains(jobId)) {
+                    LocalJob job = localJobs.remove(jobId);
+                    if (job != null) {
+                        job.cancelFlag.set(true);
+                        log.warn("Bỏ job khỏi bộ nhớ do không còn thuộc node này: jobId={}", jobId);
+                    }
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Lỗi heartbeat async job: {}", e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * Đánh dấu FAILED job mất heartbeat và xóa job đã kết thúc quá thời gian lưu
+     */
+    @Scheduled(fixedDelayString = "${async-job.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int stale = asyncJobRepository.failStaleJobs(now.minus(Duration.ofMillis(staleTimeoutMs)),
+                    "Job bị dừng do node xử lý không còn phản hồi", now);
+            int deleted = asyncJobRepository.deleteFinishedBefore(now.minus(Duration.ofMillis(retentionMs)));
+            if (stale > 0 || deleted > 0) {
+                log.info("Cleanup async job: {} job mất heartbeat, {} job cũ đã xóa", stale, deleted);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Lỗi cleanup async job: {}", e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getLocalJobCount() {
+        return localJobs.size();
+    }
+
+    private void recordDuration(LocalJob job, Object state) {
+        if (job.type == null) {
+            return;
+        }
+        Timer.builder("async.job.duration")
+                .description("Thời gian chạy job bất đồng bộ")
+                .tag("type", job.type.name())
+                .tag("status", statusOf(toJson(state)))
+                .register(meterRegistry)
+                .record(System.nanoTime() - job.startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void notifyListeners(String jobId, Object state, boolean finished) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onUpdate(jobId, state, finished);
+            } catch (RuntimeException e) {
+                log.warn("Lỗi listener async job: jobId={}, error={}", jobId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ghi trạng thái job đang giữ trong bộ nhớ. Trả về false nếu ghi lỗi
+     */
+    private boolean writeLocal(String jobId, LocalJob job, boolean finished) {
+        job.lastWriteNanos = System.nanoTime();
+        Object state = job.state;
+        if (state == null) {
+            return true;
+        }
+        try {
+            Optional<Boolean> cancelRequested = write(jobId, state, finished);
+            if (cancelRequested.isPresent() && cancelRequested.get()) {
+                job.cancelFlag.set(true);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Không ghi được trạng thái job: jobId={}, error={}", jobId, e.getMessage());
+            return false;
+        }
+    }
+
+    private Optional<Boolean> write(String jobId, Object state, boolean finished) {
+        JsonNode json = toJson(state);
+        String status = statusOf(json);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime finishedAt = finished || TERMINAL_STATUSES.contains(status) ? now : null;
+        return asyncJobRepository.updateState(jobId, status, json.toString(), finishedAt, now);
+    }
+
+    private JsonNode toJson(Object state) {
+        return objectMapper.valueToTree(state);
+    }
+
+    private <T> T fromJson(String payload, Class<T> stateType) {
+        try {
+            return objectMapper.readValue(payload, stateType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không đọc được trạng thái job: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static String statusOf(JsonNode json) {
+        JsonNode status = json.get("status");
+        return status != null && !status.isNull() ? status.asText() : "PENDING";
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Job đang được giữ trên node này
+     */
+    private static final class LocalJob {
+        private final Long userId;
+        private final AsyncJobType type;
+        private final AtomicBoolean cancelFlag = new AtomicBoolean(false);
+        private volatile Object state;
+        private volatile long lastWriteNanos;
+        private volatile long startedNanos = System.nanoTime();
+        private volatile boolean finished;
+
+        private LocalJob(Long userId, AsyncJobType type, Object state) {
+            this.userId = userId;
+            this.type = type;
+            this.state = state;
+        }
+    }
+}
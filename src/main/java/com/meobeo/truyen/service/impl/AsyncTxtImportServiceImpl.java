@@ -1,51 +1,72 @@
 package com.meobeo.truyen.service.impl;
 
-import com.meobeo.truyen.domain.entity.Chapter;
 import com.meobeo.truyen.domain.entity.Story;
 import com.meobeo.truyen.domain.entity.User;
 import com.meobeo.truyen.domain.request.story.TxtImportRequest;
 import com.meobeo.truyen.domain.response.story.TxtImportResponse;
-import com.meobeo.truyen.repository.ChapterRepository;
 import com.meobeo.truyen.repository.StoryRepository;
 import com.meobeo.truyen.repository.UserRepository;
+import com.meobeo.truyen.service.interfaces.AsyncJobRegistry;
 import com.meobeo.truyen.service.interfaces.AsyncTxtImportService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Import chapter từ file TXT theo pipeline 2 stage:
+ * - Stage đọc (thread async hiện tại): đọc file theo dòng, tách chương và gom thành batch
+ * - Stage ghi (txtImportWriterExecutor): lấy batch từ hàng đợi có giới hạn và ghi xuống DB
+ *
+ * Hàng đợi giới hạn số batch đang chờ nên bộ nhớ không phụ thuộc kích thước file,
+ * khi stage ghi chậm thì stage đọc sẽ bị chặn lại (back-pressure).
+ * Trong lúc pipeline chạy chỉ stage ghi được sửa response, stage đọc báo tổng số chương qua AtomicInteger.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
 
+    // Giới hạn độ dài nội dung 1 chương, phần vượt quá sẽ bị cắt bớt
+    private static final int MAX_CHAPTER_CONTENT_LENGTH = 1_000_000;
+
+    // Đánh dấu stage đọc đã kết thúc (so sánh theo tham chiếu)
+    private static final List<ChapterData> END_OF_STREAM = Collections.emptyList();
+
     private final StoryRepository storyRepository;
-    private final ChapterRepository chapterRepository;
     private final UserRepository userRepository;
+    private final ChapterBulkWriter chapterBulkWriter;
+    private final NewChapterNotificationBuffer newChapterNotificationBuffer;
+    private final TxtImportPipelineMetrics pipelineMetrics;
+    private final Executor txtImportWriterExecutor;
+    private final AsyncJobRegistry asyncJobRegistry;
 
-    // Cache để lưu trạng thái các job đang chạy
-    private final Map<String, TxtImportResponse> importJobs = new ConcurrentHashMap<>();
+    @Value("${txt.import.pipeline.queue-capacity:4}")
+    private int queueCapacity;
 
-    // Map để lưu userId của từng job
-    private final Map<String, Long> jobUserMap = new ConcurrentHashMap<>();
-
-    // Flag để hủy job
-    private final Map<String, AtomicBoolean> cancelFlags = new ConcurrentHashMap<>();
+    @Value("${txt.import.pipeline.offer-timeout-ms:500}")
+    private long offerTimeoutMs;
 
     // Pattern tìm chương trong file TXT - hỗ trợ nhiều định dạng
     private static final Pattern CHAPTER_PATTERN = Pattern.compile(
@@ -58,27 +79,35 @@ public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
 
     @Async("txtImportExecutor")
     @Override
-    public void processTxtFileAsync(MultipartFile txtFile, TxtImportRequest request, Long userId, String jobId) {
+    public void processTxtFileAsync(Path txtFile, TxtImportRequest request, Long userId, String jobId) {
         log.info("=== BẮT ĐẦU processTxtFileAsync ===");
         log.info("Thread async: {}", Thread.currentThread().getName());
         log.info("JobId: {}", jobId);
 
-        TxtImportResponse response = importJobs.get(jobId);
-        AtomicBoolean cancelFlag = cancelFlags.get(jobId);
+        TxtImportResponse response = asyncJobRegistry.claim(jobId)
+                ? asyncJobRegistry.find(jobId, TxtImportResponse.class).orElse(null)
+                : null;
 
-        if (response == null || cancelFlag == null) {
-            log.error("Không tìm thấy job hoặc cancel flag: jobId={}", jobId);
+        if (response == null) {
+            log.error("Không tìm thấy job hoặc job đã được xử lý: jobId={}", jobId);
+            deleteQuietly(txtFile);
             return;
         }
+        AtomicBoolean cancelFlag = asyncJobRegistry.cancelFlag(jobId);
 
+        TxtImportPipelineMetrics.JobStats stats = pipelineMetrics.startJob();
         try {
             // Cập nhật trạng thái bắt đầu xử lý
             response.setStatus("PROCESSING");
-            response.setMessage("Đang đọc và phân tích file TXT...");
+            response.setMessage("Đang đọc và import file TXT...");
+            response.setProcessedCount(0);
+            response.setCurrentBatch(0);
+            asyncJobRegistry.update(jobId, response.copy());
             log.info("Bắt đầu xử lý file TXT: jobId={}", jobId);
 
-            // Xử lý file TXT theo stream để tối ưu memory
-            List<ChapterData> chapters = processTxtFileByStream(txtFile, request, response, cancelFlag);
+            Story story = storyRepository.findById(request.getStoryId()).orElseThrow();
+            stats.recordInputBytes(Files.size(txtFile));
+            int parsedCount = runPipeline(txtFile, story, request, response, cancelFlag, stats);
 
             if (cancelFlag.get()) {
                 response.setStatus("CANCELLED");
@@ -87,7 +116,7 @@ public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
                 return;
             }
 
-            if (chapters.isEmpty()) {
+            if (parsedCount == 0) {
                 response.setStatus("FAILED");
                 response.setMessage(
                         "Không tìm thấy chương nào trong range yêu cầu. Vui lòng kiểm tra định dạng file và range chương.");
@@ -99,21 +128,6 @@ public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
                 return;
             }
 
-            response.setTotalChapters(chapters.size());
-            response.setMessage("Đã phát hiện " + chapters.size() + " chương. Bắt đầu import vào database...");
-            log.info("Đã phát hiện {} chương, bắt đầu import: jobId={}", chapters.size(), jobId);
-
-            // Import chapters theo batch
-            importChaptersInBatches(request.getStoryId(), chapters, request.getBatchSize(),
-                    response, request.getOverwriteExisting(), cancelFlag);
-
-            if (cancelFlag.get()) {
-                response.setStatus("CANCELLED");
-                response.setMessage("Import đã bị hủy");
-                log.info("Job bị hủy trong quá trình import: jobId={}", jobId);
-                return;
-            }
-
             // Hoàn thành
             response.setStatus("COMPLETED");
             response.setEndTime(LocalDateTime.now());
@@ -129,25 +143,162 @@ public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
             response.setMessage("Import thất bại: " + e.getMessage());
         } finally {
             // Cleanup
-            cancelFlags.remove(jobId);
-            jobUserMap.remove(jobId);
-            log.info("Hoàn thành job import: jobId={}, status={}", jobId, response.getStatus());
+            stats.finish();
+            deleteQuietly(txtFile);
+            asyncJobRegistry.finish(jobId, response);
+            log.info("Hoàn thành job import: jobId={}, status={}, {}", jobId, response.getStatus(), stats.summary());
         }
     }
 
     /**
-     * Đọc file TXT theo stream và xử lý từng chương theo yêu cầu
-     * Tối ưu memory cho file lớn
+     * Chạy stage đọc trên thread hiện tại, stage ghi trên txtImportWriterExecutor.
+     * Trả về số chương đọc được trong range yêu cầu
      */
-    public List<ChapterData> processTxtFileByStream(MultipartFile file, TxtImportRequest request,
-            TxtImportResponse response, AtomicBoolean cancelFlag) throws Exception {
+    private int runPipeline(Path txtFile, Story story, TxtImportRequest request, TxtImportResponse response,
+            AtomicBoolean cancelFlag, TxtImportPipelineMetrics.JobStats stats) throws Exception {
+
+        BlockingQueue<List<ChapterData>> queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        // Tổng số chương, -1 khi stage đọc chưa xong
+        AtomicInteger totalChapters = new AtomicInteger(-1);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(
+                () -> runWriterStage(queue, story, request, response, cancelFlag, aborted, totalChapters, stats),
+                txtImportWriterExecutor);
+
+        int batchSize = Math.max(1, request.getBatchSize());
+        List<ChapterData> currentBatch = new ArrayList<>(batchSize);
+        long parseStart = System.nanoTime();
+        boolean completed = false;
+
+        try {
+            int parsedCount = processTxtFileByStream(txtFile, request, response, cancelFlag, chapterData -> {
+                stats.recordParsed();
+                currentBatch.add(chapterData);
+                if (currentBatch.size() < batchSize) {
+                    return true;
+                }
+                boolean accepted = handOff(queue, new ArrayList<>(currentBatch), writer, cancelFlag, stats);
+                currentBatch.clear();
+                return accepted;
+            });
+
+            if (!currentBatch.isEmpty()) {
+                handOff(queue, new ArrayList<>(currentBatch), writer, cancelFlag, stats);
+                currentBatch.clear();
+            }
+            stats.recordParseFinished(System.nanoTime() - parseStart);
+
+            // Khi đọc xong mới biết tổng số chương, stage ghi dùng để tính % tiến độ
+            totalChapters.set(parsedCount);
+
+            handOff(queue, END_OF_STREAM, writer, cancelFlag, stats);
+            writer.join();
+            completed = true;
+            return parsedCount;
+        } finally {
+            if (!completed) {
+                // Stage đọc lỗi: dừng stage ghi, bỏ các batch còn trong hàng đợi và chờ batch đang ghi xong
+                // trước khi thread hiện tại ghi trạng thái lỗi vào response
+                aborted.set(true);
+                queue.clear();
+                queue.offer(END_OF_STREAM);
+                writer.exceptionally(e -> null).join();
+            }
+        }
+    }
+
+    /**
+     * Đưa batch vào hàng đợi, chặn khi hàng đợi đầy (back-pressure).
+     * Trả về false nếu stage ghi đã dừng hoặc job bị hủy
+     */
+    private boolean handOff(BlockingQueue<List<ChapterData>> queue, List<ChapterData> batch,
+            CompletableFuture<Void> writer, AtomicBoolean cancelFlag, TxtImportPipelineMetrics.JobStats stats)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            while (!queue.offer(batch, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                if (writer.isDone() || cancelFlag.get()) {
+                    return false;
+                }
+            }
+            return !writer.isDone();
+        } finally {
+            stats.recordProducerBlocked(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Stage ghi: lấy từng batch khỏi hàng đợi và import cho tới khi gặp END_OF_STREAM hoặc job bị hủy.
+     * Là thread duy nhất sửa response cho tới khi pipeline kết thúc
+     */
+    private void runWriterStage(BlockingQueue<List<ChapterData>> queue, Story story, TxtImportRequest request,
+            TxtImportResponse response, AtomicBoolean cancelFlag, AtomicBoolean aborted,
+            AtomicInteger totalChapters, TxtImportPipelineMetrics.JobStats stats) {
+        int batchSize = Math.max(1, request.getBatchSize());
+        int batchNumber = 0;
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                List<ChapterData> batch = queue.take();
+                stats.recordWriterIdle(System.nanoTime() - waitStart);
+
+                if (cancelFlag.get() || aborted.get()) {
+                    return;
+                }
+                if (batch == END_OF_STREAM) {
+                    applyTotals(response, totalChapters.get(), batchSize);
+                    return;
+                }
+
+                batchNumber++;
+                response.setCurrentBatch(batchNumber);
+                response.setMessage("Đang import batch " + batchNumber + " (" + response.getSuccessCount() + "/"
+                        + stats.getParsedChapters() + " chương đã đọc được import)");
+
+                long writeStart = System.nanoTime();
+                long writtenBytes = 0;
+                try {
+                    writtenBytes = importChapterBatch(story, batch, response, request.getOverwriteExisting());
+                } catch (Exception e) {
+                    log.error("Lỗi import batch: {}", e.getMessage(), e);
+                    response.addError("Lỗi batch " + batchNumber + ": " + e.getMessage());
+                }
+                stats.recordBatchWritten(batch.size(), writtenBytes, System.nanoTime() - writeStart);
+                applyTotals(response, totalChapters.get(), batchSize);
+                asyncJobRegistry.update(response.getJobId(), response.copy());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Stage ghi bị ngắt: storyId={}", story.getId());
+        }
+    }
+
+    /**
+     * Ghi tổng số chương/batch vào response khi stage đọc đã xong (totalChapters >= 0)
+     */
+    private static void applyTotals(TxtImportResponse response, int totalChapters, int batchSize) {
+        if (totalChapters < 0) {
+            return;
+        }
+        response.setTotalChapters(totalChapters);
+        response.setTotalBatches((totalChapters + batchSize - 1) / batchSize);
+        response.updateProgress();
+    }
+
+    /**
+     * Đọc file TXT theo stream, mỗi chương trong range được đẩy ngay cho sink mà không gom lại trong bộ nhớ.
+     * Dừng đọc khi sink trả về false. Trả về số chương đã đẩy cho sink
+     */
+    public int processTxtFileByStream(Path file, TxtImportRequest request, TxtImportResponse response,
+            AtomicBoolean cancelFlag, ChapterSink sink) throws Exception {
 
-        List<ChapterData> chapters = new ArrayList<>();
         StringBuilder currentChapterContent = new StringBuilder();
         String currentChapterTitle = null;
         Integer currentChapterNumber = null;
         boolean isInTargetRange = false;
         boolean waitingForTitle = false; // Flag để đợi title ở dòng tiếp theo
+        boolean truncated = false;
+        boolean sinkOpen = true;
         int processedChapters = 0;
         int totalChaptersFound = 0;
 
@@ -155,11 +306,10 @@ public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
                 request.getStartFromChapter(),
                 request.getEndAtChapter() != null ? request.getEndAtChapter() : "cuối");
 
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
 
             String line;
-            while ((line = reader.readLine()) != null) {
+            while (sinkOpen && (line = reader.readLine()) != null) {
                 if (cancelFlag.get()) {
                     break;
                 }
@@ -175,18 +325,18 @@ public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
                 if (chapterMatcher.find()) {
                     totalChaptersFound++;
 
-                    // Lưu chương trước đó nếu đang trong target range
+                    // Đẩy chương trước đó cho stage ghi nếu đang trong target range
                     if (isInTargetRange && currentChapterNumber != null) {
                         ChapterData chapterData = createChapterData(currentChapterNumber, currentChapterTitle,
                                 currentChapterContent.toString(), request, response);
-                        chapters.add(chapterData);
                         processedChapters++;
-
                         log.debug("Đã xử lý chương {}: {}", currentChapterNumber, currentChapterTitle);
 
-                        // Cập nhật progress
-                        response.setProcessedCount(processedChapters);
-                        response.setMessage("Đã xử lý " + processedChapters + " chương...");
+                        sinkOpen = sink.accept(chapterData);
+                        if (!sinkOpen) {
+                            isInTargetRange = false;
+                            break;
+                        }
                     }
 
                     // Xử lý chương mới
@@ -199,6 +349,7 @@ public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
                         boolean inEndRange = request.getEndAtChapter() == null
                                 || chapterNumber <= request.getEndAtChapter();
 
+                        truncated = false;
                         if (inStartRange && inEndRange) {
                             isInTargetRange = true;
                             currentChapterNumber = chapterNumber;
@@ -246,19 +397,22 @@ public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
                             }
                         }
 
-                        currentChapterContent.append(line).append("\n");
-
-                        // Giới hạn độ dài content để tránh memory overflow
-                        if (currentChapterContent.length() > 1000000) { // 1MB limit
+                        // Giới hạn độ dài content để tránh memory overflow, phần thừa bị bỏ qua
+                        if (truncated) {
+                            continue;
+                        }
+                        if (currentChapterContent.length() + line.length() > MAX_CHAPTER_CONTENT_LENGTH) {
                             log.warn("Chương {} quá dài, cắt bớt nội dung", currentChapterNumber);
-                            break;
+                            truncated = true;
+                            continue;
                         }
+                        currentChapterContent.append(line).append("\n");
                     }
                 }
             }
 
             // Xử lý chương cuối cùng
-            if (isInTargetRange && currentChapterNumber != null) {
+            if (sinkOpen && !cancelFlag.get() && isInTargetRange && currentChapterNumber != null) {
                 // Nếu vẫn chưa có title, tạo title mặc định
                 if (currentChapterTitle == null || currentChapterTitle.trim().isEmpty()) {
                     currentChapterTitle = "Chương " + currentChapterNumber;
@@ -266,16 +420,16 @@ public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
 
                 ChapterData chapterData = createChapterData(currentChapterNumber, currentChapterTitle,
                         currentChapterContent.toString(), request, response);
-                chapters.add(chapterData);
                 processedChapters++;
+                sink.accept(chapterData);
 
                 log.debug("Đã xử lý chương cuối {}: {}", currentChapterNumber, currentChapterTitle);
             }
         }
 
         log.info("Hoàn thành xử lý stream, tổng cộng {} chương trong file, {} chương trong range yêu cầu",
-                totalChaptersFound, chapters.size());
-        return chapters;
+                totalChaptersFound, processedChapters);
+        return processedChapters;
     }
 
     public ChapterData createChapterData(int chapterNumber, String title, String fullContent,
@@ -297,91 +451,41 @@ public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
         return chapterData;
     }
 
-    public void importChaptersInBatches(Long storyId, List<ChapterData> chapters, int batchSize,
-            TxtImportResponse response, Boolean overwriteExisting, AtomicBoolean cancelFlag) {
-
-        Story story = storyRepository.findById(storyId).orElseThrow();
-        int totalBatches = (int) Math.ceil((double) chapters.size() / batchSize);
-        response.setTotalBatches(totalBatches);
-
-        // Reset processed count vì đã được set trong stream processing
-        response.setProcessedCount(0);
-
-        for (int i = 0; i < chapters.size(); i += batchSize) {
-            if (cancelFlag.get()) {
-                response.setStatus("CANCELLED");
-                response.setMessage("Import đã bị hủy");
-                return;
-            }
-
-            int endIndex = Math.min(i + batchSize, chapters.size());
-            List<ChapterData> batch = chapters.subList(i, endIndex);
-
-            response.setCurrentBatch((i / batchSize) + 1);
-            response.setMessage("Đang import batch " + response.getCurrentBatch() + "/" + totalBatches +
-                    " (" + response.getSuccessCount() + "/" + chapters.size() + " chương đã import)");
-
-            try {
-                importChapterBatch(story, batch, response, overwriteExisting);
-            } catch (Exception e) {
-                log.error("Lỗi import batch: {}", e.getMessage(), e);
-                response.addError("Lỗi batch " + response.getCurrentBatch() + ": " + e.getMessage());
-            }
-        }
-    }
-
-    @Transactional
-    public void importChapterBatch(Story story, List<ChapterData> batch, TxtImportResponse response,
+    /**
+     * Ghi 1 batch chapter bằng {@link ChapterBulkWriter} và cập nhật tiến độ job.
+     * Trả về số byte nội dung đã ghi
+     */
+    public long importChapterBatch(Story story, List<ChapterData> batch, TxtImportResponse response,
             Boolean overwriteExisting) {
 
-        // Thêm timeout cho transaction
-        try {
-            for (ChapterData chapterData : batch) {
-                try {
-                    // Kiểm tra chapter đã tồn tại chưa
-                    Optional<Chapter> existingChapter = chapterRepository.findByStoryIdAndChapterNumber(
-                            story.getId(), chapterData.number);
-
-                    if (existingChapter.isPresent()) {
-                        if (overwriteExisting) {
-                            // Cập nhật chapter hiện tại
-                            Chapter chapter = existingChapter.get();
-                            chapter.setTitle(chapterData.title);
-                            chapter.setContent(chapterData.content);
-                            chapter.setSlug(chapterData.slug);
-                            chapterRepository.save(chapter);
-                        } else {
-                            // Bỏ qua chapter đã tồn tại
-                            response.setProcessedCount(response.getProcessedCount() + 1);
-                            continue;
-                        }
-                    } else {
-                        // Tạo chapter mới
-                        Chapter chapter = new Chapter();
-                        chapter.setStory(story);
-                        chapter.setChapterNumber(chapterData.number);
-                        chapter.setTitle(chapterData.title);
-                        chapter.setContent(chapterData.content);
-                        chapter.setSlug(chapterData.slug);
-                        chapterRepository.save(chapter);
-                    }
-
-                    response.setSuccessCount(response.getSuccessCount() + 1);
-                    response.setProcessedCount(response.getProcessedCount() + 1);
-                    response.updateProgress();
+        List<ChapterBulkWriter.ChapterRow> rows = new ArrayList<>(batch.size());
+        for (ChapterData chapterData : batch) {
+            rows.add(new ChapterBulkWriter.ChapterRow(chapterData.number, chapterData.slug, chapterData.title,
+                    chapterData.content));
+        }
 
-                } catch (Exception e) {
-                    log.error("Lỗi import chapter: storyId={}, chapterNumber={}, error={}",
-                            story.getId(), chapterData.number, e.getMessage(), e);
-                    response.setFailureCount(response.getFailureCount() + 1);
-                    response.setProcessedCount(response.getProcessedCount() + 1);
-                    response.addError("Lỗi chapter " + chapterData.number + ": " + e.getMessage());
-                }
-            }
-        } catch (Exception e) {
-            log.error("Lỗi transaction trong batch: {}", e.getMessage(), e);
-            throw e;
+        ChapterBulkWriter.WriteResult result = chapterBulkWriter.write(story.getId(), rows,
+                Boolean.TRUE.equals(overwriteExisting));
+
+        result.getFailures().forEach((chapterNumber, error) -> {
+            log.error("Lỗi import chapter: storyId={}, chapterNumber={}, error={}",
+                    story.getId(), chapterNumber, error);
+            response.addError("Lỗi chapter " + chapterNumber + ": " + error);
+        });
+
+        // Chỉ chương mới tạo mới được thông báo, chương ghi đè thì không
+        if (!result.getCreatedNumbers().isEmpty()) {
+            IntSummaryStatistics created = result.getCreatedNumbers().stream().mapToInt(Integer::intValue)
+                    .summaryStatistics();
+            newChapterNotificationBuffer.recordAfterCommit(story.getId(), created.getMin(), created.getMax(),
+                    (int) created.getCount());
         }
+
+        response.setSuccessCount(response.getSuccessCount() + result.getWrittenCount());
+        response.setFailureCount(response.getFailureCount() + result.getFailures().size());
+        response.setProcessedCount(response.getProcessedCount() + batch.size());
+        response.updateProgress();
+        return result.getContentBytes();
     }
 
     public String generateChapterSlug(String title, int chapterNumber, String chapterSlugPrefix, String storySlug) {
@@ -403,28 +507,32 @@ public class AsyncTxtImportServiceImpl implements AsyncTxtImportService {
             titleSlug = "chuong-" + chapterNumber;
         }
 
-        // Tối ưu: thêm timestamp để tránh conflict, không cần query database
-        return baseSlug + "-" + titleSlug + "-" + System.currentTimeMillis();
+        // Thêm số chương và timestamp để tránh conflict (kể cả các chương cùng title trong 1 batch),
+        // không cần query database
+        return baseSlug + "-" + titleSlug + "-" + chapterNumber + "-" + System.currentTimeMillis();
+    }
+
+    /**
+     * Nơi nhận từng chương vừa đọc xong. Trả về false để dừng đọc file
+     */
+    @FunctionalInterface
+    public interface ChapterSink {
+        boolean accept(ChapterData chapterData) throws InterruptedException;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Không xóa được file tạm {}: {}", file, e.getMessage());
+        }
     }
 
     // Inner classes
-    private static class ChapterData {
+    public static class ChapterData {
         int number;
         String title;
         String slug;
         String content;
     }
-
-    // Getter methods để TxtImportServiceImpl có thể truy cập
-    public Map<String, TxtImportResponse> getImportJobs() {
-        return importJobs;
-    }
-
-    public Map<String, Long> getJobUserMap() {
-        return jobUserMap;
-    }
-
-    public Map<String, AtomicBoolean> getCancelFlags() {
-        return cancelFlags;
-    }
 }
@@ -13,6 +13,7 @@ import com.meobeo.truyen.exception.InvalidRefreshTokenException;
 import com.meobeo.truyen.mapper.UserMapper;
 import com.meobeo.truyen.repository.RefreshTokenRepository;
 import com.meobeo.truyen.repository.UserRepository;
+import com.meobeo.truyen.security.CustomUserDetailsService;
 import com.meobeo.truyen.service.interfaces.AuthService;
 import com.meobeo.truyen.utils.JwtUtil;
 import lombok.RequiredArgsConstructor;
@@ -38,6 +39,7 @@ public class AuthServiceImpl implements AuthService {
     private final JwtUtil jwtUtil;
     private final JwtConfig jwtConfig;
     private final UserMapper userMapper;
+    private final CustomUserDetailsService customUserDetailsService;
 
     @Override
     @Transactional
@@ -140,6 +142,7 @@ public class AuthServiceImpl implements AuthService {
 
         // Xóa refresh token của user
         refreshTokenRepository.deleteByUserId(userId);
+        customUserDetailsService.evictUserPrincipal(userId);
     }
 
     @Override
@@ -0,0 +1,73 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.domain.entity.BannedWord;
+import com.meobeo.truyen.domain.request.moderation.BannedWordRequest;
+import com.meobeo.truyen.domain.response.moderation.BannedWordResponse;
+import com.meobeo.truyen.exception.BadRequestException;
+import com.meobeo.truyen.exception.ResourceNotFoundException;
+import com.meobeo.truyen.repository.BannedWordRepository;
+import com.meobeo.truyen.service.interfaces.BannedWordService;
+import com.meobeo.truyen.utils.ContentFilterUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Quản lý danh sách từ cấm. Các node khác nhận thay đổi ở lần nạp lại định kỳ của ContentFilterUtil
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BannedWordServiceImpl implements BannedWordService {
+
+    private final BannedWordRepository bannedWordRepository;
+    private final ContentFilterUtil contentFilterUtil;
+
+    @Override
+    public List<BannedWordResponse> getBannedWords() {
+        return bannedWordRepository.findAllByOrderByWordAsc().stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    @Override
+    public BannedWordResponse addBannedWord(BannedWordRequest request) {
+        String word = Normalizer.normalize(request.getWord().trim(), Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        if (word.chars().noneMatch(Character::isLetter)) {
+            throw new BadRequestException("Từ cấm phải chứa ít nhất 1 chữ cái");
+        }
+        if (bannedWordRepository.existsByWord(word)) {
+            throw new BadRequestException("Từ cấm đã tồn tại: " + word);
+        }
+
+        BannedWord bannedWord = new BannedWord();
+        bannedWord.setWord(word);
+        BannedWord saved = bannedWordRepository.save(bannedWord);
+        contentFilterUtil.reloadBannedWords();
+
+        log.info("Đã thêm từ cấm: id={}, word={}", saved.getId(), word);
+        return toResponse(saved);
+    }
+
+    @Override
+    public void deleteBannedWord(Long id) {
+        BannedWord bannedWord = bannedWordRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy từ cấm với ID: " + id));
+        bannedWordRepository.delete(bannedWord);
+        contentFilterUtil.reloadBannedWords();
+
+        log.info("Đã xóa từ cấm: id={}, word={}", id, bannedWord.getWord());
+    }
+
+    private BannedWordResponse toResponse(BannedWord bannedWord) {
+        BannedWordResponse response = new BannedWordResponse();
+        response.setId(bannedWord.getId());
+        response.setWord(bannedWord.getWord());
+        response.setCreatedAt(bannedWord.getCreatedAt());
+        return response;
+    }
+}
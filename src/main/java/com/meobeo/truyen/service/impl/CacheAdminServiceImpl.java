@@ -0,0 +1,57 @@
+package com.meobeo.truyen.service.impl;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.meobeo.truyen.domain.response.cache.CacheStatsResponse;
+import com.meobeo.truyen.exception.ResourceNotFoundException;
+import com.meobeo.truyen.service.interfaces.CacheAdminService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheAdminServiceImpl implements CacheAdminService {
+
+    private final CacheManager cacheManager;
+
+    @Override
+    public List<CacheStatsResponse> getCacheStats() {
+        List<CacheStatsResponse> result = new ArrayList<>();
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache instanceof CaffeineCache caffeineCache) {
+                com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
+                CacheStats stats = nativeCache.stats();
+
+                CacheStatsResponse response = new CacheStatsResponse();
+                response.setName(cacheName);
+                response.setSize(nativeCache.estimatedSize());
+                response.setHitCount(stats.hitCount());
+                response.setMissCount(stats.missCount());
+                response.setHitRate(stats.hitRate());
+                response.setEvictionCount(stats.evictionCount());
+                response.setLoadCount(stats.loadCount());
+                result.add(response);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clearCache(String cacheName) {
+        // Kiểm tra tên trước vì CacheManager sẽ tự tạo cache mới khi getCache với tên lạ
+        Cache cache = cacheManager.getCacheNames().contains(cacheName) ? cacheManager.getCache(cacheName) : null;
+        if (cache == null) {
+            throw new ResourceNotFoundException("Không tìm thấy cache: " + cacheName);
+        }
+        cache.clear();
+        log.info("Đã xóa toàn bộ cache: {}", cacheName);
+    }
+}
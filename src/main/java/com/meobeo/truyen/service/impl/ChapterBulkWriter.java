@@ -0,0 +1,144 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.repository.ChapterRepository;
+import com.meobeo.truyen.service.interfaces.StoryStatsService;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ghi chapter hàng loạt cho import TXT.
+ *
+ * - Đọc trước các số chapter đã tồn tại trong khoảng của batch bằng 1 query
+ * - Ghi cả batch bằng 1 câu INSERT ... SELECT FROM unnest(...) thay vì SELECT + save từng chapter
+ * - Nếu batch lỗi (vd: trùng slug) thì ghi lại từng chapter để không mất cả batch
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChapterBulkWriter {
+
+    private final ChapterRepository chapterRepository;
+    private final StoryStatsService storyStatsService;
+    private final ChapterContentCache chapterContentCache;
+
+    /**
+     * Ghi 1 batch chapter của truyện. Không ghi đè thì chapter đã tồn tại sẽ được bỏ qua
+     */
+    public WriteResult write(Long storyId, List<ChapterRow> rows, boolean overwriteExisting) {
+        WriteResult result = new WriteResult();
+        if (rows == null || rows.isEmpty()) {
+            return result;
+        }
+
+        // Chương trùng số trong cùng batch: giữ bản đầu nếu không ghi đè, bản sau nếu ghi đè
+        Map<Integer, ChapterRow> uniqueRows = new LinkedHashMap<>();
+        for (ChapterRow row : rows) {
+            if (overwriteExisting) {
+                uniqueRows.put(row.chapterNumber(), row);
+            } else {
+                uniqueRows.putIfAbsent(row.chapterNumber(), row);
+            }
+        }
+        result.setSkippedCount(rows.size() - uniqueRows.size());
+
+        List<ChapterRow> toWrite = new ArrayList<>(uniqueRows.values());
+        if (!overwriteExisting) {
+            IntSummaryStatistics range = uniqueRows.keySet().stream().mapToInt(Integer::intValue)
+                    .summaryStatistics();
+            Set<Integer> existingNumbers = new HashSet<>(chapterRepository.findChapterNumbersInRange(storyId,
+                    range.getMin(), range.getMax()));
+            toWrite.removeIf(row -> existingNumbers.contains(row.chapterNumber()));
+            result.setSkippedCount(result.getSkippedCount() + uniqueRows.size() - toWrite.size());
+        }
+
+        if (!toWrite.isEmpty()) {
+            try {
+                applyResults(execute(storyId, toWrite, overwriteExisting), toWrite, result);
+            } catch (DataAccessException e) {
+                log.warn("Ghi batch {} chapter thất bại, chuyển sang ghi từng chapter: storyId={}, error={}",
+                        toWrite.size(), storyId, e.getMostSpecificCause().getMessage());
+                for (ChapterRow row : toWrite) {
+                    try {
+                        applyResults(execute(storyId, List.of(row), overwriteExisting), List.of(row), result);
+                    } catch (DataAccessException rowError) {
+                        result.getFailures().put(row.chapterNumber(), rowError.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+        }
+
+        storyStatsService.incrementChapterCount(storyId, result.getCreatedNumbers().size());
+        result.getUpdatedNumbers().forEach(number -> chapterContentCache.invalidate(storyId, number));
+        return result;
+    }
+
+    private List<ChapterRepository.ChapterWriteResultProjection> execute(Long storyId, List<ChapterRow> rows,
+            boolean overwriteExisting) {
+        int size = rows.size();
+        Integer[] chapterNumbers = new Integer[size];
+        String[] slugs = new String[size];
+        String[] titles = new String[size];
+        String[] contents = new String[size];
+        for (int i = 0; i < size; i++) {
+            ChapterRow row = rows.get(i);
+            chapterNumbers[i] = row.chapterNumber();
+            slugs[i] = row.slug();
+            titles[i] = row.title();
+            contents[i] = row.content();
+        }
+
+        return overwriteExisting
+                ? chapterRepository.upsertChapters(storyId, chapterNumbers, slugs, titles, contents)
+                : chapterRepository.insertChaptersIgnoreExisting(storyId, chapterNumbers, slugs, titles, contents);
+    }
+
+    private void applyResults(List<ChapterRepository.ChapterWriteResultProjection> written, List<ChapterRow> rows,
+            WriteResult result) {
+        for (ChapterRepository.ChapterWriteResultProjection row : written) {
+            if (Boolean.TRUE.equals(row.getInserted())) {
+                result.getCreatedNumbers().add(row.getChapterNumber());
+            } else {
+                result.getUpdatedNumbers().add(row.getChapterNumber());
+            }
+        }
+        // Chapter được thêm song song bởi request khác (ON CONFLICT DO NOTHING) tính là bỏ qua
+        result.setSkippedCount(result.getSkippedCount() + rows.size() - written.size());
+        for (ChapterRow row : rows) {
+            if (row.content() != null) {
+                result.setContentBytes(result.getContentBytes()
+                        + row.content().getBytes(StandardCharsets.UTF_8).length);
+            }
+        }
+    }
+
+    /**
+     * 1 chapter cần ghi
+     */
+    public record ChapterRow(Integer chapterNumber, String slug, String title, String content) {
+    }
+
+    @Data
+    public static class WriteResult {
+        private List<Integer> createdNumbers = new ArrayList<>();
+        private List<Integer> updatedNumbers = new ArrayList<>();
+        private int skippedCount;
+        private Map<Integer, String> failures = new LinkedHashMap<>();
+        private long contentBytes;
+
+        public int getWrittenCount() {
+            return createdNumbers.size() + updatedNumbers.size();
+        }
+    }
+}
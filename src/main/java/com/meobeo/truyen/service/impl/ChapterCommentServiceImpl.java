@@ -17,11 +17,14 @@ import com.meobeo.truyen.repository.StoryRepository;
 import com.meobeo.truyen.repository.UserRepository;
 import com.meobeo.truyen.service.interfaces.ChapterCommentService;
 import com.meobeo.truyen.utils.ContentFilterUtil;
+import com.meobeo.truyen.utils.CursorUtil;
 import com.meobeo.truyen.utils.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -155,6 +158,31 @@ public class ChapterCommentServiceImpl implements ChapterCommentService {
                 totalComments);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CommentListResponse getCommentsByStoryAndChapterSlice(Long storyId, Integer chapterNumber, String cursor,
+            Pageable pageable) {
+        log.info("Lấy comment (không đếm tổng) theo storyId={}, chapterNumber={}, cursor={}",
+                storyId, chapterNumber, cursor);
+
+        Chapter chapter = chapterRepository.findByStoryIdAndChapterNumber(storyId, chapterNumber)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        String.format("Không tìm thấy chapter %d của truyện ID %d", chapterNumber, storyId)));
+
+        return buildCommentSlice(chapter, storyId, cursor, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CommentListResponse getCommentsByChapterSlice(Long chapterId, String cursor, Pageable pageable) {
+        log.info("Lấy comment (không đếm tổng) theo chapterId={}, cursor={}", chapterId, cursor);
+
+        Chapter chapter = chapterRepository.findByIdWithStory(chapterId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy chapter với ID: " + chapterId));
+
+        return buildCommentSlice(chapter, chapter.getStory().getId(), cursor, pageable);
+    }
+
     @Override
     @Transactional
     public CommentResponse updateComment(Long commentId, UpdateCommentRequest request, Long userId) {
@@ -237,6 +265,34 @@ public class ChapterCommentServiceImpl implements ChapterCommentService {
         return chapterCommentRepository.countByStoryIdAndChapterId(chapter.getStory().getId(), chapterId);
     }
 
+    /**
+     * Lấy 1 slice comment: có cursor thì seek theo (createdAt, id), không thì theo
+     * số trang. Không chạy query COUNT
+     */
+    private CommentListResponse buildCommentSlice(Chapter chapter, Long storyId, String cursor, Pageable pageable) {
+        Slice<ChapterComment> commentsSlice;
+        if (cursor != null && !cursor.isBlank()) {
+            CursorUtil.TimeCursor timeCursor = CursorUtil.decodeTimeCursor(cursor);
+            commentsSlice = chapterCommentRepository.findByStoryIdAndChapterIdBefore(storyId, chapter.getId(),
+                    timeCursor.createdAt(), timeCursor.id(), PageRequest.of(0, pageable.getPageSize()));
+        } else {
+            commentsSlice = chapterCommentRepository.findSliceByStoryIdAndChapterId(storyId, chapter.getId(),
+                    pageable);
+        }
+
+        CommentListResponse response = CommentListResponse.fromSlice(
+                commentsSlice.map(commentMapper::toCommentResponse),
+                storyId,
+                chapter.getId(),
+                chapter.getChapterNumber(),
+                chapter.getTitle(),
+                null);
+        if (cursor != null && !cursor.isBlank()) {
+            response.setHasPrevious(true);
+        }
+        return response;
+    }
+
     /**
      * Kiểm tra user có thể update comment không (rate limiting)
      */
@@ -0,0 +1,319 @@
+package com.meobeo.truyen.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cache nội dung chapter 2 tầng theo (storyId, chapterNumber), cả 2 tầng là Caffeine nên đọc không qua lock chung.
+ *
+ * - Tầng nóng: giới hạn theo số chapter, giữ sẵn object để trả ngay
+ * - Tầng nén: content nén Deflate (byte[] trên heap), giới hạn theo tổng số byte.
+ *   Chapter bị đẩy khỏi tầng nóng sẽ được nén xuống tầng này (trên thread vừa ghi vào tầng nóng),
+ *   khi đọc lại sẽ giải nén và đưa lên tầng nóng
+ * - Mỗi lần invalidate tăng generation của key (đếm theo stripe của (storyId, chapterNumber) và của storyId),
+ *   dữ liệu của key đó đọc từ DB trước lúc invalidate sẽ không được ghi vào cache.
+ *   Invalidate 1 chapter không làm hỏng các lần nạp đang chạy của chapter khác (trừ key trùng stripe)
+ */
+@Component
+@Slf4j
+public class ChapterContentCache {
+
+    // Số stripe của bảng generation
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final Cache<ChapterKey, CachedChapter> hotTier;
+    private final Cache<ChapterKey, CompressedChapter> compressedTier;
+    private final long compressedMaxBytes;
+
+    // Chapter vừa bị đẩy khỏi tầng nóng, chờ nén
+    private final ConcurrentLinkedQueue<Demoted> demotions = new ConcurrentLinkedQueue<>();
+
+    // Generation theo stripe. Ghi/đọc cho 1 key luôn nằm trong compute của key đó trên tầng nóng
+    private final AtomicLongArray chapterGenerations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLongArray storyGenerations = new AtomicLongArray(GENERATION_STRIPES);
+
+    // Thống kê
+    private final LongAdder hotHits = new LongAdder();
+    private final LongAdder compressedHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder hotEvictions = new LongAdder();
+    private final LongAdder compressedEvictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ChapterContentCache(@Value("${chapter.cache.hot-max-entries:500}") int hotMaxEntries,
+            @Value("${chapter.cache.compressed-max-bytes:134217728}") long compressedMaxBytes) {
+        this.compressedMaxBytes = compressedMaxBytes;
+        // Dọn dẹp chạy trên thread ghi để chapter bị đẩy ra được nén ngay sau lần ghi đó
+        this.hotTier = Caffeine.newBuilder()
+                .maximumSize(hotMaxEntries)
+                .executor(Runnable::run)
+                .evictionListener((ChapterKey key, CachedChapter chapter, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        hotEvictions.increment();
+                        demotions.add(new Demoted(key, chapter, generationOf(key)));
+                    }
+                })
+                .build();
+        this.compressedTier = Caffeine.newBuilder()
+                .maximumWeight(compressedMaxBytes)
+                .weigher((ChapterKey key, CompressedChapter compressed) -> compressed.weight())
+                .executor(Runnable::run)
+                .evictionListener((ChapterKey key, CompressedChapter compressed, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        compressedEvictions.increment();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Lấy chapter từ cache, nếu không có thì gọi loader (đọc DB) và lưu kết quả vào tầng nóng
+     */
+    public Optional<CachedChapter> getOrLoad(Long storyId, Integer chapterNumber,
+            Supplier<Optional<CachedChapter>> loader) {
+        ChapterKey key = new ChapterKey(storyId, chapterNumber);
+        CachedChapter hot = hotTier.getIfPresent(key);
+        if (hot != null) {
+            hotHits.increment();
+            return Optional.of(hot);
+        }
+        // Đọc generation trước tầng nén và DB: invalidate xảy ra sau đó sẽ làm lần ghi vào tầng nóng bị bỏ qua
+        long expectedGeneration = generationOf(key);
+        CompressedChapter compressed = compressedTier.getIfPresent(key);
+
+        if (compressed != null) {
+            CachedChapter chapter = decompress(compressed);
+            if (chapter != null) {
+                compressedHits.increment();
+                putHot(key, chapter, expectedGeneration);
+                return Optional.of(chapter);
+            }
+        }
+
+        misses.increment();
+        Optional<CachedChapter> loaded = loader.get();
+        loaded.ifPresent(chapter -> putHot(key, chapter, expectedGeneration));
+        return loaded;
+    }
+
+    /**
+     * Xóa 1 chapter khỏi cả 2 tầng
+     */
+    public void invalidate(Long storyId, Integer chapterNumber) {
+        ChapterKey key = new ChapterKey(storyId, chapterNumber);
+        // Tăng generation trong compute của key để không xen giữa lần kiểm tra generation và ghi của putHot
+        hotTier.asMap().compute(key, (k, current) -> {
+            chapterGenerations.incrementAndGet(stripe(k.hashCode()));
+            return null;
+        });
+        compressedTier.invalidate(key);
+        invalidations.increment();
+    }
+
+    /**
+     * Xóa toàn bộ chapter của 1 truyện (đổi tên/xóa truyện)
+     */
+    public void invalidateStory(Long storyId) {
+        // Tăng generation trước rồi mới quét: chapter ghi vào sau lần quét đã mang generation cũ nên bị từ chối
+        storyGenerations.incrementAndGet(stripe(storyId.hashCode()));
+        hotTier.asMap().keySet().removeIf(key -> key.storyId().equals(storyId));
+        compressedTier.asMap().keySet().removeIf(key -> key.storyId().equals(storyId));
+        invalidations.increment();
+    }
+
+    /**
+     * Invalidate ngay và invalidate lại sau khi transaction hiện tại commit, tránh việc request đọc
+     * song song nạp lại dữ liệu cũ chưa commit vào cache
+     */
+    public void invalidateAfterCommit(Long storyId, Integer chapterNumber) {
+        invalidate(storyId, chapterNumber);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(storyId, chapterNumber);
+                }
+            });
+        }
+    }
+
+    /**
+     * Giống {@link #invalidateAfterCommit(Long, Integer)} nhưng cho toàn bộ truyện
+     */
+    public void invalidateStoryAfterCommit(Long storyId) {
+        invalidateStory(storyId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateStory(storyId);
+                }
+            });
+        }
+    }
+
+    public long getHotSize() {
+        return hotTier.estimatedSize();
+    }
+
+    public long getCompressedSize() {
+        return compressedTier.estimatedSize();
+    }
+
+    public long getCompressedBytes() {
+        return compressedTier.policy().eviction()
+                .flatMap(eviction -> eviction.weightedSize())
+                .orElse(0L);
+    }
+
+    public long getHotHits() {
+        return hotHits.sum();
+    }
+
+    public long getCompressedHits() {
+        return compressedHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getHotEvictions() {
+        return hotEvictions.sum();
+    }
+
+    public long getCompressedEvictions() {
+        return compressedEvictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    private void putHot(ChapterKey key, CachedChapter chapter, long expectedGeneration) {
+        hotTier.asMap().compute(key, (k, current) -> generationOf(k) == expectedGeneration ? chapter : current);
+
+        // Nén ngoài compute rồi mới đưa xuống tầng nén, bỏ qua chapter bị invalidate trong lúc nén
+        Demoted entry;
+        while ((entry = demotions.poll()) != null) {
+            Demoted demoted = entry;
+            if (compressedTier.getIfPresent(demoted.key()) != null) {
+                continue;
+            }
+            CompressedChapter compressed = compress(demoted.chapter());
+            if (compressed.sizeInBytes() > compressedMaxBytes) {
+                continue;
+            }
+            // invalidate tăng generation rồi mới xóa khỏi tầng nén nên không còn bản cũ sót lại
+            compressedTier.asMap().compute(demoted.key(),
+                    (k, current) -> generationOf(k) == demoted.generation() ? compressed : current);
+        }
+    }
+
+    /**
+     * Generation hiện tại của key. Tăng khi invalidate chapter hoặc cả truyện
+     */
+    private long generationOf(ChapterKey key) {
+        return chapterGenerations.get(stripe(key.hashCode())) + storyGenerations.get(stripe(key.storyId().hashCode()));
+    }
+
+    private static int stripe(int hash) {
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private CompressedChapter compress(CachedChapter chapter) {
+        byte[] content = null;
+        int originalLength = 0;
+        if (chapter.content() != null) {
+            byte[] raw = chapter.content().getBytes(StandardCharsets.UTF_8);
+            originalLength = raw.length;
+
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(raw);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 3));
+                byte[] chunk = new byte[8192];
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(chunk);
+                    out.write(chunk, 0, length);
+                }
+                content = out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+        return new CompressedChapter(chapter.withContent(null), content, originalLength);
+    }
+
+    private CachedChapter decompress(CompressedChapter compressed) {
+        if (compressed.content() == null) {
+            return compressed.metadata();
+        }
+
+        byte[] output = new byte[compressed.originalLength()];
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.content());
+            int length = 0;
+            while (length < output.length && !inflater.finished()) {
+                length += inflater.inflate(output, length, output.length - length);
+            }
+            return compressed.metadata().withContent(new String(output, 0, length, StandardCharsets.UTF_8));
+        } catch (DataFormatException e) {
+            log.warn("Không giải nén được chapter trong cache, bỏ qua: {}", e.getMessage());
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Dữ liệu chapter được cache (không gồm trạng thái khóa/payment vì thay đổi theo user)
+     */
+    public record CachedChapter(Long id, Long storyId, Integer chapterNumber, String slug, String title,
+            String content, LocalDateTime createdAt, String storyTitle, String storySlug) {
+
+        CachedChapter withContent(String newContent) {
+            return new CachedChapter(id, storyId, chapterNumber, slug, title, newContent, createdAt, storyTitle,
+                    storySlug);
+        }
+    }
+
+    private record ChapterKey(Long storyId, Integer chapterNumber) {
+    }
+
+    private record Demoted(ChapterKey key, CachedChapter chapter, long generation) {
+    }
+
+    private record CompressedChapter(CachedChapter metadata, byte[] content, int originalLength) {
+
+        long sizeInBytes() {
+            return content != null ? content.length : 0;
+        }
+
+        // Chapter không có content vẫn tính 1 để không nằm ngoài giới hạn của tầng nén
+        int weight() {
+            return (int) Math.max(1, sizeInBytes());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.meobeo.truyen.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.meobeo.truyen.domain.repository.ChapterUnlockRepository;
+import com.meobeo.truyen.repository.ChapterPaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Chỉ mục trạng thái khóa chapter dạng bitmap theo số chapter.
+ *
+ * - Theo truyện: bitmap các chapter đang bị khóa (chapter_payments.is_locked = true)
+ * - Theo (user, truyện): bitmap các chapter user đã mở khóa (chapter_unlocks)
+ *
+ * Bitmap được nạp lười bằng 1 query và cache lại, sau đó mỗi lần kiểm tra chỉ là 1 phép tra bit.
+ * Bitmap đã đưa vào cache không bị sửa trực tiếp: cập nhật sẽ tạo bản sao rồi thay thế (copy-on-write)
+ */
+@Component
+@Slf4j
+public class ChapterLockIndex {
+
+    private static final BitSet EMPTY = new BitSet();
+
+    private final ChapterPaymentRepository chapterPaymentRepository;
+    private final ChapterUnlockRepository chapterUnlockRepository;
+    private final Cache<Long, BitSet> lockedByStory;
+    private final Cache<UserStoryKey, BitSet> unlockedByUser;
+
+    public ChapterLockIndex(ChapterPaymentRepository chapterPaymentRepository,
+            ChapterUnlockRepository chapterUnlockRepository,
+            @Value("${chapter.lock-index.story-spec:maximumSize=20000,expireAfterWrite=30m,recordStats}") String storySpec,
+            @Value("${chapter.lock-index.user-spec:maximumSize=200000,expireAfterAccess=30m,recordStats}") String userSpec) {
+        this.chapterPaymentRepository = chapterPaymentRepository;
+        this.chapterUnlockRepository = chapterUnlockRepository;
+        this.lockedByStory = Caffeine.from(storySpec).build();
+        this.unlockedByUser = Caffeine.from(userSpec).build();
+    }
+
+    /**
+     * Chapter có đang bị khóa không
+     */
+    public boolean isLocked(Long storyId, Integer chapterNumber) {
+        return contains(lockedBitmap(storyId), chapterNumber);
+    }
+
+    /**
+     * User đã mở khóa chapter chưa (khách luôn là chưa)
+     */
+    public boolean isUnlockedByUser(Long userId, Long storyId, Integer chapterNumber) {
+        return userId != null && contains(unlockedBitmap(userId, storyId), chapterNumber);
+    }
+
+    /**
+     * User được đọc chapter khi chapter không khóa hoặc đã được user mở khóa.
+     * Bitmap của user chỉ được nạp khi chapter bị khóa
+     */
+    public boolean canRead(Long userId, Long storyId, Integer chapterNumber) {
+        return !isLocked(storyId, chapterNumber) || isUnlockedByUser(userId, storyId, chapterNumber);
+    }
+
+    /**
+     * Lấy bitmap của cả truyện 1 lần để tra nhiều chapter (danh sách chapter)
+     */
+    public Snapshot snapshot(Long userId, Long storyId) {
+        return new Snapshot(lockedBitmap(storyId), userId != null ? unlockedBitmap(userId, storyId) : EMPTY);
+    }
+
+    /**
+     * Đánh dấu user đã mở khóa 1 chapter sau khi transaction hiện tại commit
+     */
+    public void markUnlockedAfterCommit(Long userId, Long storyId, Integer chapterNumber) {
+        afterCommit(() -> unlockedByUser.asMap().computeIfPresent(new UserStoryKey(userId, storyId),
+                (key, bitmap) -> {
+                    BitSet copy = (BitSet) bitmap.clone();
+                    copy.set(chapterNumber);
+                    return copy;
+                }));
+    }
+
+    /**
+     * Bỏ bitmap đã mở khóa của user trong truyện (sau khi mở khóa theo khoảng), lần đọc sau sẽ nạp lại
+     */
+    public void invalidateUserAfterCommit(Long userId, Long storyId) {
+        UserStoryKey key = new UserStoryKey(userId, storyId);
+        unlockedByUser.invalidate(key);
+        afterCommit(() -> unlockedByUser.invalidate(key));
+    }
+
+    /**
+     * Bỏ bitmap chapter bị khóa của truyện khi cấu hình khóa/giá chapter thay đổi
+     */
+    public void invalidateLockedAfterCommit(Long storyId) {
+        lockedByStory.invalidate(storyId);
+        afterCommit(() -> lockedByStory.invalidate(storyId));
+    }
+
+    /**
+     * Bỏ toàn bộ bitmap của truyện (xóa chapter: số chapter có thể được dùng lại cho chapter mới)
+     */
+    public void invalidateStoryAfterCommit(Long storyId) {
+        Runnable invalidate = () -> {
+            lockedByStory.invalidate(storyId);
+            unlockedByUser.asMap().keySet().removeIf(key -> key.storyId().equals(storyId));
+        };
+        invalidate.run();
+        afterCommit(invalidate);
+    }
+
+    public long getLockedStoryEntries() {
+        return lockedByStory.estimatedSize();
+    }
+
+    public long getUserEntries() {
+        return unlockedByUser.estimatedSize();
+    }
+
+    public double getLockedStoryHitRate() {
+        return lockedByStory.stats().hitRate();
+    }
+
+    public double getUserHitRate() {
+        return unlockedByUser.stats().hitRate();
+    }
+
+    private BitSet lockedBitmap(Long storyId) {
+        return lockedByStory.get(storyId,
+                id -> toBitmap(chapterPaymentRepository.findLockedChapterNumbersByStory(id)));
+    }
+
+    private BitSet unlockedBitmap(Long userId, Long storyId) {
+        return unlockedByUser.get(new UserStoryKey(userId, storyId),
+                key -> toBitmap(chapterUnlockRepository.findUnlockedChapterNumbersByUserAndStory(key.userId(),
+                        key.storyId())));
+    }
+
+    private static BitSet toBitmap(List<Integer> chapterNumbers) {
+        if (chapterNumbers.isEmpty()) {
+            return EMPTY;
+        }
+        BitSet bitmap = new BitSet();
+        for (Integer number : chapterNumbers) {
+            if (number != null && number >= 0) {
+                bitmap.set(number);
+            }
+        }
+        return bitmap;
+    }
+
+    private static boolean contains(BitSet bitmap, Integer chapterNumber) {
+        return chapterNumber != null && chapterNumber >= 0 && bitmap.get(chapterNumber);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Bitmap khóa của truyện và bitmap đã mở khóa của user tại 1 thời điểm
+     */
+    public record Snapshot(BitSet locked, BitSet unlocked) {
+
+        public boolean isLocked(Integer chapterNumber) {
+            return contains(locked, chapterNumber);
+        }
+
+        public boolean isUnlockedByUser(Integer chapterNumber) {
+            return contains(unlocked, chapterNumber);
+        }
+    }
+
+    private record UserStoryKey(Long userId, Long storyId) {
+    }
+}
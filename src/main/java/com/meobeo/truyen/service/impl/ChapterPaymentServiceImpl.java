@@ -42,6 +42,7 @@ public class ChapterPaymentServiceImpl implements ChapterPaymentService {
     private final ChapterRepository chapterRepository;
     private final StoryRepository storyRepository;
     private final SecurityUtils securityUtils;
+    private final ChapterLockIndex chapterLockIndex;
 
     private final AsyncChapterPaymentService asyncChapterPaymentService;
 
@@ -77,6 +78,7 @@ public class ChapterPaymentServiceImpl implements ChapterPaymentService {
             throw new BadRequestException("Chapter đã bị khóa rồi");
         }
 
+        chapterLockIndex.invalidateLockedAfterCommit(chapter.getStory().getId());
         log.info("Đã tạo payment setting thành công: chapterId={}", chapterId);
 
         log.info("Đã khóa chapter thành công: chapterId={}, price={}", chapterId, request.getPrice());
@@ -114,6 +116,7 @@ public class ChapterPaymentServiceImpl implements ChapterPaymentService {
 
         chapterPayment.setIsLocked(false);
         ChapterPayment savedPayment = chapterPaymentRepository.save(chapterPayment);
+        chapterLockIndex.invalidateLockedAfterCommit(savedPayment.getStoryId());
 
         log.info("Đã mở khóa chapter thành công: chapterId={}", chapterId);
 
@@ -142,6 +145,7 @@ public class ChapterPaymentServiceImpl implements ChapterPaymentService {
                 .setIsLocked(request.getIsLocked() != null ? request.getIsLocked() : chapterPayment.getIsLocked());
 
         ChapterPayment savedPayment = chapterPaymentRepository.save(chapterPayment);
+        chapterLockIndex.invalidateLockedAfterCommit(savedPayment.getStoryId());
 
         log.info("Đã cập nhật payment chapter thành công: chapterId={}", chapterId);
 
@@ -262,6 +266,7 @@ public class ChapterPaymentServiceImpl implements ChapterPaymentService {
         // Xóa payment setting nếu tồn tại
         chapterPaymentRepository.findByChapterId(chapterId).ifPresent(payment -> {
             chapterPaymentRepository.delete(payment);
+            chapterLockIndex.invalidateLockedAfterCommit(payment.getStoryId());
             log.info("Đã xóa payment setting cho chapter: {}", chapterId);
         });
     }
@@ -352,6 +357,10 @@ public class ChapterPaymentServiceImpl implements ChapterPaymentService {
             }
         }
 
+        if (!successfulLocks.isEmpty()) {
+            chapterLockIndex.invalidateLockedAfterCommit(story.getId());
+        }
+
         // Tạo response với format mới
         ChapterBatchLockResponse response = new ChapterBatchLockResponse();
         response.setStoryId(story.getId());
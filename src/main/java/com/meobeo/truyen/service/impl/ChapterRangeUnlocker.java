@@ -0,0 +1,120 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.domain.repository.ChapterUnlockRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+/**
+ * Mở khóa khoảng chương theo tập hợp (set-based).
+ *
+ * - Báo giá: 1 query tính số chương cần mở và tổng giá gốc
+ * - Mở khóa: duyệt keyset trên các chương bị khóa mà user chưa mở (chapter_number > chương cuối của chunk trước),
+ *   mỗi chunk là 1 câu INSERT ... SELECT ... LIMIT ... ON CONFLICT DO NOTHING
+ *
+ * Số chunk chỉ phụ thuộc số chương cần mở, không phụ thuộc độ rộng khoảng số chương (truyện đánh số thưa
+ * hoặc user đã mở lẻ tẻ nhiều chương vẫn chạy đúng số chunk).
+ * Tiền bị trừ được tính theo các chương thực sự được mở (không tính chương user đã mở song song).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChapterRangeUnlocker {
+
+    // Số chương tối đa mở trong 1 chunk
+    public static final int CHUNK_SIZE = 500;
+
+    private final ChapterUnlockRepository chapterUnlockRepository;
+    private final ChapterLockIndex chapterLockIndex;
+
+    /**
+     * Báo giá mở khóa khoảng chương cho user
+     */
+    public Quote quote(Long storyId, Long userId, int fromNumber, int toNumber) {
+        ChapterUnlockRepository.UnlockQuoteProjection row = chapterUnlockRepository.quoteUnlockRange(storyId,
+                userId, fromNumber, toNumber);
+        return new Quote(toInt(row.getRangeChapterCount()), toInt(row.getLockableCount()),
+                toInt(row.getTotalPrice()), row.getMinChapterNumber(), row.getMaxChapterNumber());
+    }
+
+    /**
+     * Báo giá mở khóa toàn bộ truyện (count + sum trong 1 query)
+     */
+    public Quote quoteFullStory(Long storyId, Long userId) {
+        return quote(storyId, userId, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Số chunk cần chạy cho báo giá, dùng để hiển thị tiến độ
+     */
+    public int countChunks(Quote quote) {
+        if (quote.lockableCount() == 0) {
+            return 0;
+        }
+        return (quote.lockableCount() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /**
+     * Mở khóa các chương trong báo giá theo từng chunk. Dừng giữa chừng nếu cancelFlag được bật.
+     * progress nhận số chương đã mở sau mỗi chunk
+     */
+    public Result unlock(Long storyId, Long userId, Quote quote, LocalDateTime unlockedAt,
+            AtomicBoolean cancelFlag, IntConsumer progress) {
+        int unlockedCount = 0;
+        int originalPrice = 0;
+        int chunks = 0;
+        if (quote.lockableCount() == 0) {
+            return new Result(0, 0, 0);
+        }
+
+        // Chương trước chương nhỏ nhất cần mở; chapter_number luôn dương nên không tràn số
+        int afterNumber = quote.minChapterNumber() - 1;
+        while (afterNumber < quote.maxChapterNumber()) {
+            if (cancelFlag != null && cancelFlag.get()) {
+                break;
+            }
+            ChapterUnlockRepository.UnlockChunkResultProjection chunk = chapterUnlockRepository
+                    .unlockNextLockedChapters(storyId, userId, afterNumber, quote.maxChapterNumber(), CHUNK_SIZE,
+                            unlockedAt);
+            unlockedCount += toInt(chunk.getChapterCount());
+            originalPrice += toInt(chunk.getTotalPrice());
+            chunks++;
+            if (progress != null) {
+                progress.accept(unlockedCount);
+            }
+            if (toInt(chunk.getScannedCount()) < CHUNK_SIZE || chunk.getLastChapterNumber() == null) {
+                break;
+            }
+            afterNumber = chunk.getLastChapterNumber();
+        }
+
+        if (unlockedCount > 0) {
+            chapterLockIndex.invalidateUserAfterCommit(userId, storyId);
+        }
+
+        log.debug("Mở khóa {} chương ({} chunk) cho user {} trong story {}", unlockedCount, chunks, userId,
+                storyId);
+        return new Result(unlockedCount, originalPrice, chunks);
+    }
+
+    private static int toInt(Long value) {
+        return value != null ? Math.toIntExact(value) : 0;
+    }
+
+    /**
+     * Báo giá: số chương trong khoảng, số chương cần mở, tổng giá gốc và khoảng số chương cần mở
+     */
+    public record Quote(int rangeChapterCount, int lockableCount, int totalOriginalPrice,
+            Integer minChapterNumber, Integer maxChapterNumber) {
+    }
+
+    /**
+     * Kết quả mở khóa thực tế
+     */
+    public record Result(int unlockedCount, int totalOriginalPrice, int chunks) {
+    }
+}
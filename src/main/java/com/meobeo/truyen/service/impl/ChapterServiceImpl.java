@@ -13,14 +13,19 @@ import com.meobeo.truyen.mapper.ChapterMapper;
 import com.meobeo.truyen.repository.ChapterRepository;
 import com.meobeo.truyen.repository.StoryRepository;
 import com.meobeo.truyen.service.interfaces.ChapterService;
+import com.meobeo.truyen.service.interfaces.StoryStatsService;
 import com.meobeo.truyen.utils.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -31,6 +36,10 @@ public class ChapterServiceImpl implements ChapterService {
     private final StoryRepository storyRepository;
     private final ChapterMapper chapterMapper;
     private final SecurityUtils securityUtils;
+    private final StoryStatsService storyStatsService;
+    private final ChapterContentCache chapterContentCache;
+    private final ChapterLockIndex chapterLockIndex;
+    private final NewChapterNotificationBuffer newChapterNotificationBuffer;
 
     @Override
     public ChapterResponse createChapter(CreateChapterRequest request, Long userId) {
@@ -60,6 +69,9 @@ public class ChapterServiceImpl implements ChapterService {
         chapter.setStory(story);
 
         Chapter savedChapter = chapterRepository.save(chapter);
+        storyStatsService.incrementChapterCount(story.getId(), 1);
+        newChapterNotificationBuffer.recordAfterCommit(story.getId(), savedChapter.getChapterNumber(),
+                savedChapter.getChapterNumber(), 1);
         log.info("Tạo chapter thành công: chapterId={}", savedChapter.getId());
 
         return chapterMapper.toChapterResponse(savedChapter);
@@ -87,6 +99,7 @@ public class ChapterServiceImpl implements ChapterService {
         // Không update chapterNumber vì đã xác định bằng URL
 
         Chapter updatedChapter = chapterRepository.save(chapter);
+        chapterContentCache.invalidateAfterCommit(storyId, chapterNumber);
         log.info("Cập nhật chapter thành công: chapterId={}", updatedChapter.getId());
 
         return chapterMapper.toChapterResponse(updatedChapter);
@@ -102,6 +115,9 @@ public class ChapterServiceImpl implements ChapterService {
 
         // Xóa chapter (cascade sẽ xóa các bảng liên quan)
         chapterRepository.delete(chapter);
+        storyStatsService.incrementChapterCount(chapter.getStory().getId(), -1);
+        chapterContentCache.invalidateAfterCommit(chapter.getStory().getId(), chapter.getChapterNumber());
+        chapterLockIndex.invalidateStoryAfterCommit(chapter.getStory().getId());
         log.info("Xóa chapter thành công: chapterId={}", chapterId);
     }
 
@@ -116,6 +132,9 @@ public class ChapterServiceImpl implements ChapterService {
 
         // Xóa chapter (cascade sẽ xóa các bảng liên quan)
         chapterRepository.delete(chapter);
+        storyStatsService.incrementChapterCount(storyId, -1);
+        chapterContentCache.invalidateAfterCommit(storyId, chapterNumber);
+        chapterLockIndex.invalidateStoryAfterCommit(storyId);
         log.info("Xóa chapter thành công: storyId={}, chapterNumber={}", storyId, chapterNumber);
     }
 
@@ -134,10 +153,10 @@ public class ChapterServiceImpl implements ChapterService {
             chapter = getChapterBySlug(identifier);
         }
 
-        // Kiểm tra quyền xem chapter (nếu cần)
-        validateViewPermissions(chapter, userId);
+        // Kiểm tra quyền xem chapter bị khóa
+        validateViewPermissions(chapter.getStory().getId(), chapter.getChapterNumber(), userId);
 
-        return chapterMapper.toChapterResponse(chapter);
+        return chapterMapper.toChapterResponse(chapter, userId);
     }
 
     @Override
@@ -146,48 +165,60 @@ public class ChapterServiceImpl implements ChapterService {
         log.info("Lấy chi tiết chapter theo story và number: storyId={}, chapterNumber={}, userId={}",
                 storyId, chapterNumber, userId);
 
-        Chapter chapter = getChapterByStoryAndNumber(storyId, chapterNumber);
+        ChapterContentCache.CachedChapter chapter = findCachedChapter(storyId, chapterNumber)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        String.format("Không tìm thấy chapter %d của story %d", chapterNumber, storyId)));
 
-        // Kiểm tra quyền xem chapter (nếu cần)
-        validateViewPermissions(chapter, userId);
+        // Kiểm tra quyền xem chapter bị khóa
+        validateViewPermissions(chapter.storyId(), chapter.chapterNumber(), userId);
 
-        return chapterMapper.toChapterResponse(chapter);
+        return chapterMapper.toChapterResponse(chapter, userId);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public ChapterListResponse getChaptersByStory(String storyIdentifier, Pageable pageable) {
-        log.info("Lấy danh sách chapter của truyện: storyIdentifier={}", storyIdentifier);
+    public ChapterListResponse getChaptersByStory(String storyIdentifier, Pageable pageable, Long userId) {
+        log.info("Lấy danh sách chapter của truyện: storyIdentifier={}, userId={}", storyIdentifier, userId);
 
-        Page<Chapter> chapterPage;
-        Story story = null;
+        Story story = getStoryByIdentifier(storyIdentifier);
+        ChapterLockIndex.Snapshot lockSnapshot = lockSnapshotFor(userId, story.getId());
 
-        try {
-            // Thử parse thành ID
-            Long storyId = Long.parseLong(storyIdentifier);
-            chapterPage = chapterRepository.findByStoryIdOrderByChapterNumber(storyId, pageable);
-            // Lấy thông tin story
-            if (!chapterPage.isEmpty()) {
-                story = chapterPage.getContent().get(0).getStory();
-            } else {
-                story = getStoryById(storyId);
-            }
-        } catch (NumberFormatException e) {
-            // Nếu không phải số thì tìm theo slug
-            chapterPage = chapterRepository.findByStorySlugOrderByChapterNumber(storyIdentifier, pageable);
-            // Lấy thông tin story
-            if (!chapterPage.isEmpty()) {
-                story = chapterPage.getContent().get(0).getStory();
-            } else {
-                story = getStoryBySlug(storyIdentifier);
-            }
+        // Chỉ select cột cần cho danh sách, không đọc content
+        Page<ChapterSummaryDto> summaryPage = chapterRepository.findSummariesByStoryId(story.getId(), pageable)
+                .map(row -> chapterMapper.toChapterSummaryDto(row, lockSnapshot));
+
+        return ChapterListResponse.fromPageWithStoryInfo(summaryPage,
+                story.getId(), story.getTitle(), story.getSlug());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ChapterListResponse getChaptersByStorySlice(String storyIdentifier, Integer afterChapterNumber,
+            Pageable pageable, Long userId) {
+        log.info("Lấy danh sách chapter (không đếm tổng): storyIdentifier={}, afterChapterNumber={}, userId={}",
+                storyIdentifier, afterChapterNumber, userId);
+
+        Story story = getStoryByIdentifier(storyIdentifier);
+        ChapterLockIndex.Snapshot lockSnapshot = lockSnapshotFor(userId, story.getId());
+
+        Slice<ChapterRepository.ChapterSummaryProjection> chapterSlice;
+        if (afterChapterNumber != null) {
+            // Keyset: luôn lấy "trang đầu" tính từ cursor, không dùng OFFSET
+            chapterSlice = chapterRepository.findSummariesByStoryIdAfterChapterNumber(story.getId(),
+                    afterChapterNumber, PageRequest.of(0, pageable.getPageSize()));
+        } else {
+            chapterSlice = chapterRepository.findSummarySliceByStoryId(story.getId(), pageable);
         }
 
-        // Convert thành ChapterSummaryDto (không có content)
-        Page<ChapterSummaryDto> summaryPage = chapterPage.map(chapterMapper::toChapterSummaryDto);
+        Slice<ChapterSummaryDto> summarySlice = chapterSlice
+                .map(row -> chapterMapper.toChapterSummaryDto(row, lockSnapshot));
 
-        return ChapterListResponse.fromPageWithStoryInfo(summaryPage,
+        ChapterListResponse response = ChapterListResponse.fromSliceWithStoryInfo(summarySlice,
                 story.getId(), story.getTitle(), story.getSlug());
+        if (afterChapterNumber != null) {
+            response.setHasPrevious(true);
+        }
+        return response;
     }
 
     @Override
@@ -198,9 +229,8 @@ public class ChapterServiceImpl implements ChapterService {
         Chapter currentChapter = getChapterById(chapterId);
         Integer nextNumber = currentChapter.getChapterNumber() + 1;
 
-        return chapterRepository
-                .findByStoryIdAndChapterNumber(currentChapter.getStory().getId(), nextNumber)
-                .map(chapterMapper::toChapterResponse)
+        return findCachedChapter(currentChapter.getStory().getId(), nextNumber)
+                .map(this::toReadableChapterResponse)
                 .orElse(null);
     }
 
@@ -214,9 +244,8 @@ public class ChapterServiceImpl implements ChapterService {
         if (prevNumber <= 0)
             return null;
 
-        return chapterRepository
-                .findByStoryIdAndChapterNumber(currentChapter.getStory().getId(), prevNumber)
-                .map(chapterMapper::toChapterResponse)
+        return findCachedChapter(currentChapter.getStory().getId(), prevNumber)
+                .map(this::toReadableChapterResponse)
                 .orElse(null);
     }
 
@@ -226,9 +255,8 @@ public class ChapterServiceImpl implements ChapterService {
         log.info("Lấy chapter tiếp theo theo story và number: storyId={}, chapterNumber={}", storyId, chapterNumber);
 
         Integer nextNumber = chapterNumber + 1;
-        return chapterRepository
-                .findByStoryIdAndChapterNumber(storyId, nextNumber)
-                .map(chapterMapper::toChapterResponse)
+        return findCachedChapter(storyId, nextNumber)
+                .map(this::toReadableChapterResponse)
                 .orElse(null);
     }
 
@@ -241,9 +269,8 @@ public class ChapterServiceImpl implements ChapterService {
         if (prevNumber <= 0)
             return null;
 
-        return chapterRepository
-                .findByStoryIdAndChapterNumber(storyId, prevNumber)
-                .map(chapterMapper::toChapterResponse)
+        return findCachedChapter(storyId, prevNumber)
+                .map(this::toReadableChapterResponse)
                 .orElse(null);
     }
 
@@ -293,6 +320,17 @@ public class ChapterServiceImpl implements ChapterService {
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy truyện: " + slug));
     }
 
+    /**
+     * Tìm truyện theo ID, nếu không phải số thì tìm theo slug
+     */
+    private Story getStoryByIdentifier(String storyIdentifier) {
+        try {
+            return getStoryById(Long.parseLong(storyIdentifier));
+        } catch (NumberFormatException e) {
+            return getStoryBySlug(storyIdentifier);
+        }
+    }
+
     private Chapter getChapterById(Long chapterId) {
         return chapterRepository.findByIdWithStory(chapterId)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy chapter: " + chapterId));
@@ -309,6 +347,15 @@ public class ChapterServiceImpl implements ChapterService {
                         String.format("Không tìm thấy chapter %d của story %d", chapterNumber, storyId)));
     }
 
+    /**
+     * Đọc chapter qua cache nội dung, chỉ query DB khi cache miss
+     */
+    private Optional<ChapterContentCache.CachedChapter> findCachedChapter(Long storyId, Integer chapterNumber) {
+        return chapterContentCache.getOrLoad(storyId, chapterNumber,
+                () -> chapterRepository.findByStoryIdAndChapterNumber(storyId, chapterNumber)
+                        .map(chapterMapper::toCachedChapter));
+    }
+
     private boolean validateEditPermissions(Story story, Long userId) {
         // Admin có thể sửa mọi chapter
         if (securityUtils.isAdmin()) {
@@ -323,8 +370,40 @@ public class ChapterServiceImpl implements ChapterService {
         return true;
     }
 
-    private void validateViewPermissions(Chapter chapter, Long userId) {
-        // TODO: Implement logic kiểm tra quyền xem chapter bị khóa
-        // Hiện tại cho phép xem tất cả chapter
+    /**
+     * Chapter bị khóa chỉ được xem khi user đã mở khóa, là admin hoặc tác giả truyện
+     */
+    private void validateViewPermissions(Long storyId, Integer chapterNumber, Long userId) {
+        if (chapterLockIndex.canRead(userId, storyId, chapterNumber)) {
+            return;
+        }
+
+        if (userId != null && (securityUtils.isAdmin() || isStoryAuthor(storyId, userId))) {
+            return;
+        }
+
+        throw new ForbiddenException("Chapter đã bị khóa, vui lòng mở khóa để đọc");
+    }
+
+    private boolean isStoryAuthor(Long storyId, Long userId) {
+        return storyRepository.findById(storyId)
+                .map(story -> story.getAuthor() != null && userId.equals(story.getAuthor().getId()))
+                .orElse(false);
+    }
+
+    /**
+     * Chapter tiếp theo/trước đó: kiểm tra quyền với user hiện tại như khi đọc chapter
+     */
+    private ChapterResponse toReadableChapterResponse(ChapterContentCache.CachedChapter chapter) {
+        Long userId = securityUtils.getCurrentUserId().orElse(null);
+        validateViewPermissions(chapter.storyId(), chapter.chapterNumber(), userId);
+        return chapterMapper.toChapterResponse(chapter, userId);
+    }
+
+    /**
+     * Khách không có trạng thái mở khóa nên không cần nạp bitmap
+     */
+    private ChapterLockIndex.Snapshot lockSnapshotFor(Long userId, Long storyId) {
+        return userId != null ? chapterLockIndex.snapshot(userId, storyId) : null;
     }
 }
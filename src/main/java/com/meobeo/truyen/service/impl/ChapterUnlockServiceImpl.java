@@ -7,7 +7,6 @@ import com.meobeo.truyen.repository.ChapterPaymentRepository;
 import com.meobeo.truyen.repository.ChapterRepository;
 import com.meobeo.truyen.repository.StoryRepository;
 import com.meobeo.truyen.repository.UserWalletRepository;
-import com.meobeo.truyen.repository.WalletTransactionRepository;
 import com.meobeo.truyen.domain.request.chapter.UnlockChapterRangeRequest;
 import com.meobeo.truyen.domain.request.chapter.UnlockFullStoryRequest;
 import com.meobeo.truyen.domain.response.chapter.UnlockChapterBatchResponse;
@@ -17,7 +16,9 @@ import com.meobeo.truyen.exception.BadRequestException;
 import com.meobeo.truyen.exception.InsufficientBalanceException;
 import com.meobeo.truyen.exception.ResourceNotFoundException;
 import com.meobeo.truyen.service.interfaces.AsyncChapterUnlockService;
+import com.meobeo.truyen.service.interfaces.AsyncJobRegistry;
 import com.meobeo.truyen.service.interfaces.ChapterUnlockService;
+import com.meobeo.truyen.service.interfaces.WalletLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -26,8 +27,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -41,8 +40,11 @@ public class ChapterUnlockServiceImpl implements ChapterUnlockService {
     private final ChapterPaymentRepository chapterPaymentRepository;
     private final StoryRepository storyRepository;
     private final UserWalletRepository userWalletRepository;
-    private final WalletTransactionRepository walletTransactionRepository;
+    private final WalletLedgerService walletLedgerService;
     private final AsyncChapterUnlockService asyncChapterUnlockService;
+    private final AsyncJobRegistry asyncJobRegistry;
+    private final ChapterRangeUnlocker chapterRangeUnlocker;
+    private final ChapterLockIndex chapterLockIndex;
 
     // Constants cho discount
     private static final double BATCH_DISCOUNT_PERCENT = 0.02; // 2% cho >200 chương
@@ -66,11 +68,7 @@ public class ChapterUnlockServiceImpl implements ChapterUnlockService {
         int originalPrice = payment.getPrice();
         int finalPrice = calculateUnlockPrice(originalPrice, 1, false);
 
-        // Kiểm tra số dư
-        UserWallet wallet = getUserWallet(userId);
-        validateSufficientBalance(wallet, finalPrice);
-
-        // Thực hiện mở khóa
+        // Thực hiện mở khóa (số dư được kiểm tra khi trừ ví)
         ChapterUnlock unlock = performUnlock(userId, chapter, finalPrice, null,
                 TransactionType.CHAPTER_UNLOCK_SPIRIT_STONE);
 
@@ -101,69 +99,54 @@ public class ChapterUnlockServiceImpl implements ChapterUnlockService {
         Story story = validateStoryExists(storyId);
         validateChapterRange(request.getFromChapterNumber(), request.getToChapterNumber());
 
-        // Lấy danh sách chapter trong range
-        List<Chapter> chapters = chapterRepository.findByStoryIdAndChapterNumberBetweenOrderByChapterNumber(
-                storyId, request.getFromChapterNumber(), request.getToChapterNumber());
+        // Báo giá bằng 1 query thay vì kiểm tra từng chương
+        ChapterRangeUnlocker.Quote quote = chapterRangeUnlocker.quote(storyId, userId,
+                request.getFromChapterNumber(), request.getToChapterNumber());
 
-        if (chapters.isEmpty()) {
+        if (quote.rangeChapterCount() == 0) {
             throw new BadRequestException("Không tìm thấy chương nào trong khoảng đã chọn");
         }
 
-        // Lọc chapter bị khóa và chưa mở khóa
-        List<Chapter> lockedChapters = chapters.stream()
-                .filter(chapter -> isChapterLocked(chapter.getId()))
-                .filter(chapter -> !hasUserUnlockedChapter(userId, chapter.getId()))
-                .collect(Collectors.toList());
-
-        if (lockedChapters.isEmpty()) {
+        if (quote.lockableCount() == 0) {
             throw new BadRequestException("Tất cả chương trong khoảng đã được mở khóa hoặc không bị khóa");
         }
 
-        // Tính tổng giá
-        int totalOriginalPrice = 0;
+        // Kiểm tra sớm số dư theo báo giá, số dư được kiểm tra lại khi trừ ví
+        validateSufficientBalance(getUserWallet(userId),
+                calculateUnlockPrice(quote.totalOriginalPrice(), quote.lockableCount(), false));
 
-        for (Chapter chapter : lockedChapters) {
-            ChapterPayment payment = chapterPaymentRepository.findById(chapter.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Không tìm thấy thông tin giá chương " + chapter.getId()));
+        // Thực hiện mở khóa batch: mỗi chunk 1 câu INSERT ... SELECT
+        LocalDateTime unlockedAt = LocalDateTime.now();
+        ChapterRangeUnlocker.Result result = chapterRangeUnlocker.unlock(storyId, userId, quote, unlockedAt,
+                null, null);
 
-            int originalPrice = payment.getPrice();
-            totalOriginalPrice += originalPrice;
+        // Request song song đã mở hết các chương sau lúc báo giá: không trừ ví
+        if (result.unlockedCount() == 0) {
+            throw new BadRequestException("Tất cả chương trong khoảng đã được mở khóa hoặc không bị khóa");
         }
 
-        int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, lockedChapters.size(), false);
-
-        // Kiểm tra số dư
-        UserWallet wallet = getUserWallet(userId);
-        validateSufficientBalance(wallet, totalFinalPrice);
-
-        // Thực hiện mở khóa batch
-        LocalDateTime unlockedAt = LocalDateTime.now();
-        for (Chapter chapter : lockedChapters) {
-            ChapterPayment payment = chapterPaymentRepository.findById(chapter.getId()).orElse(null);
-            if (payment != null) {
-                int originalPrice = payment.getPrice();
-                int discountedPrice = calculateUnlockPrice(originalPrice, lockedChapters.size(), false);
-
-                performUnlock(userId, chapter, discountedPrice, null,
-                        TransactionType.CHAPTER_UNLOCK_BATCH_SPIRIT_STONE);
-            }
-        }
+        // Trừ linh thạch theo số chương thực sự được mở, số dư không đủ thì rollback toàn bộ
+        int totalOriginalPrice = result.totalOriginalPrice();
+        int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, result.unlockedCount(), false);
+        walletLedgerService.debit(userId, WalletTransaction.CurrencyType.SPIRIT_STONE, totalFinalPrice,
+                TransactionType.CHAPTER_UNLOCK_BATCH_SPIRIT_STONE,
+                "Mở khóa " + result.unlockedCount() + " chương từ chương " + request.getFromChapterNumber() +
+                        " đến chương " + request.getToChapterNumber() + " của truyện " + story.getTitle());
 
         // Tạo response
         UnlockChapterBatchResponse response = new UnlockChapterBatchResponse();
         response.setStoryId(story.getId());
         response.setStoryTitle(story.getTitle());
-        response.setTotalChaptersUnlocked(lockedChapters.size());
+        response.setTotalChaptersUnlocked(result.unlockedCount());
         response.setTotalSpiritStonesSpent(totalFinalPrice);
         response.setTotalOriginalPrice(totalOriginalPrice);
         response.setTotalDiscountedPrice(totalFinalPrice);
         response.setTotalDiscountPercent(
-                lockedChapters.size() > BATCH_DISCOUNT_THRESHOLD ? BATCH_DISCOUNT_PERCENT * 100 : 0.0);
+                result.unlockedCount() > BATCH_DISCOUNT_THRESHOLD ? BATCH_DISCOUNT_PERCENT * 100 : 0.0);
         response.setUnlockedAt(unlockedAt);
 
         log.info("Mở khóa {} chương thành công cho story {} của user {}, tiêu {} linh thạch",
-                lockedChapters.size(), story.getId(), userId, totalFinalPrice);
+                result.unlockedCount(), story.getId(), userId, totalFinalPrice);
 
         return response;
     }
@@ -176,56 +159,43 @@ public class ChapterUnlockServiceImpl implements ChapterUnlockService {
         // Validation
         Story story = validateStoryExists(storyId);
 
-        // Lấy tất cả chapter của story
-        List<Chapter> allChapters = getAllChaptersByStoryId(storyId);
+        // Báo giá toàn truyện trong 1 query
+        ChapterRangeUnlocker.Quote quote = chapterRangeUnlocker.quoteFullStory(storyId, userId);
 
-        if (allChapters.isEmpty()) {
+        if (quote.rangeChapterCount() == 0) {
             throw new BadRequestException("Truyện không có chương nào");
         }
 
-        // Lọc chapter bị khóa và chưa mở khóa
-        List<Chapter> lockedChapters = allChapters.stream()
-                .filter(chapter -> isChapterLocked(chapter.getId()))
-                .filter(chapter -> !hasUserUnlockedChapter(userId, chapter.getId()))
-                .collect(Collectors.toList());
-
-        if (lockedChapters.isEmpty()) {
+        if (quote.lockableCount() == 0) {
             throw new BadRequestException("Tất cả chương đã được mở khóa hoặc không bị khóa");
         }
 
-        // Tính tổng giá
-        int totalOriginalPrice = 0;
-        for (Chapter chapter : lockedChapters) {
-            ChapterPayment payment = chapterPaymentRepository.findById(chapter.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Không tìm thấy thông tin giá chương " + chapter.getId()));
-            totalOriginalPrice += payment.getPrice();
-        }
-
-        int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, lockedChapters.size(), true);
-
-        // Kiểm tra số dư
-        UserWallet wallet = getUserWallet(userId);
-        validateSufficientBalance(wallet, totalFinalPrice);
+        // Kiểm tra sớm số dư theo báo giá, số dư được kiểm tra lại khi trừ ví
+        validateSufficientBalance(getUserWallet(userId),
+                calculateUnlockPrice(quote.totalOriginalPrice(), quote.lockableCount(), true));
 
-        // Thực hiện mở khóa full
+        // Thực hiện mở khóa full theo keyset số chương
         LocalDateTime unlockedAt = LocalDateTime.now();
-        for (Chapter chapter : lockedChapters) {
-            ChapterPayment payment = chapterPaymentRepository.findById(chapter.getId()).orElse(null);
-            if (payment != null) {
-                int originalPrice = payment.getPrice();
-                int discountedPrice = calculateUnlockPrice(originalPrice, lockedChapters.size(), true);
-
-                performUnlock(userId, chapter, discountedPrice, null,
-                        TransactionType.CHAPTER_UNLOCK_FULL_SPIRIT_STONE);
-            }
+        ChapterRangeUnlocker.Result result = chapterRangeUnlocker.unlock(storyId, userId, quote, unlockedAt,
+                null, null);
+
+        // Request song song đã mở hết các chương sau lúc báo giá: không trừ ví
+        if (result.unlockedCount() == 0) {
+            throw new BadRequestException("Tất cả chương đã được mở khóa hoặc không bị khóa");
         }
 
+        // Trừ linh thạch theo số chương thực sự được mở
+        int totalOriginalPrice = result.totalOriginalPrice();
+        int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, result.unlockedCount(), true);
+        walletLedgerService.debit(userId, WalletTransaction.CurrencyType.SPIRIT_STONE, totalFinalPrice,
+                TransactionType.CHAPTER_UNLOCK_FULL_SPIRIT_STONE,
+                "Mở khóa full truyện " + story.getTitle() + " (" + result.unlockedCount() + " chương)");
+
         // Tạo response
         UnlockFullStoryResponse response = new UnlockFullStoryResponse();
         response.setStoryId(story.getId());
         response.setStoryTitle(story.getTitle());
-        response.setTotalChaptersUnlocked(lockedChapters.size());
+        response.setTotalChaptersUnlocked(result.unlockedCount());
         response.setTotalSpiritStonesSpent(totalFinalPrice);
         response.setTotalOriginalPrice(totalOriginalPrice);
         response.setTotalDiscountedPrice(totalFinalPrice);
@@ -233,7 +203,7 @@ public class ChapterUnlockServiceImpl implements ChapterUnlockService {
         response.setUnlockedAt(unlockedAt);
 
         log.info("Mở khóa full truyện {} thành công cho user {}, mở {} chương, tiêu {} linh thạch",
-                story.getId(), userId, lockedChapters.size(), totalFinalPrice);
+                story.getId(), userId, result.unlockedCount(), totalFinalPrice);
 
         return response;
     }
@@ -310,44 +280,31 @@ public class ChapterUnlockServiceImpl implements ChapterUnlockService {
 
     private ChapterUnlock performUnlock(Long userId, Chapter chapter, int spiritStonesSpent,
             String description, TransactionType transactionType) {
-        // Trừ linh thạch trước
-        UserWallet wallet = getUserWallet(userId);
-        wallet.setSpiritStones(wallet.getSpiritStones() - spiritStonesSpent);
-        userWalletRepository.save(wallet);
+        // Trừ linh thạch trước: 1 câu UPDATE có điều kiện, không đủ số dư thì ném lỗi
+        walletLedgerService.debit(userId, WalletTransaction.CurrencyType.SPIRIT_STONE, spiritStonesSpent,
+                transactionType, description != null ? description
+                        : "Mở khóa chương " + chapter.getTitle() + " của truyện " + chapter.getStory().getTitle());
 
         // Tạo ChapterUnlock record
         ChapterUnlockId unlockId = new ChapterUnlockId();
         unlockId.setUserId(userId);
         unlockId.setChapterId(chapter.getId());
 
+        User user = new User();
+        user.setId(userId);
+
         ChapterUnlock unlock = new ChapterUnlock();
         unlock.setId(unlockId);
-        unlock.setUser(wallet.getUser()); // Lấy user thực tế từ wallet
+        unlock.setUser(user);
         unlock.setChapter(chapter);
         unlock.setUnlockedAt(LocalDateTime.now());
 
         chapterUnlockRepository.save(unlock);
-
-        // Tạo transaction record
-        WalletTransaction transaction = new WalletTransaction();
-        transaction.setUser(wallet.getUser());
-        transaction.setAmount(-spiritStonesSpent);
-        transaction.setType(transactionType);
-        transaction.setCurrency(WalletTransaction.CurrencyType.SPIRIT_STONE);
-        transaction.setDescription(description != null ? description
-                : "Mở khóa chương " + chapter.getTitle() + " của truyện " + chapter.getStory().getTitle());
-
-        walletTransactionRepository.save(transaction);
+        chapterLockIndex.markUnlockedAfterCommit(userId, chapter.getStory().getId(), chapter.getChapterNumber());
 
         return unlock;
     }
 
-    // Helper method để lấy tất cả chapter của story
-    private List<Chapter> getAllChaptersByStoryId(Long storyId) {
-        return chapterRepository.findByStoryIdAndChapterNumberBetweenOrderByChapterNumber(storyId, 1,
-                Integer.MAX_VALUE);
-    }
-
     // Helper method để validate story exists
     private Story validateStoryExists(Long storyId) {
         return storyRepository.findById(storyId)
@@ -395,25 +352,23 @@ public class ChapterUnlockServiceImpl implements ChapterUnlockService {
 
     @Override
     public java.util.Optional<UnlockChapterBatchResponse> getAsyncUnlockRangeStatus(String jobId) {
-        return java.util.Optional.ofNullable(asyncChapterUnlockService.getUnlockRangeJobs().get(jobId));
+        return asyncJobRegistry.find(jobId, UnlockChapterBatchResponse.class);
     }
 
     @Override
     public java.util.Optional<UnlockFullStoryResponse> getAsyncUnlockFullStoryStatus(String jobId) {
-        return java.util.Optional.ofNullable(asyncChapterUnlockService.getUnlockFullStoryJobs().get(jobId));
+        return asyncJobRegistry.find(jobId, UnlockFullStoryResponse.class);
     }
 
     @Override
     public boolean cancelAsyncUnlockRange(String jobId, Long userId) {
         // Kiểm tra quyền
-        Long jobUserId = asyncChapterUnlockService.getJobUserMap().get(jobId);
+        Long jobUserId = asyncJobRegistry.findOwner(jobId).orElse(null);
         if (jobUserId == null || !jobUserId.equals(userId)) {
             return false;
         }
 
-        AtomicBoolean cancelFlag = asyncChapterUnlockService.getCancelFlags().get(jobId);
-        if (cancelFlag != null) {
-            cancelFlag.set(true);
+        if (asyncJobRegistry.requestCancel(jobId)) {
             log.info("Đã hủy job unlock range: jobId={}, userId={}", jobId, userId);
             return true;
         }
@@ -423,14 +378,12 @@ public class ChapterUnlockServiceImpl implements ChapterUnlockService {
     @Override
     public boolean cancelAsyncUnlockFullStory(String jobId, Long userId) {
         // Kiểm tra quyền
-        Long jobUserId = asyncChapterUnlockService.getJobUserMap().get(jobId);
+        Long jobUserId = asyncJobRegistry.findOwner(jobId).orElse(null);
         if (jobUserId == null || !jobUserId.equals(userId)) {
             return false;
         }
 
-        AtomicBoolean cancelFlag = asyncChapterUnlockService.getCancelFlags().get(jobId);
-        if (cancelFlag != null) {
-            cancelFlag.set(true);
+        if (asyncJobRegistry.requestCancel(jobId)) {
             log.info("Đã hủy job unlock full story: jobId={}, userId={}", jobId, userId);
             return true;
         }
@@ -444,18 +397,17 @@ public class ChapterUnlockServiceImpl implements ChapterUnlockService {
         // Validation
         Story story = validateStoryExists(storyId);
 
-        // Đếm tổng số chapter cần unlock (tối ưu query)
-        Long totalChaptersToUnlock = chapterPaymentRepository.countChaptersToUnlockByStory(storyId, userId);
-
-        // Tính tổng giá
-        int totalOriginalPrice = calculateTotalPriceForUnlock(storyId, userId);
-        int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, totalChaptersToUnlock.intValue(), true);
+        // Đếm số chapter cần unlock và tổng giá trong 1 query
+        ChapterRangeUnlocker.Quote quote = chapterRangeUnlocker.quoteFullStory(storyId, userId);
+        int totalChaptersToUnlock = quote.lockableCount();
+        int totalOriginalPrice = quote.totalOriginalPrice();
+        int totalFinalPrice = calculateUnlockPrice(totalOriginalPrice, totalChaptersToUnlock, true);
 
         // Tạo response
         UnlockFullStoryResponse response = new UnlockFullStoryResponse();
         response.setStoryId(story.getId());
         response.setStoryTitle(story.getTitle());
-        response.setTotalChaptersToUnlock(totalChaptersToUnlock.intValue());
+        response.setTotalChaptersToUnlock(totalChaptersToUnlock);
         response.setTotalChaptersUnlocked(0);
         response.setTotalOriginalPrice(totalOriginalPrice);
         response.setTotalDiscountedPrice(totalFinalPrice);
@@ -470,30 +422,4 @@ public class ChapterUnlockServiceImpl implements ChapterUnlockService {
 
         return response;
     }
-
-    /**
-     * Tính tổng giá cho việc unlock (tối ưu query)
-     */
-    private int calculateTotalPriceForUnlock(Long storyId, Long userId) {
-        int totalPrice = 0;
-        int offset = 0;
-        int limit = 100; // Lấy từng batch 100 chapter để tính giá
-
-        while (true) {
-            List<Object[]> chapters = chapterPaymentRepository.findChaptersToUnlockByStory(storyId, userId, limit,
-                    offset);
-            if (chapters.isEmpty()) {
-                break;
-            }
-
-            for (Object[] chapter : chapters) {
-                Integer price = (Integer) chapter[1]; // price ở index 1
-                totalPrice += price;
-            }
-
-            offset += limit;
-        }
-
-        return totalPrice;
-    }
 }
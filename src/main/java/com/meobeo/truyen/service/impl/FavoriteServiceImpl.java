@@ -13,6 +13,7 @@ import com.meobeo.truyen.repository.FavoriteRepository;
 import com.meobeo.truyen.repository.StoryRepository;
 import com.meobeo.truyen.repository.UserRepository;
 import com.meobeo.truyen.service.interfaces.FavoriteService;
+import com.meobeo.truyen.service.interfaces.StoryStatsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -30,6 +31,7 @@ public class FavoriteServiceImpl implements FavoriteService {
     private final StoryRepository storyRepository;
     private final UserRepository userRepository;
     private final FavoriteMapper favoriteMapper;
+    private final StoryStatsService storyStatsService;
 
     @Override
     public FavoriteResponse addToFavorite(Long storyId, Long userId) {
@@ -57,6 +59,7 @@ public class FavoriteServiceImpl implements FavoriteService {
         favorite.setStory(story);
 
         Favorite savedFavorite = favoriteRepository.save(favorite);
+        storyStatsService.incrementFavoriteCount(storyId, 1);
         log.info("Đã thêm truyện vào yêu thích thành công: storyId={}, userId={}", storyId, userId);
 
         return favoriteMapper.toFavoriteResponse(savedFavorite);
@@ -72,6 +75,7 @@ public class FavoriteServiceImpl implements FavoriteService {
         }
 
         favoriteRepository.deleteByUserIdAndStoryId(userId, storyId);
+        storyStatsService.incrementFavoriteCount(storyId, -1);
         log.info("Đã xóa truyện khỏi yêu thích thành công: storyId={}, userId={}", storyId, userId);
     }
 
@@ -89,9 +93,7 @@ public class FavoriteServiceImpl implements FavoriteService {
         Page<Favorite> favoritesPage = favoriteRepository.findByUserIdWithFetch(userId, pageable);
 
         FavoriteListResponse response = new FavoriteListResponse();
-        response.setContent(favoritesPage.getContent().stream()
-                .map(favoriteMapper::toFavoriteResponse)
-                .toList());
+        response.setContent(favoriteMapper.toFavoriteResponseList(favoritesPage.getContent()));
         response.setPage(favoritesPage.getNumber());
         response.setSize(favoritesPage.getSize());
         response.setTotalElements(favoritesPage.getTotalElements());
@@ -1,6 +1,7 @@
 package com.meobeo.truyen.service.impl;
 
 import com.meobeo.truyen.domain.entity.User;
+import com.meobeo.truyen.domain.enums.AsyncJobType;
 import com.meobeo.truyen.domain.request.story.FormatFileRequest;
 import com.meobeo.truyen.domain.response.story.FormatFileResponse;
 import com.meobeo.truyen.exception.BadRequestException;
@@ -8,29 +9,37 @@ import com.meobeo.truyen.exception.ResourceNotFoundException;
 import com.meobeo.truyen.repository.UserRepository;
 import com.meobeo.truyen.service.interfaces.FormatFileService;
 import com.meobeo.truyen.service.interfaces.AsyncFormatFileService;
+import com.meobeo.truyen.service.interfaces.AsyncJobRegistry;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FormatFileServiceImpl implements FormatFileService {
 
+    // Thư mục lưu file đã format và thời gian giữ file
+    private static final String FORMATTED_FILES_DIR = "formatted_files";
+    private static final long FORMATTED_FILE_RETENTION_MS = 24 * 60 * 60 * 1000L;
+
     private final UserRepository userRepository;
     private final AsyncFormatFileService asyncFormatFileService;
+    private final AsyncJobRegistry asyncJobRegistry;
 
     @Override
     public String startFormatFile(MultipartFile txtFile, FormatFileRequest request, Long userId) {
@@ -72,10 +81,8 @@ public class FormatFileServiceImpl implements FormatFileService {
         response.setOriginalFileName(txtFile.getOriginalFilename());
         response.setMessage("Đã nhận yêu cầu format. Đang chuẩn bị xử lý...");
 
-        // Sử dụng AsyncFormatFileService để xử lý bất đồng bộ
-        asyncFormatFileService.getFormatJobs().put(jobId, response);
-        asyncFormatFileService.getJobUserMap().put(jobId, userId);
-        asyncFormatFileService.getCancelFlags().put(jobId, new AtomicBoolean(false));
+        // Đăng ký job vào registry dùng chung để node nào cũng trả được trạng thái
+        asyncJobRegistry.register(jobId, AsyncJobType.FORMAT_FILE, userId, response);
 
         log.info("Bắt đầu gọi async task...");
         log.info("Thread trước khi gọi async: {}", Thread.currentThread().getName());
@@ -99,32 +106,19 @@ public class FormatFileServiceImpl implements FormatFileService {
 
     @Override
     public Optional<FormatFileResponse> getFormatStatus(String jobId) {
-        return Optional.ofNullable(asyncFormatFileService.getFormatJobs().get(jobId));
+        return asyncJobRegistry.find(jobId, FormatFileResponse.class);
     }
 
     @Override
     public List<FormatFileResponse> getUserFormatJobs(Long userId) {
-        List<FormatFileResponse> userJobs = new ArrayList<>();
-
-        for (Map.Entry<String, Long> entry : asyncFormatFileService.getJobUserMap().entrySet()) {
-            if (entry.getValue().equals(userId)) {
-                FormatFileResponse job = asyncFormatFileService.getFormatJobs().get(entry.getKey());
-                if (job != null) {
-                    userJobs.add(job);
-                }
-            }
-        }
-
-        // Sắp xếp theo thời gian tạo mới nhất
-        userJobs.sort((a, b) -> b.getStartTime().compareTo(a.getStartTime()));
-
-        return userJobs;
+        // Registry trả về theo thời gian tạo mới nhất
+        return asyncJobRegistry.findByUser(userId, AsyncJobType.FORMAT_FILE, FormatFileResponse.class);
     }
 
     @Override
     public boolean cancelFormat(String jobId, Long userId) {
         // Kiểm tra quyền: chỉ user tạo job hoặc admin mới được hủy
-        Long jobUserId = asyncFormatFileService.getJobUserMap().get(jobId);
+        Long jobUserId = asyncJobRegistry.findOwner(jobId).orElse(null);
         if (jobUserId == null || !jobUserId.equals(userId)) {
             // Kiểm tra xem user có phải admin không
             User user = userRepository.findById(userId).orElse(null);
@@ -134,44 +128,24 @@ public class FormatFileServiceImpl implements FormatFileService {
             }
         }
 
-        AtomicBoolean cancelFlag = asyncFormatFileService.getCancelFlags().get(jobId);
-        if (cancelFlag != null) {
-            cancelFlag.set(true);
-            FormatFileResponse response = asyncFormatFileService.getFormatJobs().get(jobId);
-            if (response != null) {
-                response.setStatus("CANCELLED");
-                response.setMessage("Format đã bị hủy bởi người dùng");
-            }
-            return true;
-        }
-        return false;
+        // Node đang chạy job sẽ thấy cờ hủy và chuyển job sang CANCELLED
+        return asyncJobRegistry.requestCancel(jobId);
     }
 
     @Override
     public void cleanupCompletedFormatJob(String jobId) {
         // Xóa file đã format nếu có
-        FormatFileResponse response = asyncFormatFileService.getFormatJobs().get(jobId);
-        if (response != null && response.getFormattedFileName() != null) {
-            try {
-                Path filePath = Paths.get("formatted_files", response.getFormattedFileName());
-                if (Files.exists(filePath)) {
-                    Files.delete(filePath);
-                    log.info("Đã xóa file đã format: {}", response.getFormattedFileName());
-                }
-            } catch (IOException e) {
-                log.warn("Không thể xóa file đã format: {}", e.getMessage());
-            }
-        }
+        asyncJobRegistry.find(jobId, FormatFileResponse.class)
+                .map(FormatFileResponse::getFormattedFileName)
+                .ifPresent(this::deleteFormattedFile);
 
-        asyncFormatFileService.getFormatJobs().remove(jobId);
-        asyncFormatFileService.getCancelFlags().remove(jobId);
-        asyncFormatFileService.getJobUserMap().remove(jobId);
+        asyncJobRegistry.remove(jobId);
     }
 
     @Override
-    public byte[] downloadFormattedFile(String jobId, Long userId) {
+    public Resource downloadFormattedFile(String jobId, Long userId) {
         // Kiểm tra quyền
-        Long jobUserId = asyncFormatFileService.getJobUserMap().get(jobId);
+        Long jobUserId = asyncJobRegistry.findOwner(jobId).orElse(null);
         if (jobUserId == null || !jobUserId.equals(userId)) {
             User user = userRepository.findById(userId).orElse(null);
             if (user == null || user.getRoles().stream()
@@ -181,7 +155,7 @@ public class FormatFileServiceImpl implements FormatFileService {
         }
 
         // Kiểm tra job đã hoàn thành chưa
-        FormatFileResponse response = asyncFormatFileService.getFormatJobs().get(jobId);
+        FormatFileResponse response = asyncJobRegistry.find(jobId, FormatFileResponse.class).orElse(null);
         if (response == null) {
             throw new ResourceNotFoundException("Không tìm thấy job format với ID: " + jobId);
         }
@@ -194,50 +168,55 @@ public class FormatFileServiceImpl implements FormatFileService {
             throw new BadRequestException("Không tìm thấy file đã format");
         }
 
-        // Đọc file
-        try {
-            Path filePath = Paths.get("formatted_files", response.getFormattedFileName());
-            if (!Files.exists(filePath)) {
-                throw new ResourceNotFoundException("File đã format không tồn tại");
-            }
-            return Files.readAllBytes(filePath);
-        } catch (IOException e) {
-            log.error("Lỗi đọc file đã format: jobId={}, error={}", jobId, e.getMessage());
-            throw new BadRequestException("Lỗi đọc file: " + e.getMessage());
+        // Không đọc file vào bộ nhớ: trả về Resource để Spring stream thẳng từ đĩa
+        Path filePath = Paths.get(FORMATTED_FILES_DIR, response.getFormattedFileName());
+        if (!Files.isRegularFile(filePath)) {
+            throw new ResourceNotFoundException("File đã format không tồn tại");
         }
+        return new FileSystemResource(filePath);
     }
 
     /**
-     * Cleanup tất cả job đã hoàn thành (COMPLETED, FAILED, CANCELLED) cũ hơn 24 giờ
+     * Xóa file đã format cũ hơn 24 giờ. Trạng thái job được registry tự xóa theo thời gian lưu
      * Được gọi bởi scheduled task
      */
     public void cleanupOldFormatJobs() {
-        LocalDateTime cutoffTime = LocalDateTime.now().minusHours(24);
-        List<String> jobsToRemove = new ArrayList<>();
-
-        for (Map.Entry<String, FormatFileResponse> entry : asyncFormatFileService.getFormatJobs().entrySet()) {
-            FormatFileResponse job = entry.getValue();
-            String status = job.getStatus();
-
-            // Chỉ cleanup job đã hoàn thành và cũ hơn 24 giờ
-            if (("COMPLETED".equals(status) || "FAILED".equals(status) || "CANCELLED".equals(status))
-                    && job.getStartTime().isBefore(cutoffTime)) {
-                jobsToRemove.add(entry.getKey());
+        Path dir = Paths.get(FORMATTED_FILES_DIR);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+
+        long cutoffMillis = System.currentTimeMillis() - FORMATTED_FILE_RETENTION_MS;
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).toMillis() < cutoffMillis) {
+                    deleteFormattedFile(file.getFileName().toString());
+                    removed++;
+                }
             }
+        } catch (IOException e) {
+            log.warn("Không thể duyệt thư mục file đã format: {}", e.getMessage());
         }
 
-        for (String jobId : jobsToRemove) {
-            cleanupCompletedFormatJob(jobId);
-            log.info("Đã cleanup job format cũ: jobId={}", jobId);
+        if (removed > 0) {
+            log.info("Đã cleanup {} file format cũ", removed);
         }
+    }
 
-        if (!jobsToRemove.isEmpty()) {
-            log.info("Đã cleanup {} job format cũ", jobsToRemove.size());
+    private void deleteFormattedFile(String formattedFileName) {
+        try {
+            Path filePath = Paths.get(FORMATTED_FILES_DIR, formattedFileName);
+            if (Files.deleteIfExists(filePath)) {
+                log.info("Đã xóa file đã format: {}", formattedFileName);
+            }
+        } catch (IOException e) {
+            log.warn("Không thể xóa file đã format: {}", e.getMessage());
         }
     }
 
     /**
-     * Scheduled task để cleanup job cũ mỗi giờ
+     * Scheduled task để cleanup file cũ mỗi giờ
      */
     @Scheduled(fixedRate = 3600000) // 1 giờ = 3600000ms
     public void scheduledCleanup() {
@@ -1,5 +1,6 @@
 package com.meobeo.truyen.service.impl;
 
+import com.meobeo.truyen.config.CacheConfig;
 import com.meobeo.truyen.domain.entity.Genre;
 import com.meobeo.truyen.domain.request.genre.CreateGenreDto;
 import com.meobeo.truyen.domain.request.genre.UpdateGenreDto;
@@ -12,6 +13,8 @@ import com.meobeo.truyen.repository.GenreRepository;
 import com.meobeo.truyen.service.interfaces.GenreService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -30,6 +33,7 @@ public class GenreServiceImpl implements GenreService {
     private final GenreMapper genreMapper;
 
     @Override
+    @CacheEvict(value = CacheConfig.GENRE_LIST, allEntries = true)
     public GenreResponseDto createGenre(CreateGenreDto createGenreDto) {
         log.info("Tạo thể loại mới: {}", createGenreDto.getName());
 
@@ -48,6 +52,7 @@ public class GenreServiceImpl implements GenreService {
     }
 
     @Override
+    @CacheEvict(value = CacheConfig.GENRE_LIST, allEntries = true)
     public GenreResponseDto updateGenre(Long id, UpdateGenreDto updateGenreDto) {
         log.info("Cập nhật thể loại với ID: {}", id);
 
@@ -103,6 +108,7 @@ public class GenreServiceImpl implements GenreService {
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(value = CacheConfig.GENRE_LIST, key = "'dropdown'")
     public List<GenreResponseDto> getAllGenresForDropdown() {
         log.info("Lấy danh sách thể loại cho dropdown");
 
@@ -113,6 +119,7 @@ public class GenreServiceImpl implements GenreService {
     }
 
     @Override
+    @CacheEvict(value = CacheConfig.GENRE_LIST, allEntries = true)
     public void deleteGenre(Long id) {
         log.info("Xóa thể loại với ID: {}", id);
 
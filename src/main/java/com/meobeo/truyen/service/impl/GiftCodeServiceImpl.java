@@ -12,9 +12,8 @@ import com.meobeo.truyen.exception.ResourceNotFoundException;
 import com.meobeo.truyen.repository.GiftCodeRepository;
 import com.meobeo.truyen.repository.GiftCodeUsageRepository;
 import com.meobeo.truyen.repository.UserRepository;
-import com.meobeo.truyen.repository.UserWalletRepository;
-import com.meobeo.truyen.repository.WalletTransactionRepository;
 import com.meobeo.truyen.service.interfaces.GiftCodeService;
+import com.meobeo.truyen.service.interfaces.WalletLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -34,8 +33,7 @@ public class GiftCodeServiceImpl implements GiftCodeService {
     private final GiftCodeRepository giftCodeRepository;
     private final GiftCodeUsageRepository giftCodeUsageRepository;
     private final UserRepository userRepository;
-    private final UserWalletRepository userWalletRepository;
-    private final WalletTransactionRepository walletTransactionRepository;
+    private final WalletLedgerService walletLedgerService;
 
     @Override
     @Transactional
@@ -168,34 +166,14 @@ public class GiftCodeServiceImpl implements GiftCodeService {
 
         giftCodeUsageRepository.save(usage);
 
-        // Xử lý ví người dùng - tạo mới nếu chưa có
-        UserWallet userWallet = userWalletRepository.findByUserId(userId)
-                .orElseGet(() -> {
-                    log.info("Tạo ví mới cho user: {}", userId);
-                    UserWallet newWallet = new UserWallet();
-                    newWallet.setUser(user);
-                    newWallet.setBalance(0);
-                    newWallet.setSpiritStones(0);
-                    return newWallet;
-                });
-
-        // Cộng linh thạch vào ví
-        int oldSpiritStones = userWallet.getSpiritStones();
-        userWallet.setSpiritStones(oldSpiritStones + giftCode.getAmount());
-        userWalletRepository.save(userWallet);
-
-        // Tạo transaction record với currency SPIRIT_STONE
-        WalletTransaction transaction = new WalletTransaction();
-        transaction.setUser(user);
-        transaction.setAmount(giftCode.getAmount());
-        transaction.setType(TransactionType.GIFT_CODE);
-        transaction.setCurrency(WalletTransaction.CurrencyType.SPIRIT_STONE);
-        transaction.setDescription("Nhận linh thạch từ gift code: " + giftCode.getName());
-
-        walletTransactionRepository.save(transaction);
+        // Cộng linh thạch vào ví (tạo ví nếu chưa có) và ghi giao dịch với currency SPIRIT_STONE
+        int newSpiritStones = walletLedgerService.credit(userId, WalletTransaction.CurrencyType.SPIRIT_STONE,
+                giftCode.getAmount(), TransactionType.GIFT_CODE,
+                "Nhận linh thạch từ gift code: " + giftCode.getName()).getSpiritStones();
 
         log.info("User {} đã sử dụng gift code {} thành công, nhận {} linh thạch. Số linh thạch cũ: {}, mới: {}",
-                userId, request.getCode(), giftCode.getAmount(), oldSpiritStones, userWallet.getSpiritStones());
+                userId, request.getCode(), giftCode.getAmount(), newSpiritStones - giftCode.getAmount(),
+                newSpiritStones);
 
         return new GiftCodeUsageResponse(
                 giftCode.getName(),
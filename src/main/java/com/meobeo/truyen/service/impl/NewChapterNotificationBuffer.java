@@ -0,0 +1,215 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.service.interfaces.NotificationService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gộp chương mới theo truyện trước khi gửi thông báo cho người theo dõi.
+ *
+ * - Chương mới chỉ được ghi nhận sau khi transaction tạo chương commit
+ * - Các chương của cùng truyện được gộp thành 1 thông báo khi truyện không có chương mới
+ *   trong notification.new-chapter.quiet-period-ms, hoặc đã chờ quá notification.new-chapter.max-wait-ms
+ *   (import TXT nhiều batch chỉ tạo 1 thông báo)
+ * - Việc gửi chạy trên notificationExecutor, không chặn request tạo chương hay job import
+ * - Gửi lỗi giữa chừng thì lần flush sau gửi tiếp từ subscriber cuối cùng đã gửi xong,
+ *   tối đa notification.new-chapter.max-attempts lần
+ */
+@Component
+@Slf4j
+public class NewChapterNotificationBuffer {
+
+    private final NotificationService notificationService;
+    private final Executor notificationExecutor;
+
+    @Value("${notification.new-chapter.quiet-period-ms:30000}")
+    private long quietPeriodMs;
+
+    @Value("${notification.new-chapter.max-wait-ms:300000}")
+    private long maxWaitMs;
+
+    @Value("${notification.new-chapter.max-attempts:5}")
+    private int maxAttempts;
+
+    // Chương mới đang chờ gửi theo storyId
+    private final ConcurrentHashMap<Long, PendingChapters> pendingStories = new ConcurrentHashMap<>();
+
+    // Thông báo gửi lỗi giữa chừng, chờ gửi tiếp (không gộp với chương mới vì 1 phần subscriber đã nhận)
+    private final ConcurrentLinkedQueue<Dispatch> retryQueue = new ConcurrentLinkedQueue<>();
+
+    // Thống kê
+    private final LongAdder recordedChapters = new LongAdder();
+    private final AtomicLong dispatchedNotifications = new AtomicLong();
+    private final AtomicLong failedDispatches = new AtomicLong();
+    private final AtomicLong rejectedDispatches = new AtomicLong();
+
+    public NewChapterNotificationBuffer(NotificationService notificationService,
+            @Qualifier("notificationExecutor") Executor notificationExecutor) {
+        this.notificationService = notificationService;
+        this.notificationExecutor = notificationExecutor;
+    }
+
+    /**
+     * Ghi nhận chương mới của truyện sau khi transaction hiện tại commit
+     */
+    public void recordAfterCommit(Long storyId, int fromChapterNumber, int toChapterNumber, int chapterCount) {
+        if (chapterCount <= 0) {
+            return;
+        }
+        Runnable record = () -> record(storyId, fromChapterNumber, toChapterNumber, chapterCount);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record.run();
+                }
+            });
+        } else {
+            record.run();
+        }
+    }
+
+    private void record(Long storyId, int fromChapterNumber, int toChapterNumber, int chapterCount) {
+        long now = System.currentTimeMillis();
+        recordedChapters.add(chapterCount);
+        pendingStories.merge(storyId,
+                new PendingChapters(fromChapterNumber, toChapterNumber, chapterCount, now, now),
+                PendingChapters::merge);
+    }
+
+    /**
+     * Gửi các truyện đã hết thời gian gộp
+     */
+    @Scheduled(fixedDelayString = "${notification.new-chapter.flush-interval-ms:5000}")
+    public void dispatchReady() {
+        // Chỉ lấy số phần tử hiện có, phần tử bị trả lại trong lúc gửi để lần flush sau
+        for (int i = retryQueue.size(); i > 0; i--) {
+            Dispatch retry = retryQueue.poll();
+            if (retry == null) {
+                break;
+            }
+            dispatch(retry);
+        }
+        if (pendingStories.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, PendingChapters> entry : pendingStories.entrySet()) {
+            PendingChapters pending = entry.getValue();
+            boolean ready = now - pending.lastAt() >= quietPeriodMs || now - pending.firstAt() >= maxWaitMs;
+            if (ready && pendingStories.remove(entry.getKey(), pending)) {
+                dispatch(new Dispatch(entry.getKey(), pending, 0L, 1));
+            }
+        }
+    }
+
+    /**
+     * Gửi nốt các truyện đang chờ khi tắt ứng dụng
+     */
+    @PreDestroy
+    public void dispatchOnShutdown() {
+        Dispatch retry;
+        while ((retry = retryQueue.poll()) != null) {
+            send(retry, false);
+        }
+        for (Long storyId : pendingStories.keySet()) {
+            PendingChapters pending = pendingStories.remove(storyId);
+            if (pending != null) {
+                send(new Dispatch(storyId, pending, 0L, 1), false);
+            }
+        }
+    }
+
+    private void dispatch(Dispatch dispatch) {
+        try {
+            notificationExecutor.execute(() -> send(dispatch, true));
+        } catch (RejectedExecutionException e) {
+            // Executor đầy: trả lại để lần sau gửi
+            rejectedDispatches.incrementAndGet();
+            if (dispatch.afterUserId() == 0L) {
+                pendingStories.merge(dispatch.storyId(), dispatch.pending(), PendingChapters::merge);
+            } else {
+                retryQueue.add(dispatch);
+            }
+            log.warn("Executor thông báo đầy, hoãn gửi thông báo chương mới: storyId={}", dispatch.storyId());
+        }
+    }
+
+    /**
+     * Gửi thông báo, lỗi giữa chừng thì đưa phần còn lại (từ subscriber cuối đã gửi) vào hàng đợi gửi lại
+     */
+    private void send(Dispatch dispatch, boolean retryOnFailure) {
+        PendingChapters pending = dispatch.pending();
+        AtomicLong lastUserId = new AtomicLong(dispatch.afterUserId());
+        try {
+            notificationService.notifyNewChapters(dispatch.storyId(), pending.fromChapterNumber(),
+                    pending.toChapterNumber(), pending.chapterCount(), dispatch.afterUserId(), lastUserId::set);
+            dispatchedNotifications.incrementAndGet();
+        } catch (Exception e) {
+            failedDispatches.incrementAndGet();
+            if (retryOnFailure && dispatch.attempt() < maxAttempts) {
+                retryQueue.add(new Dispatch(dispatch.storyId(), pending, lastUserId.get(), dispatch.attempt() + 1));
+                log.error("Lỗi gửi thông báo chương mới, sẽ gửi lại từ userId>{}: storyId={}, lần {}, error={}",
+                        lastUserId.get(), dispatch.storyId(), dispatch.attempt(), e.getMessage(), e);
+            } else {
+                log.error("Lỗi gửi thông báo chương mới, bỏ qua subscriber có userId>{}: storyId={}, lần {}, error={}",
+                        lastUserId.get(), dispatch.storyId(), dispatch.attempt(), e.getMessage(), e);
+            }
+        }
+    }
+
+    public int getPendingStories() {
+        return pendingStories.size();
+    }
+
+    public long getRecordedChapters() {
+        return recordedChapters.sum();
+    }
+
+    public long getDispatchedNotifications() {
+        return dispatchedNotifications.get();
+    }
+
+    public long getFailedDispatches() {
+        return failedDispatches.get();
+    }
+
+    public long getRejectedDispatches() {
+        return rejectedDispatches.get();
+    }
+
+    /**
+     * Các chương mới đang chờ gửi của 1 truyện
+     */
+    public record PendingChapters(int fromChapterNumber, int toChapterNumber, int chapterCount,
+            long firstAt, long lastAt) {
+
+        PendingChapters merge(PendingChapters other) {
+            return new PendingChapters(Math.min(fromChapterNumber, other.fromChapterNumber),
+                    Math.max(toChapterNumber, other.toChapterNumber),
+                    chapterCount + other.chapterCount,
+                    Math.min(firstAt, other.firstAt),
+                    Math.max(lastAt, other.lastAt));
+        }
+    }
+
+    /**
+     * 1 lần gửi thông báo: chỉ gửi cho subscriber có userId > afterUserId
+     */
+    private record Dispatch(Long storyId, PendingChapters pending, long afterUserId, int attempt) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.domain.entity.Notification;
+import com.meobeo.truyen.domain.entity.Story;
+import com.meobeo.truyen.domain.response.notification.NotificationListResponse;
+import com.meobeo.truyen.domain.response.notification.NotificationResponse;
+import com.meobeo.truyen.exception.ResourceNotFoundException;
+import com.meobeo.truyen.repository.NotificationRepository;
+import com.meobeo.truyen.repository.StoryRepository;
+import com.meobeo.truyen.repository.UserNotificationCounterRepository;
+import com.meobeo.truyen.service.interfaces.NotificationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class NotificationServiceImpl implements NotificationService {
+
+    private final NotificationRepository notificationRepository;
+    private final UserNotificationCounterRepository userNotificationCounterRepository;
+    private final StoryRepository storyRepository;
+
+    @Value("${notification.fan-out.page-size:1000}")
+    private int fanOutPageSize;
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long notifyNewChapters(Long storyId, int fromChapterNumber, int toChapterNumber, int chapterCount,
+            Long afterUserId, LongConsumer onPageSent) {
+        Optional<Story> story = storyRepository.findById(storyId);
+        if (story.isEmpty()) {
+            log.warn("Bỏ qua thông báo chương mới do không tìm thấy truyện: storyId={}", storyId);
+            return 0;
+        }
+
+        String content = buildNewChapterContent(story.get().getTitle(), fromChapterNumber, toChapterNumber,
+                chapterCount);
+        LocalDateTime now = LocalDateTime.now();
+        long startTime = System.currentTimeMillis();
+        long notified = 0;
+        int pages = 0;
+
+        // Mỗi trang là 1 câu lệnh trong transaction riêng, không giữ transaction dài hay nạp entity User
+        while (true) {
+            NotificationRepository.FanOutPageProjection page = notificationRepository.fanOutPage(storyId,
+                    afterUserId, fanOutPageSize, content, now);
+            long pageCount = page.getNotifiedCount() != null ? page.getNotifiedCount() : 0;
+            if (pageCount == 0 || page.getLastUserId() == null) {
+                break;
+            }
+            notified += pageCount;
+            pages++;
+            afterUserId = page.getLastUserId();
+            onPageSent.accept(afterUserId);
+            if (pageCount < fanOutPageSize) {
+                break;
+            }
+        }
+
+        log.info("Đã gửi thông báo chương mới: storyId={}, chapters={}-{} ({}), users={}, pages={}, {} ms",
+                storyId, fromChapterNumber, toChapterNumber, chapterCount, notified, pages,
+                System.currentTimeMillis() - startTime);
+        return notified;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public NotificationListResponse getUserNotifications(Long userId, Pageable pageable) {
+        Page<Notification> notificationPage = notificationRepository.findByUserId(userId, pageable);
+
+        NotificationListResponse response = new NotificationListResponse();
+        response.setContent(notificationPage.getContent().stream()
+                .map(this::toNotificationResponse)
+                .toList());
+        response.setPage(notificationPage.getNumber());
+        response.setSize(notificationPage.getSize());
+        response.setTotalElements(notificationPage.getTotalElements());
+        response.setTotalPages(notificationPage.getTotalPages());
+        response.setHasNext(notificationPage.hasNext());
+        response.setHasPrevious(notificationPage.hasPrevious());
+        return response;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getUnreadCount(Long userId) {
+        return userNotificationCounterRepository.findUnreadCount(userId).orElse(0L);
+    }
+
+    @Override
+    public void markAsRead(Long notificationId, Long userId) {
+        long updated = notificationRepository.markAsRead(notificationId, userId, LocalDateTime.now());
+        if (updated == 0 && !notificationRepository.existsByIdAndUserId(notificationId, userId)) {
+            throw new ResourceNotFoundException("Không tìm thấy thông báo với ID: " + notificationId);
+        }
+    }
+
+    @Override
+    public long markAllAsRead(Long userId) {
+        long updated = notificationRepository.markAllAsRead(userId, LocalDateTime.now());
+        log.info("Đánh dấu đã đọc tất cả thông báo: userId={}, count={}", userId, updated);
+        return updated;
+    }
+
+    private NotificationResponse toNotificationResponse(Notification notification) {
+        NotificationResponse response = new NotificationResponse();
+        response.setId(notification.getId());
+        response.setStoryId(notification.getStoryId());
+        response.setContent(notification.getContent());
+        response.setIsRead(Boolean.TRUE.equals(notification.getIsRead()));
+        response.setCreatedAt(notification.getCreatedAt());
+        return response;
+    }
+
+    private String buildNewChapterContent(String storyTitle, int fromChapterNumber, int toChapterNumber,
+            int chapterCount) {
+        if (chapterCount <= 1 || fromChapterNumber == toChapterNumber) {
+            return "Truyện \"" + storyTitle + "\" vừa cập nhật chương " + toChapterNumber;
+        }
+        return "Truyện \"" + storyTitle + "\" vừa cập nhật " + chapterCount + " chương mới (chương "
+                + fromChapterNumber + " - " + toChapterNumber + ")";
+    }
+}
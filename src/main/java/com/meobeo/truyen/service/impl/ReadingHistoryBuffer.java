@@ -0,0 +1,210 @@
+package com.meobeo.truyen.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bộ đệm write-behind cho vị trí đọc (reading_history).
+ *
+ * - Mỗi (userId, storyId) chỉ giữ lần đọc mới nhất (last-write-wins), các lần lật trang liên tiếp được gộp lại
+ * - Đọc vị trí đọc đi qua buffer trước rồi mới tới DB
+ * - Entry chỉ bị gỡ khỏi buffer sau khi đã ghi xuống DB và không có lần đọc mới hơn,
+ *   nên lúc đang flush vẫn đọc được vị trí đọc mới nhất
+ * - Dữ liệu được {@link ReadingHistoryFlushService} ghi xuống reading_history theo lô
+ */
+@Component
+@Slf4j
+public class ReadingHistoryBuffer {
+
+    @Value("${reading-history.buffer.max-pending:100000}")
+    private int maxPending;
+
+    // userId -> (storyId -> lần đọc chưa ghi)
+    private final ConcurrentHashMap<Long, Map<Long, PendingRead>> pendingReads = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    // Thống kê
+    private final LongAdder recordedReads = new LongAdder();
+    private final LongAdder bufferFullWrites = new LongAdder();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushCount = new AtomicLong();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+
+    /**
+     * Ghi nhận lần đọc. Trả về false nếu buffer đã đầy, khi đó người gọi phải ghi thẳng xuống DB
+     */
+    public boolean record(Long userId, Long storyId, Long chapterId, LocalDateTime readAt) {
+        recordedReads.increment();
+        if (pendingCount.get() >= maxPending && find(userId, storyId).isEmpty()) {
+            bufferFullWrites.increment();
+            return false;
+        }
+
+        PendingRead read = new PendingRead(chapterId, readAt);
+        pendingReads.compute(userId, (id, stories) -> {
+            Map<Long, PendingRead> target = stories != null ? stories : new ConcurrentHashMap<>();
+            PendingRead previous = target.get(storyId);
+            if (previous == null) {
+                pendingCount.incrementAndGet();
+            }
+            if (previous == null || !previous.readAt().isAfter(readAt)) {
+                target.put(storyId, read);
+            }
+            return target;
+        });
+        return true;
+    }
+
+    /**
+     * Lần đọc chưa ghi xuống DB của user trong story
+     */
+    public Optional<PendingRead> find(Long userId, Long storyId) {
+        Map<Long, PendingRead> stories = pendingReads.get(userId);
+        return stories != null ? Optional.ofNullable(stories.get(storyId)) : Optional.empty();
+    }
+
+    /**
+     * Entry trong snapshot vẫn còn là lần đọc chờ ghi (chưa bị xóa, chưa có lần đọc mới hơn)
+     */
+    public boolean isPending(FlushEntry entry) {
+        return find(entry.userId(), entry.storyId()).filter(entry.read()::equals).isPresent();
+    }
+
+    /**
+     * Bỏ lần đọc chưa ghi của user trong story. Trả về true nếu có entry bị bỏ
+     */
+    public boolean discard(Long userId, Long storyId) {
+        boolean[] removed = new boolean[1];
+        pendingReads.computeIfPresent(userId, (id, stories) -> {
+            if (stories.remove(storyId) != null) {
+                pendingCount.decrementAndGet();
+                removed[0] = true;
+            }
+            return stories.isEmpty() ? null : stories;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Bỏ mọi lần đọc chưa ghi của user
+     */
+    public void discardUser(Long userId) {
+        Map<Long, PendingRead> removed = pendingReads.remove(userId);
+        if (removed != null) {
+            pendingCount.addAndGet(-removed.size());
+        }
+    }
+
+    /**
+     * Chụp các lần đọc đang chờ ghi (không gỡ khỏi buffer)
+     */
+    public List<FlushEntry> snapshot() {
+        List<FlushEntry> entries = new ArrayList<>(pendingCount.get());
+        pendingReads.forEach((userId, stories) -> stories
+                .forEach((storyId, read) -> entries.add(new FlushEntry(userId, storyId, read))));
+        return entries;
+    }
+
+    /**
+     * Chụp các lần đọc đang chờ ghi của 1 user
+     */
+    public List<FlushEntry> snapshotUser(Long userId) {
+        Map<Long, PendingRead> stories = pendingReads.get(userId);
+        if (stories == null) {
+            return List.of();
+        }
+        List<FlushEntry> entries = new ArrayList<>(stories.size());
+        stories.forEach((storyId, read) -> entries.add(new FlushEntry(userId, storyId, read)));
+        return entries;
+    }
+
+    /**
+     * Gỡ các entry đã ghi xuống DB. Entry đã có lần đọc mới hơn trong lúc flush được giữ lại cho lần sau
+     */
+    public void removeFlushed(List<FlushEntry> entries) {
+        for (FlushEntry entry : entries) {
+            pendingReads.computeIfPresent(entry.userId(), (id, stories) -> {
+                if (stories.remove(entry.storyId(), entry.read())) {
+                    pendingCount.decrementAndGet();
+                }
+                return stories.isEmpty() ? null : stories;
+            });
+        }
+    }
+
+    public void recordFlush(long rows, long elapsedMillis) {
+        flushedRows.addAndGet(rows);
+        flushCount.incrementAndGet();
+        lastFlushMillis.set(elapsedMillis);
+        maxFlushMillis.accumulateAndGet(elapsedMillis, Math::max);
+    }
+
+    public void recordFlushFailure() {
+        failedFlushCount.incrementAndGet();
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getRecordedReads() {
+        return recordedReads.sum();
+    }
+
+    public long getBufferFullWrites() {
+        return bufferFullWrites.sum();
+    }
+
+    public long getFlushedRows() {
+        return flushedRows.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getFailedFlushCount() {
+        return failedFlushCount.get();
+    }
+
+    public long getLastFlushMillis() {
+        return lastFlushMillis.get();
+    }
+
+    public long getMaxFlushMillis() {
+        return maxFlushMillis.get();
+    }
+
+    /**
+     * Tỉ lệ gộp: số lần đọc được ghi nhận trên mỗi dòng thực sự ghi xuống DB
+     */
+    public double getCoalescingRatio() {
+        long written = flushedRows.get() + bufferFullWrites.sum();
+        return written > 0 ? (double) recordedReads.sum() / written : 0.0;
+    }
+
+    /**
+     * Lần đọc chưa ghi: chapter và thời điểm đọc
+     */
+    public record PendingRead(Long chapterId, LocalDateTime readAt) {
+    }
+
+    /**
+     * Lần đọc chờ ghi kèm key (userId, storyId)
+     */
+    public record FlushEntry(Long userId, Long storyId, PendingRead read) {
+    }
+}
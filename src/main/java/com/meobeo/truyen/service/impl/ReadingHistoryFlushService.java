@@ -0,0 +1,40 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.service.interfaces.ReadingHistoryService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReadingHistoryFlushService {
+
+    private final ReadingHistoryService readingHistoryService;
+    private final ReadingHistoryBuffer readingHistoryBuffer;
+
+    /**
+     * Flush vị trí đọc đang buffer xuống reading_history định kỳ (mặc định 5 giây)
+     */
+    @Scheduled(fixedDelayString = "${reading-history.buffer.flush-interval-ms:5000}")
+    public void flushReadingHistory() {
+        try {
+            readingHistoryService.flushBufferedReadings();
+        } catch (Exception e) {
+            log.error("Lỗi flush lịch sử đọc: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Flush lần cuối khi tắt ứng dụng để không mất vị trí đọc trong buffer
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        int flushed = readingHistoryService.flushBufferedReadings();
+        log.info("Flush lịch sử đọc khi shutdown: {} dòng, còn lại {} chưa ghi (recorded={}, coalescing={})",
+                flushed, readingHistoryBuffer.getPendingCount(), readingHistoryBuffer.getRecordedReads(),
+                String.format("%.2f", readingHistoryBuffer.getCoalescingRatio()));
+    }
+}
@@ -3,7 +3,6 @@ package com.meobeo.truyen.service.impl;
 import com.meobeo.truyen.domain.entity.Chapter;
 import com.meobeo.truyen.domain.entity.ReadingHistory;
 import com.meobeo.truyen.domain.entity.ReadingHistoryId;
-import com.meobeo.truyen.domain.entity.User;
 import com.meobeo.truyen.domain.response.reading.ReadingHistoryListResponse;
 import com.meobeo.truyen.domain.response.reading.ReadingHistoryResponse;
 import com.meobeo.truyen.domain.response.reading.LastReadChapterResponse;
@@ -18,11 +17,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -34,56 +37,59 @@ public class ReadingHistoryServiceImpl implements ReadingHistoryService {
     private final ChapterRepository chapterRepository;
     private final UserRepository userRepository;
     private final ReadingHistoryMapper readingHistoryMapper;
+    private final ReadingHistoryBuffer readingHistoryBuffer;
 
-    @Override
-    public ReadingHistoryResponse recordReading(Long chapterId, Long userId) {
-        log.info("Ghi lại lịch sử đọc: chapterId={}, userId={}", chapterId, userId);
+    // Số dòng tối đa trong 1 câu upsert
+    private static final int FLUSH_CHUNK_SIZE = 1000;
 
-        // Kiểm tra user và chapter tồn tại
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy user với ID: " + userId));
+    // Ghi chunk giữ read lock, xóa lịch sử giữ write lock: flush đang chạy không ghi lại dòng vừa bị xóa
+    private final ReadWriteLock deleteLock = new ReentrantReadWriteLock();
 
-        Chapter chapter = chapterRepository.findById(chapterId)
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReadingHistoryResponse recordReading(Long chapterId, Long userId) {
+        // Chỉ đọc chapter (kèm story), vị trí đọc được ghi vào buffer và flush theo lô.
+        // User/chapter bị xóa trước khi flush sẽ bị bỏ qua ở câu upsert
+        Chapter chapter = chapterRepository.findByIdWithStory(chapterId)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy chapter với ID: " + chapterId));
 
         Long storyId = chapter.getStory().getId();
-
-        // Kiểm tra xem đã có lịch sử đọc cho story này chưa
-        Optional<ReadingHistory> existingHistory = readingHistoryRepository.findByUserIdAndStoryId(userId, storyId);
-
-        ReadingHistory readingHistory;
-        if (existingHistory.isPresent()) {
-            // Cập nhật chapter mới nhất
-            readingHistory = existingHistory.get();
-            readingHistory.setChapterId(chapterId);
-            readingHistory.setChapter(chapter);
-            readingHistory.setLastReadAt(LocalDateTime.now());
-            log.info("Cập nhật lịch sử đọc: storyId={}, chapterId={}", storyId, chapterId);
-        } else {
-            // Tạo mới lịch sử đọc
-            readingHistory = new ReadingHistory();
-            ReadingHistoryId id = new ReadingHistoryId();
-            id.setUserId(userId);
-            id.setStoryId(storyId);
-            readingHistory.setId(id);
-            readingHistory.setUser(user);
-            readingHistory.setChapterId(chapterId);
-            readingHistory.setChapter(chapter);
-            readingHistory.setStory(chapter.getStory());
-            readingHistory.setLastReadAt(LocalDateTime.now());
-            log.info("Tạo mới lịch sử đọc: storyId={}, chapterId={}", storyId, chapterId);
+        LocalDateTime readAt = LocalDateTime.now();
+
+        if (!readingHistoryBuffer.record(userId, storyId, chapterId, readAt)) {
+            // Buffer đầy: ghi thẳng xuống DB (transaction riêng của câu upsert)
+            deleteLock.readLock().lock();
+            try {
+                upsertChunk(List.of(new ReadingHistoryBuffer.FlushEntry(userId, storyId,
+                        new ReadingHistoryBuffer.PendingRead(chapterId, readAt))));
+            } finally {
+                deleteLock.readLock().unlock();
+            }
         }
 
-        // Lưu vào database
-        readingHistory = readingHistoryRepository.save(readingHistory);
+        log.debug("Ghi lại lịch sử đọc: chapterId={}, userId={}, storyId={}", chapterId, userId, storyId);
+        return readingHistoryMapper.toReadingHistoryResponse(toReadingHistory(userId, chapter, readAt));
+    }
 
-        log.info("Đã ghi lại lịch sử đọc thành công: chapterId={}, userId={}, storyId={}", chapterId, userId, storyId);
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int flushBufferedReadings() {
+        List<ReadingHistoryBuffer.FlushEntry> entries = readingHistoryBuffer.snapshot();
+        if (entries.isEmpty()) {
+            return 0;
+        }
 
-        return readingHistoryMapper.toReadingHistoryResponse(readingHistory);
+        long startTime = System.currentTimeMillis();
+        int flushedRows = writeEntries(entries);
+        long elapsedMillis = System.currentTimeMillis() - startTime;
+        readingHistoryBuffer.recordFlush(flushedRows, elapsedMillis);
+        log.debug("Đã flush {}/{} vị trí đọc xuống reading_history trong {} ms",
+                flushedRows, entries.size(), elapsedMillis);
+        return flushedRows;
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ReadingHistoryListResponse getUserReadingHistory(Long userId, Pageable pageable) {
         log.info("Lấy lịch sử đọc của user: userId={}, page={}, size={}",
                 userId, pageable.getPageNumber(), pageable.getPageSize());
@@ -93,6 +99,9 @@ public class ReadingHistoryServiceImpl implements ReadingHistoryService {
             throw new ResourceNotFoundException("Không tìm thấy user với ID: " + userId);
         }
 
+        // Danh sách đọc từ DB: ghi trước các vị trí đọc đang buffer của user.
+        // Hàm không mở transaction để câu upsert không phải mượn connection thứ 2
+        flushUser(userId);
         Page<ReadingHistory> readingHistoryPage = readingHistoryRepository.findByUserIdWithFetch(userId, pageable);
 
         ReadingHistoryListResponse response = new ReadingHistoryListResponse();
@@ -122,7 +131,8 @@ public class ReadingHistoryServiceImpl implements ReadingHistoryService {
             throw new ResourceNotFoundException("Không tìm thấy user với ID: " + userId);
         }
 
-        return readingHistoryRepository.findByUserIdAndStoryIdWithFetch(userId, storyId)
+        return findReadingHistory(userId, storyId,
+                () -> readingHistoryRepository.findByUserIdAndStoryIdWithFetch(userId, storyId))
                 .map(readingHistoryMapper::toReadingHistoryResponse)
                 .orElse(null);
     }
@@ -137,15 +147,17 @@ public class ReadingHistoryServiceImpl implements ReadingHistoryService {
             throw new ResourceNotFoundException("Không tìm thấy user với ID: " + userId);
         }
 
-        // Lấy chapter cuối cùng đã đọc trong story
-        return readingHistoryRepository.findLastReadChapterByUserAndStory(userId, storyId)
+        // Lấy chapter cuối cùng đã đọc trong story (buffer trước, DB sau)
+        return findReadingHistory(userId, storyId,
+                () -> readingHistoryRepository.findLastReadChapterByUserAndStory(userId, storyId))
                 .map(readingHistoryMapper::toLastReadChapterResponse)
                 .orElse(null);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Long countUserReadStories(Long userId) {
+        flushUser(userId);
         return readingHistoryRepository.countByUserId(userId);
     }
 
@@ -153,11 +165,17 @@ public class ReadingHistoryServiceImpl implements ReadingHistoryService {
     public void deleteReadingHistory(Long userId, Long storyId) {
         log.info("Xóa lịch sử đọc: userId={}, storyId={}", userId, storyId);
 
-        if (!readingHistoryRepository.existsByUserIdAndStoryId(userId, storyId)) {
-            throw new ResourceNotFoundException("Không tìm thấy lịch sử đọc");
-        }
+        deleteLock.writeLock().lock();
+        try {
+            boolean discarded = readingHistoryBuffer.discard(userId, storyId);
+            if (!discarded && !readingHistoryRepository.existsByUserIdAndStoryId(userId, storyId)) {
+                throw new ResourceNotFoundException("Không tìm thấy lịch sử đọc");
+            }
 
-        readingHistoryRepository.deleteByUserIdAndStoryId(userId, storyId);
+            readingHistoryRepository.deleteByUserIdAndStoryId(userId, storyId);
+        } finally {
+            deleteLock.writeLock().unlock();
+        }
         log.info("Đã xóa lịch sử đọc thành công: userId={}, storyId={}", userId, storyId);
     }
 
@@ -165,18 +183,25 @@ public class ReadingHistoryServiceImpl implements ReadingHistoryService {
     public void clearUserReadingHistory(Long userId) {
         log.info("Xóa tất cả lịch sử đọc của user: userId={}", userId);
 
-        readingHistoryRepository.deleteAllByUserId(userId);
+        deleteLock.writeLock().lock();
+        try {
+            readingHistoryBuffer.discardUser(userId);
+            readingHistoryRepository.deleteAllByUserId(userId);
+        } finally {
+            deleteLock.writeLock().unlock();
+        }
         log.info("Đã xóa tất cả lịch sử đọc thành công: userId={}", userId);
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean hasUserReadStory(Long userId, Long storyId) {
-        return readingHistoryRepository.existsByUserIdAndStoryId(userId, storyId);
+        return readingHistoryBuffer.find(userId, storyId).isPresent()
+                || readingHistoryRepository.existsByUserIdAndStoryId(userId, storyId);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ReadingHistoryListResponse getLastReadStoriesByUser(Long userId) {
         log.info("Lấy danh sách story đã đọc của user: userId={}", userId);
 
@@ -185,6 +210,7 @@ public class ReadingHistoryServiceImpl implements ReadingHistoryService {
             throw new ResourceNotFoundException("Không tìm thấy user với ID: " + userId);
         }
 
+        flushUser(userId);
         List<ReadingHistory> lastReadStories = readingHistoryRepository.findLastReadStoriesByUser(userId);
 
         ReadingHistoryListResponse response = new ReadingHistoryListResponse();
@@ -203,4 +229,93 @@ public class ReadingHistoryServiceImpl implements ReadingHistoryService {
 
         return response;
     }
+
+    /**
+     * Vị trí đọc của user trong story: lấy từ buffer nếu chưa flush, ngược lại đọc DB
+     */
+    private Optional<ReadingHistory> findReadingHistory(Long userId, Long storyId,
+            Supplier<Optional<ReadingHistory>> databaseLookup) {
+        Optional<ReadingHistoryBuffer.PendingRead> pendingRead = readingHistoryBuffer.find(userId, storyId);
+        if (pendingRead.isPresent()) {
+            ReadingHistoryBuffer.PendingRead read = pendingRead.get();
+            Optional<Chapter> chapter = chapterRepository.findByIdWithStory(read.chapterId());
+            if (chapter.isPresent()) {
+                return Optional.of(toReadingHistory(userId, chapter.get(), read.readAt()));
+            }
+        }
+        return databaseLookup.get();
+    }
+
+    /**
+     * ReadingHistory tạm (không lưu) dùng để map response
+     */
+    private ReadingHistory toReadingHistory(Long userId, Chapter chapter, LocalDateTime readAt) {
+        ReadingHistoryId id = new ReadingHistoryId();
+        id.setUserId(userId);
+        id.setStoryId(chapter.getStory().getId());
+
+        ReadingHistory readingHistory = new ReadingHistory();
+        readingHistory.setId(id);
+        readingHistory.setChapterId(chapter.getId());
+        readingHistory.setChapter(chapter);
+        readingHistory.setStory(chapter.getStory());
+        readingHistory.setLastReadAt(readAt);
+        return readingHistory;
+    }
+
+    /**
+     * Ghi ngay các vị trí đọc đang buffer của user (trước khi đọc danh sách từ DB)
+     */
+    private void flushUser(Long userId) {
+        List<ReadingHistoryBuffer.FlushEntry> entries = readingHistoryBuffer.snapshotUser(userId);
+        if (!entries.isEmpty()) {
+            writeEntries(entries);
+        }
+    }
+
+    /**
+     * Ghi theo chunk, entry ghi thành công được gỡ khỏi buffer. Chunk lỗi được giữ lại cho lần flush sau.
+     * Entry đã bị xóa (hoặc có lần đọc mới hơn) sau lúc chụp snapshot sẽ được bỏ qua
+     */
+    private int writeEntries(List<ReadingHistoryBuffer.FlushEntry> entries) {
+        int flushedRows = 0;
+        for (int from = 0; from < entries.size(); from += FLUSH_CHUNK_SIZE) {
+            List<ReadingHistoryBuffer.FlushEntry> snapshotChunk = entries.subList(from,
+                    Math.min(from + FLUSH_CHUNK_SIZE, entries.size()));
+            deleteLock.readLock().lock();
+            try {
+                List<ReadingHistoryBuffer.FlushEntry> chunk = snapshotChunk.stream()
+                        .filter(readingHistoryBuffer::isPending)
+                        .toList();
+                if (!chunk.isEmpty()) {
+                    upsertChunk(chunk);
+                    readingHistoryBuffer.removeFlushed(chunk);
+                    flushedRows += chunk.size();
+                }
+            } catch (Exception e) {
+                readingHistoryBuffer.recordFlushFailure();
+                log.error("Lỗi khi flush {} vị trí đọc xuống reading_history: {}",
+                        entries.size() - from, e.getMessage(), e);
+                break;
+            } finally {
+                deleteLock.readLock().unlock();
+            }
+        }
+        return flushedRows;
+    }
+
+    private void upsertChunk(List<ReadingHistoryBuffer.FlushEntry> chunk) {
+        Long[] userIds = new Long[chunk.size()];
+        Long[] storyIds = new Long[chunk.size()];
+        Long[] chapterIds = new Long[chunk.size()];
+        String[] readAts = new String[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            ReadingHistoryBuffer.FlushEntry entry = chunk.get(i);
+            userIds[i] = entry.userId();
+            storyIds[i] = entry.storyId();
+            chapterIds[i] = entry.read().chapterId();
+            readAts[i] = entry.read().readAt().toString();
+        }
+        readingHistoryRepository.upsertReadingPositions(userIds, storyIds, chapterIds, readAts);
+    }
 }
@@ -3,26 +3,23 @@ package com.meobeo.truyen.service.impl;
 import com.meobeo.truyen.domain.entity.Story;
 import com.meobeo.truyen.domain.entity.StoryRecommendation;
 import com.meobeo.truyen.domain.entity.User;
-import com.meobeo.truyen.domain.entity.UserWallet;
 import com.meobeo.truyen.domain.entity.WalletTransaction;
 import com.meobeo.truyen.domain.enums.TransactionType;
 import com.meobeo.truyen.domain.mapper.RecommendationMapper;
 import com.meobeo.truyen.domain.repository.StoryRecommendationRepository;
 import com.meobeo.truyen.repository.StoryRepository;
 import com.meobeo.truyen.repository.UserRepository;
-import com.meobeo.truyen.repository.UserWalletRepository;
-import com.meobeo.truyen.repository.WalletTransactionRepository;
 import com.meobeo.truyen.domain.request.recommendation.CreateRecommendationRequest;
 import com.meobeo.truyen.domain.response.recommendation.RecommendationListResponse;
 import com.meobeo.truyen.domain.response.recommendation.RecommendationResponse;
 import com.meobeo.truyen.domain.response.recommendation.TopRecommendedStoriesResponse;
 import com.meobeo.truyen.domain.response.story.StoryResponse;
 import com.meobeo.truyen.exception.BadRequestException;
-import com.meobeo.truyen.exception.InsufficientBalanceException;
 import com.meobeo.truyen.exception.ResourceNotFoundException;
 import com.meobeo.truyen.exception.UserNotFoundException;
 import com.meobeo.truyen.mapper.StoryMapper;
 import com.meobeo.truyen.service.interfaces.RecommendationService;
+import com.meobeo.truyen.service.interfaces.WalletLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -41,8 +38,7 @@ public class RecommendationServiceImpl implements RecommendationService {
     private final StoryRecommendationRepository storyRecommendationRepository;
     private final UserRepository userRepository;
     private final StoryRepository storyRepository;
-    private final UserWalletRepository userWalletRepository;
-    private final WalletTransactionRepository walletTransactionRepository;
+    private final WalletLedgerService walletLedgerService;
     private final RecommendationMapper recommendationMapper;
     private final StoryMapper storyMapper;
 
@@ -82,27 +78,9 @@ public class RecommendationServiceImpl implements RecommendationService {
             throw new BadRequestException("Bạn đã đạt giới hạn đề cử trong ngày (" + MAX_RECOMMENDATIONS_PER_DAY + ")");
         }
 
-        // Kiểm tra số phiếu đề cử
-        UserWallet userWallet = userWalletRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy ví của người dùng"));
-
-        if (userWallet.getRecommendationTickets() < 1) {
-            throw new InsufficientBalanceException(
-                    "Không đủ phiếu đề cử. Cần: 1, Hiện có: " + userWallet.getRecommendationTickets());
-        }
-
-        // Trừ phiếu đề cử
-        userWallet.setRecommendationTickets(userWallet.getRecommendationTickets() - 1);
-        userWalletRepository.save(userWallet);
-
-        // Tạo giao dịch ví
-        WalletTransaction transaction = new WalletTransaction();
-        transaction.setAmount(-1);
-        transaction.setCurrency(WalletTransaction.CurrencyType.RECOMMENDATION_TICKET);
-        transaction.setType(TransactionType.RECOMMENDATION_TICKET_SPEND);
-        transaction.setDescription("Tiêu phiếu đề cử cho truyện: " + story.getTitle());
-        transaction.setUser(user);
-        walletTransactionRepository.save(transaction);
+        // Trừ 1 phiếu đề cử (kiểm tra số phiếu ngay trong câu UPDATE) và ghi giao dịch ví
+        walletLedgerService.debit(userId, WalletTransaction.CurrencyType.RECOMMENDATION_TICKET, 1,
+                TransactionType.RECOMMENDATION_TICKET_SPEND, "Tiêu phiếu đề cử cho truyện: " + story.getTitle());
 
         // Tạo đề cử
         StoryRecommendation recommendation = recommendationMapper.toEntity(request, userId);
@@ -19,6 +19,7 @@ import com.meobeo.truyen.repository.TopupPackageRepository;
 import com.meobeo.truyen.repository.UserRepository;
 import com.meobeo.truyen.service.interfaces.SePayService;
 import com.meobeo.truyen.service.interfaces.VoucherService;
+import com.meobeo.truyen.service.interfaces.WalletLedgerService;
 import com.meobeo.truyen.service.interfaces.AsyncEmailService;
 import com.meobeo.truyen.domain.mapper.SePayMapper;
 import com.meobeo.truyen.utils.CurrencyFormatUtil;
@@ -46,6 +47,7 @@ public class SePayServiceImpl implements SePayService {
     private final SePayTopupRequestRepository sePayTopupRequestRepository;
     private final UserWalletRepository userWalletRepository;
     private final WalletTransactionRepository walletTransactionRepository;
+    private final WalletLedgerService walletLedgerService;
     private final TopupPackageRepository topupPackageRepository;
     private final VoucherService voucherService;
     private final SePayMapper sePayMapper;
@@ -275,24 +277,16 @@ public class SePayServiceImpl implements SePayService {
      * Cập nhật ví người dùng
      */
     private void updateUserWallet(SePayTopupRequest topupRequest) {
-        UserWallet wallet = userWalletRepository.findById(topupRequest.getUserId())
-                .orElseGet(() -> {
-                    UserWallet newWallet = new UserWallet();
-                    newWallet.setUserId(topupRequest.getUserId());
-                    newWallet.setBalance(0);
-                    newWallet.setSpiritStones(0);
-                    return newWallet;
-                });
-
-        // Cộng tiền vào ví (số tiền gốc của gói, không phải số tiền đã giảm giá)
-        int oldBalance = wallet.getBalance();
+        // Cộng tiền vào ví (số tiền gốc của gói, không phải số tiền đã giảm giá).
+        // Lịch sử giao dịch được ghi riêng ở createWalletTransaction
         int addedAmount = topupRequest.getOriginalAmount().intValue();
-        wallet.setBalance(oldBalance + addedAmount);
-        userWalletRepository.save(wallet);
+        int newBalance = walletLedgerService.adjust(topupRequest.getUserId(), WalletTransaction.CurrencyType.VND,
+                addedAmount).getBalance();
+        int oldBalance = newBalance - addedAmount;
 
         log.info(
                 "💰 Cộng tiền vào ví: user={}, balance cũ={}, cộng thêm={}, balance mới={} (gói gốc: {}, giảm giá: {})",
-                topupRequest.getUserId(), oldBalance, addedAmount, wallet.getBalance(),
+                topupRequest.getUserId(), oldBalance, addedAmount, newBalance,
                 topupRequest.getOriginalAmount(), topupRequest.getDiscountAmount());
     }
 
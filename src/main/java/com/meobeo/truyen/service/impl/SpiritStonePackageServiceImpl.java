@@ -1,8 +1,8 @@
 package com.meobeo.truyen.service.impl;
 
+import com.meobeo.truyen.config.CacheConfig;
 import com.meobeo.truyen.domain.entity.SpiritStonePackage;
 import com.meobeo.truyen.domain.entity.User;
-import com.meobeo.truyen.domain.entity.UserWallet;
 import com.meobeo.truyen.domain.entity.WalletTransaction;
 import com.meobeo.truyen.domain.enums.TransactionType;
 import com.meobeo.truyen.domain.repository.SpiritStonePackageRepository;
@@ -14,20 +14,23 @@ import com.meobeo.truyen.domain.response.spiritstone.ExchangeHistoryListResponse
 import com.meobeo.truyen.domain.response.spiritstone.SpiritStonePackageListResponse;
 import com.meobeo.truyen.domain.response.spiritstone.SpiritStonePackageResponse;
 import com.meobeo.truyen.domain.response.spiritstone.WalletBalanceResponse;
-import com.meobeo.truyen.exception.InsufficientBalanceException;
 import com.meobeo.truyen.exception.PackageNotFoundException;
 import com.meobeo.truyen.mapper.ExchangeHistoryMapper;
 import com.meobeo.truyen.mapper.SpiritStonePackageMapper;
 import com.meobeo.truyen.repository.UserWalletRepository;
 import com.meobeo.truyen.repository.WalletTransactionRepository;
 import com.meobeo.truyen.service.interfaces.SpiritStonePackageService;
+import com.meobeo.truyen.service.interfaces.WalletLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import com.meobeo.truyen.domain.response.spiritstone.ExchangeHistoryResponse;
 
@@ -37,7 +40,7 @@ import com.meobeo.truyen.domain.response.spiritstone.ExchangeHistoryResponse;
 public class SpiritStonePackageServiceImpl implements SpiritStonePackageService {
 
         private final SpiritStonePackageRepository spiritStonePackageRepository;
-        private final UserWalletRepository userWalletRepository;
+        private final WalletLedgerService walletLedgerService;
         private final WalletTransactionRepository walletTransactionRepository;
         private final SpiritStonePackageMapper spiritStonePackageMapper;
         private final ExchangeHistoryMapper exchangeHistoryMapper;
@@ -49,6 +52,7 @@ public class SpiritStonePackageServiceImpl implements SpiritStonePackageService
 
         @Override
         @Transactional
+        @CacheEvict(value = CacheConfig.SPIRIT_STONE_PACKAGES_ACTIVE, allEntries = true)
         public SpiritStonePackageResponse createSpiritStonePackage(CreateSpiritStonePackageRequest request) {
                 log.info("Tạo gói đổi linh thạch mới: {}", request.getName());
 
@@ -61,6 +65,7 @@ public class SpiritStonePackageServiceImpl implements SpiritStonePackageService
 
         @Override
         @Transactional
+        @CacheEvict(value = CacheConfig.SPIRIT_STONE_PACKAGES_ACTIVE, allEntries = true)
         public SpiritStonePackageResponse updateSpiritStonePackage(Long id, UpdateSpiritStonePackageRequest request) {
                 log.info("Cập nhật gói đổi linh thạch với ID: {}", id);
 
@@ -77,6 +82,7 @@ public class SpiritStonePackageServiceImpl implements SpiritStonePackageService
 
         @Override
         @Transactional
+        @CacheEvict(value = CacheConfig.SPIRIT_STONE_PACKAGES_ACTIVE, allEntries = true)
         public void deleteSpiritStonePackage(Long id) {
                 log.info("Xóa gói đổi linh thạch với ID: {}", id);
 
@@ -91,6 +97,7 @@ public class SpiritStonePackageServiceImpl implements SpiritStonePackageService
         }
 
         @Override
+        @Cacheable(value = CacheConfig.SPIRIT_STONE_PACKAGES_ACTIVE, key = "'active'")
         public SpiritStonePackageListResponse getAllActivePackages() {
                 log.info("Lấy tất cả gói đổi linh thạch đang hoạt động");
 
@@ -122,10 +129,6 @@ public class SpiritStonePackageServiceImpl implements SpiritStonePackageService
                 log.info("Thực hiện đổi linh thạch theo gói cho user ID: {}, package ID: {}", userId,
                                 request.getPackageId());
 
-                // Kiểm tra số dư tiền mặt
-                UserWallet userWallet = userWalletRepository.findById(userId)
-                                .orElseThrow(() -> new RuntimeException("Không tìm thấy ví của người dùng"));
-
                 // Đổi theo gói
                 SpiritStonePackage packageEntity = spiritStonePackageRepository
                                 .findByIdAndIsActiveTrue(request.getPackageId())
@@ -139,14 +142,9 @@ public class SpiritStonePackageServiceImpl implements SpiritStonePackageService
                                 " (Giá: " + packageEntity.getPrice() + " VND, Nhận: " + spiritStonesReceived
                                 + " linh thạch)";
 
-                // Kiểm tra số dư đủ không
-                if (userWallet.getBalance() < amountToSpend) {
-                        throw new InsufficientBalanceException("Số dư tiền mặt không đủ để đổi linh thạch. Cần: "
-                                        + amountToSpend + " VND, Hiện có: " + userWallet.getBalance() + " VND");
-                }
-
-                // Thực hiện giao dịch và lấy số phiếu đề cử được tặng
-                performExchange(userWallet, userId, amountToSpend, spiritStonesReceived, description);
+                // Thực hiện giao dịch (kiểm tra số dư ngay trong câu UPDATE trừ tiền)
+                UserWalletRepository.WalletBalanceProjection userWallet = performExchange(userId, amountToSpend,
+                                spiritStonesReceived, description);
 
                 // Tính toán số phiếu đề cử được tặng
                 int recommendationTicketsEarned = 0;
@@ -175,10 +173,6 @@ public class SpiritStonePackageServiceImpl implements SpiritStonePackageService
                 log.info("Thực hiện đổi linh thạch theo số tiền cho user ID: {}, amount: {}", userId,
                                 request.getAmount());
 
-                // Kiểm tra số dư tiền mặt
-                UserWallet userWallet = userWalletRepository.findById(userId)
-                                .orElseThrow(() -> new RuntimeException("Không tìm thấy ví của người dùng"));
-
                 // Đổi theo số tiền
                 int amountToSpend = request.getAmount();
                 int spiritStonesReceived = (int) (amountToSpend / EXCHANGE_RATE);
@@ -186,14 +180,9 @@ public class SpiritStonePackageServiceImpl implements SpiritStonePackageService
                                 + spiritStonesReceived
                                 + " linh thạch";
 
-                // Kiểm tra số dư đủ không
-                if (userWallet.getBalance() < amountToSpend) {
-                        throw new InsufficientBalanceException("Số dư tiền mặt không đủ để đổi linh thạch. Cần: "
-                                        + amountToSpend + " VND, Hiện có: " + userWallet.getBalance() + " VND");
-                }
-
-                // Thực hiện giao dịch
-                performExchange(userWallet, userId, amountToSpend, spiritStonesReceived, description);
+                // Thực hiện giao dịch (kiểm tra số dư ngay trong câu UPDATE trừ tiền)
+                UserWalletRepository.WalletBalanceProjection userWallet = performExchange(userId, amountToSpend,
+                                spiritStonesReceived, description);
 
                 // Tính toán số phiếu đề cử được tặng
                 int recommendationTicketsEarned = 0;
@@ -217,59 +206,29 @@ public class SpiritStonePackageServiceImpl implements SpiritStonePackageService
         }
 
         /**
-         * Thực hiện giao dịch đổi linh thạch
+         * Thực hiện giao dịch đổi linh thạch: trừ tiền mặt, cộng linh thạch và phiếu đề cử trong 1 câu lệnh,
+         * không đủ tiền mặt thì không thay đổi gì
          */
-        private void performExchange(UserWallet userWallet, Long userId, int amountToSpend, int spiritStonesReceived,
-                        String description) {
-                // Trừ tiền mặt
-                userWallet.setBalance(userWallet.getBalance() - amountToSpend);
-                // Cộng linh thạch
-                userWallet.setSpiritStones(userWallet.getSpiritStones() + spiritStonesReceived);
+        private UserWalletRepository.WalletBalanceProjection performExchange(Long userId, int amountToSpend,
+                        int spiritStonesReceived, String description) {
+                List<WalletLedgerService.Entry> entries = new ArrayList<>();
+                // Giao dịch trừ tiền mặt
+                entries.add(new WalletLedgerService.Entry(WalletTransaction.CurrencyType.VND, -amountToSpend,
+                                TransactionType.SPIRIT_EXCHANGE, description));
+                // Giao dịch cộng linh thạch
+                entries.add(new WalletLedgerService.Entry(WalletTransaction.CurrencyType.SPIRIT_STONE,
+                                spiritStonesReceived, TransactionType.SPIRIT_EARN,
+                                "Nhận linh thạch từ đổi - " + description));
 
                 // TÍNH TOÁN VÀ CỘNG PHIẾU ĐỀ CỬ
-                int recommendationTicketsEarned = 0;
                 if (spiritStonesReceived >= RECOMMENDATION_TICKET_THRESHOLD) {
-                        recommendationTicketsEarned = spiritStonesReceived / RECOMMENDATION_TICKET_THRESHOLD;
-                        userWallet.setRecommendationTickets(
-                                        userWallet.getRecommendationTickets() + recommendationTicketsEarned);
-                }
-
-                userWalletRepository.save(userWallet);
-
-                // Tạo User object để lưu transaction
-                User user = new User();
-                user.setId(userId);
-
-                // Tạo 2 WalletTransaction
-                // Giao dịch trừ tiền mặt
-                WalletTransaction spendTransaction = new WalletTransaction();
-                spendTransaction.setAmount(-amountToSpend);
-                spendTransaction.setCurrency(WalletTransaction.CurrencyType.VND);
-                spendTransaction.setType(TransactionType.SPIRIT_EXCHANGE);
-                spendTransaction.setDescription(description);
-                spendTransaction.setUser(user);
-                walletTransactionRepository.save(spendTransaction);
-
-                // Giao dịch cộng linh thạch
-                WalletTransaction earnTransaction = new WalletTransaction();
-                earnTransaction.setAmount(spiritStonesReceived);
-                earnTransaction.setCurrency(WalletTransaction.CurrencyType.SPIRIT_STONE);
-                earnTransaction.setType(TransactionType.SPIRIT_EARN);
-                earnTransaction.setDescription("Nhận linh thạch từ đổi - " + description);
-                earnTransaction.setUser(user);
-                walletTransactionRepository.save(earnTransaction);
-
-                // TẠO GIAO DỊCH PHIẾU ĐỀ CỬ (nếu có)
-                if (recommendationTicketsEarned > 0) {
-                        WalletTransaction ticketTransaction = new WalletTransaction();
-                        ticketTransaction.setAmount(recommendationTicketsEarned);
-                        ticketTransaction.setCurrency(WalletTransaction.CurrencyType.RECOMMENDATION_TICKET);
-                        ticketTransaction.setType(TransactionType.RECOMMENDATION_TICKET_EARN);
-                        ticketTransaction.setDescription("Tặng phiếu đề cử khi đổi linh thạch - " + description);
-                        ticketTransaction.setUser(user);
-                        walletTransactionRepository.save(ticketTransaction);
+                        int recommendationTicketsEarned = spiritStonesReceived / RECOMMENDATION_TICKET_THRESHOLD;
+                        entries.add(new WalletLedgerService.Entry(WalletTransaction.CurrencyType.RECOMMENDATION_TICKET,
+                                        recommendationTicketsEarned, TransactionType.RECOMMENDATION_TICKET_EARN,
+                                        "Tặng phiếu đề cử khi đổi linh thạch - " + description));
                 }
 
+                return walletLedgerService.apply(userId, entries);
         }
 
         @Override
@@ -0,0 +1,117 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.domain.entity.Story;
+import com.meobeo.truyen.repository.StoryRepository;
+import com.meobeo.truyen.utils.VietnameseTextUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Quản lý chỉ mục tìm kiếm truyện:
+ * - Tính cột stories.search_text (bỏ dấu tiếng Việt) khi tạo/sửa truyện
+ * - Tạo extension pg_trgm và index GIN trigram khi khởi động
+ * - Backfill search_text cho dữ liệu cũ theo từng chunk
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorySearchIndexService {
+
+    private static final int BACKFILL_CHUNK_SIZE = 500;
+
+    private final StoryRepository storyRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Gán search_text cho truyện trước khi lưu
+     */
+    public void applySearchText(Story story) {
+        String authorUsername = story.getAuthor() != null ? story.getAuthor().getUsername() : null;
+        String authorDisplayName = story.getAuthor() != null ? story.getAuthor().getDisplayName() : null;
+        story.setSearchText(buildSearchText(story.getTitle(), story.getSlug(), story.getAuthorName(),
+                authorUsername, authorDisplayName));
+    }
+
+    /**
+     * Ghép các trường tìm kiếm thành 1 chuỗi đã bỏ dấu. Tiêu đề đứng đầu để khớp tiêu đề được xếp hạng cao hơn.
+     */
+    public static String buildSearchText(String title, String slug, String authorName,
+            String authorUsername, String authorDisplayName) {
+        return Stream.of(title, slug, authorName, authorUsername, authorDisplayName)
+                .filter(Objects::nonNull)
+                .map(VietnameseTextUtil::normalizeForSearch)
+                .filter(text -> !text.isEmpty())
+                .collect(Collectors.joining(" | "));
+    }
+
+    /**
+     * Chuẩn hóa từ khóa người dùng nhập để so khớp với search_text.
+     * Kết quả chỉ còn chữ, số và khoảng trắng nên không cần escape ký tự đặc biệt của LIKE
+     */
+    public static String normalizeKeyword(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        String normalized = VietnameseTextUtil.normalizeForSearch(keyword);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeSearchIndex() {
+        createIndexes();
+        backfillSearchText();
+    }
+
+    private void createIndexes() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_stories_search_text_trgm " +
+                    "ON stories USING gin (search_text gin_trgm_ops)");
+        } catch (Exception e) {
+            // Không có quyền tạo extension: tìm kiếm vẫn chạy nhưng không dùng được index trigram
+            log.warn("Không thể tạo index trigram cho tìm kiếm truyện: {}", e.getMessage());
+        }
+
+        try {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_story_genres_genre_story " +
+                    "ON story_genres (genre_id, story_id)");
+        } catch (Exception e) {
+            log.warn("Không thể tạo index story_genres: {}", e.getMessage());
+        }
+    }
+
+    private void backfillSearchText() {
+        long afterId = 0L;
+        int updated = 0;
+
+        List<StoryRepository.StorySearchSourceProjection> sources = storyRepository
+                .findSearchSourcesWithoutSearchText(afterId, BACKFILL_CHUNK_SIZE);
+        while (!sources.isEmpty()) {
+            Long[] storyIds = new Long[sources.size()];
+            String[] searchTexts = new String[sources.size()];
+            for (int i = 0; i < sources.size(); i++) {
+                StoryRepository.StorySearchSourceProjection source = sources.get(i);
+                storyIds[i] = source.getId();
+                searchTexts[i] = buildSearchText(source.getTitle(), source.getSlug(), source.getAuthorName(),
+                        source.getAuthorUsername(), source.getAuthorDisplayName());
+            }
+            updated += storyRepository.updateSearchTexts(storyIds, searchTexts);
+
+            afterId = storyIds[storyIds.length - 1];
+            sources = storyRepository.findSearchSourcesWithoutSearchText(afterId, BACKFILL_CHUNK_SIZE);
+        }
+
+        if (updated > 0) {
+            log.info("Đã backfill search_text cho {} truyện", updated);
+        }
+    }
+}
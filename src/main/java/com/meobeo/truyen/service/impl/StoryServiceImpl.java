@@ -1,5 +1,6 @@
 package com.meobeo.truyen.service.impl;
 
+import com.meobeo.truyen.config.CacheConfig;
 import com.meobeo.truyen.domain.entity.*;
 import com.meobeo.truyen.domain.request.story.CreateStoryRequest;
 import com.meobeo.truyen.domain.request.story.StorySearchRequest;
@@ -10,21 +11,26 @@ import com.meobeo.truyen.exception.ResourceNotFoundException;
 import com.meobeo.truyen.repository.*;
 import com.meobeo.truyen.service.interfaces.AsyncCloudinaryService;
 import com.meobeo.truyen.service.interfaces.CloudinaryService;
+import com.meobeo.truyen.service.interfaces.StoryStatsService;
 import com.meobeo.truyen.service.interfaces.StoryViewsService;
 import com.meobeo.truyen.service.interfaces.StoryService;
 import com.meobeo.truyen.utils.SecurityUtils;
 import com.meobeo.truyen.mapper.StoryMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -40,6 +46,10 @@ public class StoryServiceImpl implements StoryService {
     private final SecurityUtils securityUtils;
     private final StoryMapper storyMapper;
     private final StoryViewsService storyViewsService;
+    private final StoryStatsService storyStatsService;
+    private final StorySearchIndexService storySearchIndexService;
+    private final ChapterContentCache chapterContentCache;
+    private final CacheManager cacheManager;
 
     @Override
     public StoryResponse createStory(CreateStoryRequest request, Long authorId) {
@@ -67,6 +77,7 @@ public class StoryServiceImpl implements StoryService {
         story.setCoverImageUrl(null); // Sẽ cập nhật sau khi upload
         story.setAuthor(author); // Người đăng truyện
         story.setGenres(genres);
+        storySearchIndexService.applySearchText(story);
 
         Story savedStory = storyRepository.save(story);
         log.info("Tạo truyện thành công: storyId={}", savedStory.getId());
@@ -109,6 +120,9 @@ public class StoryServiceImpl implements StoryService {
             asyncCloudinaryService.uploadStoryCoverImageAsync(storyId, request.getCoverImage());
         }
 
+        // Xóa cache chi tiết theo slug cũ trước khi đổi
+        evictStoryDetail(story);
+
         // Cập nhật thông tin truyện
         story.setTitle(request.getTitle());
         story.setSlug(request.getSlug());
@@ -117,8 +131,12 @@ public class StoryServiceImpl implements StoryService {
         story.setStatus(request.getStatus());
         story.setCoverImageUrl(coverImageUrl);
         story.setGenres(genres);
+        storySearchIndexService.applySearchText(story);
 
         Story updatedStory = storyRepository.save(story);
+        // Chapter trong cache giữ tên/slug truyện nên cần xóa khi truyện đổi thông tin
+        chapterContentCache.invalidateStoryAfterCommit(storyId);
+        evictStoryDetail(updatedStory);
         log.info("Cập nhật truyện thành công: storyId={}", updatedStory.getId());
 
         return storyMapper.toStoryResponse(updatedStory);
@@ -148,6 +166,8 @@ public class StoryServiceImpl implements StoryService {
 
         // Xóa truyện (cascade sẽ xóa các bảng liên quan)
         storyRepository.delete(story);
+        storyStatsService.deleteStats(storyId);
+        evictStoryDetail(story);
         log.info("Xóa truyện thành công: storyId={}", storyId);
     }
 
@@ -156,27 +176,41 @@ public class StoryServiceImpl implements StoryService {
     public StoryResponse getStoryDetail(String identifier, Long userId) {
         log.info("Lấy chi tiết truyện: identifier={}, userId={}", identifier, userId);
 
-        Story story;
-        try {
-            // Thử parse thành ID
-            Long storyId = Long.parseLong(identifier);
-            story = getStoryById(storyId);
-        } catch (NumberFormatException e) {
-            // Nếu không phải số thì tìm theo slug
-            story = getStoryBySlug(identifier);
+        // Response chi tiết không phụ thuộc user nên cache theo identifier (ID hoặc slug)
+        Cache storyDetailCache = cacheManager.getCache(CacheConfig.STORY_DETAIL);
+        StoryResponse response = storyDetailCache != null
+                ? storyDetailCache.get(identifier, StoryResponse.class)
+                : null;
+
+        if (response == null) {
+            Story story;
+            try {
+                // Thử parse thành ID
+                Long storyId = Long.parseLong(identifier);
+                story = getStoryById(storyId);
+            } catch (NumberFormatException e) {
+                // Nếu không phải số thì tìm theo slug
+                story = getStoryBySlug(identifier);
+            }
+
+            response = storyMapper.toStoryResponse(story);
+            if (storyDetailCache != null) {
+                storyDetailCache.put(identifier, response);
+            }
         }
 
-        // Kiểm tra quyền xem (nếu truyện bị ẩn)
-        validateViewPermissions(story, userId);
+        // Chưa có quy tắc ẩn truyện (StoryStatus chỉ có ONGOING/COMPLETED) nên hiện tại không kiểm tra gì,
+        // gọi sau khi lấy response để quy tắc sau này áp dụng cả cho response lấy từ cache
+        validateViewPermissions(response, userId);
 
-        // Tăng view bất đồng bộ để tránh conflict với read-only transaction
+        // Tăng view trong bộ nhớ (write-behind), không ghi DB trong read-only transaction
         try {
-            storyViewsService.increaseViewAsync(story.getId());
+            storyViewsService.increaseView(response.getId());
         } catch (Exception e) {
-            log.warn("Không thể tăng views cho story {}: {}", story.getId(), e.getMessage());
+            log.warn("Không thể tăng views cho story {}: {}", response.getId(), e.getMessage());
         }
 
-        return storyMapper.toStoryResponse(story);
+        return response;
     }
 
     @Override
@@ -185,11 +219,8 @@ public class StoryServiceImpl implements StoryService {
         log.info("Tìm kiếm truyện: search={}, genres={}, status={}",
                 request.getSearch(), request.getGenreIds(), request.getStatus());
 
-        // Xử lý search parameter
-        String searchParam = null;
-        if (request.getSearch() != null && !request.getSearch().trim().isEmpty()) {
-            searchParam = request.getSearch().trim();
-        }
+        // Xử lý search parameter: bỏ dấu tiếng Việt để so khớp với cột search_text
+        String searchParam = StorySearchIndexService.normalizeKeyword(request.getSearch());
 
         // Xử lý status parameter
         String statusParam = null;
@@ -212,10 +243,33 @@ public class StoryServiceImpl implements StoryService {
                 genreIdsSize,
                 request.toPageableWithoutSort());
 
-        Page<StoryResponse> responsePage = storyPage.map(storyMapper::toStoryResponse);
+        // Map cả trang với số query thống kê cố định
+        Page<StoryResponse> responsePage = new PageImpl<>(storyMapper.toResponseList(storyPage.getContent()),
+                storyPage.getPageable(), storyPage.getTotalElements());
         return StoryListResponse.fromPage(responsePage);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<StorySuggestionResponse> suggestStories(String keyword, int limit) {
+        String normalizedKeyword = StorySearchIndexService.normalizeKeyword(keyword);
+        if (normalizedKeyword == null) {
+            return List.of();
+        }
+
+        return storyRepository.suggestStories(normalizedKeyword, limit).stream()
+                .map(row -> {
+                    StorySuggestionResponse response = new StorySuggestionResponse();
+                    response.setId(row.getId());
+                    response.setTitle(row.getTitle());
+                    response.setSlug(row.getSlug());
+                    response.setCoverImageUrl(row.getCoverImageUrl());
+                    response.setAuthorName(row.getAuthorName());
+                    return response;
+                })
+                .toList();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public StoryListResponse getStoriesByAuthor(Long authorId, Pageable pageable) {
@@ -235,9 +289,7 @@ public class StoryServiceImpl implements StoryService {
         List<Story> pagedStories = stories.subList(start, end);
 
         // Chuyển đổi thành Page<StoryResponse>
-        List<StoryResponse> storyResponses = pagedStories.stream()
-                .map(storyMapper::toStoryResponse)
-                .collect(Collectors.toList());
+        List<StoryResponse> storyResponses = storyMapper.toResponseList(pagedStories);
 
         StoryListResponse response = new StoryListResponse();
         response.setContent(storyResponses);
@@ -326,7 +378,32 @@ public class StoryServiceImpl implements StoryService {
         }
     }
 
-    private void validateViewPermissions(Story story, Long userId) {
+    /**
+     * Xóa cache chi tiết truyện theo cả ID và slug, xóa ngay và xóa lại sau khi transaction commit
+     * để request đọc song song không đưa dữ liệu cũ chưa commit trở lại cache
+     */
+    private void evictStoryDetail(Story story) {
+        String id = String.valueOf(story.getId());
+        String slug = story.getSlug();
+        Runnable evict = () -> {
+            Cache storyDetailCache = cacheManager.getCache(CacheConfig.STORY_DETAIL);
+            if (storyDetailCache != null) {
+                storyDetailCache.evict(id);
+                storyDetailCache.evict(slug);
+            }
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
+    }
+
+    private void validateViewPermissions(StoryResponse story, Long userId) {
         // TODO: Implement logic kiểm tra quyền xem truyện bị ẩn
         // Hiện tại cho phép xem tất cả truyện
     }
@@ -0,0 +1,27 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.service.interfaces.StoryStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StoryStatsReconcileService {
+
+    private final StoryStatsService storyStatsService;
+
+    /**
+     * Đối soát story_stats với bảng gốc mỗi ngày lúc 04:00 AM (sau khi dọn views cũ)
+     */
+    @Scheduled(cron = "${story.stats.reconcile.cron:0 0 4 * * ?}")
+    public void reconcileStoryStats() {
+        try {
+            storyStatsService.reconcileAll();
+        } catch (Exception e) {
+            log.error("Lỗi đối soát story_stats: {}", e.getMessage(), e);
+        }
+    }
+}
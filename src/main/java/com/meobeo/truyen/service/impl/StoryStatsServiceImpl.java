@@ -0,0 +1,117 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.domain.entity.StoryStats;
+import com.meobeo.truyen.repository.StoryStatsRepository;
+import com.meobeo.truyen.service.interfaces.StoryStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class StoryStatsServiceImpl implements StoryStatsService {
+
+    private final StoryStatsRepository storyStatsRepository;
+
+    @Value("${story.stats.reconcile.chunk-size:500}")
+    private int reconcileChunkSize;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, StoryStats> getStats(Collection<Long> storyIds) {
+        Map<Long, StoryStats> statsMap = new HashMap<>();
+        if (storyIds == null || storyIds.isEmpty()) {
+            return statsMap;
+        }
+
+        storyStatsRepository.findAllById(storyIds).forEach(stats -> statsMap.put(stats.getStoryId(), stats));
+
+        // Truyện chưa có dòng thống kê: tính lại từ bảng gốc 1 lần rồi đọc lại
+        List<Long> missingIds = storyIds.stream()
+                .filter(storyId -> !statsMap.containsKey(storyId))
+                .distinct()
+                .collect(Collectors.toList());
+        if (!missingIds.isEmpty()) {
+            log.debug("Khởi tạo story_stats cho {} truyện", missingIds.size());
+            storyStatsRepository.rebuildForStories(missingIds.toArray(new Long[0]));
+            storyStatsRepository.findAllById(missingIds).forEach(stats -> statsMap.put(stats.getStoryId(), stats));
+        }
+
+        return statsMap;
+    }
+
+    @Override
+    public void incrementChapterCount(Long storyId, long delta) {
+        if (delta != 0) {
+            storyStatsRepository.incrementChapterCount(storyId, delta);
+        }
+    }
+
+    @Override
+    public void incrementFavoriteCount(Long storyId, long delta) {
+        if (delta != 0) {
+            storyStatsRepository.incrementFavoriteCount(storyId, delta);
+        }
+    }
+
+    @Override
+    public void incrementVotes(Long storyId, long voteDelta, long ratingDelta) {
+        if (voteDelta != 0 || ratingDelta != 0) {
+            storyStatsRepository.incrementVotes(storyId, voteDelta, ratingDelta);
+        }
+    }
+
+    @Override
+    public void incrementViews(Map<Long, Long> viewsByStory) {
+        if (viewsByStory.isEmpty()) {
+            return;
+        }
+        Long[] storyIds = new Long[viewsByStory.size()];
+        Long[] views = new Long[viewsByStory.size()];
+        int index = 0;
+        for (Map.Entry<Long, Long> entry : viewsByStory.entrySet()) {
+            storyIds[index] = entry.getKey();
+            views[index] = entry.getValue();
+            index++;
+        }
+        storyStatsRepository.incrementViews(storyIds, views);
+    }
+
+    @Override
+    public void deleteStats(Long storyId) {
+        storyStatsRepository.deleteById(storyId);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int reconcileAll() {
+        long startTime = System.currentTimeMillis();
+        long afterId = 0L;
+        int reconciled = 0;
+
+        // Duyệt theo keyset trên stories.id, mỗi chunk chạy trong transaction riêng
+        List<Long> storyIds = storyStatsRepository.findStoryIdsAfter(afterId, reconcileChunkSize);
+        while (!storyIds.isEmpty()) {
+            storyStatsRepository.rebuildForStories(storyIds.toArray(new Long[0]));
+            reconciled += storyIds.size();
+            afterId = storyIds.get(storyIds.size() - 1);
+            storyIds = storyStatsRepository.findStoryIdsAfter(afterId, reconcileChunkSize);
+        }
+
+        int orphans = storyStatsRepository.deleteOrphans();
+        log.info("Đối soát story_stats: {} truyện, xóa {} dòng thừa trong {} ms",
+                reconciled, orphans, System.currentTimeMillis() - startTime);
+        return reconciled;
+    }
+}
@@ -90,9 +90,7 @@ public class StorySubscriptionServiceImpl implements StorySubscriptionService {
         Page<StorySubscription> subscriptionsPage = storySubscriptionRepository.findByUserIdWithFetch(userId, pageable);
 
         SubscriptionListResponse response = new SubscriptionListResponse();
-        response.setContent(subscriptionsPage.getContent().stream()
-                .map(storySubscriptionMapper::toSubscriptionResponse)
-                .toList());
+        response.setContent(storySubscriptionMapper.toSubscriptionResponseList(subscriptionsPage.getContent()));
         response.setPage(subscriptionsPage.getNumber());
         response.setSize(subscriptionsPage.getSize());
         response.setTotalElements(subscriptionsPage.getTotalElements());
@@ -0,0 +1,214 @@
+package com.meobeo.truyen.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bộ đệm write-behind cho lượt view truyện.
+ *
+ * - Cộng dồn view trong bộ nhớ theo (storyId, ngày) bằng AtomicLong, drain bằng getAndSet(0) nên không mất view
+ *   ghi vào giữa lúc đọc và reset
+ * - Chống spam theo session/IP bằng các LRU map có giới hạn kích thước, chia stripe để giảm tranh chấp.
+ *   Kiểm tra và đánh dấu session/IP là 1 thao tác nguyên tử nên 2 view đồng thời của cùng session chỉ tính 1
+ * - Dữ liệu được {@link StoryViewsFlushService} ghi xuống story_views_daily theo lô
+ */
+@Component
+@Slf4j
+public class StoryViewCounterBuffer {
+
+    private static final int DEDUP_STRIPES = 16;
+
+    @Value("${views.spam.protection.minutes:30}")
+    private int spamProtectionMinutes;
+
+    @Value("${views.buffer.max-pending-keys:100000}")
+    private int maxPendingKeys;
+
+    @Value("${views.buffer.dedup-max-entries:200000}")
+    private int dedupMaxEntries;
+
+    // View đang chờ flush theo (storyId, ngày)
+    private final ConcurrentHashMap<ViewKey, AtomicLong> pendingViews = new ConcurrentHashMap<>();
+
+    private DedupStripe[] dedupStripes;
+    private long dedupWindowMillis;
+
+    // Thống kê
+    private final LongAdder recordedViews = new LongAdder();
+    private final LongAdder dedupedViews = new LongAdder();
+    private final LongAdder droppedViews = new LongAdder();
+    private final AtomicLong flushedViews = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushCount = new AtomicLong();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+    private final AtomicLong totalFlushMillis = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        dedupWindowMillis = spamProtectionMinutes * 60_000L;
+        int entriesPerStripe = Math.max(1, dedupMaxEntries / DEDUP_STRIPES);
+        dedupStripes = new DedupStripe[DEDUP_STRIPES];
+        for (int i = 0; i < DEDUP_STRIPES; i++) {
+            dedupStripes[i] = new DedupStripe(entriesPerStripe);
+        }
+    }
+
+    /**
+     * Ghi nhận 1 lượt view. Trả về false nếu bị chống spam hoặc buffer đã đầy.
+     */
+    public boolean record(Long storyId, String sessionId, String ipAddress) {
+        long now = System.currentTimeMillis();
+        String sessionKey = storyId + ":s:" + sessionId;
+        String ipKey = storyId + ":i:" + ipAddress;
+
+        if (!tryMarkSeen(sessionKey, now) || !tryMarkSeen(ipKey, now)) {
+            dedupedViews.increment();
+            return false;
+        }
+
+        ViewKey key = new ViewKey(storyId, LocalDate.now());
+        AtomicLong counter = pendingViews.get(key);
+        if (counter == null) {
+            if (pendingViews.size() >= maxPendingKeys) {
+                droppedViews.increment();
+                log.warn("Buffer view đã đầy ({} keys), bỏ qua view cho story {}", maxPendingKeys, storyId);
+                return false;
+            }
+            counter = pendingViews.computeIfAbsent(key, k -> new AtomicLong());
+        }
+        counter.incrementAndGet();
+        recordedViews.increment();
+        return true;
+    }
+
+    /**
+     * Lấy và reset toàn bộ view đang chờ. Key đã hết view từ trước hôm qua sẽ bị gỡ khỏi buffer
+     * (không còn request nào ghi vào ngày đó nên gỡ không làm mất view).
+     */
+    public Map<ViewKey, Long> drain() {
+        Map<ViewKey, Long> snapshot = new HashMap<>();
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        for (Map.Entry<ViewKey, AtomicLong> entry : pendingViews.entrySet()) {
+            long views = entry.getValue().getAndSet(0);
+            if (views > 0) {
+                snapshot.put(entry.getKey(), views);
+            } else if (entry.getKey().viewDate().isBefore(yesterday)) {
+                pendingViews.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Trả lại view vào buffer khi flush thất bại để lần sau ghi lại
+     */
+    public void restore(Map<ViewKey, Long> views) {
+        views.forEach((key, count) -> pendingViews.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(count));
+    }
+
+    public void recordFlush(long views, long elapsedMillis) {
+        flushedViews.addAndGet(views);
+        flushCount.incrementAndGet();
+        lastFlushMillis.set(elapsedMillis);
+        totalFlushMillis.addAndGet(elapsedMillis);
+        maxFlushMillis.accumulateAndGet(elapsedMillis, Math::max);
+    }
+
+    public void recordFlushFailure() {
+        failedFlushCount.incrementAndGet();
+    }
+
+    public int getPendingKeys() {
+        return pendingViews.size();
+    }
+
+    public long getRecordedViews() {
+        return recordedViews.sum();
+    }
+
+    public long getDedupedViews() {
+        return dedupedViews.sum();
+    }
+
+    public long getDroppedViews() {
+        return droppedViews.sum();
+    }
+
+    public long getFlushedViews() {
+        return flushedViews.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getFailedFlushCount() {
+        return failedFlushCount.get();
+    }
+
+    public long getLastFlushMillis() {
+        return lastFlushMillis.get();
+    }
+
+    public long getMaxFlushMillis() {
+        return maxFlushMillis.get();
+    }
+
+    public long getTotalFlushMillis() {
+        return totalFlushMillis.get();
+    }
+
+    /**
+     * Đánh dấu key đã xem. Trả về false nếu key đã được xem trong thời gian chống spam (không đánh dấu lại)
+     */
+    private boolean tryMarkSeen(String key, long now) {
+        DedupStripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            Long lastSeen = stripe.get(key);
+            if (lastSeen != null && now - lastSeen < dedupWindowMillis) {
+                return false;
+            }
+            stripe.put(key, now);
+            return true;
+        }
+    }
+
+    private DedupStripe stripeFor(String key) {
+        return dedupStripes[(key.hashCode() & 0x7fffffff) % DEDUP_STRIPES];
+    }
+
+    /**
+     * Key cộng dồn view theo truyện và ngày
+     */
+    public record ViewKey(Long storyId, LocalDate viewDate) {
+    }
+
+    /**
+     * LRU map có giới hạn: khi đầy sẽ loại bỏ session/IP ít được truy cập nhất
+     */
+    private static final class DedupStripe extends LinkedHashMap<String, Long> {
+
+        private final int maxEntries;
+
+        private DedupStripe(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.repository.StoryViewsDailyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bảng xếp hạng truyện theo view trong cửa sổ trượt 1/7/30 ngày (tính cả hôm nay), giữ trong bộ nhớ.
+ *
+ * - View được cộng vào sau mỗi lần flush thành công xuống story_views_daily, theo bucket từng ngày
+ * - Mỗi cửa sổ giữ thứ hạng đã sắp xếp, truyện được tăng view chỉ đổi chỗ với các truyện liền trên,
+ *   nên lấy 1 trang chỉ tốn O(size)
+ * - Qua ngày mới: bỏ bucket quá 30 ngày và dựng lại thứ hạng từ các bucket còn lại
+ * - Được dựng lại từ story_views_daily khi khởi động và định kỳ (views.leaderboard.resync-interval-ms)
+ *   để nhận view do node khác ghi
+ */
+@Component
+@Slf4j
+public class StoryViewLeaderboard {
+
+    // Các cửa sổ hỗ trợ (số ngày, tính cả hôm nay)
+    private static final int[] WINDOW_DAYS = { 1, 7, 30 };
+    private static final int MAX_WINDOW_DAYS = 30;
+
+    @Value("${views.leaderboard.resync-interval-ms:300000}")
+    private long resyncIntervalMs;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Ngày -> (storyId -> views) cho MAX_WINDOW_DAYS ngày gần nhất
+    private final TreeMap<LocalDate, Map<Long, Long>> dailyBuckets = new TreeMap<>();
+    private final RankedWindow[] windows = new RankedWindow[WINDOW_DAYS.length];
+    private volatile LocalDate today;
+    private volatile boolean ready;
+    private volatile long lastResyncAt;
+
+    // Thống kê
+    private final AtomicLong appliedViews = new AtomicLong();
+    private final AtomicLong resyncCount = new AtomicLong();
+    private final AtomicLong lastResyncMillis = new AtomicLong();
+
+    public StoryViewLeaderboard() {
+        for (int i = 0; i < WINDOW_DAYS.length; i++) {
+            windows[i] = new RankedWindow(WINDOW_DAYS[i]);
+        }
+    }
+
+    /**
+     * Khoảng [start, end] có được phục vụ từ bảng xếp hạng không: end là hôm nay và dài đúng 1/7/30 ngày
+     */
+    public boolean covers(LocalDate start, LocalDate end) {
+        return ready && windowOf(start, end) != null;
+    }
+
+    public boolean isResyncDue() {
+        return !ready || System.currentTimeMillis() - lastResyncAt >= resyncIntervalMs;
+    }
+
+    /**
+     * Thay toàn bộ dữ liệu bằng views đọc từ story_views_daily (từ startDate() trở đi)
+     */
+    public void load(List<StoryViewsDailyRepository.StoryDailyViewsProjection> rows, long elapsedMillis) {
+        lock.writeLock().lock();
+        try {
+            today = LocalDate.now();
+            dailyBuckets.clear();
+            for (var row : rows) {
+                if (row.getViews() != null && row.getViews() > 0) {
+                    dailyBuckets.computeIfAbsent(row.getViewDate(), date -> new HashMap<>())
+                            .merge(row.getStoryId(), row.getViews(), Long::sum);
+                }
+            }
+            dropExpiredBuckets();
+            rebuildWindows();
+            ready = true;
+            lastResyncAt = System.currentTimeMillis();
+            resyncCount.incrementAndGet();
+            lastResyncMillis.set(elapsedMillis);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Đã dựng lại bảng xếp hạng view: {} dòng, {} truyện trong 30 ngày, {} ms",
+                rows.size(), windows[windows.length - 1].size(), elapsedMillis);
+    }
+
+    /**
+     * Ngày đầu tiên cần đọc khi dựng lại từ DB
+     */
+    public LocalDate startDate() {
+        return LocalDate.now().minusDays(MAX_WINDOW_DAYS - 1);
+    }
+
+    /**
+     * Cộng views vừa được ghi xuống story_views_daily
+     */
+    public void recordViews(List<Map.Entry<StoryViewCounterBuffer.ViewKey, Long>> views) {
+        if (!ready || views.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            rollOverIfNeeded();
+            LocalDate oldest = today.minusDays(MAX_WINDOW_DAYS - 1);
+            for (Map.Entry<StoryViewCounterBuffer.ViewKey, Long> entry : views) {
+                LocalDate viewDate = entry.getKey().viewDate();
+                long delta = entry.getValue();
+                if (delta <= 0 || viewDate.isBefore(oldest) || viewDate.isAfter(today)) {
+                    continue;
+                }
+                Long storyId = entry.getKey().storyId();
+                dailyBuckets.computeIfAbsent(viewDate, date -> new HashMap<>()).merge(storyId, delta, Long::sum);
+                long age = ChronoUnit.DAYS.between(viewDate, today);
+                for (RankedWindow window : windows) {
+                    if (age < window.days) {
+                        window.add(storyId, delta);
+                    }
+                }
+                appliedViews.addAndGet(delta);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lấy 1 trang của cửa sổ khớp với [start, end]. Chỉ gọi khi covers(start, end) trả về true
+     */
+    public Page getPage(LocalDate start, LocalDate end, int page, int size) {
+        if (!LocalDate.now().equals(today)) {
+            lock.writeLock().lock();
+            try {
+                rollOverIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            RankedWindow window = windowOf(start, end);
+            if (window == null) {
+                throw new IllegalArgumentException("Khoảng thời gian không thuộc bảng xếp hạng: " + start + " - " + end);
+            }
+            return window.page(page, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private RankedWindow windowOf(LocalDate start, LocalDate end) {
+        if (start == null || end == null || !end.equals(LocalDate.now())) {
+            return null;
+        }
+        long days = ChronoUnit.DAYS.between(start, end) + 1;
+        for (RankedWindow window : windows) {
+            if (window.days == days) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Qua ngày mới: bỏ bucket hết hạn và dựng lại thứ hạng. Gọi khi đang giữ write lock
+     */
+    private void rollOverIfNeeded() {
+        LocalDate now = LocalDate.now();
+        if (now.equals(today)) {
+            return;
+        }
+        today = now;
+        dropExpiredBuckets();
+        rebuildWindows();
+        log.info("Bảng xếp hạng view sang ngày mới {}: {} truyện trong 30 ngày", today,
+                windows[windows.length - 1].size());
+    }
+
+    private void dropExpiredBuckets() {
+        dailyBuckets.headMap(today.minusDays(MAX_WINDOW_DAYS - 1)).clear();
+        dailyBuckets.tailMap(today, false).clear();
+    }
+
+    private void rebuildWindows() {
+        for (RankedWindow window : windows) {
+            Map<Long, Long> totals = new HashMap<>();
+            dailyBuckets.tailMap(today.minusDays(window.days - 1), true)
+                    .forEach((date, views) -> views.forEach((storyId, count) -> totals.merge(storyId, count, Long::sum)));
+            window.rebuild(totals);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getAppliedViews() {
+        return appliedViews.get();
+    }
+
+    public long getResyncCount() {
+        return resyncCount.get();
+    }
+
+    public long getLastResyncMillis() {
+        return lastResyncMillis.get();
+    }
+
+    public int getTrackedStories() {
+        lock.readLock().lock();
+        try {
+            return windows[windows.length - 1].size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Thứ hạng của 1 cửa sổ: danh sách storyId đã sắp xếp (views giảm dần, storyId tăng dần khi bằng views)
+     * và vị trí của từng truyện để đổi chỗ khi tăng view
+     */
+    private static final class RankedWindow {
+        private final int days;
+        private final List<Long> ranking = new ArrayList<>();
+        private final Map<Long, Integer> positions = new HashMap<>();
+        private final Map<Long, Long> totals = new HashMap<>();
+
+        private RankedWindow(int days) {
+            this.days = days;
+        }
+
+        private void add(Long storyId, long delta) {
+            long total = totals.merge(storyId, delta, Long::sum);
+            Integer position = positions.get(storyId);
+            if (position == null) {
+                position = ranking.size();
+                ranking.add(storyId);
+            }
+            // Nổi lên trên cho tới khi truyện liền trên có nhiều view hơn
+            while (position > 0 && ranksBefore(storyId, total, ranking.get(position - 1))) {
+                Long above = ranking.get(position - 1);
+                ranking.set(position, above);
+                positions.put(above, position);
+                position--;
+            }
+            ranking.set(position, storyId);
+            positions.put(storyId, position);
+        }
+
+        private boolean ranksBefore(Long storyId, long total, Long other) {
+            long otherTotal = totals.get(other);
+            return total > otherTotal || (total == otherTotal && storyId < other);
+        }
+
+        private void rebuild(Map<Long, Long> newTotals) {
+            totals.clear();
+            totals.putAll(newTotals);
+            ranking.clear();
+            ranking.addAll(newTotals.keySet());
+            ranking.sort(Comparator.<Long>comparingLong(totals::get).reversed().thenComparing(Comparator.naturalOrder()));
+            positions.clear();
+            for (int i = 0; i < ranking.size(); i++) {
+                positions.put(ranking.get(i), i);
+            }
+        }
+
+        private Page page(int page, int size) {
+            int from = (int) Math.min((long) page * size, ranking.size());
+            int to = Math.min(from + size, ranking.size());
+            List<RankedStory> items = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                Long storyId = ranking.get(i);
+                items.add(new RankedStory(storyId, totals.get(storyId)));
+            }
+            return new Page(items, ranking.size());
+        }
+
+        private int size() {
+            return ranking.size();
+        }
+    }
+
+    /**
+     * 1 trang của bảng xếp hạng và tổng số truyện trong cửa sổ
+     */
+    public record Page(List<RankedStory> items, long totalStories) {
+    }
+
+    /**
+     * Truyện kèm tổng view trong cửa sổ, dùng chung kiểu với kết quả truy vấn top stories
+     */
+    public record RankedStory(Long storyId, Long totalViews)
+            implements StoryViewsDailyRepository.TopStoryViewsProjection {
+
+        @Override
+        public Long getStoryId() {
+            return storyId;
+        }
+
+        @Override
+        public Long getTotalViews() {
+            return totalViews;
+        }
+    }
+}
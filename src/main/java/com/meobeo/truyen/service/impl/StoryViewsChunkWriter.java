@@ -0,0 +1,44 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.repository.StoryViewsDailyRepository;
+import com.meobeo.truyen.service.interfaces.StoryStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ghi 1 chunk view đã cộng dồn xuống DB.
+ *
+ * Upsert story_views_daily và cộng story_stats chạy chung 1 transaction: chunk lỗi sẽ rollback
+ * cả 2 câu nên StoryViewsServiceImpl có thể trả chunk về buffer mà không bị đếm trùng
+ */
+@Component
+@RequiredArgsConstructor
+public class StoryViewsChunkWriter {
+
+    private final StoryViewsDailyRepository storyViewsDailyRepository;
+    private final StoryStatsService storyStatsService;
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void write(List<Map.Entry<StoryViewCounterBuffer.ViewKey, Long>> chunk) {
+        Long[] storyIds = new Long[chunk.size()];
+        String[] viewDates = new String[chunk.size()];
+        Long[] views = new Long[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            storyIds[i] = chunk.get(i).getKey().storyId();
+            viewDates[i] = chunk.get(i).getKey().viewDate().toString();
+            views[i] = chunk.get(i).getValue();
+        }
+        storyViewsDailyRepository.upsertIncrementBatch(storyIds, viewDates, views);
+
+        // Cộng dồn tổng view vào story_stats
+        Map<Long, Long> viewsByStory = new HashMap<>();
+        chunk.forEach(entry -> viewsByStory.merge(entry.getKey().storyId(), entry.getValue(), Long::sum));
+        storyStatsService.incrementViews(viewsByStory);
+    }
+}
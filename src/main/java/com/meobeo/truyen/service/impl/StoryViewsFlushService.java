@@ -0,0 +1,40 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.service.interfaces.StoryViewsService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StoryViewsFlushService {
+
+    private final StoryViewsService storyViewsService;
+    private final StoryViewCounterBuffer viewCounterBuffer;
+
+    /**
+     * Flush view đang buffer xuống story_views_daily định kỳ (mặc định 5 giây)
+     */
+    @Scheduled(fixedDelayString = "${views.buffer.flush-interval-ms:5000}")
+    public void flushViews() {
+        try {
+            storyViewsService.flushBufferedViews();
+        } catch (Exception e) {
+            log.error("Lỗi flush story views: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Flush lần cuối khi tắt ứng dụng để không mất view trong buffer
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        long flushed = storyViewsService.flushBufferedViews();
+        log.info("Flush views khi shutdown: {} views, còn lại {} key chưa ghi (recorded={}, deduped={}, dropped={})",
+                flushed, viewCounterBuffer.getPendingKeys(), viewCounterBuffer.getRecordedViews(),
+                viewCounterBuffer.getDedupedViews(), viewCounterBuffer.getDroppedViews());
+    }
+}
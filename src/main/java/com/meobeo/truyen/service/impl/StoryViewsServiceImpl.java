@@ -1,7 +1,7 @@
 package com.meobeo.truyen.service.impl;
 
+import com.meobeo.truyen.config.CacheConfig;
 import com.meobeo.truyen.domain.entity.Story;
-import com.meobeo.truyen.domain.entity.StoryViewSession;
 import com.meobeo.truyen.domain.response.story.AnalyticsSeriesResponse;
 import com.meobeo.truyen.domain.response.story.TopStoriesResponse;
 import com.meobeo.truyen.repository.StoryRepository;
@@ -14,13 +14,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -35,6 +35,12 @@ public class StoryViewsServiceImpl implements StoryViewsService {
     private final StoryViewSessionRepository storyViewSessionRepository;
     private final StoryRepository storyRepository;
     private final ViewSpamProtection viewSpamProtection;
+    private final StoryViewCounterBuffer viewCounterBuffer;
+    private final StoryViewLeaderboard storyViewLeaderboard;
+    private final StoryViewsChunkWriter storyViewsChunkWriter;
+
+    // Số (truyện, ngày) tối đa trong 1 câu upsert
+    private static final int FLUSH_CHUNK_SIZE = 1000;
 
     @Value("${views.spam.protection.minutes:30}")
     private int spamProtectionMinutes;
@@ -42,49 +48,78 @@ public class StoryViewsServiceImpl implements StoryViewsService {
     @Override
     public void increaseView(Long storyId) {
         try {
-            // Lấy thông tin session và IP
+            // Lấy thông tin session và IP ngay trên request thread
             String sessionId = viewSpamProtection.getSessionId();
             String ipAddress = viewSpamProtection.getClientIpAddress();
-            String userAgent = viewSpamProtection.getUserAgent();
-
-            // Kiểm tra spam protection
-            LocalDateTime since = LocalDateTime.now().minusMinutes(spamProtectionMinutes);
-
-            boolean sessionExists = storyViewSessionRepository.existsByStoryAndSessionSince(storyId, sessionId, since);
-            boolean ipExists = storyViewSessionRepository.existsByStoryAndIpSince(storyId, ipAddress, since);
 
-            if (sessionExists || ipExists) {
-                log.debug("Bỏ qua tăng view cho story {} - đã view trong {} phút qua", storyId, spamProtectionMinutes);
-                return;
+            // Chống spam và cộng dồn trong bộ nhớ, StoryViewsFlushService sẽ ghi xuống DB theo lô
+            if (viewCounterBuffer.record(storyId, sessionId, ipAddress)) {
+                log.debug("Đã ghi nhận view cho story {} từ IP {} session {}", storyId, ipAddress, sessionId);
+            } else {
+                log.debug("Bỏ qua tăng view cho story {} - đã view trong {} phút qua hoặc buffer đầy",
+                        storyId, spamProtectionMinutes);
             }
-
-            // Lưu session view
-            StoryViewSession session = new StoryViewSession();
-            session.setStoryId(storyId);
-            session.setSessionId(sessionId);
-            session.setIpAddress(ipAddress);
-            session.setUserAgent(userAgent);
-            storyViewSessionRepository.save(session);
-
-            // Tăng view count
-            LocalDate today = LocalDate.now();
-            storyViewsDailyRepository.upsertIncrement(storyId, today);
-
-            log.debug("Đã tăng view cho story {} từ IP {} session {}", storyId, ipAddress, sessionId);
         } catch (Exception e) {
             log.error("Lỗi khi tăng view cho story {}: {}", storyId, e.getMessage(), e);
         }
     }
 
     @Override
-    @Async("taskExecutor")
-    public void increaseViewAsync(Long storyId) {
-        increaseView(storyId);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long flushBufferedViews() {
+        // Dựng lại bảng xếp hạng trước khi drain để view của lần flush này không bị tính 2 lần
+        if (storyViewLeaderboard.isResyncDue()) {
+            resyncLeaderboard();
+        }
+
+        Map<StoryViewCounterBuffer.ViewKey, Long> pending = viewCounterBuffer.drain();
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<Map.Entry<StoryViewCounterBuffer.ViewKey, Long>> entries = new ArrayList<>(pending.entrySet());
+        long flushedViews = 0;
+
+        for (int from = 0; from < entries.size(); from += FLUSH_CHUNK_SIZE) {
+            List<Map.Entry<StoryViewCounterBuffer.ViewKey, Long>> chunk = entries.subList(from,
+                    Math.min(from + FLUSH_CHUNK_SIZE, entries.size()));
+            try {
+                storyViewsChunkWriter.write(chunk);
+                storyViewLeaderboard.recordViews(chunk);
+                flushedViews += chunk.stream().mapToLong(Map.Entry::getValue).sum();
+            } catch (Exception e) {
+                // Chunk lỗi đã rollback cả 2 câu, chỉ trả lại phần chưa ghi để lần flush sau thử lại
+                Map<StoryViewCounterBuffer.ViewKey, Long> remaining = new HashMap<>();
+                entries.subList(from, entries.size()).forEach(entry -> remaining.put(entry.getKey(), entry.getValue()));
+                viewCounterBuffer.restore(remaining);
+                viewCounterBuffer.recordFlushFailure();
+                log.error("Lỗi khi flush {} key views xuống story_views_daily: {}", remaining.size(), e.getMessage(), e);
+                break;
+            }
+        }
+
+        long elapsedMillis = System.currentTimeMillis() - startTime;
+        viewCounterBuffer.recordFlush(flushedViews, elapsedMillis);
+        log.debug("Đã flush {} views ({} key) xuống story_views_daily trong {} ms",
+                flushedViews, pending.size(), elapsedMillis);
+        return flushedViews;
+    }
+
+    private void resyncLeaderboard() {
+        try {
+            long startTime = System.currentTimeMillis();
+            var rows = storyViewsDailyRepository.findDailyViewsSince(storyViewLeaderboard.startDate());
+            storyViewLeaderboard.load(rows, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            // Giữ dữ liệu cũ, top stories vẫn đọc từ DB nếu bảng xếp hạng chưa sẵn sàng
+            log.error("Lỗi dựng lại bảng xếp hạng view: {}", e.getMessage(), e);
+        }
     }
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "analytics-daily-7d", key = "#storyId + '_' + #start + '_' + #end", unless = "#result.points.isEmpty()")
+    @Cacheable(value = CacheConfig.ANALYTICS_DAILY_7D, key = "#storyId + '_' + #start + '_' + #end", unless = "#result.points.isEmpty()")
     public AnalyticsSeriesResponse getDailyViews(Long storyId, LocalDate start, LocalDate end) {
         log.debug("Lấy daily views cho story {} từ {} đến {}", storyId, start, end);
         var rows = storyViewsDailyRepository.findDailyViews(storyId, start, end);
@@ -93,7 +128,7 @@ public class StoryViewsServiceImpl implements StoryViewsService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "analytics-weekly-4w", key = "#storyId + '_' + #start + '_' + #end", unless = "#result.points.isEmpty()")
+    @Cacheable(value = CacheConfig.ANALYTICS_WEEKLY_4W, key = "#storyId + '_' + #start + '_' + #end", unless = "#result.points.isEmpty()")
     public AnalyticsSeriesResponse getWeeklyViews(Long storyId, LocalDate start, LocalDate end) {
         log.debug("Lấy weekly views cho story {} từ {} đến {}", storyId, start, end);
         var rows = storyViewsDailyRepository.findWeeklyViews(storyId, start, end);
@@ -102,7 +137,7 @@ public class StoryViewsServiceImpl implements StoryViewsService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "analytics-monthly-12m", key = "#storyId + '_' + #start + '_' + #end", unless = "#result.points.isEmpty()")
+    @Cacheable(value = CacheConfig.ANALYTICS_MONTHLY_12M, key = "#storyId + '_' + #start + '_' + #end", unless = "#result.points.isEmpty()")
     public AnalyticsSeriesResponse getMonthlyViews(Long storyId, LocalDate start, LocalDate end) {
         log.debug("Lấy monthly views cho story {} từ {} đến {}", storyId, start, end);
         var rows = storyViewsDailyRepository.findMonthlyViews(storyId, start, end);
@@ -111,12 +146,22 @@ public class StoryViewsServiceImpl implements StoryViewsService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "top-stories-7d", key = "'top_' + #start + '_' + #end + '_' + #page + '_' + #size", unless = "#result.content.isEmpty()")
+    @Cacheable(value = CacheConfig.TOP_STORIES_7D, key = "'top_' + #start + '_' + #end + '_' + #page + '_' + #size",
+            condition = "!@storyViewLeaderboard.covers(#start, #end)", unless = "#result.content.isEmpty()")
     public TopStoriesResponse getTopStories(LocalDate start, LocalDate end, int page, int size) {
         log.debug("Lấy top stories từ {} đến {}, page {} size {}", start, end, page, size);
-        int offset = page * size;
-        var rows = storyViewsDailyRepository.findTopStories(start, end, size, offset);
-        long totalStories = storyViewsDailyRepository.countStoriesInRange(start, end);
+        List<? extends StoryViewsDailyRepository.TopStoryViewsProjection> rows;
+        long totalStories;
+        if (storyViewLeaderboard.covers(start, end)) {
+            // Cửa sổ 1/7/30 ngày tính tới hôm nay: đọc từ bảng xếp hạng trong bộ nhớ, không cache
+            StoryViewLeaderboard.Page leaderboardPage = storyViewLeaderboard.getPage(start, end, page, size);
+            rows = leaderboardPage.items();
+            totalStories = leaderboardPage.totalStories();
+        } else {
+            int offset = page * size;
+            rows = storyViewsDailyRepository.findTopStories(start, end, size, offset);
+            totalStories = storyViewsDailyRepository.countStoriesInRange(start, end);
+        }
 
         List<Long> storyIds = rows.stream().map(StoryViewsDailyRepository.TopStoryViewsProjection::getStoryId).toList();
         Map<Long, Story> storyMap = storyRepository.findAllById(storyIds).stream()
@@ -1,8 +1,8 @@
 package com.meobeo.truyen.service.impl;
 
+import com.meobeo.truyen.config.CacheConfig;
 import com.meobeo.truyen.domain.entity.TopupPackage;
 import com.meobeo.truyen.domain.entity.User;
-import com.meobeo.truyen.domain.entity.UserWallet;
 import com.meobeo.truyen.domain.entity.WalletTransaction;
 import com.meobeo.truyen.domain.enums.TransactionType;
 import com.meobeo.truyen.domain.request.topup.CreateTopupPackageRequest;
@@ -14,12 +14,13 @@ import com.meobeo.truyen.exception.BadRequestException;
 import com.meobeo.truyen.exception.ResourceNotFoundException;
 import com.meobeo.truyen.mapper.TopupPackageMapper;
 import com.meobeo.truyen.repository.TopupPackageRepository;
-import com.meobeo.truyen.repository.UserWalletRepository;
-import com.meobeo.truyen.repository.WalletTransactionRepository;
 import com.meobeo.truyen.service.TopupPackageService;
 import com.meobeo.truyen.service.interfaces.VoucherService;
+import com.meobeo.truyen.service.interfaces.WalletLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -31,13 +32,13 @@ import java.util.List;
 public class TopupPackageServiceImpl implements TopupPackageService {
 
     private final TopupPackageRepository topupPackageRepository;
-    private final UserWalletRepository userWalletRepository;
-    private final WalletTransactionRepository walletTransactionRepository;
+    private final WalletLedgerService walletLedgerService;
     private final TopupPackageMapper topupPackageMapper;
     private final VoucherService voucherService;
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.TOPUP_PACKAGES_ACTIVE, allEntries = true)
     public TopupPackageResponse createTopupPackage(CreateTopupPackageRequest request) {
         log.info("Tạo gói nạp tiền mới: {}", request.getName());
 
@@ -50,6 +51,7 @@ public class TopupPackageServiceImpl implements TopupPackageService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.TOPUP_PACKAGES_ACTIVE, allEntries = true)
     public TopupPackageResponse updateTopupPackage(Long id, UpdateTopupPackageRequest request) {
         log.info("Cập nhật gói nạp tiền với ID: {}", id);
 
@@ -65,6 +67,7 @@ public class TopupPackageServiceImpl implements TopupPackageService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.TOPUP_PACKAGES_ACTIVE, allEntries = true)
     public void deleteTopupPackage(Long id) {
         log.info("Xóa gói nạp tiền với ID: {}", id);
 
@@ -78,6 +81,7 @@ public class TopupPackageServiceImpl implements TopupPackageService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.TOPUP_PACKAGES_ACTIVE, key = "'active'")
     public TopupPackageListResponse getAllActivePackages() {
         log.info("Lấy danh sách tất cả gói nạp tiền đang hoạt động");
 
@@ -121,35 +125,16 @@ public class TopupPackageServiceImpl implements TopupPackageService {
         // Chuyển đổi về int cho balance (giữ nguyên logic cũ)
         int finalAmountInt = finalAmount.intValue();
 
-        // Lấy hoặc tạo ví của user
-        UserWallet userWallet = userWalletRepository.findById(user.getId())
-                .orElseGet(() -> {
-                    UserWallet newWallet = new UserWallet();
-                    newWallet.setUserId(user.getId());
-                    newWallet.setUser(user);
-                    newWallet.setBalance(0);
-                    return userWalletRepository.save(newWallet);
-                });
-
-        // Cập nhật số dư
-        int newBalance = userWallet.getBalance() + finalAmountInt;
-        userWallet.setBalance(newBalance);
-        userWalletRepository.save(userWallet);
-
-        // Tạo transaction
-        WalletTransaction transaction = new WalletTransaction();
-        transaction.setAmount(finalAmountInt);
-        transaction.setType(TransactionType.TOPUP);
-
         String description = "Nạp tiền trực tiếp gói: " + topupPackage.getName() + " (Mệnh giá: "
                 + topupPackage.getAmount()
                 + " VND)";
         if (discountAmount.compareTo(java.math.BigDecimal.ZERO) > 0) {
             description += " - Giảm giá: " + discountAmount + " VND (Voucher: " + request.getVoucherCode() + ")";
         }
-        transaction.setDescription(description);
-        transaction.setUser(user);
-        walletTransactionRepository.save(transaction);
+
+        // Cộng số dư (tạo ví nếu chưa có) và ghi giao dịch ví
+        int newBalance = walletLedgerService.credit(user.getId(), WalletTransaction.CurrencyType.VND,
+                finalAmountInt, TransactionType.TOPUP, description).getBalance();
 
         log.info("Nạp tiền trực tiếp thành công cho user ID: {}. Số dư mới: {} VND, Giảm giá: {} VND",
                 user.getId(), newBalance, discountAmount);
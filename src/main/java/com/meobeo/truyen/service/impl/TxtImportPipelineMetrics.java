@@ -0,0 +1,178 @@
+package com.meobeo.truyen.service.impl;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thống kê pipeline import TXT theo từng stage (đọc/parse và ghi DB).
+ * Giữ số liệu cộng dồn toàn hệ thống, mỗi job có {@link JobStats} riêng để log khi kết thúc.
+ */
+@Component
+public class TxtImportPipelineMetrics {
+
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private final LongAdder completedJobs = new LongAdder();
+    private final LongAdder parsedChapters = new LongAdder();
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder producerBlockedNanos = new LongAdder();
+    private final LongAdder writtenChapters = new LongAdder();
+    private final LongAdder writtenBatches = new LongAdder();
+    private final LongAdder writtenBytes = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder writerIdleNanos = new LongAdder();
+
+    /**
+     * Bắt đầu theo dõi 1 job import
+     */
+    public JobStats startJob() {
+        activeJobs.incrementAndGet();
+        return new JobStats();
+    }
+
+    public int getActiveJobs() {
+        return activeJobs.get();
+    }
+
+    public long getCompletedJobs() {
+        return completedJobs.sum();
+    }
+
+    public long getParsedChapters() {
+        return parsedChapters.sum();
+    }
+
+    public long getInputBytes() {
+        return inputBytes.sum();
+    }
+
+    public long getParseMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(parseNanos.sum());
+    }
+
+    public long getProducerBlockedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(producerBlockedNanos.sum());
+    }
+
+    public long getWrittenChapters() {
+        return writtenChapters.sum();
+    }
+
+    public long getWrittenBatches() {
+        return writtenBatches.sum();
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes.sum();
+    }
+
+    public long getWriteMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(writeNanos.sum());
+    }
+
+    public long getWriterIdleMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(writerIdleNanos.sum());
+    }
+
+    /**
+     * Số liệu của 1 job. Stage đọc và stage ghi chạy trên 2 thread khác nhau nên dùng AtomicLong
+     */
+    public final class JobStats {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong parsed = new AtomicLong();
+        private final AtomicLong input = new AtomicLong();
+        private final AtomicLong parseElapsed = new AtomicLong();
+        private final AtomicLong producerBlocked = new AtomicLong();
+        private final AtomicLong written = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong writeElapsed = new AtomicLong();
+        private final AtomicLong writerIdle = new AtomicLong();
+
+        private JobStats() {
+        }
+
+        public void recordParsed() {
+            parsed.incrementAndGet();
+            parsedChapters.increment();
+        }
+
+        /**
+         * Kích thước file đầu vào
+         */
+        public void recordInputBytes(long size) {
+            input.set(size);
+            inputBytes.add(size);
+        }
+
+        /**
+         * Tổng thời gian stage đọc (gồm cả thời gian chờ back-pressure)
+         */
+        public void recordParseFinished(long elapsedNanos) {
+            parseElapsed.set(elapsedNanos);
+            parseNanos.add(elapsedNanos - producerBlocked.get());
+        }
+
+        public void recordProducerBlocked(long nanos) {
+            producerBlocked.addAndGet(nanos);
+            producerBlockedNanos.add(nanos);
+        }
+
+        public void recordBatchWritten(int chapters, long contentBytes, long nanos) {
+            written.addAndGet(chapters);
+            batches.incrementAndGet();
+            bytes.addAndGet(contentBytes);
+            writeElapsed.addAndGet(nanos);
+            writtenChapters.add(chapters);
+            writtenBatches.increment();
+            writtenBytes.add(contentBytes);
+            writeNanos.add(nanos);
+        }
+
+        public void recordWriterIdle(long nanos) {
+            writerIdle.addAndGet(nanos);
+            writerIdleNanos.add(nanos);
+        }
+
+        public void finish() {
+            activeJobs.decrementAndGet();
+            completedJobs.increment();
+        }
+
+        public long getParsedChapters() {
+            return parsed.get();
+        }
+
+        public long getWrittenChapters() {
+            return written.get();
+        }
+
+        /**
+         * Tóm tắt throughput từng stage để ghi log
+         */
+        public String summary() {
+            long parseOnlyNanos = Math.max(0, parseElapsed.get() - producerBlocked.get());
+            return String.format(
+                    "tổng %d ms | đọc: %d chương, %.1f chương/s, %.2f MB/s, chờ back-pressure %d ms | "
+                            + "ghi: %d chương/%d batch, %.1f chương/s, %.2f MB/s, chờ dữ liệu %d ms",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    parsed.get(), perSecond(parsed.get(), parseOnlyNanos),
+                    perSecond(input.get(), parseOnlyNanos) / BYTES_PER_MB,
+                    TimeUnit.NANOSECONDS.toMillis(producerBlocked.get()),
+                    written.get(), batches.get(), perSecond(written.get(), writeElapsed.get()),
+                    perSecond(bytes.get(), writeElapsed.get()) / BYTES_PER_MB,
+                    TimeUnit.NANOSECONDS.toMillis(writerIdle.get()));
+        }
+
+        private double perSecond(long count, long nanos) {
+            return nanos > 0 ? count * 1_000_000_000.0 / nanos : 0.0;
+        }
+    }
+}
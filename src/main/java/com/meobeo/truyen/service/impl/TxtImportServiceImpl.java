@@ -2,6 +2,7 @@ package com.meobeo.truyen.service.impl;
 
 import com.meobeo.truyen.domain.entity.Story;
 import com.meobeo.truyen.domain.entity.User;
+import com.meobeo.truyen.domain.enums.AsyncJobType;
 import com.meobeo.truyen.domain.request.story.TxtImportRequest;
 import com.meobeo.truyen.domain.response.story.TxtImportResponse;
 import com.meobeo.truyen.exception.BadRequestException;
@@ -10,17 +11,19 @@ import com.meobeo.truyen.repository.StoryRepository;
 import com.meobeo.truyen.repository.UserRepository;
 import com.meobeo.truyen.service.interfaces.TxtImportService;
 import com.meobeo.truyen.service.interfaces.AsyncTxtImportService;
+import com.meobeo.truyen.service.interfaces.AsyncJobRegistry;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @RequiredArgsConstructor
@@ -30,6 +33,7 @@ public class TxtImportServiceImpl implements TxtImportService {
     private final StoryRepository storyRepository;
     private final UserRepository userRepository;
     private final AsyncTxtImportService asyncTxtImportService;
+    private final AsyncJobRegistry asyncJobRegistry;
 
     @Override
     public String startTxtImport(MultipartFile txtFile, TxtImportRequest request, Long userId) {
@@ -87,16 +91,18 @@ public class TxtImportServiceImpl implements TxtImportService {
         response.setStoryTitle(story.getTitle());
         response.setMessage("Đã nhận yêu cầu import. Đang chuẩn bị xử lý...");
 
-        // Sử dụng AsyncTxtImportService để xử lý bất đồng bộ
-        asyncTxtImportService.getImportJobs().put(jobId, response);
-        asyncTxtImportService.getJobUserMap().put(jobId, userId);
-        asyncTxtImportService.getCancelFlags().put(jobId, new AtomicBoolean(false));
+        // Lưu file upload xuống file tạm: request kết thúc thì MultipartFile có thể bị dọn,
+        // job async đọc file tạm theo stream và tự xóa khi xong
+        Path tempFile = saveToTempFile(txtFile);
+
+        // Đăng ký job vào registry dùng chung để node nào cũng trả được trạng thái
+        asyncJobRegistry.register(jobId, AsyncJobType.TXT_IMPORT, userId, response);
 
         log.info("Bắt đầu gọi async task...");
         log.info("Thread trước khi gọi async: {}", Thread.currentThread().getName());
 
         // Bắt đầu xử lý async - KHÔNG chờ kết quả
-        asyncTxtImportService.processTxtFileAsync(txtFile, request, userId, jobId);
+        asyncTxtImportService.processTxtFileAsync(tempFile, request, userId, jobId);
 
         log.info("Async task đã được gọi, trả về jobId: {}", jobId);
         log.info("Thread sau khi gọi async: {}", Thread.currentThread().getName());
@@ -104,6 +110,17 @@ public class TxtImportServiceImpl implements TxtImportService {
         return jobId;
     }
 
+    private Path saveToTempFile(MultipartFile txtFile) {
+        try {
+            Path tempFile = Files.createTempFile("txt-import-", ".txt");
+            txtFile.transferTo(tempFile);
+            return tempFile;
+        } catch (IOException e) {
+            log.error("Lỗi lưu file TXT tạm: {}", e.getMessage(), e);
+            throw new BadRequestException("Không thể đọc file TXT: " + e.getMessage());
+        }
+    }
+
     public boolean isTxtFile(MultipartFile file) {
         String originalFilename = file.getOriginalFilename();
         if (originalFilename == null) {
@@ -114,32 +131,19 @@ public class TxtImportServiceImpl implements TxtImportService {
 
     @Override
     public Optional<TxtImportResponse> getImportStatus(String jobId) {
-        return Optional.ofNullable(asyncTxtImportService.getImportJobs().get(jobId));
+        return asyncJobRegistry.find(jobId, TxtImportResponse.class);
     }
 
     @Override
     public List<TxtImportResponse> getUserJobs(Long userId) {
-        List<TxtImportResponse> userJobs = new ArrayList<>();
-
-        for (Map.Entry<String, Long> entry : asyncTxtImportService.getJobUserMap().entrySet()) {
-            if (entry.getValue().equals(userId)) {
-                TxtImportResponse job = asyncTxtImportService.getImportJobs().get(entry.getKey());
-                if (job != null) {
-                    userJobs.add(job);
-                }
-            }
-        }
-
-        // Sắp xếp theo thời gian tạo mới nhất
-        userJobs.sort((a, b) -> b.getStartTime().compareTo(a.getStartTime()));
-
-        return userJobs;
+        // Registry trả về theo thời gian tạo mới nhất
+        return asyncJobRegistry.findByUser(userId, AsyncJobType.TXT_IMPORT, TxtImportResponse.class);
     }
 
     @Override
     public boolean cancelImport(String jobId, Long userId) {
         // Kiểm tra quyền: chỉ user tạo job hoặc admin mới được hủy
-        Long jobUserId = asyncTxtImportService.getJobUserMap().get(jobId);
+        Long jobUserId = asyncJobRegistry.findOwner(jobId).orElse(null);
         if (jobUserId == null || !jobUserId.equals(userId)) {
             // Kiểm tra xem user có phải admin không
             User user = userRepository.findById(userId).orElse(null);
@@ -149,65 +153,12 @@ public class TxtImportServiceImpl implements TxtImportService {
             }
         }
 
-        AtomicBoolean cancelFlag = asyncTxtImportService.getCancelFlags().get(jobId);
-        if (cancelFlag != null) {
-            cancelFlag.set(true);
-            TxtImportResponse response = asyncTxtImportService.getImportJobs().get(jobId);
-            if (response != null) {
-                response.setStatus("CANCELLED");
-                response.setMessage("Import đã bị hủy bởi người dùng");
-            }
-            return true;
-        }
-        return false;
+        // Node đang chạy job sẽ thấy cờ hủy và chuyển job sang CANCELLED
+        return asyncJobRegistry.requestCancel(jobId);
     }
 
     @Override
     public void cleanupCompletedJob(String jobId) {
-        asyncTxtImportService.getImportJobs().remove(jobId);
-        asyncTxtImportService.getCancelFlags().remove(jobId);
-        asyncTxtImportService.getJobUserMap().remove(jobId);
-    }
-
-    /**
-     * Cleanup tất cả job đã hoàn thành (COMPLETED, FAILED, CANCELLED) cũ hơn 24 giờ
-     * Được gọi bởi scheduled task
-     */
-    public void cleanupOldJobs() {
-        LocalDateTime cutoffTime = LocalDateTime.now().minusHours(24);
-        List<String> jobsToRemove = new ArrayList<>();
-
-        for (Map.Entry<String, TxtImportResponse> entry : asyncTxtImportService.getImportJobs().entrySet()) {
-            TxtImportResponse job = entry.getValue();
-            String status = job.getStatus();
-
-            // Chỉ cleanup job đã hoàn thành và cũ hơn 24 giờ
-            if (("COMPLETED".equals(status) || "FAILED".equals(status) || "CANCELLED".equals(status))
-                    && job.getStartTime().isBefore(cutoffTime)) {
-                jobsToRemove.add(entry.getKey());
-            }
-        }
-
-        for (String jobId : jobsToRemove) {
-            cleanupCompletedJob(jobId);
-            log.info("Đã cleanup job cũ: jobId={}", jobId);
-        }
-
-        if (!jobsToRemove.isEmpty()) {
-            log.info("Đã cleanup {} job cũ", jobsToRemove.size());
-        }
-    }
-
-    /**
-     * Scheduled task để cleanup job cũ mỗi giờ
-     */
-    @Scheduled(fixedRate = 3600000) // 1 giờ = 3600000ms
-    public void scheduledCleanup() {
-        try {
-            cleanupOldJobs();
-        } catch (Exception e) {
-            log.error("Lỗi trong scheduled cleanup: {}", e.getMessage(), e);
-        }
+        asyncJobRegistry.remove(jobId);
     }
-
 }
@@ -16,6 +16,7 @@ import com.meobeo.truyen.exception.AccountNotActivatedException;
 import com.meobeo.truyen.mapper.UserMapper;
 import com.meobeo.truyen.repository.RoleRepository;
 import com.meobeo.truyen.repository.UserRepository;
+import com.meobeo.truyen.security.CustomUserDetailsService;
 import com.meobeo.truyen.service.interfaces.OtpService;
 import com.meobeo.truyen.service.interfaces.UserService;
 import lombok.RequiredArgsConstructor;
@@ -37,6 +38,7 @@ public class UserServiceImpl implements UserService {
     private final PasswordEncoder passwordEncoder;
     private final UserMapper userMapper;
     private final OtpService otpService;
+    private final CustomUserDetailsService customUserDetailsService;
 
     @Override
     @Transactional
@@ -208,6 +210,7 @@ public class UserServiceImpl implements UserService {
         // Cập nhật mật khẩu mới
         user.setPassword(passwordEncoder.encode(resetPasswordDto.getNewPassword()));
         userRepository.save(user);
+        customUserDetailsService.evictUserPrincipal(user.getId());
 
         // Đánh dấu OTP đã sử dụng
         otpService.markOtpAsUsed(resetPasswordDto.getEmail(), resetPasswordDto.getOtpCode());
@@ -24,7 +24,9 @@ import com.meobeo.truyen.repository.WalletTransactionRepository;
 import com.meobeo.truyen.service.interfaces.AsyncEmailService;
 import com.meobeo.truyen.service.interfaces.VnpayService;
 import com.meobeo.truyen.service.interfaces.VoucherService;
+import com.meobeo.truyen.service.interfaces.WalletLedgerService;
 import com.meobeo.truyen.utils.CurrencyFormatUtil;
+import com.meobeo.truyen.utils.VnpaySignatureUtil;
 import com.meobeo.truyen.mapper.PaymentTransactionMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -37,15 +39,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import org.springframework.beans.factory.annotation.Value;
 
 @Service
@@ -58,6 +56,7 @@ public class VnpayServiceImpl implements VnpayService {
     private final TopupPackageRepository topupPackageRepository;
     private final UserWalletRepository userWalletRepository;
     private final WalletTransactionRepository walletTransactionRepository;
+    private final WalletLedgerService walletLedgerService;
     private final VoucherService voucherService;
     private final PaymentTransactionMapper paymentTransactionMapper;
     private final AsyncEmailService asyncEmailService;
@@ -339,18 +338,9 @@ public class VnpayServiceImpl implements VnpayService {
     public void updateUserWallet(User user, PaymentTransaction transaction) {
         log.info("Cập nhật ví cho user: {} với số tiền: {}", user.getId(), transaction.getAmount());
 
-        UserWallet userWallet = userWalletRepository.findById(user.getId())
-                .orElseGet(() -> {
-                    UserWallet newWallet = new UserWallet();
-                    newWallet.setUserId(user.getId());
-                    newWallet.setUser(user);
-                    newWallet.setBalance(0);
-                    return userWalletRepository.save(newWallet);
-                });
-
-        int newBalance = userWallet.getBalance() + transaction.getOriginalAmount().intValue();
-        userWallet.setBalance(newBalance);
-        userWalletRepository.save(userWallet);
+        // Lịch sử giao dịch được ghi riêng ở createWalletTransaction
+        int newBalance = walletLedgerService.adjust(user.getId(), WalletTransaction.CurrencyType.VND,
+                transaction.getOriginalAmount().intValue()).getBalance();
 
         log.info("Đã cập nhật ví thành công, số dư mới: {}", newBalance);
     }
@@ -427,40 +417,13 @@ public class VnpayServiceImpl implements VnpayService {
         log.info("===> Params gửi sang VNPay:");
         vnpayParams.forEach((k, v) -> log.info("  {} = '{}'", k, v));
 
-        // Build hash data và URL theo chuẩn VNPAY (giống mã tham khảo)
-        List<String> fieldNames = new ArrayList<>(vnpayParams.keySet());
-        Collections.sort(fieldNames);
-
-        StringBuilder hashData = new StringBuilder();
-        StringBuilder query = new StringBuilder();
-        Iterator<String> itr = fieldNames.iterator();
-
-        while (itr.hasNext()) {
-            String fieldName = itr.next();
-            String fieldValue = vnpayParams.get(fieldName);
-            if ((fieldValue != null) && (fieldValue.length() > 0)) {
-                // Build hash data với URLEncoder
-                hashData.append(fieldName);
-                hashData.append('=');
-                hashData.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII));
-
-                // Build query URL với URLEncoder
-                query.append(URLEncoder.encode(fieldName, StandardCharsets.US_ASCII));
-                query.append('=');
-                query.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII));
-
-                if (itr.hasNext()) {
-                    query.append('&');
-                    hashData.append('&');
-                }
-            }
-        }
-
-        String queryUrl = query.toString();
-        log.info("===> Hash data string: [{}]", hashData.toString());
+        // Build hash data theo chuẩn VNPAY, query URL trùng với hash data
+        String hashData = VnpaySignatureUtil.buildHashData(vnpayParams);
+        String queryUrl = hashData;
+        log.info("===> Hash data string: [{}]", hashData);
 
         // Tạo chữ ký HMAC-SHA512
-        String vnp_SecureHash = sha512(vnpayConfig.getHashSecret(), hashData.toString());
+        String vnp_SecureHash = VnpaySignatureUtil.hmacSha512(vnpayConfig.getHashSecret(), hashData);
         log.info("===> Hash secret: [{}]", vnpayConfig.getHashSecret());
         log.info("===> Secure hash: [{}]", vnp_SecureHash);
 
@@ -471,48 +434,6 @@ public class VnpayServiceImpl implements VnpayService {
         return fullUrl;
     }
 
-    private String buildHashDataOldStyle(Map<String, String> params) {
-        List<String> fieldNames = new ArrayList<>(params.keySet());
-        Collections.sort(fieldNames);
-
-        StringBuilder hashData = new StringBuilder();
-        for (String fieldName : fieldNames) {
-            String value = params.get(fieldName);
-            if (value != null && !value.isEmpty()) {
-                if (hashData.length() > 0) {
-                    hashData.append("&");
-                }
-                hashData.append(fieldName).append("=").append(value);
-            }
-        }
-        return hashData.toString();
-    }
-
-    private String sha512(String key, String data) {
-        try {
-            Mac sha512Hmac = Mac.getInstance("HmacSHA512");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA512");
-            sha512Hmac.init(secretKeySpec);
-
-            byte[] hmacBytes = sha512Hmac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-
-            // Chuyển đổi sang hex string
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hmacBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-
-            return hexString.toString();
-        } catch (Exception e) {
-            log.error("Lỗi tạo HMAC SHA512: {}", e.getMessage(), e);
-            throw new RuntimeException("Error creating HMAC SHA-512 hash", e);
-        }
-    }
-
     /**
      * Validate chữ ký VNPAY
      */
@@ -528,28 +449,8 @@ public class VnpayServiceImpl implements VnpayService {
             paramsCopy.remove("vnp_SecureHash");
             paramsCopy.remove("vnp_SecureHashType");
 
-            // Sort key theo alphabet
-            List<String> fieldNames = new ArrayList<>(paramsCopy.keySet());
-            Collections.sort(fieldNames);
-
-            // Build chuỗi hashData: key=value (value đã URL-encode) nối bằng '&'
-            StringBuilder hashDataBuilder = new StringBuilder();
-            Iterator<String> itr = fieldNames.iterator();
-            while (itr.hasNext()) {
-                String fieldName = itr.next();
-                String fieldValue = paramsCopy.get(fieldName);
-                if (fieldValue != null && !fieldValue.isEmpty()) {
-                    hashDataBuilder.append(fieldName);
-                    hashDataBuilder.append('=');
-                    hashDataBuilder.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII));
-                    if (itr.hasNext()) {
-                        hashDataBuilder.append('&');
-                    }
-                }
-            }
-
-            String hashData = hashDataBuilder.toString();
-            String expectedHash = sha512(vnpayConfig.getHashSecret(), hashData);
+            String hashData = VnpaySignatureUtil.buildHashData(paramsCopy);
+            String expectedHash = VnpaySignatureUtil.hmacSha512(vnpayConfig.getHashSecret(), hashData);
             log.info("===> Chuỗi hashData từ callback (encoded): [{}]", hashData);
             log.info("===> Expected hash (tự tính): [{}]", expectedHash);
             log.info("===> SecureHash từ VNPay gửi về: [{}]", secureHash);
@@ -0,0 +1,149 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.domain.entity.UserWallet;
+import com.meobeo.truyen.domain.entity.WalletTransaction;
+import com.meobeo.truyen.domain.enums.TransactionType;
+import com.meobeo.truyen.exception.InsufficientBalanceException;
+import com.meobeo.truyen.exception.ResourceNotFoundException;
+import com.meobeo.truyen.repository.UserWalletRepository;
+import com.meobeo.truyen.repository.WalletTransactionRepository;
+import com.meobeo.truyen.service.interfaces.WalletLedgerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WalletLedgerServiceImpl implements WalletLedgerService {
+
+    private final UserWalletRepository userWalletRepository;
+    private final WalletTransactionRepository walletTransactionRepository;
+
+    @Override
+    @Transactional
+    public UserWalletRepository.WalletBalanceProjection apply(Long userId, List<Entry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            throw new IllegalArgumentException("Phải có ít nhất 1 bút toán");
+        }
+
+        int balanceDelta = 0;
+        int spiritStoneDelta = 0;
+        int ticketDelta = 0;
+        for (Entry entry : entries) {
+            switch (entry.currency()) {
+                case VND -> balanceDelta = Math.addExact(balanceDelta, entry.amount());
+                case SPIRIT_STONE -> spiritStoneDelta = Math.addExact(spiritStoneDelta, entry.amount());
+                case RECOMMENDATION_TICKET -> ticketDelta = Math.addExact(ticketDelta, entry.amount());
+            }
+        }
+
+        UserWalletRepository.WalletBalanceProjection wallet = applyDelta(userId, balanceDelta, spiritStoneDelta,
+                ticketDelta);
+        appendTransactions(userId, entries);
+
+        log.debug("Cập nhật ví user {}: VND {}, linh thạch {}, phiếu đề cử {}", userId, balanceDelta,
+                spiritStoneDelta, ticketDelta);
+        return wallet;
+    }
+
+    @Override
+    @Transactional
+    public UserWalletRepository.WalletBalanceProjection debit(Long userId, WalletTransaction.CurrencyType currency,
+            int amount, TransactionType type, String description) {
+        validateAmount(amount);
+        return apply(userId, List.of(new Entry(currency, -amount, type, description)));
+    }
+
+    @Override
+    @Transactional
+    public UserWalletRepository.WalletBalanceProjection credit(Long userId, WalletTransaction.CurrencyType currency,
+            int amount, TransactionType type, String description) {
+        validateAmount(amount);
+        return apply(userId, List.of(new Entry(currency, amount, type, description)));
+    }
+
+    @Override
+    @Transactional
+    public UserWalletRepository.WalletBalanceProjection adjust(Long userId, WalletTransaction.CurrencyType currency,
+            int delta) {
+        return applyDelta(userId,
+                currency == WalletTransaction.CurrencyType.VND ? delta : 0,
+                currency == WalletTransaction.CurrencyType.SPIRIT_STONE ? delta : 0,
+                currency == WalletTransaction.CurrencyType.RECOMMENDATION_TICKET ? delta : 0);
+    }
+
+    /**
+     * Chỉ cộng thì upsert (tạo ví nếu chưa có), có trừ thì UPDATE có điều kiện số dư không âm
+     */
+    private UserWalletRepository.WalletBalanceProjection applyDelta(Long userId, int balanceDelta,
+            int spiritStoneDelta, int ticketDelta) {
+        if (balanceDelta >= 0 && spiritStoneDelta >= 0 && ticketDelta >= 0) {
+            return userWalletRepository.upsertCredit(userId, balanceDelta, spiritStoneDelta, ticketDelta);
+        }
+
+        return userWalletRepository.applyDeltaIfSufficient(userId, balanceDelta, spiritStoneDelta, ticketDelta)
+                .orElseThrow(() -> insufficientBalance(userId, balanceDelta, spiritStoneDelta, ticketDelta));
+    }
+
+    private void appendTransactions(Long userId, List<Entry> entries) {
+        int size = entries.size();
+        Integer[] amounts = new Integer[size];
+        String[] currencies = new String[size];
+        String[] types = new String[size];
+        String[] descriptions = new String[size];
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries.get(i);
+            amounts[i] = entry.amount();
+            currencies[i] = entry.currency().name();
+            types[i] = entry.type().name();
+            descriptions[i] = entry.description();
+        }
+        walletTransactionRepository.appendTransactions(userId, amounts, currencies, types, descriptions,
+                LocalDateTime.now());
+    }
+
+    /**
+     * Câu UPDATE không cập nhật dòng nào: ví không tồn tại hoặc không đủ số dư.
+     * Đọc lại ví chỉ để tạo thông báo lỗi
+     */
+    private RuntimeException insufficientBalance(Long userId, int balanceDelta, int spiritStoneDelta,
+            int ticketDelta) {
+        UserWallet wallet = userWalletRepository.findById(userId).orElse(null);
+        if (wallet == null) {
+            return new ResourceNotFoundException("Không tìm thấy ví của user: " + userId);
+        }
+
+        int spiritStones = valueOf(wallet.getSpiritStones());
+        if (spiritStones + spiritStoneDelta < 0) {
+            return new InsufficientBalanceException("Số dư linh thạch không đủ. Cần: " + -spiritStoneDelta +
+                    ", Hiện có: " + spiritStones);
+        }
+        int balance = valueOf(wallet.getBalance());
+        if (balance + balanceDelta < 0) {
+            return new InsufficientBalanceException("Số dư tiền mặt không đủ. Cần: " + -balanceDelta +
+                    " VND, Hiện có: " + balance + " VND");
+        }
+        int tickets = valueOf(wallet.getRecommendationTickets());
+        if (tickets + ticketDelta < 0) {
+            return new InsufficientBalanceException("Không đủ phiếu đề cử. Cần: " + -ticketDelta +
+                    ", Hiện có: " + tickets);
+        }
+        // Số dư vừa đủ lại do giao dịch khác cộng thêm sau câu UPDATE
+        return new InsufficientBalanceException("Số dư không đủ, vui lòng thử lại");
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static void validateAmount(int amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Số tiền không được âm: " + amount);
+        }
+    }
+}
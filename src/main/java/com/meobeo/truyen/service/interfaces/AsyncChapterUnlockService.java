@@ -2,11 +2,6 @@ package com.meobeo.truyen.service.interfaces;
 
 import com.meobeo.truyen.domain.request.chapter.UnlockChapterRangeRequest;
 import com.meobeo.truyen.domain.request.chapter.UnlockFullStoryRequest;
-import com.meobeo.truyen.domain.response.chapter.UnlockChapterBatchResponse;
-import com.meobeo.truyen.domain.response.chapter.UnlockFullStoryResponse;
-
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 public interface AsyncChapterUnlockService {
 
@@ -30,26 +25,6 @@ public interface AsyncChapterUnlockService {
      */
     void processUnlockFullStoryAsync(Long storyId, UnlockFullStoryRequest request, Long userId, String jobId);
 
-    /**
-     * Lấy map các job unlock range đang chạy
-     */
-    Map<String, UnlockChapterBatchResponse> getUnlockRangeJobs();
-
-    /**
-     * Lấy map các job unlock full story đang chạy
-     */
-    Map<String, UnlockFullStoryResponse> getUnlockFullStoryJobs();
-
-    /**
-     * Lấy map userId của từng job
-     */
-    Map<String, Long> getJobUserMap();
-
-    /**
-     * Lấy map cancel flag của từng job
-     */
-    Map<String, AtomicBoolean> getCancelFlags();
-
     /**
      * Khởi tạo job tracking
      */
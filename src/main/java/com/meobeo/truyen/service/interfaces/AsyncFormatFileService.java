@@ -1,12 +1,8 @@
 package com.meobeo.truyen.service.interfaces;
 
 import com.meobeo.truyen.domain.request.story.FormatFileRequest;
-import com.meobeo.truyen.domain.response.story.FormatFileResponse;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
-
 public interface AsyncFormatFileService {
 
     /**
@@ -18,19 +14,4 @@ public interface AsyncFormatFileService {
      * @param jobId   Job ID
      */
     void processFormatFileAsync(MultipartFile txtFile, FormatFileRequest request, Long userId, String jobId);
-
-    /**
-     * Lấy map các job đang chạy
-     */
-    Map<String, FormatFileResponse> getFormatJobs();
-
-    /**
-     * Lấy map userId của từng job
-     */
-    Map<String, Long> getJobUserMap();
-
-    /**
-     * Lấy map cancel flag của từng job
-     */
-    Map<String, AtomicBoolean> getCancelFlags();
 }
@@ -0,0 +1,17 @@
+package com.meobeo.truyen.service.interfaces;
+
+import com.meobeo.truyen.domain.enums.AsyncJobType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Đẩy tiến độ job bất đồng bộ cho client qua Server-Sent Events thay cho việc poll API trạng thái
+ */
+public interface AsyncJobProgressService {
+
+    /**
+     * Mở kênh SSE theo dõi job của user hiện tại (admin xem được mọi job).
+     * Gửi trạng thái hiện tại ngay, sau đó gửi các cập nhật (giới hạn số event mỗi giây)
+     * và tự đóng khi job kết thúc
+     */
+    SseEmitter subscribe(String jobId, AsyncJobType type);
+}
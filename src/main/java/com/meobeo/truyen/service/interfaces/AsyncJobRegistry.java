@@ -0,0 +1,86 @@
+package com.meobeo.truyen.service.interfaces;
+
+import com.meobeo.truyen.domain.enums.AsyncJobType;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Nơi lưu trạng thái job bất đồng bộ dùng chung cho mọi node.
+ *
+ * Trạng thái job (response của job) được giữ trong bộ nhớ của node đang xử lý và ghi xuống DB:
+ * ghi ngay khi đăng ký/kết thúc, còn tiến độ thì ghi giới hạn theo chu kỳ.
+ * Node nào cũng đọc được trạng thái và hủy được job, kể cả job đang chạy trên node khác.
+ */
+public interface AsyncJobRegistry {
+
+    /**
+     * Đăng ký job mới với trạng thái ban đầu
+     */
+    void register(String jobId, AsyncJobType type, Long userId, Object state);
+
+    /**
+     * Worker nhận job trước khi xử lý. Trả về false nếu job không tồn tại, đã kết thúc
+     * hoặc đã được worker khác nhận
+     */
+    boolean claim(String jobId);
+
+    /**
+     * Cập nhật tiến độ job: bộ nhớ được cập nhật ngay, DB chỉ được ghi tối đa 1 lần mỗi chu kỳ
+     */
+    void update(String jobId, Object state);
+
+    /**
+     * Ghi trạng thái cuối cùng của job ngay lập tức
+     */
+    void finish(String jobId, Object state);
+
+    /**
+     * Trạng thái hiện tại của job
+     */
+    <T> Optional<T> find(String jobId, Class<T> stateType);
+
+    /**
+     * User tạo job
+     */
+    Optional<Long> findOwner(String jobId);
+
+    /**
+     * Các job của user theo loại, mới nhất trước
+     */
+    <T> List<T> findByUser(Long userId, AsyncJobType type, Class<T> stateType);
+
+    /**
+     * Cờ hủy của job đang được giữ trên node này (luôn khác null)
+     */
+    AtomicBoolean cancelFlag(String jobId);
+
+    /**
+     * Yêu cầu hủy job chưa kết thúc. Node đang xử lý sẽ thấy cờ hủy ở lần ghi/heartbeat kế tiếp
+     */
+    boolean requestCancel(String jobId);
+
+    /**
+     * Xóa job khỏi registry
+     */
+    void remove(String jobId);
+
+    /**
+     * Job có đang được giữ trong bộ nhớ của node này không (cập nhật sẽ đi qua listener)
+     */
+    boolean isHeldLocally(String jobId);
+
+    /**
+     * Nhận mọi cập nhật trạng thái của job trên node này, trước khi bị giới hạn tần suất ghi DB
+     */
+    void addListener(Listener listener);
+
+    /**
+     * Listener chạy trên thread của job nên phải xử lý nhanh, không được block
+     */
+    @FunctionalInterface
+    interface Listener {
+        void onUpdate(String jobId, Object state, boolean finished);
+    }
+}
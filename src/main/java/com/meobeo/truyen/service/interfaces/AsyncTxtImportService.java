@@ -1,37 +1,18 @@
 package com.meobeo.truyen.service.interfaces;
 
 import com.meobeo.truyen.domain.request.story.TxtImportRequest;
-import com.meobeo.truyen.domain.response.story.TxtImportResponse;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.nio.file.Path;
 
 public interface AsyncTxtImportService {
 
     /**
-     * Xử lý file TXT bất đồng bộ
+     * Xử lý file TXT bất đồng bộ. File tạm sẽ bị xóa khi job kết thúc
      * 
-     * @param txtFile File TXT
+     * @param txtFile File TXT đã lưu tạm trên đĩa
      * @param request Thông tin import
      * @param userId  ID người dùng
      * @param jobId   Job ID để track progress
      */
-    void processTxtFileAsync(MultipartFile txtFile, TxtImportRequest request, Long userId, String jobId);
-
-    /**
-     * Lấy map import jobs
-     */
-    Map<String, TxtImportResponse> getImportJobs();
-
-    /**
-     * Lấy map job user
-     */
-    Map<String, Long> getJobUserMap();
-
-    /**
-     * Lấy map cancel flags
-     */
-    Map<String, AtomicBoolean> getCancelFlags();
-
+    void processTxtFileAsync(Path txtFile, TxtImportRequest request, Long userId, String jobId);
 }
@@ -0,0 +1,24 @@
+package com.meobeo.truyen.service.interfaces;
+
+import com.meobeo.truyen.domain.request.moderation.BannedWordRequest;
+import com.meobeo.truyen.domain.response.moderation.BannedWordResponse;
+
+import java.util.List;
+
+public interface BannedWordService {
+
+    /**
+     * Lấy toàn bộ từ cấm theo thứ tự chữ cái
+     */
+    List<BannedWordResponse> getBannedWords();
+
+    /**
+     * Thêm từ cấm, bộ lọc comment trên node này được nạp lại ngay
+     */
+    BannedWordResponse addBannedWord(BannedWordRequest request);
+
+    /**
+     * Xóa từ cấm, bộ lọc comment trên node này được nạp lại ngay
+     */
+    void deleteBannedWord(Long id);
+}
@@ -0,0 +1,18 @@
+package com.meobeo.truyen.service.interfaces;
+
+import com.meobeo.truyen.domain.response.cache.CacheStatsResponse;
+
+import java.util.List;
+
+public interface CacheAdminService {
+
+    /**
+     * Lấy thống kê (kích thước, hit/miss, eviction) của tất cả cache
+     */
+    List<CacheStatsResponse> getCacheStats();
+
+    /**
+     * Xóa toàn bộ dữ liệu trong 1 cache
+     */
+    void clearCache(String cacheName);
+}
@@ -23,6 +23,18 @@ public interface ChapterCommentService {
      */
     CommentListResponse getCommentsByChapter(Long chapterId, Pageable pageable);
 
+    /**
+     * Lấy comment của chapter theo storyId và chapterNumber không đếm tổng số.
+     * Nếu có cursor thì seek theo (createdAt, id), bỏ qua số trang
+     */
+    CommentListResponse getCommentsByStoryAndChapterSlice(Long storyId, Integer chapterNumber, String cursor,
+            Pageable pageable);
+
+    /**
+     * Lấy comment của chapter theo chapterId không đếm tổng số (hỗ trợ cursor)
+     */
+    CommentListResponse getCommentsByChapterSlice(Long chapterId, String cursor, Pageable pageable);
+
     /**
      * Cập nhật comment (chỉ admin hoặc chính người tạo comment)
      */
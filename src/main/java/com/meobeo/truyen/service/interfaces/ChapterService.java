@@ -42,7 +42,14 @@ public interface ChapterService {
     /**
      * Lấy danh sách chapter của truyện
      */
-    ChapterListResponse getChaptersByStory(String storyIdentifier, Pageable pageable);
+    ChapterListResponse getChaptersByStory(String storyIdentifier, Pageable pageable, Long userId);
+
+    /**
+     * Lấy danh sách chapter của truyện không đếm tổng số.
+     * Nếu có afterChapterNumber thì seek theo chapter_number (keyset), bỏ qua số trang
+     */
+    ChapterListResponse getChaptersByStorySlice(String storyIdentifier, Integer afterChapterNumber,
+            Pageable pageable, Long userId);
 
     /**
      * Lấy chapter tiếp theo
@@ -2,6 +2,7 @@ package com.meobeo.truyen.service.interfaces;
 
 import com.meobeo.truyen.domain.request.story.FormatFileRequest;
 import com.meobeo.truyen.domain.response.story.FormatFileResponse;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -56,7 +57,7 @@ public interface FormatFileService {
      * 
      * @param jobId  Job ID
      * @param userId ID người dùng
-     * @return Byte array của file
+     * @return Resource trỏ tới file trên đĩa, được stream khi ghi response (hỗ trợ Range)
      */
-    byte[] downloadFormattedFile(String jobId, Long userId);
+    Resource downloadFormattedFile(String jobId, Long userId);
 }
@@ -0,0 +1,37 @@
+package com.meobeo.truyen.service.interfaces;
+
+import com.meobeo.truyen.domain.response.notification.NotificationListResponse;
+import org.springframework.data.domain.Pageable;
+
+import java.util.function.LongConsumer;
+
+public interface NotificationService {
+
+    /**
+     * Gửi 1 thông báo chương mới (đã gộp nhiều chương) cho người theo dõi truyện có user_id > afterUserId.
+     * Subscriber được duyệt theo trang keyset, sau mỗi trang đã commit gọi onPageSent với user_id lớn nhất
+     * của trang (để gửi tiếp từ đó nếu lỗi giữa chừng). Trả về số user đã được gửi
+     */
+    long notifyNewChapters(Long storyId, int fromChapterNumber, int toChapterNumber, int chapterCount,
+            Long afterUserId, LongConsumer onPageSent);
+
+    /**
+     * Lấy thông báo của user với phân trang
+     */
+    NotificationListResponse getUserNotifications(Long userId, Pageable pageable);
+
+    /**
+     * Số thông báo chưa đọc của user (đọc từ bộ đếm)
+     */
+    long getUnreadCount(Long userId);
+
+    /**
+     * Đánh dấu 1 thông báo đã đọc
+     */
+    void markAsRead(Long notificationId, Long userId);
+
+    /**
+     * Đánh dấu tất cả thông báo đã đọc, trả về số thông báo đã cập nhật
+     */
+    long markAllAsRead(Long userId);
+}
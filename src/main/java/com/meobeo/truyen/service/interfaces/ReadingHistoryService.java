@@ -51,4 +51,9 @@ public interface ReadingHistoryService {
      * Lấy danh sách story đã đọc của user, sắp xếp theo thời gian đọc gần nhất
      */
     ReadingHistoryListResponse getLastReadStoriesByUser(Long userId);
+
+    /**
+     * Ghi các vị trí đọc đang buffer xuống reading_history theo lô, trả về số dòng đã ghi
+     */
+    int flushBufferedReadings();
 }
@@ -6,9 +6,12 @@ import com.meobeo.truyen.domain.request.story.StorySearchRequest;
 import com.meobeo.truyen.domain.request.story.UpdateStoryRequest;
 import com.meobeo.truyen.domain.response.story.StoryListResponse;
 import com.meobeo.truyen.domain.response.story.StoryResponse;
+import com.meobeo.truyen.domain.response.story.StorySuggestionResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 public interface StoryService {
 
     /**
@@ -36,6 +39,11 @@ public interface StoryService {
      */
     StoryListResponse searchStories(StorySearchRequest request);
 
+    /**
+     * Gợi ý truyện theo từ khóa (autocomplete, không phân biệt dấu)
+     */
+    List<StorySuggestionResponse> suggestStories(String keyword, int limit);
+
     /**
      * Lấy danh sách truyện của một tác giả
      */
@@ -0,0 +1,44 @@
+package com.meobeo.truyen.service.interfaces;
+
+import com.meobeo.truyen.domain.entity.StoryStats;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface StoryStatsService {
+
+    /**
+     * Lấy thống kê của nhiều truyện (1 dòng/truyện), truyện chưa có dòng sẽ được tính lại từ bảng gốc
+     */
+    Map<Long, StoryStats> getStats(Collection<Long> storyIds);
+
+    /**
+     * Cập nhật số chapter khi thêm/xóa chapter
+     */
+    void incrementChapterCount(Long storyId, long delta);
+
+    /**
+     * Cập nhật số favorite khi thêm/xóa yêu thích
+     */
+    void incrementFavoriteCount(Long storyId, long delta);
+
+    /**
+     * Cập nhật vote: voteDelta = +1/-1 khi thêm/xóa vote, ratingDelta = chênh lệch điểm
+     */
+    void incrementVotes(Long storyId, long voteDelta, long ratingDelta);
+
+    /**
+     * Cộng dồn view theo truyện (dùng khi flush buffer view)
+     */
+    void incrementViews(Map<Long, Long> viewsByStory);
+
+    /**
+     * Xóa thống kê khi xóa truyện
+     */
+    void deleteStats(Long storyId);
+
+    /**
+     * Tính lại toàn bộ bảng story_stats theo từng chunk, trả về số truyện đã đối soát
+     */
+    int reconcileAll();
+}
@@ -8,14 +8,14 @@ import java.time.LocalDate;
 public interface StoryViewsService {
 
     /**
-     * Tăng view cho story với bảo vệ chống spam
+     * Tăng view cho story với bảo vệ chống spam (cộng dồn trong bộ nhớ, không truy vấn DB)
      */
     void increaseView(Long storyId);
 
     /**
-     * Tăng view bất đồng bộ để tránh conflict với read-only transaction
+     * Ghi các view đang buffer xuống story_views_daily theo lô, trả về số view đã ghi
      */
-    void increaseViewAsync(Long storyId);
+    long flushBufferedViews();
 
     /**
      * Lấy analytics theo ngày với cache
@@ -0,0 +1,44 @@
+package com.meobeo.truyen.service.interfaces;
+
+import com.meobeo.truyen.domain.entity.WalletTransaction;
+import com.meobeo.truyen.domain.enums.TransactionType;
+import com.meobeo.truyen.repository.UserWalletRepository;
+
+import java.util.List;
+
+/**
+ * Sổ cái ví: mọi thay đổi số dư đi qua 1 câu UPDATE có điều kiện (không đọc - sửa - ghi trong Java),
+ * lịch sử giao dịch được ghi cùng lúc trong 1 câu INSERT
+ */
+public interface WalletLedgerService {
+
+    /**
+     * Áp dụng nhiều bút toán (âm = trừ, dương = cộng) lên ví trong 1 câu lệnh và ghi lịch sử cho từng bút toán.
+     * Ném InsufficientBalanceException nếu có loại số dư bị âm, không thay đổi gì
+     */
+    UserWalletRepository.WalletBalanceProjection apply(Long userId, List<Entry> entries);
+
+    /**
+     * Trừ ví nếu đủ số dư
+     */
+    UserWalletRepository.WalletBalanceProjection debit(Long userId, WalletTransaction.CurrencyType currency,
+            int amount, TransactionType type, String description);
+
+    /**
+     * Cộng ví (tạo ví nếu chưa có)
+     */
+    UserWalletRepository.WalletBalanceProjection credit(Long userId, WalletTransaction.CurrencyType currency,
+            int amount, TransactionType type, String description);
+
+    /**
+     * Cộng/trừ số dư mà không ghi lịch sử, dùng cho luồng tự ghi giao dịch riêng (nạp tiền qua cổng thanh toán)
+     */
+    UserWalletRepository.WalletBalanceProjection adjust(Long userId, WalletTransaction.CurrencyType currency,
+            int delta);
+
+    /**
+     * 1 bút toán: amount âm là trừ, dương là cộng
+     */
+    record Entry(WalletTransaction.CurrencyType currency, int amount, TransactionType type, String description) {
+    }
+}
@@ -0,0 +1,363 @@
+package com.meobeo.truyen.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Automaton Aho-Corasick tìm từ cấm trong 1 lần duyệt văn bản, thời gian tỉ lệ với độ dài văn bản
+ * và không phụ thuộc số từ cấm.
+ *
+ * - Chữ được hạ chữ thường và bỏ dấu tiếng Việt (đ -> d) trước khi đi qua automaton
+ * - Ký tự không phải chữ (số, dấu câu, khoảng trắng) chen giữa các chữ bị bỏ qua: "đ.m", "v c l", "f*ck" vẫn bị bắt
+ * - Chữ có dấu trong văn bản phải cùng dấu với từ cấm: "các" không khớp "cặc".
+ *   Chữ không dấu chỉ thay cho chữ có dấu khi cả văn bản gõ không dấu và từ cấm dài hơn SHORT_WORD_LENGTH chữ:
+ *   "chet" khớp "chết", "vai trò" không khớp "vãi". Dạng không dấu của từ ngắn ("cac", "di") trùng quá nhiều từ
+ *   thường nên phải thêm riêng vào danh sách nếu muốn chặn (như "dm" bên cạnh "đm")
+ * - Từ cấm ngắn (tối đa SHORT_WORD_LENGTH chữ) và từ cấm bị tách bởi ký tự khác phải đứng riêng,
+ *   không dính chữ trước/sau, để "ngọc lan" không bị bắt vì "cl" và "cà vẹt" không bị bắt vì "cave"
+ *
+ * Đối tượng bất biến, dùng chung giữa các thread
+ */
+public final class BannedWordMatcher {
+
+    // Từ cấm có từ chừng này chữ trở xuống phải đứng riêng
+    private static final int SHORT_WORD_LENGTH = 3;
+
+    // Bảng bỏ dấu cho U+0000-U+1FFF (đủ cho Latin-1, Latin Extended và Latin Extended Additional của tiếng Việt)
+    private static final int FOLD_TABLE_SIZE = 0x2000;
+    private static final char[] FOLD_TABLE = buildFoldTable();
+
+    private static final int ASCII_SIZE = 128;
+
+    // Kết quả so dấu, giá trị nhỏ hơn là khớp chắc chắn hơn
+    private static final int ACCENT_EXACT = 0;
+    private static final int ACCENT_UNACCENTED = 1;
+    private static final int ACCENT_MISMATCH = 2;
+
+    // Chữ (đã bỏ dấu) xuất hiện trong các từ cấm, sắp xếp tăng dần
+    private final char[] alphabet;
+    private final int[] asciiSymbols;
+    // transitions[state][symbol]: automaton đầy đủ, đã gộp failure link
+    private final int[][] transitions;
+    // Các từ kết thúc tại state (kể cả qua failure link)
+    private final int[][] outputs;
+    // Chữ thường (giữ dấu) của từng từ cấm
+    private final char[][] words;
+    private final String[] originalWords;
+    private final int maxWordLength;
+
+    private BannedWordMatcher(char[] alphabet, int[][] transitions, int[][] outputs, char[][] words,
+            String[] originalWords) {
+        this.alphabet = alphabet;
+        this.transitions = transitions;
+        this.outputs = outputs;
+        this.words = words;
+        this.originalWords = originalWords;
+        this.maxWordLength = Arrays.stream(words).mapToInt(word -> word.length).max().orElse(1);
+        this.asciiSymbols = new int[ASCII_SIZE];
+        Arrays.fill(asciiSymbols, -1);
+        for (int i = 0; i < alphabet.length; i++) {
+            if (alphabet[i] < ASCII_SIZE) {
+                asciiSymbols[alphabet[i]] = i;
+            }
+        }
+    }
+
+    /**
+     * Dựng automaton từ danh sách từ cấm. Ký tự không phải chữ trong từ cấm bị bỏ qua, từ trùng bị gộp
+     */
+    public static BannedWordMatcher build(Collection<String> bannedWords) {
+        Map<String, String> uniqueWords = new LinkedHashMap<>();
+        for (String bannedWord : bannedWords) {
+            if (bannedWord == null) {
+                continue;
+            }
+            String letters = lettersOf(bannedWord);
+            if (!letters.isEmpty()) {
+                uniqueWords.putIfAbsent(letters, bannedWord.trim());
+            }
+        }
+
+        char[][] words = new char[uniqueWords.size()][];
+        String[] originalWords = new String[uniqueWords.size()];
+        TreeSet<Character> letterSet = new TreeSet<>();
+        int index = 0;
+        for (Map.Entry<String, String> entry : uniqueWords.entrySet()) {
+            words[index] = entry.getKey().toCharArray();
+            originalWords[index] = entry.getValue();
+            for (char c : words[index]) {
+                letterSet.add(fold(c));
+            }
+            index++;
+        }
+        char[] alphabet = new char[letterSet.size()];
+        index = 0;
+        for (char c : letterSet) {
+            alphabet[index++] = c;
+        }
+
+        // Dựng trie trên chữ đã bỏ dấu
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> trieOutputs = new ArrayList<>();
+        trie.add(newState(alphabet.length));
+        trieOutputs.add(new ArrayList<>());
+        for (int w = 0; w < words.length; w++) {
+            int state = 0;
+            for (char c : words[w]) {
+                int symbol = Arrays.binarySearch(alphabet, fold(c));
+                if (trie.get(state)[symbol] < 0) {
+                    trie.get(state)[symbol] = trie.size();
+                    trie.add(newState(alphabet.length));
+                    trieOutputs.add(new ArrayList<>());
+                }
+                state = trie.get(state)[symbol];
+            }
+            trieOutputs.get(state).add(w);
+        }
+
+        // BFS tính failure link và điền các cạnh còn thiếu để mỗi chữ chỉ cần 1 lần tra bảng
+        int[] failure = new int[trie.size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int[] root = trie.get(0);
+        for (int symbol = 0; symbol < alphabet.length; symbol++) {
+            if (root[symbol] < 0) {
+                root[symbol] = 0;
+            } else {
+                failure[root[symbol]] = 0;
+                queue.add(root[symbol]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] next = trie.get(state);
+            trieOutputs.get(state).addAll(trieOutputs.get(failure[state]));
+            for (int symbol = 0; symbol < alphabet.length; symbol++) {
+                int fallback = trie.get(failure[state])[symbol];
+                if (next[symbol] < 0) {
+                    next[symbol] = fallback;
+                } else {
+                    failure[next[symbol]] = fallback;
+                    queue.add(next[symbol]);
+                }
+            }
+        }
+
+        int[][] transitions = trie.toArray(new int[0][]);
+        int[][] outputs = new int[trie.size()][];
+        for (int state = 0; state < outputs.length; state++) {
+            outputs[state] = trieOutputs.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new BannedWordMatcher(alphabet, transitions, outputs, words, originalWords);
+    }
+
+    /**
+     * Tìm từ cấm đầu tiên trong văn bản, trả về null nếu không có
+     */
+    public String findFirst(String text) {
+        if (text == null || words.length == 0) {
+            return null;
+        }
+        return scan(text, false);
+    }
+
+    private String scan(String text, boolean normalized) {
+
+        // Vòng đệm các chữ gần nhất để kiểm tra dấu và ranh giới từ khi automaton báo khớp
+        char[] recentLetters = new char[maxWordLength];
+        boolean[] recentAfterLetter = new boolean[maxWordLength];
+        int letterCount = 0;
+        int state = 0;
+        int pendingWord = -1;
+        int pendingAccent = ACCENT_MISMATCH;
+        // Khớp nhờ chữ không dấu, chỉ tính khi cả văn bản gõ không dấu
+        int unaccentedMatch = -1;
+        boolean textHasAccent = false;
+        boolean previousIsLetter = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean letter;
+            if (c < ASCII_SIZE) {
+                letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                // Văn bản dạng NFD: gộp chữ và dấu rồi duyệt lại (hiếm gặp, chỉ tốn thêm khi có dấu tổ hợp)
+                if (!normalized) {
+                    return scan(Normalizer.normalize(text, Normalizer.Form.NFC), true);
+                }
+                // Dấu tổ hợp không gộp được thuộc về chữ đứng trước
+                textHasAccent = true;
+                continue;
+            } else {
+                letter = Character.isLetter(c);
+            }
+            if (!letter) {
+                // Từ đang chờ đã đứng riêng
+                if (pendingWord >= 0) {
+                    if (pendingAccent == ACCENT_EXACT) {
+                        return originalWords[pendingWord];
+                    }
+                    if (unaccentedMatch < 0) {
+                        unaccentedMatch = pendingWord;
+                    }
+                    pendingWord = -1;
+                }
+                previousIsLetter = false;
+                continue;
+            }
+            // Từ đang chờ dính chữ phía sau: không tính
+            pendingWord = -1;
+
+            char lower = c < ASCII_SIZE ? (char) (c | 0x20) : Character.toLowerCase(c);
+            char folded = fold(lower);
+            textHasAccent |= folded != lower;
+            int slot = letterCount % maxWordLength;
+            recentLetters[slot] = lower;
+            recentAfterLetter[slot] = previousIsLetter;
+            letterCount++;
+            previousIsLetter = true;
+
+            int symbol = symbolOf(folded);
+            if (symbol < 0) {
+                state = 0;
+                continue;
+            }
+            state = transitions[state][symbol];
+
+            for (int word : outputs[state]) {
+                int accent = accentMatch(word, recentLetters, letterCount);
+                if (accent == ACCENT_MISMATCH) {
+                    continue;
+                }
+                boolean needsBoundary = words[word].length <= SHORT_WORD_LENGTH
+                        || spansSeparator(word, recentAfterLetter, letterCount);
+                if (!needsBoundary) {
+                    if (accent == ACCENT_EXACT) {
+                        return originalWords[word];
+                    }
+                    if (unaccentedMatch < 0) {
+                        unaccentedMatch = word;
+                    }
+                    continue;
+                }
+                // Chờ ký tự tiếp theo để biết từ có đứng riêng không
+                int startSlot = (letterCount - words[word].length) % maxWordLength;
+                if (!recentAfterLetter[startSlot] && (pendingWord < 0 || accent < pendingAccent)) {
+                    pendingWord = word;
+                    pendingAccent = accent;
+                }
+            }
+        }
+
+        if (pendingWord >= 0) {
+            if (pendingAccent == ACCENT_EXACT) {
+                return originalWords[pendingWord];
+            }
+            if (unaccentedMatch < 0) {
+                unaccentedMatch = pendingWord;
+            }
+        }
+        return unaccentedMatch >= 0 && !textHasAccent ? originalWords[unaccentedMatch] : null;
+    }
+
+    public boolean matches(String text) {
+        return findFirst(text) != null;
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    /**
+     * So dấu đoạn vừa khớp với từ cấm: ACCENT_EXACT nếu mọi chữ có dấu đều cùng dấu,
+     * ACCENT_UNACCENTED nếu có chữ không dấu thay cho chữ có dấu của từ cấm, ACCENT_MISMATCH nếu khác dấu
+     */
+    private int accentMatch(int word, char[] recentLetters, int letterCount) {
+        char[] expected = words[word];
+        int start = letterCount - expected.length;
+        int result = ACCENT_EXACT;
+        for (int j = 0; j < expected.length; j++) {
+            char actual = recentLetters[(start + j) % maxWordLength];
+            char wanted = expected[j];
+            if (actual == wanted || fold(wanted) == wanted) {
+                continue;
+            }
+            if (fold(actual) != actual) {
+                return ACCENT_MISMATCH;
+            }
+            result = ACCENT_UNACCENTED;
+        }
+        return result == ACCENT_UNACCENTED && expected.length <= SHORT_WORD_LENGTH ? ACCENT_MISMATCH : result;
+    }
+
+    /**
+     * Đoạn khớp có ký tự không phải chữ chen giữa hay không
+     */
+    private boolean spansSeparator(int word, boolean[] recentAfterLetter, int letterCount) {
+        int start = letterCount - words[word].length;
+        for (int j = start + 1; j < letterCount; j++) {
+            if (!recentAfterLetter[j % maxWordLength]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int symbolOf(char folded) {
+        if (folded < ASCII_SIZE) {
+            return asciiSymbols[folded];
+        }
+        int symbol = Arrays.binarySearch(alphabet, folded);
+        return symbol >= 0 ? symbol : -1;
+    }
+
+    private static int[] newState(int alphabetSize) {
+        int[] next = new int[alphabetSize];
+        Arrays.fill(next, -1);
+        return next;
+    }
+
+    /**
+     * Các chữ của từ, hạ chữ thường, giữ dấu
+     */
+    private static String lettersOf(String word) {
+        String composed = Normalizer.normalize(word, Normalizer.Form.NFC);
+        StringBuilder letters = new StringBuilder(composed.length());
+        for (int i = 0; i < composed.length(); i++) {
+            char c = composed.charAt(i);
+            if (Character.isLetter(c)) {
+                letters.append(Character.toLowerCase(c));
+            }
+        }
+        return letters.toString();
+    }
+
+    /**
+     * Bỏ dấu 1 chữ thường: "ặ" -> "a", "đ" -> "d"
+     */
+    static char fold(char lower) {
+        return lower < FOLD_TABLE_SIZE ? FOLD_TABLE[lower] : lower;
+    }
+
+    private static char[] buildFoldTable() {
+        char[] table = new char[FOLD_TABLE_SIZE];
+        for (int c = 0; c < FOLD_TABLE_SIZE; c++) {
+            char lower = Character.toLowerCase((char) c);
+            char base = lower;
+            if (Character.isLetter(lower)) {
+                base = Normalizer.normalize(String.valueOf(lower), Normalizer.Form.NFD).charAt(0);
+                if (base == 'đ') {
+                    base = 'd';
+                }
+            }
+            table[c] = base;
+        }
+        return table;
+    }
+}
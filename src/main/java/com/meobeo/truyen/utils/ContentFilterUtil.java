@@ -1,32 +1,39 @@
 package com.meobeo.truyen.utils;
 
+import com.meobeo.truyen.repository.BannedWordRepository;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Set;
 
+/**
+ * Lọc từ ngữ không phù hợp trong comment.
+ *
+ * Danh sách từ cấm lấy từ bảng banned_words và được đọc lại định kỳ (content-filter.reload-interval-ms),
+ * automaton chỉ dựng lại khi danh sách thay đổi. Kiểm tra 1 comment chỉ duyệt văn bản 1 lần
+ * ({@link BannedWordMatcher}), không phụ thuộc số từ cấm
+ */
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class ContentFilterUtil {
 
-    // Danh sách từ cấm (có thể mở rộng hoặc load từ database)
-    private static final List<String> BANNED_WORDS = Arrays.asList(
+    // Danh sách từ cấm mặc định: DataInitializer ghi vào bảng banned_words 1 lần khi bảng chưa từng có dữ liệu,
+    // bộ lọc dùng danh sách này cho tới khi bảng đã được seed
+    public static final List<String> DEFAULT_BANNED_WORDS = List.of(
             "fuck", "shit", "damn", "bitch", "asshole", "bastard",
             "đm", "dm", "đmm", "dmm", "vcl", "vãi", "chết", "cứt",
-            "đĩ", "cave", "lồn", "buồi", "cặc", "địt", "cl"
-    // Có thể thêm nhiều từ cấm khác
-    );
+            "đĩ", "cave", "lồn", "buồi", "cặc", "địt", "cl");
 
-    // Pattern để check từ cấm (không phân biệt chữ hoa/thường, có thể có số hoặc ký
-    // tự đặc biệt xen kẽ)
-    private static final List<Pattern> BANNED_PATTERNS = BANNED_WORDS.stream()
-            .map(word -> Pattern.compile(
-                    "(?i).*" + word.chars()
-                            .mapToObj(c -> "[" + (char) c + "]")
-                            .reduce("", (a, b) -> a + "[\\d\\W]*" + b) + ".*"))
-            .toList();
+    private final BannedWordRepository bannedWordRepository;
+
+    private volatile BannedWordMatcher matcher = BannedWordMatcher.build(DEFAULT_BANNED_WORDS);
+    private volatile Set<String> loadedWords = Set.copyOf(DEFAULT_BANNED_WORDS);
 
     /**
      * Kiểm tra xem nội dung có chứa từ ngữ không phù hợp không
@@ -36,32 +43,45 @@ public class ContentFilterUtil {
             return false;
         }
 
-        String normalizedContent = normalizeText(content);
-
-        // Check exact banned words
-        for (String bannedWord : BANNED_WORDS) {
-            if (normalizedContent.toLowerCase().contains(bannedWord.toLowerCase())) {
-                log.warn("Detected banned word: {} in content", bannedWord);
-                return true;
-            }
+        String bannedWord = matcher.findFirst(content);
+        if (bannedWord != null) {
+            log.warn("Detected banned word: {} in content", bannedWord);
+            return true;
         }
+        return false;
+    }
 
-        // Check patterns với ký tự xen kẽ
-        for (Pattern pattern : BANNED_PATTERNS) {
-            if (pattern.matcher(normalizedContent).matches()) {
-                log.warn("Detected banned pattern in content: {}", content);
-                return true;
+    /**
+     * Đọc lại danh sách từ cấm từ DB, chỉ dựng lại automaton khi danh sách thay đổi.
+     * Bảng trống chưa từng được seed thì giữ danh sách mặc định, bảng trống do admin xóa hết
+     * nghĩa là không lọc từ nào. Lỗi DB thì giữ nguyên bộ lọc hiện tại
+     */
+    @Scheduled(fixedDelayString = "${content-filter.reload-interval-ms:60000}")
+    public void reloadBannedWords() {
+        List<String> words;
+        try {
+            words = bannedWordRepository.findAllWords();
+            if (words.isEmpty() && !bannedWordRepository.hasEverStoredWords()) {
+                return;
             }
+        } catch (DataAccessException e) {
+            log.warn("Không đọc được danh sách từ cấm, giữ bộ lọc hiện tại: {}",
+                    e.getMostSpecificCause().getMessage());
+            return;
         }
 
-        return false;
+        Set<String> newWords = new HashSet<>(words);
+        if (newWords.equals(loadedWords)) {
+            return;
+        }
+        BannedWordMatcher newMatcher = BannedWordMatcher.build(newWords);
+        matcher = newMatcher;
+        loadedWords = newWords;
+        log.info("Đã nạp lại danh sách từ cấm: {} từ", newMatcher.size());
     }
 
-    /**
-     * Làm sạch text để dễ kiểm tra (remove các ký tự đặc biệt, số)
-     */
-    private String normalizeText(String text) {
-        return text.replaceAll("[\\d\\p{Punct}\\s]+", "").toLowerCase();
+    public int getBannedWordCount() {
+        return matcher.size();
     }
 
     /**
@@ -0,0 +1,46 @@
+package com.meobeo.truyen.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Mã hóa/giải mã cursor cho phân trang keyset.
+ * Cursor comment có dạng "{createdAt ISO}_{id}", ví dụ "2025-01-01T10:00:00.123_42"
+ */
+@Component
+public class CursorUtil {
+
+    private static final char SEPARATOR = '_';
+
+    /**
+     * Tạo cursor từ (createdAt, id) của bản ghi cuối trang
+     */
+    public static String encodeTimeCursor(LocalDateTime createdAt, Long id) {
+        if (createdAt == null || id == null) {
+            return null;
+        }
+        return createdAt + String.valueOf(SEPARATOR) + id;
+    }
+
+    /**
+     * Đọc cursor (createdAt, id). Ném IllegalArgumentException nếu cursor sai định dạng
+     */
+    public static TimeCursor decodeTimeCursor(String cursor) {
+        int separatorIndex = cursor == null ? -1 : cursor.lastIndexOf(SEPARATOR);
+        if (separatorIndex <= 0 || separatorIndex == cursor.length() - 1) {
+            throw new IllegalArgumentException("Cursor không hợp lệ: " + cursor);
+        }
+        try {
+            LocalDateTime createdAt = LocalDateTime.parse(cursor.substring(0, separatorIndex));
+            Long id = Long.parseLong(cursor.substring(separatorIndex + 1));
+            return new TimeCursor(createdAt, id);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ: " + cursor);
+        }
+    }
+
+    public record TimeCursor(LocalDateTime createdAt, Long id) {
+    }
+}
@@ -11,6 +11,7 @@ import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -19,6 +20,10 @@ public class JwtUtil {
 
     private final JwtConfig jwtConfig;
 
+    // Key và parser dựng 1 lần rồi dùng lại (JwtParser thread-safe)
+    private volatile SecretKey signingKey;
+    private volatile JwtParser jwtParser;
+
     /**
      * Tạo access token với thông tin user
      */
@@ -57,15 +62,18 @@ public class JwtUtil {
      * Xác thực token
      */
     public boolean validateToken(String token) {
+        return parseClaims(token).isPresent();
+    }
+
+    /**
+     * Xác thực và lấy claims trong 1 lần parse. Trả về empty nếu token không hợp lệ
+     */
+    public Optional<Claims> parseClaims(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            return Optional.of(getParser().parseClaimsJws(token).getBody());
         } catch (JwtException | IllegalArgumentException e) {
             log.error("Token không hợp lệ: {}", e.getMessage());
-            return false;
+            return Optional.empty();
         }
     }
 
@@ -109,17 +117,30 @@ public class JwtUtil {
      * Lấy claims từ token
      */
     private Claims getClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+        return getParser()
                 .parseClaimsJws(token)
                 .getBody();
     }
 
+    private JwtParser getParser() {
+        JwtParser parser = jwtParser;
+        if (parser == null) {
+            parser = Jwts.parserBuilder()
+                    .setSigningKey(getSigningKey())
+                    .build();
+            jwtParser = parser;
+        }
+        return parser;
+    }
+
     /**
      * Tạo signing key từ secret
      */
     private SecretKey getSigningKey() {
+        SecretKey key = signingKey;
+        if (key != null) {
+            return key;
+        }
         String secret = jwtConfig.getSecret();
         log.debug("JWT Secret length: {}", secret != null ? secret.length() : "null");
         if (secret == null || secret.trim().isEmpty()) {
@@ -128,6 +149,8 @@ public class JwtUtil {
         }
         byte[] keyBytes = secret.getBytes();
         log.debug("Key bytes length: {}", keyBytes.length);
-        return Keys.hmacShaKeyFor(keyBytes);
+        key = Keys.hmacShaKeyFor(keyBytes);
+        signingKey = key;
+        return key;
     }
 }
\ No newline at end of file
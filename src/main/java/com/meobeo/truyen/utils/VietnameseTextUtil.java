@@ -0,0 +1,40 @@
+package com.meobeo.truyen.utils;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa văn bản tiếng Việt phục vụ tìm kiếm: bỏ dấu, chuyển chữ thường, gộp khoảng trắng
+ * Ví dụ: "Tiên Nghịch - Nhĩ Căn" -> "tien nghich nhi can"
+ */
+public final class VietnameseTextUtil {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private VietnameseTextUtil() {
+    }
+
+    /**
+     * Bỏ dấu tiếng Việt và chuyển về chữ thường (giữ nguyên ký tự khác)
+     */
+    public static String foldAccents(String text) {
+        if (text == null) {
+            return null;
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String withoutMarks = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        return withoutMarks.replace('đ', 'd').replace('Đ', 'D').toLowerCase();
+    }
+
+    /**
+     * Bỏ dấu, chữ thường và thay mọi ký tự không phải chữ/số bằng 1 khoảng trắng
+     * (slug "tien-nghich" và tiêu đề "Tiên Nghịch" cho cùng kết quả)
+     */
+    public static String normalizeForSearch(String text) {
+        if (text == null) {
+            return "";
+        }
+        return NON_ALPHANUMERIC.matcher(foldAccents(text)).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,65 @@
+package com.meobeo.truyen.utils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tạo chuỗi hashData và chữ ký HMAC-SHA512 theo chuẩn VNPAY.
+ * Dùng chung cho tạo URL thanh toán và kiểm tra chữ ký callback
+ */
+public final class VnpaySignatureUtil {
+
+    private static final String HMAC_SHA512 = "HmacSHA512";
+
+    private VnpaySignatureUtil() {
+    }
+
+    /**
+     * Chuỗi hashData: key sắp xếp theo alphabet, key=value (value đã URL-encode) nối bằng '&'.
+     * Bỏ qua param null/empty. Chuỗi này cũng chính là query string gửi sang VNPAY
+     * (tên param vnp_* không thay đổi khi URL-encode)
+     */
+    public static String buildHashData(Map<String, String> params) {
+        List<String> fieldNames = new ArrayList<>(params.keySet());
+        Collections.sort(fieldNames);
+
+        StringBuilder hashData = new StringBuilder();
+        Iterator<String> itr = fieldNames.iterator();
+        while (itr.hasNext()) {
+            String fieldName = itr.next();
+            String fieldValue = params.get(fieldName);
+            if (fieldValue != null && !fieldValue.isEmpty()) {
+                hashData.append(fieldName);
+                hashData.append('=');
+                hashData.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII));
+                if (itr.hasNext()) {
+                    hashData.append('&');
+                }
+            }
+        }
+        return hashData.toString();
+    }
+
+    /**
+     * Chữ ký HMAC-SHA512 của data, dạng hex chữ thường
+     */
+    public static String hmacSha512(String key, String data) {
+        try {
+            Mac sha512Hmac = Mac.getInstance(HMAC_SHA512);
+            sha512Hmac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), HMAC_SHA512));
+            byte[] hmacBytes = sha512Hmac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hmacBytes);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error creating HMAC SHA-512 hash", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.meobeo.truyen.benchmark;
+
+import com.meobeo.truyen.domain.entity.Story;
+import com.meobeo.truyen.repository.ChapterRepository;
+import com.meobeo.truyen.repository.StoryRepository;
+import com.meobeo.truyen.service.impl.ChapterBulkWriter;
+import com.meobeo.truyen.service.impl.ChapterContentCache;
+import com.meobeo.truyen.service.interfaces.StoryStatsService;
+import com.meobeo.truyen.support.PostgresJpaTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Thông lượng ghi chapter của import TXT: {@link ChapterBulkWriter} ghi {@value #CHAPTERS} chapter
+ * (~{@value #CHAPTER_CHARS} ký tự mỗi chapter) theo batch, lần đầu bằng insertChaptersIgnoreExisting,
+ * lần 2 ghi đè bằng upsertChapters. In ra chapter/giây và MB/giây cho từng kích thước batch.
+ *
+ * Chạy bằng ./gradlew benchmarkTest (cần Docker)
+ */
+@Tag("benchmark")
+@PostgresJpaTest
+class ChapterImportThroughputBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ChapterImportThroughputBenchmarkTest.class);
+
+    private static final int CHAPTERS = 2000;
+    private static final int CHAPTER_CHARS = 8000;
+    private static final String[] WORDS = { "hắn", "thiếu niên", "linh khí", "kiếm", "tông môn", "trưởng lão",
+            "đan dược", "cảnh giới", "sư phụ", "bí cảnh", "thiên địa", "không trung", "một", "nói", "nhìn" };
+
+    @Autowired
+    private StoryRepository storyRepository;
+
+    @Autowired
+    private ChapterRepository chapterRepository;
+
+    @ParameterizedTest(name = "batch {0}")
+    @ValueSource(ints = { 50, 200, 500 })
+    void importThroughput(int batchSize) {
+        ChapterBulkWriter writer = new ChapterBulkWriter(chapterRepository,
+                Mockito.mock(StoryStatsService.class), Mockito.mock(ChapterContentCache.class));
+        Story story = new Story();
+        story.setTitle("Benchmark batch " + batchSize);
+        story.setSlug("benchmark-import-" + batchSize + "-" + System.nanoTime());
+        Long storyId = storyRepository.save(story).getId();
+        List<ChapterBulkWriter.ChapterRow> rows = generateRows(story.getSlug());
+
+        Run insert = run(writer, storyId, rows, batchSize, false);
+        Run upsert = run(writer, storyId, rows, batchSize, true);
+
+        assertThat(insert.written()).isEqualTo(CHAPTERS);
+        assertThat(upsert.written()).isEqualTo(CHAPTERS);
+        report("insertChaptersIgnoreExisting", batchSize, insert);
+        report("upsertChapters", batchSize, upsert);
+    }
+
+    private Run run(ChapterBulkWriter writer, Long storyId, List<ChapterBulkWriter.ChapterRow> rows, int batchSize,
+            boolean overwriteExisting) {
+        long written = 0;
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            ChapterBulkWriter.WriteResult result = writer.write(storyId,
+                    rows.subList(from, Math.min(from + batchSize, rows.size())), overwriteExisting);
+            written += result.getWrittenCount();
+            bytes += result.getContentBytes();
+        }
+        return new Run(written, bytes, System.nanoTime() - start);
+    }
+
+    private static void report(String operation, int batchSize, Run run) {
+        double seconds = run.elapsedNanos() / 1_000_000_000.0;
+        double megabytes = run.bytes() / 1_048_576.0;
+        log.info("[benchmark] {} batch={}: {} chapter, {} MB trong {} s -> {} chapter/s, {} MB/s", operation,
+                batchSize, run.written(), String.format("%.1f", megabytes), String.format("%.2f", seconds),
+                String.format("%.0f", run.written() / seconds), String.format("%.2f", megabytes / seconds));
+    }
+
+    private static List<ChapterBulkWriter.ChapterRow> generateRows(String storySlug) {
+        Random random = new Random(42);
+        List<ChapterBulkWriter.ChapterRow> rows = new ArrayList<>(CHAPTERS);
+        for (int number = 1; number <= CHAPTERS; number++) {
+            StringBuilder content = new StringBuilder(CHAPTER_CHARS + 64);
+            while (content.length() < CHAPTER_CHARS) {
+                content.append(WORDS[random.nextInt(WORDS.length)]);
+                content.append(random.nextInt(12) == 0 ? ".\n" : " ");
+            }
+            rows.add(new ChapterBulkWriter.ChapterRow(number, storySlug + "-chuong-" + number,
+                    "Chương " + number, content.toString()));
+        }
+        assertThat(rows.get(0).content().getBytes(StandardCharsets.UTF_8).length).isGreaterThan(CHAPTER_CHARS);
+        return rows;
+    }
+
+    private record Run(long written, long bytes, long elapsedNanos) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.meobeo.truyen.benchmark;
+
+import com.meobeo.truyen.domain.entity.Story;
+import com.meobeo.truyen.domain.entity.User;
+import com.meobeo.truyen.domain.repository.ChapterUnlockRepository;
+import com.meobeo.truyen.repository.StoryRepository;
+import com.meobeo.truyen.repository.UserRepository;
+import com.meobeo.truyen.service.impl.ChapterLockIndex;
+import com.meobeo.truyen.service.impl.ChapterRangeUnlocker;
+import com.meobeo.truyen.support.PostgresJpaTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mở khóa toàn bộ truyện {@value #CHAPTERS} chương bị khóa bằng {@link ChapterRangeUnlocker}: báo giá + mở theo
+ * chunk keyset. Chạy với số chương liên tục và thưa (bước 10), user đã mở trước 1/3 số chương.
+ * In ra thời gian báo giá, thời gian mở, số chunk và chương/giây.
+ *
+ * Chạy bằng ./gradlew benchmarkTest (cần Docker)
+ */
+@Tag("benchmark")
+@PostgresJpaTest
+class ChapterRangeUnlockBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ChapterRangeUnlockBenchmarkTest.class);
+
+    private static final int CHAPTERS = 20000;
+
+    @Autowired
+    private ChapterUnlockRepository chapterUnlockRepository;
+
+    @Autowired
+    private StoryRepository storyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest(name = "bước số chương {0}")
+    @CsvSource({ "1", "10" })
+    void unlockFullStory(int numberStep) {
+        ChapterRangeUnlocker unlocker = new ChapterRangeUnlocker(chapterUnlockRepository,
+                Mockito.mock(ChapterLockIndex.class));
+        String suffix = numberStep + "-" + System.nanoTime();
+        Long storyId = createLockedStory(suffix, numberStep);
+        Long userId = createUser(suffix);
+        // User đã mở lẻ tẻ 1/3 số chương
+        jdbcTemplate.update("INSERT INTO chapter_unlocks (user_id, chapter_id, unlocked_at) "
+                + "SELECT ?, c.id, LOCALTIMESTAMP FROM chapters c WHERE c.story_id = ? AND c.chapter_number % 3 = 0",
+                userId, storyId);
+
+        long quoteStart = System.nanoTime();
+        ChapterRangeUnlocker.Quote quote = unlocker.quoteFullStory(storyId, userId);
+        long quoteNanos = System.nanoTime() - quoteStart;
+
+        long unlockStart = System.nanoTime();
+        ChapterRangeUnlocker.Result result = unlocker.unlock(storyId, userId, quote, LocalDateTime.now(), null, null);
+        long unlockNanos = System.nanoTime() - unlockStart;
+
+        assertThat(result.unlockedCount()).isEqualTo(quote.lockableCount());
+        assertThat(result.totalOriginalPrice()).isEqualTo(quote.totalOriginalPrice());
+        assertThat(result.chunks()).isEqualTo(unlocker.countChunks(quote));
+        assertThat(unlocker.quoteFullStory(storyId, userId).lockableCount()).isZero();
+
+        double unlockSeconds = unlockNanos / 1_000_000_000.0;
+        log.info("[benchmark] range unlock step={}: báo giá {} ms, mở {} chương ({} chunk) trong {} ms -> {} chương/s",
+                numberStep, String.format("%.1f", quoteNanos / 1_000_000.0), result.unlockedCount(), result.chunks(),
+                String.format("%.1f", unlockNanos / 1_000_000.0),
+                String.format("%.0f", result.unlockedCount() / unlockSeconds));
+    }
+
+    private Long createLockedStory(String suffix, int numberStep) {
+        Story story = new Story();
+        story.setTitle("Benchmark unlock " + suffix);
+        story.setSlug("benchmark-unlock-" + suffix);
+        Long storyId = storyRepository.save(story).getId();
+        jdbcTemplate.update("INSERT INTO chapters (story_id, chapter_number, slug, title, content, created_at) "
+                + "SELECT ?, g * ?, ? || '-chuong-' || g, 'Chương ' || g, 'nội dung', LOCALTIMESTAMP "
+                + "FROM generate_series(1, ?) g", storyId, numberStep, story.getSlug(), CHAPTERS);
+        jdbcTemplate.update("INSERT INTO chapter_payments (chapter_id, story_id, price, is_locked, is_vip_only) "
+                + "SELECT c.id, c.story_id, 5, true, false FROM chapters c WHERE c.story_id = ?", storyId);
+        return storyId;
+    }
+
+    private Long createUser(String suffix) {
+        User user = new User();
+        user.setUsername("unlock-" + suffix);
+        user.setEmail("unlock-" + suffix + "@example.com");
+        user.setPassword("secret");
+        return userRepository.save(user).getId();
+    }
+}
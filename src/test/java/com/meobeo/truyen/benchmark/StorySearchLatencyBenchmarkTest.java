@@ -0,0 +1,144 @@
+package com.meobeo.truyen.benchmark;
+
+import com.meobeo.truyen.domain.entity.Story;
+import com.meobeo.truyen.repository.StoryRepository;
+import com.meobeo.truyen.service.impl.StorySearchIndexService;
+import com.meobeo.truyen.support.PostgresJpaTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Độ trễ tìm kiếm truyện trên {@value #STORIES} truyện có tiêu đề/tác giả tiếng Việt có dấu, mỗi truyện 2 thể loại:
+ * - Câu cũ: ILIKE '%từ khóa%' trên 5 cột, SELECT DISTINCT qua join story_genres (trang 20 + đếm tổng)
+ * - searchAndFilterStories mới trên search_text đã bỏ dấu (index GIN trigram, trang 20 + đếm tổng)
+ * - suggestStories (10 gợi ý, không có câu tương ứng trước đây)
+ * search_text được tính bằng backfill của StorySearchIndexService nên có kiểm tra cả phần bỏ dấu phía dữ liệu.
+ * In ra p50/p95/max sau {@value #WARMUP} lần chạy làm nóng.
+ *
+ * Chạy bằng ./gradlew benchmarkTest (cần Docker)
+ */
+@Tag("benchmark")
+@PostgresJpaTest
+class StorySearchLatencyBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StorySearchLatencyBenchmarkTest.class);
+
+    private static final int STORIES = 100_000;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+    private static final int PAGE_SIZE = 20;
+    private static final String[] SYLLABLES = { "Tiên", "Nghịch", "Kiếm", "Đạo", "Thần", "Ma", "Thiên", "Hạ",
+            "Vô", "Địch", "Đế", "Tôn", "Long", "Phượng", "Tuyết", "Thế", "Vạn", "Cổ", "Hồn", "Độn" };
+
+    // Câu tìm kiếm trước khi có search_text, giữ nguyên điều kiện và join (không lọc trạng thái/thể loại)
+    private static final String LEGACY_FROM = "FROM stories s " +
+            "LEFT JOIN users a ON s.author_id = a.id " +
+            "LEFT JOIN story_genres sg ON s.id = sg.story_id " +
+            "WHERE (s.title ILIKE ? OR s.slug ILIKE ? OR s.author_name ILIKE ? " +
+            "OR a.username ILIKE ? OR a.display_name ILIKE ?)";
+    private static final String LEGACY_PAGE_QUERY = "SELECT DISTINCT s.* " + LEGACY_FROM +
+            " ORDER BY s.created_at DESC LIMIT " + PAGE_SIZE + " OFFSET 0";
+    private static final String LEGACY_COUNT_QUERY = "SELECT COUNT(DISTINCT s.id) " + LEGACY_FROM;
+
+    @Autowired
+    private StoryRepository storyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Dữ liệu chỉ nạp 1 lần cho mọi từ khóa
+    private static boolean seeded;
+
+    @BeforeEach
+    void seedStories() {
+        if (seeded) {
+            return;
+        }
+        // Tiêu đề 3 âm tiết có dấu + số thứ tự, search_text để trống cho backfill tính
+        String syllables = "ARRAY['" + String.join("','", SYLLABLES) + "']";
+        jdbcTemplate.update("INSERT INTO stories (title, slug, author_name, status, created_at) "
+                + "SELECT " + syllables + "[1 + g % 20] || ' ' || " + syllables + "[1 + (g / 20) % 20] || ' ' || "
+                + syllables + "[1 + (g / 400) % 20] || ' ' || g, 'truyen-' || g, 'Tác giả ' || (g % 500), "
+                + "'ONGOING', LOCALTIMESTAMP - g * INTERVAL '1 minute' FROM generate_series(1, ?) g", STORIES);
+        // 12 thể loại id liên tiếp: mỗi truyện khớp đúng 2 thể loại
+        jdbcTemplate.update("INSERT INTO genres (name) SELECT 'Thể loại ' || g FROM generate_series(1, 12) g");
+        jdbcTemplate.update("INSERT INTO story_genres (story_id, genre_id) "
+                + "SELECT s.id, g.id FROM stories s JOIN genres g ON (s.id + g.id) % 6 = 0");
+        new StorySearchIndexService(storyRepository, jdbcTemplate).initializeSearchIndex();
+        jdbcTemplate.execute("ANALYZE");
+        seeded = true;
+    }
+
+    @ParameterizedTest(name = "\"{0}\"")
+    @ValueSource(strings = { "Tiên Nghịch", "kiếm đạo thần", "Vô Địch Đế Tôn", "tien nghich", "tác giả 42",
+            "không có truyện này" })
+    void searchLatency(String keyword) {
+        String normalized = StorySearchIndexService.normalizeKeyword(keyword);
+        PageRequest page = PageRequest.of(0, PAGE_SIZE);
+
+        long[] legacy = measure(() -> legacySearch(keyword));
+        long[] search = measure(() -> storyRepository.searchAndFilterStories(normalized, null, new Long[0], 0, page)
+                .getTotalElements());
+        long[] suggest = measure(() -> storyRepository.suggestStories(normalized, 10).size());
+
+        Page<Story> result = storyRepository.searchAndFilterStories(normalized, null, new Long[0], 0, page);
+        report("ILIKE cũ", keyword, legacy, legacySearch(keyword));
+        report("searchAndFilterStories", keyword, search, result.getTotalElements());
+        report("suggestStories", keyword, suggest, storyRepository.suggestStories(normalized, 10).size());
+        result.getContent().forEach(story -> assertThat(story.getSearchText()).contains(normalized));
+    }
+
+    /**
+     * Chạy câu cũ như Spring Data: lấy trang đầu, trang đầy thì đếm tổng. Trả về số truyện khớp
+     */
+    private long legacySearch(String keyword) {
+        Object[] patterns = new Object[5];
+        Arrays.fill(patterns, "%" + keyword + "%");
+        int pageCount = jdbcTemplate.queryForList(LEGACY_PAGE_QUERY, patterns).size();
+        if (pageCount < PAGE_SIZE) {
+            return pageCount;
+        }
+        Long total = jdbcTemplate.queryForObject(LEGACY_COUNT_QUERY, Long.class, patterns);
+        return total != null ? total : 0;
+    }
+
+    private static long[] measure(LongSupplier query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.getAsLong();
+        }
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            query.getAsLong();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static void report(String query, String keyword, long[] sortedSamples, long matches) {
+        log.info("[benchmark] {} \"{}\" ({} kết quả, {} truyện): p50 {} ms, p95 {} ms, max {} ms",
+                String.format("%-22s", query), keyword, matches, STORIES,
+                String.format("%.2f", percentile(sortedSamples, 0.50)),
+                String.format("%.2f", percentile(sortedSamples, 0.95)),
+                String.format("%.2f", sortedSamples[sortedSamples.length - 1] / 1_000_000.0));
+    }
+
+    private static double percentile(long[] sortedSamples, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedSamples.length) - 1;
+        return sortedSamples[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,136 @@
+package com.meobeo.truyen.config;
+
+import com.meobeo.truyen.support.PostgresTestContainers;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Đo throughput của 2 chế độ với tải điển hình: gọi dịch vụ ngoài (Cloudinary/SendGrid) rồi 1 query DB ngắn.
+ * - PLATFORM: thread pool 200 thread (giống Tomcat mặc định) mượn thẳng connection pool
+ * - VIRTUAL: executor virtual thread của {@link VirtualThreadConfig} và {@link ConcurrencyLimitedDataSource}
+ * In ra req/s của cả 2 chế độ, chỉ kiểm tra mọi request thành công và semaphore không bị rò permit
+ * (kết quả so sánh phụ thuộc máy chạy nên không dùng làm điều kiện pass/fail).
+ *
+ * Chạy bằng ./gradlew benchmarkTest -PjavaVersion=21 (cần Docker), Java 17 thì bị bỏ qua
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadLoadBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadLoadBenchmarkTest.class);
+
+    private static final int REQUESTS = 2000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int POOL_SIZE = 20;
+    private static final long REMOTE_CALL_MILLIS = 50;
+
+    private static HikariDataSource hikari;
+
+    @BeforeAll
+    static void setUp() {
+        // Dùng chung container với các test JPA, không cần Spring context nên tự khởi động
+        PostgreSQLContainer<?> postgres = PostgresTestContainers.postgres;
+        postgres.start();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(postgres.getJdbcUrl());
+        config.setUsername(postgres.getUsername());
+        config.setPassword(postgres.getPassword());
+        config.setMaximumPoolSize(POOL_SIZE);
+        config.setMinimumIdle(POOL_SIZE);
+        config.setConnectionTimeout(30_000);
+        hikari = new HikariDataSource(config);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        hikari.close();
+    }
+
+    @Test
+    void blockingWorkloadThroughputByThreadingMode() throws Exception {
+        // Khởi động JIT và connection trước khi đo
+        run(Executors.newFixedThreadPool(PLATFORM_THREADS), hikari, 200);
+
+        ExecutorService platformPool = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        double platformThroughput = run(platformPool, hikari, REQUESTS);
+
+        ConcurrencyLimitedDataSource limited = new ConcurrencyLimitedDataSource(hikari, POOL_SIZE, 30_000);
+        ConcurrencyLimitedTaskDecorator taskLimit = new ConcurrencyLimitedTaskDecorator(REQUESTS);
+        SimpleAsyncTaskExecutor virtualThreads = VirtualThreadConfig.virtualThreadExecutor("LoadTest-", taskLimit);
+        double virtualThroughput = run(virtualThreads, limited, REQUESTS);
+
+        log.info("[benchmark] {} request (gọi ngoài {} ms + query, pool {} connection): PLATFORM ({} thread) {} req/s,"
+                + " VIRTUAL {} req/s", REQUESTS, REMOTE_CALL_MILLIS, POOL_SIZE, PLATFORM_THREADS,
+                String.format("%.0f", platformThroughput), String.format("%.0f", virtualThroughput));
+        // Mọi permit đã được trả lại
+        assertThat(limited.getActiveConnections()).isZero();
+        assertThat(limited.getWaitingThreads()).isZero();
+        assertThat(taskLimit.getActiveTasks()).isZero();
+        assertThat(taskLimit.getWaitingTasks()).isZero();
+    }
+
+    /**
+     * Chạy requests request trên executor, trả về số request/giây. Mọi request phải thành công
+     */
+    private double run(Executor executor, DataSource dataSource, int requests) throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        long start = System.nanoTime();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[requests];
+        for (int i = 0; i < requests; i++) {
+            int requestId = i;
+            futures[i] = CompletableFuture.runAsync(() -> {
+                handleRequest(dataSource, requestId);
+                succeeded.incrementAndGet();
+            }, executor);
+        }
+        CompletableFuture.allOf(futures).get(5, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - start;
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+
+        assertThat(succeeded.get()).isEqualTo(requests);
+        return requests * 1e9 / elapsedNanos;
+    }
+
+    private static void handleRequest(DataSource dataSource, int requestId) {
+        try {
+            // Gọi dịch vụ ngoài: thread bị chặn nhưng không giữ connection
+            Thread.sleep(REMOTE_CALL_MILLIS);
+            try (Connection connection = dataSource.getConnection();
+                    PreparedStatement statement = connection.prepareStatement("SELECT ?, pg_sleep(0.002)")) {
+                statement.setInt(1, requestId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    assertThat(resultSet.next()).isTrue();
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.meobeo.truyen.mapper;
+
+import com.meobeo.truyen.domain.entity.Story;
+import com.meobeo.truyen.domain.response.story.ChapterSummaryResponse;
+import com.meobeo.truyen.domain.response.story.StoryResponse;
+import com.meobeo.truyen.repository.ChapterRepository;
+import com.meobeo.truyen.repository.StoryRepository;
+import com.meobeo.truyen.service.interfaces.StoryStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đảm bảo số query thống kê và chương mới nhất (kèm trạng thái khóa) khi map danh sách truyện
+ * không phụ thuộc kích thước trang
+ */
+class StoryMapperTest {
+
+    private StoryRepository storyRepository;
+    private ChapterRepository chapterRepository;
+    private StoryStatsService storyStatsService;
+    private StoryMapper storyMapper;
+
+    @BeforeEach
+    void setUp() {
+        storyRepository = Mockito.mock(StoryRepository.class);
+        chapterRepository = Mockito.mock(ChapterRepository.class);
+        storyStatsService = Mockito.mock(StoryStatsService.class);
+        StoryStatsLoader storyStatsLoader = new StoryStatsLoader(storyStatsService, chapterRepository);
+        storyMapper = new StoryMapper(storyRepository, storyStatsLoader);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 20, 100 })
+    void toResponseListUsesConstantQueryCount(int pageSize) {
+        List<Story> stories = LongStream.rangeClosed(1, pageSize).mapToObj(this::story).toList();
+        // Mỗi truyện có đủ chương mới nhất, chương số chẵn bị khóa
+        List<ChapterRepository.LatestChapterProjection> latestChapters = new ArrayList<>();
+        for (long storyId = 1; storyId <= pageSize; storyId++) {
+            for (int number = 1; number <= StoryStatsLoader.LATEST_CHAPTER_LIMIT; number++) {
+                latestChapters.add(latestChapter(storyId, number, number % 2 == 0));
+            }
+        }
+        when(chapterRepository.findLatestChaptersByStoryIds(any(Long[].class), anyInt())).thenReturn(latestChapters);
+
+        List<StoryResponse> responses = storyMapper.toResponseList(stories);
+
+        assertThat(responses).hasSize(pageSize);
+        assertThat(responses).allSatisfy(response -> {
+            assertThat(response.getLatestChapters()).hasSize(StoryStatsLoader.LATEST_CHAPTER_LIMIT);
+            for (ChapterSummaryResponse chapter : response.getLatestChapters()) {
+                assertThat(chapter.getIsLocked()).isEqualTo(chapter.getChapterNumber() % 2 == 0);
+            }
+        });
+        verify(storyStatsService, times(1)).getStats(anyCollection());
+        verify(chapterRepository, times(1)).findLatestChaptersByStoryIds(any(Long[].class), anyInt());
+        verifyNoMoreInteractions(storyRepository, chapterRepository, storyStatsService);
+    }
+
+    private static ChapterRepository.LatestChapterProjection latestChapter(long storyId, int number,
+            boolean locked) {
+        ChapterRepository.LatestChapterProjection chapter = Mockito
+                .mock(ChapterRepository.LatestChapterProjection.class);
+        when(chapter.getId()).thenReturn(storyId * 1000 + number);
+        when(chapter.getStoryId()).thenReturn(storyId);
+        when(chapter.getTitle()).thenReturn("Chương " + number);
+        when(chapter.getChapterNumber()).thenReturn(number);
+        when(chapter.getCreatedAt()).thenReturn(LocalDateTime.of(2024, 1, 1, 10, 0).plusMinutes(number));
+        when(chapter.getIsLocked()).thenReturn(locked);
+        return chapter;
+    }
+
+    private Story story(long id) {
+        Story story = new Story();
+        story.setId(id);
+        story.setTitle("Truyện " + id);
+        story.setSlug("truyen-" + id);
+        return story;
+    }
+}
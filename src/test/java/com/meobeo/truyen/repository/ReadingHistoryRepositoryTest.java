@@ -0,0 +1,104 @@
+package com.meobeo.truyen.repository;
+
+import com.meobeo.truyen.domain.entity.Chapter;
+import com.meobeo.truyen.domain.entity.ReadingHistory;
+import com.meobeo.truyen.domain.entity.Story;
+import com.meobeo.truyen.domain.entity.User;
+import com.meobeo.truyen.support.PostgresJpaTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Câu upsert vị trí đọc: không ghi đè vị trí đọc mới hơn và bỏ qua user/chapter không tồn tại.
+ * Cần Docker để chạy PostgreSQL, không có Docker thì test được bỏ qua
+ */
+@PostgresJpaTest
+class ReadingHistoryRepositoryTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Autowired
+    private ReadingHistoryRepository readingHistoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StoryRepository storyRepository;
+
+    @Autowired
+    private ChapterRepository chapterRepository;
+
+    private Long userId;
+    private Long storyId;
+    private Long chapter1Id;
+    private Long chapter2Id;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername("reader-" + suffix);
+        user.setEmail("reader-" + suffix + "@example.com");
+        user.setPassword("secret");
+        userId = userRepository.save(user).getId();
+
+        Story story = new Story();
+        story.setTitle("Truyện " + suffix);
+        story.setSlug("truyen-" + suffix);
+        story = storyRepository.save(story);
+        storyId = story.getId();
+        chapter1Id = saveChapter(story, 1, suffix);
+        chapter2Id = saveChapter(story, 2, suffix);
+    }
+
+    @Test
+    void olderReadDoesNotOverwriteNewerPosition() {
+        upsert(chapter2Id, T0.plusMinutes(5));
+        upsert(chapter1Id, T0);
+
+        assertThat(findPosition().getChapterId()).isEqualTo(chapter2Id);
+        assertThat(findPosition().getLastReadAt()).isEqualTo(T0.plusMinutes(5));
+    }
+
+    @Test
+    void newerReadOverwritesPosition() {
+        upsert(chapter1Id, T0);
+        upsert(chapter2Id, T0.plusMinutes(5));
+
+        assertThat(findPosition().getChapterId()).isEqualTo(chapter2Id);
+    }
+
+    @Test
+    void skipsMissingChapter() {
+        int written = readingHistoryRepository.upsertReadingPositions(new Long[] { userId }, new Long[] { storyId },
+                new Long[] { Long.MAX_VALUE }, new String[] { T0.toString() });
+
+        assertThat(written).isZero();
+        assertThat(readingHistoryRepository.existsByUserIdAndStoryId(userId, storyId)).isFalse();
+    }
+
+    private Long saveChapter(Story story, int number, String suffix) {
+        Chapter chapter = new Chapter();
+        chapter.setStory(story);
+        chapter.setChapterNumber(number);
+        chapter.setSlug("truyen-" + suffix + "-chuong-" + number);
+        chapter.setTitle("Chương " + number);
+        return chapterRepository.save(chapter).getId();
+    }
+
+    private void upsert(Long chapterId, LocalDateTime readAt) {
+        readingHistoryRepository.upsertReadingPositions(new Long[] { userId }, new Long[] { storyId },
+                new Long[] { chapterId }, new String[] { readAt.toString() });
+    }
+
+    private ReadingHistory findPosition() {
+        return readingHistoryRepository.findByUserIdAndStoryId(userId, storyId).orElseThrow();
+    }
+}
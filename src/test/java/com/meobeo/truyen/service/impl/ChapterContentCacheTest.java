@@ -0,0 +1,110 @@
+package com.meobeo.truyen.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cache chapter 2 tầng: chapter bị đẩy khỏi tầng nóng được nén xuống tầng nén và đọc lại đúng nội dung,
+ * invalidate xóa cả 2 tầng và dữ liệu nạp trước lúc invalidate không được ghi vào cache
+ */
+class ChapterContentCacheTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private ChapterContentCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ChapterContentCache(2, 1_048_576);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void servesHotHitWithoutLoading() {
+        get(1L, 1);
+        get(1L, 1);
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getHotHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void evictedChapterIsCompressedAndReadBack() {
+        for (int number = 1; number <= 4; number++) {
+            get(1L, number);
+        }
+
+        assertThat(cache.getHotEvictions()).isEqualTo(2);
+        assertThat(cache.getCompressedSize()).isEqualTo(2);
+        assertThat(cache.getCompressedBytes()).isPositive();
+
+        // Đọc lại tất cả: chapter ở tầng nén giải nén ra đúng nội dung, không nạp lại từ DB
+        int loadsBefore = loads.get();
+        long hitsBefore = cache.getHotHits() + cache.getCompressedHits();
+        for (int number = 1; number <= 4; number++) {
+            assertThat(get(1L, number).content()).isEqualTo(content(1L, number));
+        }
+        assertThat(cache.getCompressedHits()).isPositive();
+        assertThat(loads.get() - loadsBefore).isZero();
+        assertThat(cache.getHotHits() + cache.getCompressedHits() - hitsBefore).isEqualTo(4);
+    }
+
+    @Test
+    void invalidateRemovesBothTiers() {
+        get(1L, 1);
+        get(1L, 2);
+        get(1L, 3);
+
+        cache.invalidate(1L, 1);
+        cache.invalidateStory(1L);
+        int loadsBefore = loads.get();
+        get(1L, 1);
+        get(1L, 2);
+        get(1L, 3);
+
+        assertThat(loads.get() - loadsBefore).isEqualTo(3);
+    }
+
+    @Test
+    void loadStartedBeforeInvalidateIsNotCached() {
+        // Chapter bị sửa trong lúc đang đọc DB: dữ liệu cũ vẫn trả cho request đó nhưng không vào cache
+        Optional<ChapterContentCache.CachedChapter> stale = cache.getOrLoad(1L, 1, () -> {
+            cache.invalidate(1L, 1);
+            return load(1L, 1);
+        });
+        assertThat(stale).isPresent();
+
+        cache.getOrLoad(1L, 2, () -> {
+            cache.invalidateStory(1L);
+            return load(1L, 2);
+        });
+
+        int loadsBefore = loads.get();
+        get(1L, 1);
+        get(1L, 2);
+        assertThat(loads.get() - loadsBefore).isEqualTo(2);
+    }
+
+    private ChapterContentCache.CachedChapter get(Long storyId, int number) {
+        return cache.getOrLoad(storyId, number, () -> load(storyId, number)).orElseThrow();
+    }
+
+    private Optional<ChapterContentCache.CachedChapter> load(Long storyId, int number) {
+        loads.incrementAndGet();
+        return Optional.of(new ChapterContentCache.CachedChapter(storyId * 1000 + number, storyId, number,
+                "chuong-" + number, "Chương " + number, content(storyId, number), T0, "Truyện " + storyId,
+                "truyen-" + storyId));
+    }
+
+    private static String content(Long storyId, int number) {
+        return ("Nội dung chương " + number + " của truyện " + storyId + ". ").repeat(200);
+    }
+}
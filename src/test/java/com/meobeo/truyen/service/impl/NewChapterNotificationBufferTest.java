@@ -0,0 +1,96 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.service.interfaces.NotificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Buffer thông báo chương mới: chỉ đếm thông báo gửi xong, gửi lỗi giữa chừng thì gửi tiếp từ subscriber cuối
+ */
+class NewChapterNotificationBufferTest {
+
+    private NotificationService notificationService;
+    private NewChapterNotificationBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        notificationService = Mockito.mock(NotificationService.class);
+        // Gửi ngay trên thread gọi
+        buffer = new NewChapterNotificationBuffer(notificationService, Runnable::run);
+        ReflectionTestUtils.setField(buffer, "quietPeriodMs", 0L);
+        ReflectionTestUtils.setField(buffer, "maxWaitMs", 0L);
+        ReflectionTestUtils.setField(buffer, "maxAttempts", 2);
+    }
+
+    @Test
+    void countsOnlySuccessfulDispatches() {
+        buffer.recordAfterCommit(1L, 10, 12, 3);
+
+        buffer.dispatchReady();
+
+        verify(notificationService).notifyNewChapters(eq(1L), eq(10), eq(12), eq(3), eq(0L), any());
+        assertThat(buffer.getDispatchedNotifications()).isEqualTo(1);
+        assertThat(buffer.getFailedDispatches()).isZero();
+        assertThat(buffer.getPendingStories()).isZero();
+    }
+
+    @Test
+    void resumesFromLastSentUserAfterPartialFailure() {
+        // Lần đầu gửi xong 1 trang (đến userId 500) rồi lỗi
+        when(notificationService.notifyNewChapters(eq(1L), anyInt(), anyInt(), anyInt(), eq(0L), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<LongConsumer>getArgument(5).accept(500L);
+                    throw new IllegalStateException("mất kết nối DB");
+                });
+        buffer.recordAfterCommit(1L, 10, 10, 1);
+
+        buffer.dispatchReady();
+        assertThat(buffer.getDispatchedNotifications()).isZero();
+        assertThat(buffer.getFailedDispatches()).isEqualTo(1);
+
+        buffer.dispatchReady();
+        verify(notificationService).notifyNewChapters(eq(1L), eq(10), eq(10), eq(1), eq(500L), any());
+        assertThat(buffer.getDispatchedNotifications()).isEqualTo(1);
+        assertThat(buffer.getFailedDispatches()).isEqualTo(1);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        when(notificationService.notifyNewChapters(anyLong(), anyInt(), anyInt(), anyInt(), anyLong(), any()))
+                .thenThrow(new IllegalStateException("mất kết nối DB"));
+        buffer.recordAfterCommit(1L, 10, 10, 1);
+
+        buffer.dispatchReady();
+        buffer.dispatchReady();
+        buffer.dispatchReady();
+
+        verify(notificationService, times(2)).notifyNewChapters(anyLong(), anyInt(), anyInt(), anyInt(), anyLong(),
+                any());
+        assertThat(buffer.getFailedDispatches()).isEqualTo(2);
+        assertThat(buffer.getDispatchedNotifications()).isZero();
+    }
+
+    @Test
+    void ignoresEmptyRecord() {
+        buffer.recordAfterCommit(1L, 10, 10, 0);
+
+        buffer.dispatchReady();
+
+        verify(notificationService, never()).notifyNewChapters(anyLong(), anyInt(), anyInt(), anyInt(), anyLong(),
+                any());
+    }
+}
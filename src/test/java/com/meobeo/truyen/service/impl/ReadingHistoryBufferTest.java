@@ -0,0 +1,76 @@
+package com.meobeo.truyen.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Buffer vị trí đọc: giữ lần đọc mới nhất của mỗi (user, story) và chỉ gỡ entry đã thực sự được ghi
+ */
+class ReadingHistoryBufferTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private ReadingHistoryBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new ReadingHistoryBuffer();
+        ReflectionTestUtils.setField(buffer, "maxPending", 100);
+    }
+
+    @Test
+    void keepsLatestReadPerUserAndStory() {
+        buffer.record(1L, 10L, 100L, T0);
+        buffer.record(1L, 10L, 101L, T0.plusSeconds(5));
+        // Lần đọc đến muộn nhưng cũ hơn không ghi đè
+        buffer.record(1L, 10L, 99L, T0.plusSeconds(1));
+
+        assertThat(buffer.getPendingCount()).isEqualTo(1);
+        assertThat(buffer.find(1L, 10L)).contains(new ReadingHistoryBuffer.PendingRead(101L, T0.plusSeconds(5)));
+    }
+
+    @Test
+    void removeFlushedKeepsNewerRead() {
+        buffer.record(1L, 10L, 100L, T0);
+        buffer.record(1L, 11L, 200L, T0);
+        List<ReadingHistoryBuffer.FlushEntry> snapshot = buffer.snapshot();
+
+        // Lần đọc mới hơn đến trong lúc flush
+        buffer.record(1L, 10L, 101L, T0.plusSeconds(5));
+        buffer.removeFlushed(snapshot);
+
+        assertThat(buffer.getPendingCount()).isEqualTo(1);
+        assertThat(buffer.find(1L, 10L)).contains(new ReadingHistoryBuffer.PendingRead(101L, T0.plusSeconds(5)));
+        assertThat(buffer.find(1L, 11L)).isEmpty();
+    }
+
+    @Test
+    void discardedEntryIsNoLongerPending() {
+        buffer.record(1L, 10L, 100L, T0);
+        buffer.record(2L, 10L, 100L, T0);
+        List<ReadingHistoryBuffer.FlushEntry> snapshot = buffer.snapshot();
+
+        buffer.discardUser(1L);
+
+        assertThat(snapshot).filteredOn(buffer::isPending)
+                .extracting(ReadingHistoryBuffer.FlushEntry::userId)
+                .containsExactly(2L);
+    }
+
+    @Test
+    void rejectsNewKeyWhenFull() {
+        ReflectionTestUtils.setField(buffer, "maxPending", 1);
+
+        assertThat(buffer.record(1L, 10L, 100L, T0)).isTrue();
+        assertThat(buffer.record(1L, 11L, 200L, T0)).isFalse();
+        // Key đã có trong buffer vẫn được cập nhật
+        assertThat(buffer.record(1L, 10L, 101L, T0.plusSeconds(1))).isTrue();
+        assertThat(buffer.getBufferFullWrites()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,95 @@
+package com.meobeo.truyen.service.impl;
+
+import com.meobeo.truyen.domain.entity.User;
+import com.meobeo.truyen.domain.entity.WalletTransaction;
+import com.meobeo.truyen.domain.enums.TransactionType;
+import com.meobeo.truyen.exception.InsufficientBalanceException;
+import com.meobeo.truyen.repository.UserRepository;
+import com.meobeo.truyen.repository.UserWalletRepository;
+import com.meobeo.truyen.repository.WalletTransactionRepository;
+import com.meobeo.truyen.service.interfaces.WalletLedgerService;
+import com.meobeo.truyen.support.PostgresJpaTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Nhiều thread cùng trừ 1 ví: không được trừ quá số dư và mỗi lần trừ thành công có đúng 1 giao dịch.
+ * Cần Docker để chạy PostgreSQL, không có Docker thì test được bỏ qua
+ */
+@PostgresJpaTest
+@Import(WalletLedgerServiceImpl.class)
+class WalletLedgerConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int DEBITS_PER_THREAD = 50;
+    private static final int DEBIT_AMOUNT = 7;
+    // Chỉ đủ cho khoảng 1/4 số lần trừ
+    private static final int INITIAL_SPIRIT_STONES = THREADS * DEBITS_PER_THREAD * DEBIT_AMOUNT / 4 + 3;
+
+    @Autowired
+    private WalletLedgerService walletLedgerService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserWalletRepository userWalletRepository;
+
+    @Autowired
+    private WalletTransactionRepository walletTransactionRepository;
+
+    @Test
+    void concurrentDebitsNeverOverdraw() throws Exception {
+        User user = new User();
+        user.setUsername("ledger-test");
+        user.setEmail("ledger-test@example.com");
+        user.setPassword("secret");
+        Long userId = userRepository.save(user).getId();
+        userWalletRepository.upsertCredit(userId, 0, INITIAL_SPIRIT_STONES, 0);
+        long transactionsBefore = walletTransactionRepository.count();
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < DEBITS_PER_THREAD; i++) {
+                    try {
+                        walletLedgerService.debit(userId, WalletTransaction.CurrencyType.SPIRIT_STONE,
+                                DEBIT_AMOUNT, TransactionType.SPIRIT_SPEND, "stress test");
+                        succeeded.incrementAndGet();
+                    } catch (InsufficientBalanceException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        int finalSpiritStones = userWalletRepository.findById(userId).orElseThrow().getSpiritStones();
+        assertThat(succeeded.get() + rejected.get()).isEqualTo(THREADS * DEBITS_PER_THREAD);
+        assertThat(finalSpiritStones).isBetween(0, DEBIT_AMOUNT - 1);
+        assertThat(INITIAL_SPIRIT_STONES - finalSpiritStones).isEqualTo(succeeded.get() * DEBIT_AMOUNT);
+        assertThat(walletTransactionRepository.count() - transactionsBefore).isEqualTo(succeeded.get());
+    }
+}
@@ -0,0 +1,14 @@
+package com.meobeo.truyen.support;
+
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Container PostgreSQL dùng chung cho mọi test cần DB thật.
+ * Test JPA nạp qua @ImportTestcontainers (xem {@link PostgresJpaTest}), test không có Spring context tự gọi start()
+ */
+public interface PostgresTestContainers {
+
+    @ServiceConnection
+    PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+}
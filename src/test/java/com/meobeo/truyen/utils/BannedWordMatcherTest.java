@@ -0,0 +1,67 @@
+package com.meobeo.truyen.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.text.Normalizer;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bảng văn bản -> từ cấm tìm thấy (để trống nếu không được khớp) với danh sách từ cấm mặc định
+ */
+class BannedWordMatcherTest {
+
+    private static final BannedWordMatcher MATCHER = BannedWordMatcher.build(ContentFilterUtil.DEFAULT_BANNED_WORDS);
+
+    @ParameterizedTest(name = "\"{0}\" -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            // Chữ có dấu phải cùng dấu với từ cấm
+            "các bạn ơi đọc tiếp đi  |",
+            "cặc                     | cặc",
+            "vai trò nhân vật        |",
+            "vãi thật                | vãi",
+            "đi học                  |",
+            // Từ cấm ngắn phải đứng riêng
+            "ngọc lan                |",
+            "clgt                    |",
+            "oke cl                  | cl",
+            "dm                      | dm",
+            // Từ cấm bị tách bởi ký tự khác phải đứng riêng
+            "cà vẹt                  |",
+            "ca ve                   | cave",
+            "Ca.Ve                   | cave",
+            // Ký tự không phải chữ chen giữa bị bỏ qua
+            "đ.m                     | đm",
+            "f.u.c.k                 | fuck",
+            "v c l                   | vcl",
+            // Từ dài không cần đứng riêng
+            "shitty                  | shit",
+            // Chữ không dấu chỉ thay cho chữ có dấu khi cả văn bản gõ không dấu
+            "chet roi                | chết",
+            "chet rồi                |",
+            "CHẾT                    | chết",
+            // Từ ngắn không dấu không thay cho từ có dấu
+            "cac ban                 |",
+            "cut                     |",
+            "di hoc                  |",
+    })
+    void findFirst(String text, String expected) {
+        assertThat(MATCHER.findFirst(text)).isEqualTo(expected);
+    }
+
+    @Test
+    void decomposedTextMatches() {
+        assertThat(MATCHER.findFirst(Normalizer.normalize("đồ cặc", Normalizer.Form.NFD))).isEqualTo("cặc");
+    }
+
+    @Test
+    void emptyListMatchesNothing() {
+        BannedWordMatcher empty = BannedWordMatcher.build(List.of());
+
+        assertThat(empty.size()).isZero();
+        assertThat(empty.findFirst("đ.m")).isNull();
+    }
+}
@@ -0,0 +1,59 @@
+package com.meobeo.truyen.utils;
+
+import com.meobeo.truyen.config.DataInitializer;
+import com.meobeo.truyen.repository.BannedWordRepository;
+import com.meobeo.truyen.repository.RoleRepository;
+import com.meobeo.truyen.repository.UserRepository;
+import com.meobeo.truyen.support.PostgresJpaTest;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bộ lọc từ cấm trên DB mới: vẫn lọc theo danh sách mặc định trước và sau khi seed,
+ * seed đúng 1 lần và không ghi lại khi admin đã xóa hết từ cấm.
+ * Cần Docker để chạy PostgreSQL, không có Docker thì test được bỏ qua
+ */
+@PostgresJpaTest
+class ContentFilterUtilTest {
+
+    @Autowired
+    private BannedWordRepository bannedWordRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void freshDatabaseStillFiltersAndSeedsOnce() throws Exception {
+        ContentFilterUtil contentFilter = new ContentFilterUtil(bannedWordRepository);
+        DataInitializer initializer = new DataInitializer(roleRepository, userRepository,
+                Mockito.mock(PasswordEncoder.class), bannedWordRepository, contentFilter);
+        ReflectionTestUtils.setField(initializer, "seedDefaultBannedWords", true);
+
+        // Bảng trống chưa seed (lần nạp định kỳ chạy trước DataInitializer): giữ danh sách mặc định
+        contentFilter.reloadBannedWords();
+        assertThat(bannedWordRepository.hasEverStoredWords()).isFalse();
+        assertThat(contentFilter.containsInappropriateContent("truyện hay vcl")).isTrue();
+        assertThat(contentFilter.getBannedWordCount()).isEqualTo(ContentFilterUtil.DEFAULT_BANNED_WORDS.size());
+
+        initializer.run();
+        assertThat(bannedWordRepository.count()).isEqualTo(ContentFilterUtil.DEFAULT_BANNED_WORDS.size());
+        assertThat(contentFilter.containsInappropriateContent("truyện hay vcl")).isTrue();
+
+        // Admin xóa hết từ cấm: không lọc nữa và lần khởi động sau không seed lại
+        bannedWordRepository.deleteAll();
+        contentFilter.reloadBannedWords();
+        assertThat(contentFilter.containsInappropriateContent("truyện hay vcl")).isFalse();
+
+        initializer.run();
+        assertThat(bannedWordRepository.count()).isZero();
+        assertThat(contentFilter.getBannedWordCount()).isZero();
+    }
+}